@@ -8,15 +8,20 @@ import com.acmerobotics.roadrunner.trajectory.Trajectory
 import com.acmerobotics.roadrunner.trajectory.constraints.TrajectoryAccelerationConstraint
 import com.acmerobotics.roadrunner.trajectory.constraints.TrajectoryVelocityConstraint
 import ftc.rogue.blacksmith.internal.*
+import ftc.rogue.blacksmith.internal.anvil.AnvilHandoffStats
 import ftc.rogue.blacksmith.internal.anvil.AnvilInternal
 import ftc.rogue.blacksmith.internal.anvil.AnvilRunConfig
 import ftc.rogue.blacksmith.internal.anvil.AnvilRunner
+import ftc.rogue.blacksmith.internal.anvil.SegmentMemo
+import ftc.rogue.blacksmith.internal.anvil.TrajectoryCache
 import ftc.rogue.blacksmith.internal.util.AnvilConsumer
 import ftc.rogue.blacksmith.internal.util.AnvilCycle
 import ftc.rogue.blacksmith.internal.util.AnvilRunConfigBuilder
 import ftc.rogue.blacksmith.internal.util.Consumer
 import ftc.rogue.blacksmith.util.*
 import kotlinx.coroutines.*
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil
+import java.io.File
 import java.util.concurrent.atomic.AtomicInteger
 
 /**
@@ -116,6 +121,75 @@ class Anvil
         fun startAutoWith(instance: Anvil): AnvilRunner {
             return AnvilRunner().startAutoWith(instance)
         }
+
+        /**
+         * Saves every trajectory Anvil builds to [directory], and loads it back from there the
+         * next time the exact same trajectory is built (same path, start pose, constraints, and
+         * `DriveConstants`) instead of rebuilding it. Marker callbacks are re-attached to the
+         * loaded trajectory.
+         *
+         * Trajectories using [withRawBuilder], [addTrajectory], or raw constraint objects are
+         * always built normally.
+         *
+         * [READ DOCS FOR THIS (click me)](https://blacksmithftc.vercel.app/anvil/creating-and-running#caching-trajectories)
+         */
+        @JvmStatic
+        @JvmOverloads
+        fun enableTrajectoryCache(directory: File = File(AppUtil.FIRST_FOLDER, "blacksmith/trajectory-cache")) {
+            TrajectoryCache.directory = directory
+        }
+
+        /**
+         * Stops saving & loading trajectories, see [enableTrajectoryCache].
+         */
+        @JvmStatic
+        fun disableTrajectoryCache() {
+            TrajectoryCache.directory = null
+        }
+
+        /**
+         * Deletes every saved trajectory, see [enableTrajectoryCache].
+         */
+        @JvmStatic
+        fun clearTrajectoryCache() {
+            TrajectoryCache.clear()
+        }
+
+        /**
+         * Lets Anvil reuse the parts of previously built trajectories that haven't changed (e.g.
+         * when rebuilding the auto after tweaking an offset during init), instead of rebuilding
+         * everything. Enabled by default.
+         *
+         * [READ DOCS FOR THIS (click me)](https://blacksmithftc.vercel.app/anvil/creating-and-running#rebuilding-trajectories)
+         */
+        @JvmStatic
+        @JvmOverloads
+        fun setIncrementalBuilds(enabled: Boolean = true) {
+            SegmentMemo.isEnabled = enabled
+            if (!enabled) SegmentMemo.clear()
+        }
+
+        /**
+         * Blocks until every trajectory that's being built in the background (preforged [thenRun]
+         * & [thenRunOneOf] continuations, and the rest of [buildStreaming] builds) is done.
+         *
+         * Mostly for running autos in virtual time (e.g. in a simulation), where builds should
+         * take no time at all, instead of however many virtual loops they'd take in real time.
+         */
+        @JvmStatic
+        fun awaitBackgroundBuilds() {
+            AnvilInternal.awaitBackgroundBuilds()
+        }
+
+        /**
+         * How long preforged trajectories (from [thenRun] & [thenRunOneOf]) took to build vs. how
+         * long they had until they were needed, so you can see how close your auto is to stalling.
+         *
+         * [READ DOCS FOR THIS (click me)](https://blacksmithftc.vercel.app/anvil/creating-and-running#handing-off-without-blocking)
+         */
+        @JvmStatic
+        val handoffStats: AnvilHandoffStats
+            get() = AnvilInternal.handoffStats
     }
 
     @PublishedApi
@@ -432,6 +506,34 @@ class Anvil
         internal._resetTurnConstraint()
     }
 
+    // -- Resolution --
+
+    /**
+     * __IMPORTANT:__ These units are NOT auto-converted
+     *
+     * [Link to method docs](https://blacksmithftc.vercel.app/anvil/constraints#anvilsetresolution)
+     */
+    fun setResolution(resolution: Number) = tap {
+        internal._setResolution(resolution)
+    }
+
+    /**
+     * __IMPORTANT:__ These units are NOT auto-converted
+     *
+     * [Link to method docs](https://blacksmithftc.vercel.app/anvil/constraints#anvilsetadaptiveresolution)
+     */
+    @JvmOverloads
+    fun setAdaptiveResolution(maxProfileError: Number = 1.0) = tap {
+        internal._setAdaptiveResolution(maxProfileError)
+    }
+
+    /**
+     * [Link to method docs](https://blacksmithftc.vercel.app/anvil/constraints#anvilresetresolution)
+     */
+    fun resetResolution() = tap {
+        internal._resetResolution()
+    }
+
     // -- Building, creating, running --
 
     /**
@@ -445,6 +547,23 @@ class Anvil
         internal.`$thenRun`(nextTrajectory, configBuilder)
     }
 
+    /**
+     * Like [thenRun], but for when which trajectory to run next isn't known until later (e.g.
+     * parking based on the signal cone). Every one of the [variants] is built in the background
+     * as soon as this trajectory is built, and the one [selector] picks is just ran.
+     *
+     * [READ DOCS FOR THIS (click me)](https://blacksmithftc.vercel.app/anvil/creating-and-running#running-one-of-many-trajectories)
+     */
+    @JvmOverloads
+    fun <K : Any> thenRunOneOf(
+        variants: Collection<K>,
+        selector: () -> K,
+        nextTrajectory: (K, Pose2d) -> Anvil,
+        configBuilder: AnvilRunConfigBuilder = AnvilRunConfig.DEFAULT
+    ) = tap {
+        internal.`$thenRunOneOf`(variants, selector, nextTrajectory, configBuilder)
+    }
+
     /**
      * [READ DOCS FOR THIS (click me)](https://blacksmithftc.vercel.app/anvil/creating-and-running#just-building-a-trajectorysequence)
      */
@@ -452,6 +571,21 @@ class Anvil
         return internal.`$build`()
     }
 
+    /**
+     * Builds just the first segment of the trajectory before returning it, and the rest of it in
+     * the background while it's being followed; if the robot catches up to a segment that isn't
+     * built yet, it holds still until it is. Good for cutting the delay before a trajectory
+     * that's built last-second (e.g. after reading the signal) starts moving.
+     *
+     * Needs RR+'s `TrajectorySequenceBuilder` & `TrajectorySequenceRunner`; otherwise, it's the
+     * same as [build].
+     *
+     * [READ DOCS FOR THIS (click me)](https://blacksmithftc.vercel.app/anvil/creating-and-running#streaming-builds)
+     */
+    fun <T> buildStreaming(): T {
+        return internal.`$buildStreaming`()
+    }
+
     // -- Internal --
 
     // Just so Kotlin doesn't highlight 'also' as yellow, it's distracting here
@@ -7,6 +7,8 @@ import ftc.rogue.blacksmith.internal.util.Consumer
 import ftc.rogue.blacksmith.listeners.Listener
 import ftc.rogue.blacksmith.listeners.ReforgedGamepad
 import ftc.rogue.blacksmith.listeners.Timer
+import ftc.rogue.blacksmith.util.TimeSource
+import ftc.rogue.blacksmith.util.VirtualClock
 
 /**
  * [**LINK TO OFFICIAL DOCS (click on me) (please read) (I like cars)**](https://blacksmithftc.vercel.app/scheduler-api/overview)
@@ -48,6 +50,10 @@ import ftc.rogue.blacksmith.listeners.Timer
  * All tasks are guaranteed to run in the order that they are scheduled. The code blocks run in
  * the following order: `beforeEach` -> `scheduled tasks` -> `block of code provided in start`
  *
+ * Scheduled tasks may also be split up into [phases][TickPhase], in which case the order is
+ * `beforeEach` -> `sensor reads` -> `logic` -> `block of code provided in start` -> `actuation`.
+ * Tasks are in the logic phase by default.
+ *
  * Java usage example:
  * ```java
  * @Override
@@ -128,6 +134,44 @@ object Scheduler {
         internal.launch(opmode, afterEach)
     }
 
+    /**
+     * Same as [launch], but paces the loop to run at a fixed rate of [hz] ticks per second,
+     * instead of running as fast as it possibly can.
+     *
+     * The rate persists for any later launches until it's changed or the [Scheduler] is nuked.
+     *
+     * @param opmode The [LinearOpMode] to run the [Scheduler] in.
+     * @param hz The target number of ticks per second.
+     * @param skipMissedTicks If true, ticks that were missed due to an overrun are dropped instead
+     * of being caught up on.
+     * @param afterEach An optional block of code to run every tick, after the listeners have ran.
+     *
+     * @see setLoopRate
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun launchAtRate(opmode: LinearOpMode, hz: Double, skipMissedTicks: Boolean = false, afterEach: Runnable = Runnable {}) {
+        internal.setLoopRate(hz, skipMissedTicks)
+        internal.launch(opmode, afterEach)
+    }
+
+    /**
+     * Sets the rate that the loop runs at for every subsequent launch (including [launchManually]
+     * and [debug]). Each tick is paced against a monotonic deadline, and the leftover time is
+     * slept away. Overruns are tracked and reported through [SchedulerDebugInfo].
+     *
+     * Pass `0` to go back to running as fast as possible.
+     *
+     * @param hz The target number of ticks per second, or `0` to disable pacing.
+     * @param skipMissedTicks If true, ticks that were missed due to an overrun are dropped instead
+     * of being caught up on.
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun setLoopRate(hz: Double, skipMissedTicks: Boolean = false) {
+        internal.setLoopRate(hz, skipMissedTicks)
+    }
+
     /**
      * [Link to method docs](https://blacksmithftc.vercel.app/scheduler-api/scheduler#schedulerlaunchonstart)
      */
@@ -153,6 +197,50 @@ object Scheduler {
         internal.debug(condition, afterEach)
     }
 
+    /**
+     * Starts recording how long every part of each tick takes (the whole loop, `beforeEach`,
+     * `afterEach`, and each individual [Schedulable]) into fixed-size histograms, which can be read
+     * through [SchedulerDebugInfo.profiler].
+     *
+     * The [topN] slowest schedulables are also published to FtcDashboard every [publishIntervalMs].
+     *
+     * Profiling is off by default, and costs nothing while off.
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun enableProfiling(topN: Int = 5, publishIntervalMs: Long = 500) {
+        internal.enableProfiling(topN, publishIntervalMs)
+    }
+
+    /**
+     * Stops profiling, see [enableProfiling].
+     */
+    @JvmStatic
+    fun disableProfiling() {
+        internal.disableProfiling()
+    }
+
+    /**
+     * Sets the clock that everything time-based in Blacksmith reads from (loop pacing, timers,
+     * pulsars, `On` time extensions, Kalman filters, [debug]'s loop time, etc.).
+     *
+     * Defaults to [TimeSource.SYSTEM]; pass in a [VirtualClock] to run things deterministically
+     * and faster than real time, e.g. in tests or simulation. Should be set before any timers
+     * are created.
+     */
+    @JvmStatic
+    fun setTimeSource(timeSource: TimeSource) {
+        internal.setTimeSource(timeSource)
+    }
+
+    /**
+     * The clock that everything time-based in Blacksmith reads from, see [setTimeSource].
+     */
+    @JvmStatic
+    fun getTimeSource(): TimeSource {
+        return internal.timeSource
+    }
+
     /**
      * [Link to method docs](https://blacksmithftc.vercel.app/scheduler-api/scheduler#scheduleron)
      */
@@ -161,12 +249,52 @@ object Scheduler {
         internal.on(message, callback)
     }
 
+    /**
+     * Subscribes to a message like [on], but also receives the value it was emitted with (see
+     * [emit] & [emitAsync]). Messages emitted without a value don't reach these callbacks.
+     */
+    @JvmStatic
+    fun <T> onValue(message: Any, callback: Consumer<T>) {
+        internal.onValue(message, callback)
+    }
+
     /**
      * [Link to method docs](https://blacksmithftc.vercel.app/scheduler-api/scheduler#scheduleremit)
      */
     @JvmStatic
-    fun emit(message: Any) {
-        internal.emit(message)
+    @JvmOverloads
+    fun emit(message: Any, value: Any? = null) {
+        internal.emit(message, value)
+    }
+
+    /**
+     * Emits a message from any thread (e.g. an EasyOpenCV pipeline). Instead of running the
+     * callbacks right away, the message is put on a bounded queue, and delivered on the
+     * scheduler's thread at the start of the next tick (right before `beforeEach`), or by
+     * [deliverAsyncMessages].
+     *
+     * Plain messages never block; coalesced ones go through a `ConcurrentHashMap`, which can
+     * briefly wait on the scheduler's thread taking the last value out.
+     *
+     * If [coalesce] is true, only the latest value per message is kept until it's delivered.
+     *
+     * @return `false` if the message was dropped because the queue was full (see
+     * [SchedulerDebugInfo.numDroppedAsyncMessages])
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun emitAsync(message: Any, value: Any? = null, coalesce: Boolean = false): Boolean {
+        return internal.emitAsync(message, value, coalesce)
+    }
+
+    /**
+     * Delivers every [emitAsync] message that's waiting, right now, on the calling thread (which
+     * should be the one the Scheduler runs on). Every tick already does this itself; this is for
+     * loops that run before the Scheduler's launched, e.g. an init loop waiting on the camera.
+     */
+    @JvmStatic
+    fun deliverAsyncMessages() {
+        internal.deliverAsyncMessages()
     }
 
     /**
@@ -185,8 +313,9 @@ object Scheduler {
     internal val internal = SchedulerInternal()
 
     @JvmStatic
-    fun hook(schedulable: Schedulable) {
-        internal.hook(schedulable)
+    @JvmOverloads
+    fun hook(schedulable: Schedulable, phase: TickPhase = TickPhase.LOGIC) {
+        internal.hook(schedulable, phase)
     }
 
     @JvmStatic
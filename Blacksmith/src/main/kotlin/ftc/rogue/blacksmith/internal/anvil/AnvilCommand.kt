@@ -0,0 +1,21 @@
+package ftc.rogue.blacksmith.internal.anvil
+
+import com.acmerobotics.roadrunner.trajectory.MarkerCallback
+
+/**
+ * A canonical description of a single builder call enqueued by [AnvilInternal], which the
+ * [TrajectoryCache] uses to recognize a trajectory that's already been built before.
+ *
+ * The args are the values actually passed to the builder (i.e. already converted from the
+ * [GlobalUnits][ftc.rogue.blacksmith.units.GlobalUnits]). Marker callbacks aren't part of the
+ * description, they're just carried along so they can be re-attached to a cached trajectory.
+ *
+ * Calls that can't be described by plain numbers (e.g. a raw constraint object or an arbitrary
+ * builder lambda) are marked as not cacheable, which opts the whole trajectory out of caching.
+ */
+internal class AnvilCommand(
+    val name: String,
+    val args: DoubleArray,
+    val callback: MarkerCallback? = null,
+    val isCacheable: Boolean = true,
+)
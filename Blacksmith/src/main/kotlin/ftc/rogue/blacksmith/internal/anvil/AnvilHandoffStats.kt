@@ -0,0 +1,77 @@
+package ftc.rogue.blacksmith.internal.anvil
+
+import ftc.rogue.blacksmith.internal.scheduler.LatencyHistogram
+
+/**
+ * How close Anvil's `thenRun`s came to stalling the robot; i.e. how long each preforged trajectory
+ * took to build vs. how long it had before it was actually needed.
+ *
+ * Get it through [Anvil.handoffStats][ftc.rogue.blacksmith.Anvil.handoffStats]. Everything is
+ * recorded on the main thread, at the moment a trajectory is handed off.
+ *
+ * @author KG
+ */
+class AnvilHandoffStats internal constructor() {
+    /**
+     * The number of preforged trajectories that have been handed off.
+     */
+    var numHandoffs = 0
+        private set
+
+    /**
+     * The number of handoffs where the trajectory wasn't done building when it was needed.
+     */
+    var numStalls = 0
+        private set
+
+    /**
+     * How long each trajectory took to build.
+     */
+    val buildTimes = LatencyHistogram()
+
+    /**
+     * How long before it was needed each trajectory finished building (for the ones that didn't stall).
+     */
+    val slackTimes = LatencyHistogram()
+
+    /**
+     * How long the robot had to wait for each trajectory that did stall.
+     */
+    val stallTimes = LatencyHistogram()
+
+    /**
+     * The least slack a handoff has had, in milliseconds; negative if something's stalled.
+     */
+    var closestCall = Double.POSITIVE_INFINITY
+        private set
+
+    fun reset() {
+        numHandoffs = 0
+        numStalls = 0
+        buildTimes.reset()
+        slackTimes.reset()
+        stallTimes.reset()
+        closestCall = Double.POSITIVE_INFINITY
+    }
+
+    @JvmSynthetic
+    internal fun recordReady(buildNanos: Long, slackNanos: Long) {
+        numHandoffs++
+        buildTimes.record(buildNanos)
+        slackTimes.record(slackNanos)
+        closestCall = minOf(closestCall, slackNanos / 1e6)
+    }
+
+    @JvmSynthetic
+    internal fun recordStall(buildNanos: Long, stallNanos: Long) {
+        numHandoffs++
+        numStalls++
+        buildTimes.record(buildNanos)
+        stallTimes.record(stallNanos)
+        closestCall = minOf(closestCall, -stallNanos / 1e6)
+    }
+
+    override fun toString() =
+        "AnvilHandoffStats(numHandoffs=$numHandoffs, numStalls=$numStalls, closestCall=${closestCall}ms, " +
+        "build p50/max=${buildTimes.p50}/${buildTimes.max}ms, stall p50/max=${stallTimes.p50}/${stallTimes.max}ms)"
+}
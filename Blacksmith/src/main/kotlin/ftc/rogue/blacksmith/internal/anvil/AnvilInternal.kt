@@ -3,20 +3,27 @@
 package ftc.rogue.blacksmith.internal.anvil
 
 import com.acmerobotics.roadrunner.geometry.Pose2d
+import com.acmerobotics.roadrunner.geometry.Vector2d
 import com.acmerobotics.roadrunner.trajectory.MarkerCallback
 import com.acmerobotics.roadrunner.trajectory.Trajectory
 import com.acmerobotics.roadrunner.trajectory.constraints.TrajectoryAccelerationConstraint
 import com.acmerobotics.roadrunner.trajectory.constraints.TrajectoryVelocityConstraint
 import ftc.rogue.blacksmith.Anvil
+import ftc.rogue.blacksmith.Scheduler
 import ftc.rogue.blacksmith.internal.*
 import ftc.rogue.blacksmith.internal.proxies._SampleMecanumDrive
 import ftc.rogue.blacksmith.internal.proxies._TrajectorySequenceBuilder
+import ftc.rogue.blacksmith.internal.scheduler.Schedulable
+import ftc.rogue.blacksmith.internal.scheduler.TickPhase
 import ftc.rogue.blacksmith.internal.util.*
-import ftc.rogue.blacksmith.units.GlobalUnits
+import ftc.rogue.blacksmith.util.anvil.AnvilCycleListener
 import ftc.rogue.blacksmith.util.toIn
 import ftc.rogue.blacksmith.util.toRad
 import ftc.rogue.blacksmith.util.toSec
 import kotlinx.coroutines.*
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
 import java.util.concurrent.atomic.AtomicInteger
 
 /**
@@ -35,18 +42,97 @@ class AnvilInternal
 
     companion object {
         private val builderScope = CoroutineScope(Dispatchers.Default + SupervisorJob())
+
+        // Leaves a core free for the main loop, and caps it so that a bunch of parking variants
+        // don't starve everything else during init
+        private val MAX_PREFORGE_THREADS = (Runtime.getRuntime().availableProcessors() - 1).coerceIn(1, 3)
+
+        private val preforgeScope = builderScope + Executors
+            .newFixedThreadPool(MAX_PREFORGE_THREADS) { Thread(it, "anvil-preforge").apply { isDaemon = true } }
+            .asCoroutineDispatcher()
+
+        @get:JvmSynthetic
+        internal val handoffStats = AnvilHandoffStats()
+
+        // Everything that's being built in the background right now, see `awaitBackgroundBuilds`
+        private val backgroundBuilds = ConcurrentHashMap.newKeySet<Job>()
+
+        private fun <T : Job> T.trackedAsBackgroundBuild() = also { job ->
+            backgroundBuilds += job
+            job.invokeOnCompletion { backgroundBuilds -= job }
+        }
+
+        @JvmSynthetic
+        internal fun awaitBackgroundBuilds() {
+            // Finishing one build can start others (e.g. a streaming build preforging what's next)
+            while (backgroundBuilds.isNotEmpty()) {
+                runBlocking { backgroundBuilds.toList().joinAll() }
+            }
+        }
     }
 
-    private val driveProxy = _SampleMecanumDrive(drive)
+    private val driveProxy = _SampleMecanumDrive.of(drive)
 
     private val builderProxy = _TrajectorySequenceBuilder(driveProxy, startPose)
 
-    private val builderDeque = ArrayDeque<() -> Unit>()
+    // Set if the drive wants to know when each doTimes iteration starts & ends
+    private val cycleListener = drive as? AnvilCycleListener
+
+    // The cycle listener's markers, kept out of the commands so they don't change what's built; each
+    // is added as a marker right before the next step runs (see `runStep`), or at the very end
+    private val pendingCycleHooks = mutableListOf<MarkerCallback>()
+    private var hasCycleHooks = false
+
+    private val builderDeque = ArrayDeque<BuilderStep>()
+
+    private val preforgedTrajectories = ConcurrentHashMap<Any, Preforge>()
+
+    // Continuations to start building as soon as this trajectory's been built
+    private val pendingPreforges = mutableListOf<() -> Unit>()
+
+    // Whether any steps have been ran on the builder before building (which rules out caching)
+    private var hasFlushed = false
+
+    // The sequence, if it was loaded from the TrajectoryCache instead of being built
+    private var cachedSequence: Any? = null
+
+    // Counted down once the rest of a streaming build is done (see `$buildStreaming`)
+    @Volatile
+    private var streamingBuilt: CountDownLatch? = null
+
+    private class BuilderStep(
+        val command: AnvilCommand,
+        val cycleHooks: List<MarkerCallback>,
+        val action: () -> Unit,
+    )
+
+    private fun enqueue(
+        name: String,
+        vararg args: Double,
+        callback: MarkerCallback? = null,
+        builderAction: (DoubleArray) -> Unit,
+    ) {
+        builderDeque += BuilderStep(AnvilCommand(name, args, callback), takeCycleHooks()) { builderAction(args) }
+    }
+
+    private fun enqueueUncacheable(name: String, builderAction: () -> Unit) {
+        builderDeque += BuilderStep(AnvilCommand(name, DoubleArray(0), isCacheable = false), takeCycleHooks(), builderAction)
+    }
+
+    private fun takeCycleHooks() = if (pendingCycleHooks.isEmpty()) {
+        emptyList()
+    } else {
+        pendingCycleHooks.toList().also { pendingCycleHooks.clear() }
+    }
 
-    private val preforgedTrajectories = mutableMapOf<Any, Deferred<Any>>()
+    private fun runStep(step: BuilderStep) {
+        step.cycleHooks.forEach { builderProxy.UNSTABLE_addTemporalMarkerOffset(0.0, it) }
+        step.action()
+    }
 
-    private fun enqueue(builderAction: () -> Unit) {
-        builderDeque += builderAction
+    // Once every step's been ran, for the hooks that nothing came after (e.g. the last cycle's end)
+    private fun addTrailingCycleHooks() {
+        takeCycleHooks().forEach { builderProxy.UNSTABLE_addTemporalMarkerOffset(0.0, it) }
     }
 
     @JvmSynthetic
@@ -57,6 +143,13 @@ class AnvilInternal
     }
 
     private fun getCurrentEndPose(): Pose2d {
+        cachedSequence?.let {
+            return it.invokeMethod("end")
+        }
+
+        // The end pose isn't known until the whole sequence's been built
+        streamingBuilt?.await()
+
         flushDeque()
 
         return builderProxy
@@ -67,111 +160,111 @@ class AnvilInternal
 
     // -- Direct path mappings (Basic) --
 
-    fun _forward(distance: Number) = enqueue {
-        builderProxy.forward(distance.toIn())
+    fun _forward(distance: Number) = enqueue("forward", distance.toIn()) { (distance) ->
+        builderProxy.forward(distance)
     }
 
-    fun _back(distance: Number) = enqueue {
-        builderProxy.back(distance.toIn())
+    fun _back(distance: Number) = enqueue("back", distance.toIn()) { (distance) ->
+        builderProxy.back(distance)
     }
 
-    fun _turn(angle: Number) = enqueue {
-        builderProxy.turn(angle.toRad())
+    fun _turn(angle: Number) = enqueue("turn", angle.toRad()) { (angle) ->
+        builderProxy.turn(angle)
     }
 
-    fun _strafeLeft(distance: Number) = enqueue {
-        builderProxy.strafeLeft(distance.toIn())
+    fun _strafeLeft(distance: Number) = enqueue("strafeLeft", distance.toIn()) { (distance) ->
+        builderProxy.strafeLeft(distance)
     }
 
-    fun _strafeRight(distance: Number) = enqueue {
-        builderProxy.strafeRight(distance.toIn())
+    fun _strafeRight(distance: Number) = enqueue("strafeRight", distance.toIn()) { (distance) ->
+        builderProxy.strafeRight(distance)
     }
 
     // -- Direct path mappings (Lines) --
 
-    fun _lineTo(x: Number, y: Number) = enqueue {
-        builderProxy.lineTo( GlobalUnits.vec(x, y) )
+    fun _lineTo(x: Number, y: Number) = enqueue("lineTo", x.toIn(), y.toIn()) { (x, y) ->
+        builderProxy.lineTo( Vector2d(x, y) )
     }
 
-    fun _lineToLinearHeading(x: Number, y: Number, heading: Number) = enqueue {
-        builderProxy.lineToLinearHeading( GlobalUnits.pos(x, y, heading) )
+    fun _lineToLinearHeading(x: Number, y: Number, heading: Number) = enqueue("lineToLinearHeading", x.toIn(), y.toIn(), heading.toRad()) { (x, y, heading) ->
+        builderProxy.lineToLinearHeading( Pose2d(x, y, heading) )
     }
 
-    fun _lineToSplineHeading(x: Number, y: Number, heading: Number) = enqueue {
-        builderProxy.lineToSplineHeading( GlobalUnits.pos(x, y, heading) )
+    fun _lineToSplineHeading(x: Number, y: Number, heading: Number) = enqueue("lineToSplineHeading", x.toIn(), y.toIn(), heading.toRad()) { (x, y, heading) ->
+        builderProxy.lineToSplineHeading( Pose2d(x, y, heading) )
     }
 
     // -- Direct path mappings (Splines) --
 
-    fun _splineTo(x: Number, y: Number, endTangent: Number) = enqueue {
+    fun _splineTo(x: Number, y: Number, endTangent: Number) = enqueue("splineTo", x.toIn(), y.toIn(), endTangent.toRad()) { (x, y, endTangent) ->
         builderProxy.splineTo(
-            GlobalUnits.vec(x, y),
-            endTangent.toRad(),
+            Vector2d(x, y),
+            endTangent,
         )
     }
 
-    fun _splineToConstantHeading(x: Number, y: Number, endTangent: Number) = enqueue {
+    fun _splineToConstantHeading(x: Number, y: Number, endTangent: Number) = enqueue("splineToConstantHeading", x.toIn(), y.toIn(), endTangent.toRad()) { (x, y, endTangent) ->
         builderProxy.splineToConstantHeading(
-            GlobalUnits.vec(x, y),
-            endTangent.toRad(),
+            Vector2d(x, y),
+            endTangent,
         )
     }
 
-    fun _splineToLinearHeading(x: Number, y: Number, heading: Number, endTangent: Number) = enqueue {
+    fun _splineToLinearHeading(x: Number, y: Number, heading: Number, endTangent: Number) = enqueue("splineToLinearHeading", x.toIn(), y.toIn(), heading.toRad(), endTangent.toRad()) { (x, y, heading, endTangent) ->
         builderProxy.splineToLinearHeading(
-            GlobalUnits.pos(x, y, heading),
-            endTangent.toRad(),
+            Pose2d(x, y, heading),
+            endTangent,
         )
     }
 
-    fun _splineToSplineHeading(x: Number, y: Number, heading: Number, endTangent: Number) = enqueue {
+    fun _splineToSplineHeading(x: Number, y: Number, heading: Number, endTangent: Number) = enqueue("splineToSplineHeading", x.toIn(), y.toIn(), heading.toRad(), endTangent.toRad()) { (x, y, heading, endTangent) ->
         builderProxy.splineToSplineHeading(
-            GlobalUnits.pos(x, y, heading),
-            endTangent.toRad(),
+            Pose2d(x, y, heading),
+            endTangent,
         )
     }
 
     // -- Advanced mappings --
 
-    fun _waitTime(time: Number) = enqueue {
-        builderProxy.waitSeconds(time.toSec())
+    fun _waitTime(time: Number) = enqueue("waitSeconds", time.toSec()) { (time) ->
+        builderProxy.waitSeconds(time)
     }
 
-    fun _setReversed(reversed: Boolean) = enqueue {
+    fun _setReversed(reversed: Boolean) = enqueue("setReversed", if (reversed) 1.0 else 0.0) {
         builderProxy.setReversed(reversed)
     }
 
-    fun _setTangent(tangent: Number) = enqueue {
-        builderProxy.setTangent(tangent.toDouble())
+    fun _setTangent(tangent: Number) = enqueue("setTangent", tangent.toDouble()) { (tangent) ->
+        builderProxy.setTangent(tangent)
     }
 
-    fun _addTrajectory(trajectory: Trajectory) = enqueue {
+    fun _addTrajectory(trajectory: Trajectory) = enqueueUncacheable("addTrajectory") {
         builderProxy.addTrajectory(trajectory)
     }
 
-    fun _addTrajectory(trajectory: () -> Trajectory) = enqueue {
+    fun _addTrajectory(trajectory: () -> Trajectory) = enqueueUncacheable("addTrajectory") {
         builderProxy.addTrajectory(trajectory())
     }
 
     // -- Markers --
 
-    fun _addTemporalMarker(offset: Number, action: MarkerCallback) = enqueue {
+    fun _addTemporalMarker(offset: Number, action: MarkerCallback) = enqueue("addTemporalMarker", offset.toSec(), callback = action) { (offset) ->
         builderProxy.UNSTABLE_addTemporalMarkerOffset(
-            offset.toSec(),
+            offset,
             action,
         )
     }
 
-    fun _addDisplacementMarker(offset: Number, action: MarkerCallback) = enqueue {
+    fun _addDisplacementMarker(offset: Number, action: MarkerCallback) = enqueue("addDisplacementMarker", offset.toSec(), callback = action) { (offset) ->
         builderProxy.UNSTABLE_addDisplacementMarkerOffset(
-            offset.toSec(),
+            offset,
             action,
         )
     }
 
-    fun _addSpatialMarker(offsetX: Number, offsetY: Number, action: MarkerCallback) = enqueue {
+    fun _addSpatialMarker(offsetX: Number, offsetY: Number, action: MarkerCallback) = enqueue("addSpatialMarker", offsetX.toIn(), offsetY.toIn(), callback = action) { (offsetX, offsetY) ->
         builderProxy.addSpatialMarker(
-            GlobalUnits.vec(offsetX, offsetY),
+            Vector2d(offsetX, offsetY),
             action,
         )
     }
@@ -211,14 +304,14 @@ class AnvilInternal
         numPopped.set(thingsToDoInReverse.size)
 
         __inReverse {
-            thingsToDoInReverse.reversed().forEach(::enqueue)
+            thingsToDoInReverse.reversed().forEach(builderDeque::addLast)
         }
     }
 
-    fun _noop() = enqueue {}
+    fun _noop() = enqueue("noop") {}
 
     @Suppress("UNCHECKED_CAST")
-    fun <T> _withRawBuilder(builder: Consumer<T>) = enqueue {
+    fun <T> _withRawBuilder(builder: Consumer<T>) = enqueueUncacheable("withRawBuilder") {
         (builderProxy.internalBuilder as T)
             .let {
                 builder.consume(it)
@@ -233,8 +326,12 @@ class AnvilInternal
 
     fun doTimes(times: Int, pathsToDo: AnvilCycle) {
         repeat(times) { iteration ->
+            cycleListener?.let { pendingCycleHooks += MarkerCallback { it.onCycleStart(iteration) } }
             pathsToDo.consume(instance, iteration)
+            cycleListener?.let { pendingCycleHooks += MarkerCallback { it.onCycleEnd(iteration) } }
         }
+
+        hasCycleHooks = hasCycleHooks || (cycleListener != null && times > 0)
     }
 
     fun execute(toExecute: Anvil.() -> Anvil) {
@@ -243,48 +340,68 @@ class AnvilInternal
 
     // -- Constraints --
 
-    fun _resetConstraints() = enqueue {
+    fun _resetConstraints() = enqueue("resetConstraints") {
         builderProxy.resetConstraints()
     }
 
-    fun _setVelConstraint(velConstraint: TrajectoryVelocityConstraint) = enqueue {
+    fun _setVelConstraint(velConstraint: TrajectoryVelocityConstraint) = enqueueUncacheable("setVelConstraint") {
         builderProxy.setVelConstraint(velConstraint)
     }
 
     /**
      * __IMPORTANT:__ These units are NOT auto-converted
      */
-    fun _setVelConstraint(maxVel: Number, maxAngularVel: Number, trackWidth: Number) = enqueue {
+    fun _setVelConstraint(maxVel: Number, maxAngularVel: Number, trackWidth: Number) = enqueue("setVelConstraint", maxVel.toDouble(), maxAngularVel.toDouble(), trackWidth.toDouble()) { (maxVel, maxAngularVel, trackWidth) ->
         builderProxy.setVelConstraint(driveProxy.getVelocityConstraint(maxVel, maxAngularVel, trackWidth))
     }
 
-    fun _resetVelConstraint() = enqueue {
+    fun _resetVelConstraint() = enqueue("resetVelConstraint") {
         builderProxy.resetVelConstraint()
     }
 
-    fun _setAccelConstraint(accelConstraint: TrajectoryAccelerationConstraint) = enqueue {
+    fun _setAccelConstraint(accelConstraint: TrajectoryAccelerationConstraint) = enqueueUncacheable("setAccelConstraint") {
         builderProxy.setAccelConstraint(accelConstraint)
     }
 
     /**
      * __IMPORTANT:__ These units are NOT auto-converted
      */
-    fun _setAccelConstraint(maxAccel: Number) = enqueue {
+    fun _setAccelConstraint(maxAccel: Number) = enqueue("setAccelConstraint", maxAccel.toDouble()) { (maxAccel) ->
         builderProxy.setAccelConstraint(driveProxy.getAccelerationConstraint(maxAccel))
     }
 
-    fun _resetAccelConstraint() = enqueue {
+    fun _resetAccelConstraint() = enqueue("resetAccelConstraint") {
         builderProxy.resetAccelConstraint()
     }
 
-    fun _setTurnConstraint(maxAngVel: Number, maxAngAccel: Number) = enqueue {
-        builderProxy.setTurnConstraint(maxAngVel.toDouble(), maxAngAccel.toDouble())
+    fun _setTurnConstraint(maxAngVel: Number, maxAngAccel: Number) = enqueue("setTurnConstraint", maxAngVel.toDouble(), maxAngAccel.toDouble()) { (maxAngVel, maxAngAccel) ->
+        builderProxy.setTurnConstraint(maxAngVel, maxAngAccel)
     }
 
-    fun _resetTurnConstraint() = enqueue {
+    fun _resetTurnConstraint() = enqueue("resetTurnConstraint") {
         builderProxy.resetTurnConstraint()
     }
 
+    // -- Resolution --
+
+    /**
+     * __IMPORTANT:__ These units are NOT auto-converted
+     */
+    fun _setResolution(resolution: Number) = enqueue("setResolution", resolution.toDouble()) { (resolution) ->
+        builderProxy.setResolution(resolution)
+    }
+
+    /**
+     * __IMPORTANT:__ These units are NOT auto-converted
+     */
+    fun _setAdaptiveResolution(maxProfileError: Number) = enqueue("setAdaptiveResolution", maxProfileError.toDouble()) { (maxProfileError) ->
+        builderProxy.setAdaptiveResolution(maxProfileError)
+    }
+
+    fun _resetResolution() = enqueue("resetResolution") {
+        builderProxy.resetResolution()
+    }
+
     // -- Building, creating, running --
 
     @JvmOverloads
@@ -292,51 +409,437 @@ class AnvilInternal
         nextTrajectory: (Pose2d) -> Anvil,
         configBuilder: AnvilRunConfigBuilder = AnvilRunConfig.DEFAULT
     ) {
-        val config = AnvilRunConfig()
-        configBuilder.run { AnvilRunConfig().build() }
+        thenRunOneOf(listOf(Unit), { Unit }, { _, startPose -> nextTrajectory(startPose) }, configBuilder, buildsUpFront = false)
+    }
 
-        flushDeque()
+    @JvmOverloads
+    fun <K : Any> `$thenRunOneOf`(
+        variants: Collection<K>,
+        selector: () -> K,
+        nextTrajectory: (K, Pose2d) -> Anvil,
+        configBuilder: AnvilRunConfigBuilder = AnvilRunConfig.DEFAULT
+    ) {
+        thenRunOneOf(variants, selector, nextTrajectory, configBuilder, buildsUpFront = true)
+    }
+
+    private fun <K : Any> thenRunOneOf(
+        variants: Collection<K>,
+        selector: () -> K,
+        nextTrajectory: (K, Pose2d) -> Anvil,
+        configBuilder: AnvilRunConfigBuilder,
+        buildsUpFront: Boolean,
+    ) {
+        val config = AnvilRunConfig()
+        configBuilder.run { config.build() }
 
         val key = Any()
 
-        if (!config.buildsSynchronously) {
-            builderDeque.addFirst {
-                // Can't use '_addTemporalMarker' as that adds to the end of the deque
-                builderProxy.UNSTABLE_addTemporalMarkerOffset(0.0) {
-                    val nextStartPose = config.startPoseSupplier?.invoke()
-                        ?: getCurrentEndPose()
+        fun preforgeAll(startPose: Pose2d) {
+            variants.forEach { variant ->
+                preforgedTrajectories[key to variant] = Preforge { nextTrajectory(variant, startPose).build() }
+            }
+
+            config.fallbackTrajectory?.let { fallback ->
+                preforgedTrajectories[key to Fallback] = Preforge { fallback(startPose).build() }
+            }
+        }
+
+        fun runNow(variant: K) {
+            val nextStartPose = config.startPoseSupplier?.invoke()
+                ?: getCurrentEndPose()
+
+            val next = nextTrajectory(variant, nextStartPose)
 
-                    preforgedTrajectories[key] = builderScope.async { nextTrajectory( nextStartPose ).build() }
+            run( if (config.buildsStreaming) next.buildStreaming() else next.build(), !config.runsSynchronously )
+        }
+
+        if (!config.buildsSynchronously) {
+            val startPoseSupplier = config.startPoseSupplier
+
+            if (buildsUpFront && startPoseSupplier == null) {
+                // Every variant's already declared & the start pose is known, so they can be built
+                // as soon as this trajectory is, instead of waiting for it to start running
+                pendingPreforges += { preforgeAll(getCurrentEndPose()) }
+            } else {
+                // A plain thenRun usually depends on something that isn't known until it's
+                // reached (e.g. the signal, read during init), so it's only built once it is
+                _addTemporalMarker(0) {
+                    preforgeAll(startPoseSupplier?.invoke() ?: getCurrentEndPose())
                 }
             }
         }
 
         _addTemporalMarker(0) {
-            if (!config.predicate()) return@_addTemporalMarker
+            val variant = if (config.predicate()) selector() else null
 
-            val nextTrajectoryBuilt =
-                if (config.buildsSynchronously) {
-                    val nextStartPose = config.startPoseSupplier?.invoke()
-                        ?: getCurrentEndPose()
+            // The variants that won't be ran don't need to keep hogging the workers
+            var preforged: Preforge? = null
 
-                    nextTrajectory(nextStartPose).build()
+            for (other in variants) {
+                val preforge = preforgedTrajectories.remove(key to other) ?: continue
+
+                if (other == variant) {
+                    preforged = preforge
                 } else {
-                    runBlocking { preforgedTrajectories[key]?.await() }!!
+                    preforge.cancel()
                 }
+            }
+
+            val fallback = preforgedTrajectories.remove(key to Fallback)
 
-            run( nextTrajectoryBuilt, !config.runsSynchronously )
+            val handsOffWithoutBlocking = config.handsOffWithoutBlocking && !config.runsSynchronously
+
+            // Only a non-blocking handoff that's still waiting on its trajectory ever runs the
+            // fallback; anything else would just leave it hogging a worker
+            if (variant == null || preforged == null || preforged.isDone || preforged.isFailed || !handsOffWithoutBlocking) {
+                fallback?.cancel()
+            }
+
+            if (variant == null) return@_addTemporalMarker
+
+            when {
+                // Building it in the background failed, so give it another go on the spot
+                preforged == null || preforged.isFailed -> {
+                    runNow(variant)
+                }
+                preforged.isDone -> {
+                    handoffStats.recordReady(preforged.buildTime, System.nanoTime() - preforged.finishTime)
+                    run( preforged.get(), !config.runsSynchronously )
+                }
+                handsOffWithoutBlocking -> {
+                    HandoffWaiter(preforged, fallback) { runNow(variant) }.start()
+                }
+                else -> {
+                    val neededAt = System.nanoTime()
+                    val nextTrajectoryBuilt = preforged.getOrNull()
+                        ?: return@_addTemporalMarker runNow(variant)
+
+                    handoffStats.recordStall(preforged.buildTime, System.nanoTime() - neededAt)
+                    run( nextTrajectoryBuilt, !config.runsSynchronously )
+                }
+            }
+        }
+    }
+
+    // Marks the fallback trajectory in preforgedTrajectories
+    private object Fallback
+
+    /**
+     * A trajectory being built in the background, and when it started & finished building.
+     */
+    private class Preforge(build: () -> Any) {
+        val startTime = System.nanoTime()
+
+        @Volatile
+        var finishTime = 0L
+            private set
+
+        private val result = preforgeScope.async {
+            build().also { finishTime = System.nanoTime() }
+        }.trackedAsBackgroundBuild()
+
+        val isDone: Boolean
+            get() = result.isCompleted
+
+        // Whether building it threw (or it was cancelled)
+        val isFailed: Boolean
+            get() = result.isCancelled
+
+        // Only valid once it's done
+        val buildTime: Long
+            get() = finishTime - startTime
+
+        @OptIn(ExperimentalCoroutinesApi::class)
+        fun get(): Any = if (result.isCompleted) {
+            result.getCompleted()
+        } else {
+            runBlocking { result.await() }
+        }
+
+        /**
+         * The built trajectory, or `null` if building it failed, so it can be built again on the
+         * main thread instead of throwing there.
+         */
+        fun getOrNull(): Any? = try {
+            get()
+        } catch (e: Exception) {
+            null
+        }
+
+        fun cancel() = result.cancel()
+    }
+
+    /**
+     * Waits for the next trajectory to finish building without blocking the Scheduler, running the
+     * fallback trajectory (if there is one) in the meantime, then starts it on the first tick it's
+     * ready.
+     */
+    private inner class HandoffWaiter(
+        private val preforged: Preforge,
+        private val fallback: Preforge?,
+        private val runNow: () -> Unit,
+    ) : Schedulable {
+        private val neededAt = System.nanoTime()
+
+        private var isRunningFallback = false
+
+        fun start() {
+            runFallbackIfReady()
+            hook(TickPhase.LOGIC)
+        }
+
+        override fun tick() {
+            if (!preforged.isDone) {
+                runFallbackIfReady()
+                return
+            }
+
+            Scheduler.unhook(this)
+            fallback?.cancel()
+
+            val nextTrajectoryBuilt = preforged.getOrNull()
+                ?: return runNow()
+
+            handoffStats.recordStall(preforged.buildTime, System.nanoTime() - neededAt)
+            run( nextTrajectoryBuilt, true )
+        }
+
+        override fun destroy() {
+            Scheduler.unhook(this)
+            preforged.cancel()
+            fallback?.cancel()
+        }
+
+        private fun runFallbackIfReady() {
+            if (!isRunningFallback && fallback != null && fallback.isDone) {
+                isRunningFallback = true
+                run( fallback.get(), true )
+            }
         }
     }
 
     private fun flushDeque() {
         for (i in builderDeque.indices) {
-            builderDeque.removeFirst().invoke()
+            runStep(builderDeque.removeFirst())
+            hasFlushed = true
+        }
+    }
+
+    /**
+     * Flushes the deque chunk by chunk, reusing the trajectories of any chunk that's been built
+     * before instead of rebuilding it (see [SegmentMemo]).
+     */
+    private fun flushDequeIncrementally() {
+        val keyPrefix = SegmentMemo.keyPrefixFor(driveProxy.drive, builderProxy.internalBuilder)
+        val stateChanges = StringBuilder()
+
+        while (builderDeque.isNotEmpty()) {
+            if (!SegmentMemo.isChunkable(builderDeque.first().command)) {
+                val step = builderDeque.removeFirst()
+
+                if (SegmentMemo.isStateChange(step.command)) {
+                    SegmentMemo.appendCommand(stateChanges, step.command)
+                }
+                runStep(step)
+                continue
+            }
+
+            val chunk = mutableListOf<BuilderStep>()
+
+            while (builderDeque.isNotEmpty() && SegmentMemo.isChunkable(builderDeque.first().command)) {
+                chunk += builderDeque.removeFirst()
+            }
+
+            val commands = chunk.map { it.command }
+
+            if (commands.any(SegmentMemo::isPath)) {
+                val key = SegmentMemo.keyFor(keyPrefix, builderProxy.lastPose, stateChanges, commands)
+                val memoized = SegmentMemo[key]
+
+                if (memoized != null) {
+                    reuseChunk(chunk, memoized)
+                } else {
+                    SegmentMemo[key] = buildChunk(chunk)
+                }
+            } else {
+                chunk.forEach(::runStep)
+            }
+
+            commands
+                .filter(SegmentMemo::isStateChange)
+                .forEach { SegmentMemo.appendCommand(stateChanges, it) }
+        }
+
+        hasFlushed = true
+    }
+
+    private fun buildChunk(chunk: List<BuilderStep>): SegmentMemo.Chunk {
+        val startDuration = builderProxy.currentDuration
+        val startDisplacement = builderProxy.currentDisplacement
+        val numSegmentsBefore = builderProxy.getSequenceSegments().size
+
+        val markerDurations = mutableListOf<Double>()
+        val markerDisplacements = mutableListOf<Double>()
+
+        for (step in chunk) {
+            if (SegmentMemo.isMarker(step.command)) {
+                markerDurations += builderProxy.currentDuration - startDuration
+                markerDisplacements += builderProxy.currentDisplacement - startDisplacement
+            }
+            runStep(step)
+        }
+
+        // Otherwise the chunk's last path isn't added until whatever comes after it
+        builderProxy.pushPath()
+
+        val segments = builderProxy.getSequenceSegments()
+
+        val trajectories = segments
+            .subList(numSegmentsBefore, segments.size)
+            .map { it.invokeMethod<Trajectory>("getTrajectory") }
+
+        return SegmentMemo.Chunk(trajectories, markerDurations.toDoubleArray(), markerDisplacements.toDoubleArray())
+    }
+
+    private fun reuseChunk(chunk: List<BuilderStep>, memoized: SegmentMemo.Chunk) {
+        val startDuration = builderProxy.currentDuration
+        val startDisplacement = builderProxy.currentDisplacement
+
+        var marker = 0
+
+        for (step in chunk) {
+            when {
+                SegmentMemo.isPath(step.command) -> continue
+                SegmentMemo.isMarker(step.command) -> {
+                    builderProxy.currentDuration = startDuration + memoized.markerDurations[marker]
+                    builderProxy.currentDisplacement = startDisplacement + memoized.markerDisplacements[marker]
+                    marker++
+                }
+            }
+            runStep(step)
         }
+
+        memoized.trajectories.forEach { builderProxy.addTrajectory(it) }
+
+        builderProxy.lastPose = memoized.trajectories.last().end()
+        builderProxy.currentDuration = startDuration + memoized.trajectories.sumOf { it.duration() }
+        builderProxy.currentDisplacement = startDisplacement + memoized.trajectories.sumOf { it.path.length() }
     }
 
     @Suppress("UNCHECKED_CAST")
     fun <T : Any> `$build`(): T {
-        flushDeque()
-        return builderProxy.build() as T
+        val sequence = buildOrLoadSequence()
+
+        pendingPreforges.forEach { it() }
+        pendingPreforges.clear()
+
+        return sequence as T
+    }
+
+    /**
+     * Builds just enough to have a first segment to follow, and hands out a sequence that the rest
+     * is added to by a background thread while it's being followed; the runner holds still if it
+     * catches up to a segment that isn't built yet.
+     *
+     * Falls back to a regular build if the builder doesn't support streaming.
+     */
+    @Suppress("UNCHECKED_CAST")
+    fun <T : Any> `$buildStreaming`(): T {
+        if (!builderProxy.supportsStreaming) {
+            return `$build`()
+        }
+
+        // A sequence loaded from the cache doesn't need streaming, and one that's streamed can't be
+        // saved to it (its markers aren't on its segments)
+        loadCachedSequence(cacheKey())?.let { cached ->
+            pendingPreforges.forEach { it() }
+            pendingPreforges.clear()
+
+            return cached as T
+        }
+
+        while (builderDeque.isNotEmpty() && builderProxy.getSequenceSegments().isEmpty()) {
+            runStep(builderDeque.removeFirst())
+            hasFlushed = true
+        }
+
+        if (builderDeque.isEmpty()) {
+            return `$build`()
+        }
+
+        val sequence = builderProxy.startStreaming()
+        val built = CountDownLatch(1).also { streamingBuilt = it }
+
+        builderScope.launch {
+            try {
+                while (builderDeque.isNotEmpty()) {
+                    runStep(builderDeque.removeFirst())
+                    builderProxy.streamSegments()
+                }
+                addTrailingCycleHooks()
+                builderProxy.build()
+                built.countDown()
+
+                pendingPreforges.forEach { it() }
+                pendingPreforges.clear()
+            } catch (e: Throwable) {
+                // Surfaced by the runner, on the main thread
+                builderProxy.failStreaming(e)
+            } finally {
+                built.countDown()
+            }
+        }.trackedAsBackgroundBuild()
+
+        return sequence as T
+    }
+
+    private fun buildOrLoadSequence(): Any {
+        val callbacks = builderDeque.mapNotNull { it.command.callback }
+        val cacheKey = cacheKey()
+
+        loadCachedSequence(cacheKey)?.let {
+            return it
+        }
+
+        // Reused chunks skip their paths' steps, so their cycle hooks would be lost
+        val canReuseSegments = SegmentMemo.isEnabled && !hasFlushed && !hasCycleHooks && builderProxy.supportsSegmentReuse &&
+            builderDeque.all { it.command.isCacheable }
+
+        if (canReuseSegments) {
+            flushDequeIncrementally()
+        } else {
+            flushDeque()
+        }
+
+        addTrailingCycleHooks()
+
+        val sequence = builderProxy.build()
+
+        if (cacheKey != null) {
+            TrajectoryCache.save(cacheKey, sequence, callbacks)
+        }
+
+        return sequence
+    }
+
+    // Null if the trajectory can't be cached (cycle hooks aren't part of the commands it's keyed by)
+    private fun cacheKey() = if (!hasFlushed && !hasCycleHooks) {
+        TrajectoryCache.keyFor(driveProxy.drive, builderProxy.internalBuilder, startPose, builderDeque.map { it.command })
+    } else {
+        null
+    }
+
+    private fun loadCachedSequence(cacheKey: String?): Any? {
+        if (cacheKey == null) return null
+
+        return TrajectoryCache.load(cacheKey, builderDeque.mapNotNull { it.command.callback })?.also {
+            builderDeque.clear()
+            cachedSequence = it
+
+            // Baked trajectories aren't cached, so it's baked the same as if it'd just been built
+            if (builderProxy.bakesTrajectories) {
+                builderProxy.bakeTrajectories(it)
+            }
+        }
     }
 }
@@ -1,6 +1,7 @@
 package ftc.rogue.blacksmith.internal.anvil
 
 import com.acmerobotics.roadrunner.geometry.Pose2d
+import ftc.rogue.blacksmith.Anvil
 import ftc.rogue.blacksmith.internal.util.AnvilRunConfigBuilder
 
 class AnvilRunConfig internal constructor() {
@@ -8,6 +9,10 @@ class AnvilRunConfig internal constructor() {
     internal var buildsSynchronously = false
         private set
 
+    @get:JvmSynthetic
+    internal var buildsStreaming = false
+        private set
+
     @get:JvmSynthetic
     internal var runsSynchronously = false
         private set
@@ -20,12 +25,31 @@ class AnvilRunConfig internal constructor() {
     internal var startPoseSupplier: (() -> Pose2d)? = null
         private set
 
+    @get:JvmSynthetic
+    internal var handsOffWithoutBlocking = false
+        private set
+
+    @get:JvmSynthetic
+    internal var fallbackTrajectory: ((Pose2d) -> Anvil)? = null
+        private set
+
     @JvmOverloads
     fun buildSynchronously(yes: Boolean = true): AnvilRunConfig {
         buildsSynchronously = yes
         return this
     }
 
+    /**
+     * When the next trajectory's built right when it's needed (see [buildSynchronously]), only
+     * builds its first segment before starting it, and the rest while it's running. See
+     * [Anvil.buildStreaming].
+     */
+    @JvmOverloads
+    fun buildStreaming(yes: Boolean = true): AnvilRunConfig {
+        buildsStreaming = yes
+        return this
+    }
+
     @JvmOverloads
     fun runSynchronously(yes: Boolean = true): AnvilRunConfig {
         runsSynchronously = yes
@@ -42,6 +66,27 @@ class AnvilRunConfig internal constructor() {
         return this
     }
 
+    /**
+     * If the next trajectory hasn't finished building by the time it's needed, lets the
+     * [Scheduler][ftc.rogue.blacksmith.Scheduler] keep looping instead of blocking until it's done,
+     * and starts it on the first tick it's ready.
+     */
+    @JvmOverloads
+    fun handOffWithoutBlocking(yes: Boolean = true): AnvilRunConfig {
+        handsOffWithoutBlocking = yes
+        return this
+    }
+
+    /**
+     * Runs [fallback] while waiting for the next trajectory to finish building; implies
+     * [handOffWithoutBlocking]. It's built alongside the next trajectory, from the same start pose.
+     */
+    fun whileWaiting(fallback: (Pose2d) -> Anvil): AnvilRunConfig {
+        fallbackTrajectory = fallback
+        handsOffWithoutBlocking = true
+        return this
+    }
+
     companion object {
         @JvmField
         val DEFAULT = AnvilRunConfigBuilder {}
@@ -0,0 +1,94 @@
+package ftc.rogue.blacksmith.internal.anvil
+
+import com.acmerobotics.roadrunner.geometry.Pose2d
+import com.acmerobotics.roadrunner.trajectory.Trajectory
+
+/**
+ * Remembers the trajectories built for each run of path commands (a "chunk"), so that rebuilding
+ * an Anvil trajectory after tweaking a few parameters (e.g. a pole offset) only rebuilds the
+ * chunks those parameters actually went into.
+ *
+ * A chunk is every path, marker, and constraint command between two commands that make the builder
+ * start a new path (turns, waits, `setReversed`, and `setTangent`). Since the builder merges a
+ * chunk's paths into one continuous motion profile, that's the smallest unit that can be reused.
+ *
+ * A chunk is keyed by its start pose, its own commands (minus the markers, which don't change the
+ * trajectory), every state-changing command before it, and the drive's `DriveConstants`; so a
+ * change to a parameter invalidates the chunks that use it, plus any chunk after it whose start
+ * pose moved because of it, and nothing else.
+ *
+ * @author KG
+ */
+internal object SegmentMemo {
+    private const val MAX_CHUNKS = 256
+
+    @Volatile
+    var isEnabled = true
+
+    /**
+     * The trajectories a chunk was built into, and where each of its markers were added relative
+     * to the start of the chunk (in time & displacement), since those depend on the paths before
+     * them that are skipped when the chunk is reused.
+     */
+    class Chunk(
+        val trajectories: List<Trajectory>,
+        val markerDurations: DoubleArray,
+        val markerDisplacements: DoubleArray,
+    )
+
+    private val chunks = object : LinkedHashMap<String, Chunk>(16, .75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, Chunk>?) = size > MAX_CHUNKS
+    }
+
+    private val PATHS = setOf(
+        "forward", "back", "strafeLeft", "strafeRight",
+        "lineTo", "lineToLinearHeading", "lineToSplineHeading",
+        "splineTo", "splineToConstantHeading", "splineToLinearHeading", "splineToSplineHeading",
+    )
+
+    private val MARKERS = setOf("addTemporalMarker", "addDisplacementMarker", "addSpatialMarker")
+
+    private val NEW_PATH = setOf("turn", "waitSeconds", "setReversed", "setTangent")
+
+    fun isPath(command: AnvilCommand) = command.name in PATHS
+
+    fun isMarker(command: AnvilCommand) = command.name in MARKERS
+
+    /**
+     * Whether the command can be part of a chunk; anything else ends the current chunk.
+     */
+    fun isChunkable(command: AnvilCommand) = command.name !in NEW_PATH
+
+    /**
+     * Whether the command changes how every path after it is built (e.g. constraints).
+     */
+    fun isStateChange(command: AnvilCommand) = command.name !in PATHS && command.name !in MARKERS && command.name != "turn" && command.name != "waitSeconds"
+
+    fun keyPrefixFor(drive: Any, builder: Any) = buildString {
+        append(builder.javaClass.name)
+        TrajectoryCache.driveConstantsOf(drive).forEach { append('|').append(it) }
+    }
+
+    fun keyFor(prefix: String, startPose: Pose2d, stateChanges: CharSequence, commands: List<AnvilCommand>) = buildString {
+        append(prefix)
+        append('|').append(startPose.x).append(',').append(startPose.y).append(',').append(startPose.heading)
+        append('|').append(stateChanges)
+        append('|')
+
+        for (command in commands) {
+            if (!isMarker(command)) {
+                appendCommand(this, command)
+            }
+        }
+    }
+
+    fun appendCommand(key: StringBuilder, command: AnvilCommand) {
+        key.append(command.name).append(command.args.contentToString()).append(';')
+    }
+
+    operator fun get(key: String) = synchronized(chunks) { chunks[key] }
+
+    operator fun set(key: String, chunk: Chunk) = synchronized(chunks) { chunks[key] = chunk }
+
+    fun clear() = synchronized(chunks) { chunks.clear() }
+}
@@ -0,0 +1,282 @@
+package ftc.rogue.blacksmith.internal.anvil
+
+import com.acmerobotics.roadrunner.trajectory.MarkerCallback
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.lang.reflect.Field
+import java.lang.reflect.Modifier
+import java.util.IdentityHashMap
+
+/**
+ * Reads & writes a built trajectory sequence (or any other plain object graph) to a compact binary
+ * format, for the [TrajectoryCache].
+ *
+ * Since neither the user's `TrajectorySequence` nor Road Runner's classes are serializable, objects
+ * are written field by field, through reflection, and read back without calling any constructors,
+ * so the loaded sequence is the exact same geometry & motion profiles that were built. Shared
+ * objects (e.g. a path segment's curve, which its heading interpolator also points to) are only
+ * written once and referenced after that.
+ *
+ * Marker callbacks can't be written, so they're stored as indices into the list of callbacks the
+ * sequence was built with, and swapped out for the callbacks at the same indices when it's read.
+ *
+ * Anything that isn't just plain data (lambdas, maps, etc.) fails with an
+ * [UncacheableObjectException], in which case the sequence simply isn't cached. Transient fields
+ * (e.g. a segment's baked trajectory, which is rebuilt from the rest) are skipped, and left null
+ * when the sequence is read back.
+ *
+ * @author KG
+ */
+internal object SequenceCodec {
+    private const val MAGIC = 0x42535443 // "BSTC"
+    private const val VERSION = 2
+
+    private const val NULL = 0
+    private const val REF = 1
+    private const val OBJECT = 2
+    private const val LIST = 3
+    private const val CALLBACK = 4
+    private const val ENUM = 5
+    private const val SINGLETON = 6
+    private const val STRING = 7
+    private const val DOUBLE = 8
+    private const val INT = 9
+    private const val LONG = 10
+    private const val BOOLEAN = 11
+    private const val DOUBLE_ARRAY = 12
+
+    class UncacheableObjectException(message: String) : RuntimeException(message)
+
+    fun write(out: DataOutputStream, root: Any, callbacks: List<MarkerCallback>) {
+        out.writeInt(MAGIC)
+        out.writeInt(VERSION)
+        Writer(out, callbacks).writeValue(root)
+    }
+
+    fun read(input: DataInputStream, callbacks: List<MarkerCallback>): Any {
+        if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+            throw IllegalStateException("Not a trajectory cache file, or one from another version")
+        }
+        return Reader(input, callbacks).readValue()
+            ?: throw IllegalStateException("Cached trajectory was null")
+    }
+
+    private class Writer(private val out: DataOutputStream, callbacks: List<MarkerCallback>) {
+        private val seen = IdentityHashMap<Any, Int>()
+        private val classNames = HashMap<Class<*>, Int>()
+
+        private val callbackIndices = IdentityHashMap<MarkerCallback, Int>().apply {
+            callbacks.forEachIndexed { i, callback -> putIfAbsent(callback, i) }
+        }
+
+        fun writeValue(value: Any?) {
+            when (value) {
+                null -> out.writeByte(NULL)
+                is String -> { out.writeByte(STRING); out.writeUTF(value) }
+                is Double -> { out.writeByte(DOUBLE); out.writeDouble(value) }
+                is Int -> { out.writeByte(INT); out.writeInt(value) }
+                is Long -> { out.writeByte(LONG); out.writeLong(value) }
+                is Boolean -> { out.writeByte(BOOLEAN); out.writeBoolean(value) }
+                is MarkerCallback -> writeCallback(value)
+                is Enum<*> -> { out.writeByte(ENUM); writeClass(enumClassOf(value)); out.writeInt(value.ordinal) }
+                else -> writeReference(value)
+            }
+        }
+
+        private fun writeCallback(callback: MarkerCallback) {
+            val index = callbackIndices[callback]
+                ?: throw UncacheableObjectException("Marker callback $callback wasn't added through Anvil")
+
+            out.writeByte(CALLBACK)
+            out.writeInt(index)
+        }
+
+        private fun writeReference(value: Any) {
+            seen[value]?.let {
+                out.writeByte(REF)
+                out.writeInt(it)
+                return
+            }
+            seen[value] = seen.size
+
+            when {
+                value is List<*> -> {
+                    out.writeByte(LIST)
+                    out.writeInt(value.size)
+                    value.forEach(::writeValue)
+                }
+                value is DoubleArray -> {
+                    out.writeByte(DOUBLE_ARRAY)
+                    out.writeInt(value.size)
+                    value.forEach(out::writeDouble)
+                }
+                else -> {
+                    checkIsPlainData(value)
+
+                    if (isSingleton(value)) {
+                        out.writeByte(SINGLETON)
+                        writeClass(value.javaClass)
+                        return
+                    }
+
+                    out.writeByte(OBJECT)
+                    writeClass(value.javaClass)
+
+                    for (field in fieldsOf(value.javaClass)) {
+                        writeField(field, value)
+                    }
+                }
+            }
+        }
+
+        private fun writeField(field: Field, obj: Any) = when (field.type) {
+            Double::class.java -> out.writeDouble(field.getDouble(obj))
+            Float::class.java -> out.writeFloat(field.getFloat(obj))
+            Int::class.java -> out.writeInt(field.getInt(obj))
+            Long::class.java -> out.writeLong(field.getLong(obj))
+            Short::class.java -> out.writeShort(field.getShort(obj).toInt())
+            Byte::class.java -> out.writeByte(field.getByte(obj).toInt())
+            Char::class.java -> out.writeChar(field.getChar(obj).code)
+            Boolean::class.java -> out.writeBoolean(field.getBoolean(obj))
+            else -> writeValue(field.get(obj))
+        }
+
+        // Enum constants with bodies are instances of an anonymous subclass
+        private fun enumClassOf(value: Enum<*>) = value.javaClass.let { if (it.isEnum) it else it.superclass }
+
+        private fun writeClass(clazz: Class<*>) {
+            val index = classNames[clazz]
+
+            if (index != null) {
+                out.writeInt(index)
+            } else {
+                classNames[clazz] = classNames.size
+                out.writeInt(-1)
+                out.writeUTF(clazz.name)
+            }
+        }
+
+        private fun checkIsPlainData(value: Any) {
+            val clazz = value.javaClass
+
+            if (value is Function<*> || value is Map<*, *> || value is Collection<*> || value is Array<*> || clazz.isSynthetic || clazz.isArray || clazz.name.startsWith("java.")) {
+                throw UncacheableObjectException("Can't cache an instance of ${clazz.name}")
+            }
+        }
+    }
+
+    private class Reader(private val input: DataInputStream, private val callbacks: List<MarkerCallback>) {
+        private val seen = ArrayList<Any>()
+        private val classes = ArrayList<Class<*>>()
+
+        fun readValue(): Any? = when (val tag = input.readByte().toInt()) {
+            NULL -> null
+            STRING -> input.readUTF()
+            DOUBLE -> input.readDouble()
+            INT -> input.readInt()
+            LONG -> input.readLong()
+            BOOLEAN -> input.readBoolean()
+            CALLBACK -> callbacks[input.readInt()]
+            ENUM -> readClass().enumConstants[input.readInt()]
+            REF -> seen[input.readInt()]
+            LIST -> {
+                val size = input.readInt()
+                val list = ArrayList<Any?>(size)
+                seen += list
+                repeat(size) { list += readValue() }
+                list
+            }
+            DOUBLE_ARRAY -> {
+                val array = DoubleArray(input.readInt())
+                seen += array
+                for (i in array.indices) array[i] = input.readDouble()
+                array
+            }
+            SINGLETON -> {
+                val instance = singletonOf(readClass())!!
+                seen += instance
+                instance
+            }
+            OBJECT -> {
+                val clazz = readClass()
+                val obj = allocateInstance(clazz)
+                seen += obj
+
+                for (field in fieldsOf(clazz)) {
+                    readField(field, obj)
+                }
+                obj
+            }
+            else -> throw IllegalStateException("Unknown tag $tag in trajectory cache")
+        }
+
+        private fun readField(field: Field, obj: Any) = when (field.type) {
+            Double::class.java -> field.setDouble(obj, input.readDouble())
+            Float::class.java -> field.setFloat(obj, input.readFloat())
+            Int::class.java -> field.setInt(obj, input.readInt())
+            Long::class.java -> field.setLong(obj, input.readLong())
+            Short::class.java -> field.setShort(obj, input.readShort())
+            Byte::class.java -> field.setByte(obj, input.readByte())
+            Char::class.java -> field.setChar(obj, input.readChar())
+            Boolean::class.java -> field.setBoolean(obj, input.readBoolean())
+            else -> field.set(obj, readValue())
+        }
+
+        private fun readClass(): Class<*> {
+            val index = input.readInt()
+
+            if (index >= 0) {
+                return classes[index]
+            }
+
+            return Class.forName(input.readUTF()).also { classes += it }
+        }
+    }
+
+    private class ClassInfo(clazz: Class<*>) {
+        /**
+         * Every non-transient instance field of the class & its superclasses, in a stable order.
+         */
+        val fields = generateSequence(clazz) { it.superclass }
+            .takeWhile { it != Any::class.java }
+            .flatMap { c -> c.declaredFields.sortedBy { it.name }.asSequence() }
+            .filter { !Modifier.isStatic(it.modifiers) && !Modifier.isTransient(it.modifiers) }
+            .onEach { it.isAccessible = true }
+            .toList()
+
+        /**
+         * The instance of a Kotlin `object`, if this is one.
+         */
+        val singleton = clazz.declaredFields
+            .find { it.name == "INSTANCE" && Modifier.isStatic(it.modifiers) && it.type == clazz }
+            ?.apply { isAccessible = true }
+            ?.get(null)
+    }
+
+    private val classInfos = HashMap<Class<*>, ClassInfo>()
+
+    private fun infoOf(clazz: Class<*>) = synchronized(classInfos) {
+        classInfos.getOrPut(clazz) { ClassInfo(clazz) }
+    }
+
+    private fun fieldsOf(clazz: Class<*>) = infoOf(clazz).fields
+
+    private fun isSingleton(value: Any) = infoOf(value.javaClass).singleton === value
+
+    private fun singletonOf(clazz: Class<*>) = infoOf(clazz).singleton
+
+    private val unsafe: Any by lazy {
+        Class.forName("sun.misc.Unsafe")
+            .getDeclaredField("theUnsafe")
+            .apply { isAccessible = true }
+            .get(null)
+    }
+
+    private val allocateInstanceMethod by lazy {
+        unsafe.javaClass.getMethod("allocateInstance", Class::class.java)
+    }
+
+    private fun allocateInstance(clazz: Class<*>): Any {
+        return allocateInstanceMethod.invoke(unsafe, clazz)!!
+    }
+}
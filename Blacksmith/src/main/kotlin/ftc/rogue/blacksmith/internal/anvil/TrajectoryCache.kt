@@ -0,0 +1,181 @@
+package ftc.rogue.blacksmith.internal.anvil
+
+import com.acmerobotics.roadrunner.geometry.Pose2d
+import com.acmerobotics.roadrunner.trajectory.MarkerCallback
+import com.acmerobotics.roadrunner.trajectory.TrajectoryBuilder
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil
+import java.io.*
+import java.lang.reflect.Modifier
+import java.security.DigestOutputStream
+import java.security.MessageDigest
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * An on-disk cache of built trajectory sequences, so the same trajectories don't have to be
+ * rebuilt during init every single match.
+ *
+ * Sequences are keyed by a hash of everything that goes into building them: the [AnvilCommand]s,
+ * the start pose, the drive & builder classes, the values in the drive's `DriveConstants`, and
+ * the code itself (see [buildIdOf]). Changing any of those just results in a new key (and a
+ * rebuild), rather than a stale trajectory.
+ *
+ * Any failure to save or load a sequence is treated as a cache miss.
+ *
+ * @author KG
+ */
+internal object TrajectoryCache {
+    private const val FORMAT_VERSION = 2
+    private const val EXTENSION = ".bstc"
+
+    /**
+     * Where the sequences are saved; `null` if caching is disabled.
+     */
+    @Volatile
+    var directory: File? = null
+
+    /**
+     * Gets the cache key for the given sequence, or `null` if it can't be cached (or caching is
+     * disabled).
+     */
+    fun keyFor(drive: Any, builder: Any, startPose: Pose2d, commands: List<AnvilCommand>): String? {
+        if (directory == null || commands.any { !it.isCacheable }) {
+            return null
+        }
+
+        val digest = MessageDigest.getInstance("SHA-256")
+
+        DataOutputStream(DigestOutputStream(NullOutputStream, digest)).use { out ->
+            out.writeInt(FORMAT_VERSION)
+            out.writeUTF(drive.javaClass.name)
+            out.writeUTF(builder.javaClass.name)
+            out.writeUTF(buildIdOf(drive, builder))
+
+            driveConstantsOf(drive).forEach(out::writeUTF)
+
+            out.writeDouble(startPose.x)
+            out.writeDouble(startPose.y)
+            out.writeDouble(startPose.heading)
+
+            for (command in commands) {
+                out.writeUTF(command.name)
+                out.writeInt(command.args.size)
+                command.args.forEach(out::writeDouble)
+                out.writeBoolean(command.callback != null)
+            }
+        }
+
+        return digest.digest().joinToString("") { "%02x".format(it) }
+    }
+
+    fun load(key: String, callbacks: List<MarkerCallback>): Any? {
+        val file = fileFor(key) ?: return null
+
+        if (!file.exists()) {
+            return null
+        }
+
+        return try {
+            DataInputStream(BufferedInputStream(FileInputStream(file))).use {
+                SequenceCodec.read(it, callbacks)
+            }
+        } catch (e: Exception) {
+            file.delete()
+            null
+        }
+    }
+
+    fun save(key: String, sequence: Any, callbacks: List<MarkerCallback>) {
+        val file = fileFor(key) ?: return
+
+        // Written to a temp file first so a half-written file is never loaded
+        val temp = File(file.parentFile, "${file.name}.${Thread.currentThread().id}.tmp")
+
+        try {
+            file.parentFile?.mkdirs()
+
+            DataOutputStream(BufferedOutputStream(FileOutputStream(temp))).use {
+                SequenceCodec.write(it, sequence, callbacks)
+            }
+
+            if (!temp.renameTo(file)) {
+                temp.delete()
+            }
+        } catch (e: Exception) {
+            temp.delete()
+        }
+    }
+
+    fun clear() {
+        directory?.listFiles { _, name -> name.endsWith(EXTENSION) }?.forEach(File::delete)
+    }
+
+    private fun fileFor(key: String) = directory?.let { File(it, key + EXTENSION) }
+
+    /**
+     * Every value in the drive's `DriveConstants` (if it can be found), as `name=value` strings.
+     */
+    fun driveConstantsOf(drive: Any): List<String> {
+        val constants = try {
+            Class.forName(drive.javaClass.name.substringBeforeLast('.') + ".DriveConstants")
+        } catch (e: ClassNotFoundException) {
+            return emptyList()
+        }
+
+        return constants.declaredFields
+            .filter { Modifier.isStatic(it.modifiers) }
+            .sortedBy { it.name }
+            .map {
+                it.isAccessible = true
+                "${it.name}=${it.get(null)}"
+            }
+    }
+
+    private val buildIds = ConcurrentHashMap<Pair<Class<*>, Class<*>>, String>()
+
+    /**
+     * Identifies the code the sequences are built with, so that updating the builder (its
+     * defaults, its resolution logic, Road Runner, ...) can't load geometry the old code built.
+     *
+     * On the robot, that's when the app was last installed, since everything's in the same APK.
+     * Elsewhere (e.g. in the sim), it's a hash of the drive's, builder's, & Road Runner's classes.
+     */
+    fun buildIdOf(drive: Any, builder: Any): String {
+        return buildIds.getOrPut(drive.javaClass to builder.javaClass) {
+            appUpdateTime()?.let { "app:$it" }
+                ?: "classes:" + hashOf(drive.javaClass, builder.javaClass, TrajectoryBuilder::class.java)
+        }
+    }
+
+    private fun appUpdateTime(): Long? = try {
+        val context = AppUtil.getDefContext()
+        context.packageManager.getPackageInfo(context.packageName, 0).lastUpdateTime
+    } catch (e: Exception) {
+        null
+    } catch (e: LinkageError) {
+        // Not running on the robot
+        null
+    }
+
+    private fun hashOf(vararg classes: Class<*>): String {
+        val digest = MessageDigest.getInstance("SHA-256")
+
+        for (clazz in classes) {
+            digest.update(clazz.name.toByteArray())
+
+            // Includes the builder's nested classes, since a lot of its logic tends to live in them
+            (listOf(clazz) + clazz.declaredClasses).forEach { classFile ->
+                classFile.getResourceAsStream("/" + classFile.name.replace('.', '/') + ".class")?.use { input ->
+                    DigestOutputStream(NullOutputStream, digest).use(input::copyTo)
+                }
+            }
+        }
+
+        return digest.digest().joinToString("") { "%02x".format(it) }
+    }
+
+    private object NullOutputStream : OutputStream() {
+        override fun write(b: Int) {}
+
+        override fun write(b: ByteArray, off: Int, len: Int) {}
+    }
+}
@@ -0,0 +1,40 @@
+@file:Suppress("ClassName")
+
+package ftc.rogue.blacksmith.internal.proxies
+
+import com.acmerobotics.roadrunner.geometry.Pose2d
+import com.acmerobotics.roadrunner.trajectory.constraints.TrajectoryAccelerationConstraint
+import com.acmerobotics.roadrunner.trajectory.constraints.TrajectoryVelocityConstraint
+import ftc.rogue.blacksmith.util.anvil.DriveProxy
+
+/**
+ * A [_SampleMecanumDrive] for drives that implement [DriveProxy] (e.g. a
+ * [SimDrive][ftc.rogue.blacksmith.util.sim.SimDrive]), which are called directly instead of
+ * through reflection; a DriveProxy takes the sequence as an `Object`, and its constraint methods
+ * aren't static, so the reflected methods would never match them.
+ */
+internal class _DriveProxyDrive(private val proxy: DriveProxy) : _SampleMecanumDrive(proxy) {
+    override fun followTrajectorySequence(seq: Any) {
+        proxy.followTrajectorySequence(seq)
+    }
+
+    override fun followTrajectorySequenceAsync(seq: Any) {
+        proxy.followTrajectorySequenceAsync(seq)
+    }
+
+    override fun setPoseEstimate(pose: Pose2d) {
+        proxy.setPoseEstimate(pose)
+    }
+
+    override fun trajectorySequenceBuilder(startPose: Pose2d): Any {
+        return proxy.trajectorySequenceBuilder(startPose)
+    }
+
+    override fun getVelocityConstraint(maxVel: Number, maxAngularVel: Number, trackWidth: Number): TrajectoryVelocityConstraint {
+        return proxy.getVelocityConstraint(maxVel.toDouble(), maxAngularVel.toDouble(), trackWidth.toDouble())
+    }
+
+    override fun getAccelerationConstraint(maxAccel: Number): TrajectoryAccelerationConstraint {
+        return proxy.getAccelerationConstraint(maxAccel.toDouble())
+    }
+}
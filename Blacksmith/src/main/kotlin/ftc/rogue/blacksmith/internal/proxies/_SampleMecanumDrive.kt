@@ -5,40 +5,82 @@ package ftc.rogue.blacksmith.internal.proxies
 import com.acmerobotics.roadrunner.geometry.Pose2d
 import com.acmerobotics.roadrunner.trajectory.constraints.TrajectoryAccelerationConstraint
 import com.acmerobotics.roadrunner.trajectory.constraints.TrajectoryVelocityConstraint
-import ftc.rogue.blacksmith.internal.util.invokeMethodI
+import ftc.rogue.blacksmith.internal.util.cachedMethod
+import ftc.rogue.blacksmith.util.anvil.DriveProxy
+import java.lang.reflect.Method
 import java.util.*
+import java.util.concurrent.ConcurrentHashMap
 
 @PublishedApi
-internal class _SampleMecanumDrive(private val drive: Any) {
-    fun followTrajectorySequence(seq: Any) {
-        drive.invokeMethodI<Any?>("followTrajectorySequence", seq)
+internal open class _SampleMecanumDrive(val drive: Any) {
+    private val methods = DriveMethods.of(drive.javaClass)
+
+    open fun followTrajectorySequence(seq: Any) {
+        methods.followTrajectorySequence(seq.javaClass).invoke(drive, seq)
+    }
+
+    open fun followTrajectorySequenceAsync(seq: Any) {
+        methods.followTrajectorySequenceAsync(seq.javaClass).invoke(drive, seq)
     }
 
-    fun followTrajectorySequenceAsync(seq: Any) {
-        drive.invokeMethodI<Any?>("followTrajectorySequenceAsync", seq)
+    open fun setPoseEstimate(pose: Pose2d) {
+        methods.setPoseEstimate.invoke(drive, pose)
     }
 
-    fun setPoseEstimate(pose: Pose2d) {
-        drive.invokeMethodI<Any?>("setPoseEstimate", pose)
+    open fun trajectorySequenceBuilder(startPose: Pose2d): Any {
+        return methods.trajectorySequenceBuilder.invoke(drive, startPose)!!
     }
 
-    fun trajectorySequenceBuilder(startPose: Pose2d): Any {
-        return drive.invokeMethodI("trajectorySequenceBuilder", startPose)
+    open fun getVelocityConstraint(maxVel: Number, maxAngularVel: Number, trackWidth: Number): TrajectoryVelocityConstraint {
+        return methods.getVelocityConstraint.invoke(null, maxVel.toDouble(), maxAngularVel.toDouble(), trackWidth.toDouble()) as TrajectoryVelocityConstraint?
+            ?: throw IllegalStateException("getVelocityConstraint not defined for this drive proxy (it returned null)")
     }
 
-    fun getVelocityConstraint(maxVel: Number, maxAngularVel: Number, trackWidth: Number): TrajectoryVelocityConstraint {
-        return drive::class.java.getMethod("getVelocityConstraint", Double::class.java, Double::class.java, Double::class.java)
-            .let {
-                it.invoke(null, maxVel.toDouble(), maxAngularVel.toDouble(), trackWidth.toDouble()) as TrajectoryVelocityConstraint?
-                    ?: throw IllegalStateException("getVelocityConstraint not defined for this drive proxy (it returned null)")
-            }
+    open fun getAccelerationConstraint(maxAccel: Number): TrajectoryAccelerationConstraint {
+        return methods.getAccelerationConstraint.invoke(null, maxAccel.toDouble()) as TrajectoryAccelerationConstraint?
+            ?: throw IllegalStateException("getAccelerationConstraint not defined for this drive proxy (it returned null)")
+    }
+
+    /**
+     * Every method the proxy calls on a given drive class, each looked up the first time it's
+     * called and then reused by every drive of that class.
+     */
+    private class DriveMethods(private val clazz: Class<*>) {
+        val setPoseEstimate by clazz.cachedMethod("setPoseEstimate", Pose2d::class.java)
+        val trajectorySequenceBuilder by clazz.cachedMethod("trajectorySequenceBuilder", Pose2d::class.java)
+
+        val getVelocityConstraint by clazz.cachedMethod("getVelocityConstraint", Double::class.java, Double::class.java, Double::class.java)
+        val getAccelerationConstraint by clazz.cachedMethod("getAccelerationConstraint", Double::class.java)
+
+        // The sequence class isn't known until the first sequence is followed
+        @Volatile private var followTrajectorySequence: Method? = null
+        @Volatile private var followTrajectorySequenceAsync: Method? = null
+
+        fun followTrajectorySequence(seqClass: Class<*>): Method {
+            return followTrajectorySequence
+                ?: clazz.getMethod("followTrajectorySequence", seqClass).also { followTrajectorySequence = it }
+        }
+
+        fun followTrajectorySequenceAsync(seqClass: Class<*>): Method {
+            return followTrajectorySequenceAsync
+                ?: clazz.getMethod("followTrajectorySequenceAsync", seqClass).also { followTrajectorySequenceAsync = it }
+        }
+
+        companion object {
+            private val cache = ConcurrentHashMap<Class<*>, DriveMethods>()
+
+            fun of(clazz: Class<*>) = cache.getOrPut(clazz) { DriveMethods(clazz) }
+        }
     }
 
-    fun getAccelerationConstraint(maxAccel: Number): TrajectoryAccelerationConstraint {
-        return drive::class.java.getMethod("getAccelerationConstraint", Double::class.java)
-            .let {
-                it.invoke(null, maxAccel.toDouble()) as TrajectoryAccelerationConstraint?
-                    ?: throw IllegalStateException("getAccelerationConstraint not defined for this drive proxy (it returned null)")
-            }
+    companion object {
+        /**
+         * Wraps [drive], calling it directly if it's a [DriveProxy] (see [_DriveProxyDrive]), or
+         * through reflection otherwise.
+         */
+        fun of(drive: Any): _SampleMecanumDrive = when (drive) {
+            is DriveProxy -> _DriveProxyDrive(drive)
+            else -> _SampleMecanumDrive(drive)
+        }
     }
 }
@@ -10,11 +10,12 @@ import com.acmerobotics.roadrunner.trajectory.TimeProducer
 import com.acmerobotics.roadrunner.trajectory.Trajectory
 import com.acmerobotics.roadrunner.trajectory.constraints.TrajectoryAccelerationConstraint
 import com.acmerobotics.roadrunner.trajectory.constraints.TrajectoryVelocityConstraint
-import ftc.rogue.blacksmith.internal.util.getMethod
+import ftc.rogue.blacksmith.internal.util.cachedMethod
 import ftc.rogue.blacksmith.internal.util.invokeMethod
-import ftc.rogue.blacksmith.internal.util.invokeMethodRethrowing
+import java.lang.reflect.Field
 import java.lang.reflect.InvocationTargetException
 import java.lang.reflect.Method
+import java.util.concurrent.ConcurrentHashMap
 
 @PublishedApi
 internal class _TrajectorySequenceBuilder(
@@ -24,214 +25,278 @@ internal class _TrajectorySequenceBuilder(
     @get:JvmSynthetic
     internal val internalBuilder: Any
 
+    private val methods: BuilderMethods
+
     init {
         internalBuilder = driveProxy.trajectorySequenceBuilder(startPose)
+        methods = BuilderMethods.of(internalBuilder.javaClass)
     }
 
     // -- START MACHINE GENERATED CODE --
 
     fun lineTo(endPosition: Vector2d) = returnThisAndRethrow {
-        getMethod("lineTo", Vector2d::class.java)
-            .invoke(internalBuilder, endPosition)
+        methods.lineTo.invoke(internalBuilder, endPosition)
     }
 
     fun lineToConstantHeading(endPosition: Vector2d) = returnThisAndRethrow {
-        getMethod("lineToConstantHeading", Vector2d::class.java)
-            .invoke(internalBuilder, endPosition)
+        methods.lineToConstantHeading.invoke(internalBuilder, endPosition)
     }
 
     fun lineToLinearHeading(endPose: Pose2d) = returnThisAndRethrow {
-        getMethod("lineToLinearHeading", Pose2d::class.java)
-            .invoke(internalBuilder, endPose)
+        methods.lineToLinearHeading.invoke(internalBuilder, endPose)
     }
 
     fun lineToSplineHeading(endPose: Pose2d) = returnThisAndRethrow {
-        getMethod("lineToSplineHeading", Pose2d::class.java)
-            .invoke(internalBuilder, endPose)
+        methods.lineToSplineHeading.invoke(internalBuilder, endPose)
     }
 
     fun strafeTo(endPosition: Vector2d) = returnThisAndRethrow {
-        getMethod("strafeTo", Vector2d::class.java)
-            .invoke(internalBuilder, endPosition)
+        methods.strafeTo.invoke(internalBuilder, endPosition)
     }
 
     fun forward(distance: Double) = returnThisAndRethrow {
-        getMethod("forward", Double::class.java)
-            .invoke(internalBuilder, distance)
+        methods.forward.invoke(internalBuilder, distance)
     }
 
     fun back(distance: Double) = returnThisAndRethrow {
-        getMethod("back", Double::class.java)
-            .invoke(internalBuilder, distance)
+        methods.back.invoke(internalBuilder, distance)
     }
 
     fun strafeLeft(distance: Double) = returnThisAndRethrow {
-        getMethod("strafeLeft", Double::class.java)
-            .invoke(internalBuilder, distance)
+        methods.strafeLeft.invoke(internalBuilder, distance)
     }
 
     fun strafeRight(distance: Double) = returnThisAndRethrow {
-        getMethod("strafeRight", Double::class.java)
-            .invoke(internalBuilder, distance)
+        methods.strafeRight.invoke(internalBuilder, distance)
     }
 
     fun splineTo(endPosition: Vector2d, endHeading: Double) = returnThisAndRethrow {
-        getMethod("splineTo", Vector2d::class.java, Double::class.java)
-            .invoke(internalBuilder, endPosition, endHeading)
+        methods.splineTo.invoke(internalBuilder, endPosition, endHeading)
     }
 
     fun splineToConstantHeading(endPosition: Vector2d, endHeading: Double) = returnThisAndRethrow {
-        getMethod("splineToConstantHeading", Vector2d::class.java, Double::class.java)
-            .invoke(internalBuilder, endPosition, endHeading)
+        methods.splineToConstantHeading.invoke(internalBuilder, endPosition, endHeading)
     }
 
     fun splineToLinearHeading(endPose: Pose2d, endHeading: Double) = returnThisAndRethrow {
-        getMethod("splineToLinearHeading", Pose2d::class.java, Double::class.java)
-            .invoke(internalBuilder, endPose, endHeading)
+        methods.splineToLinearHeading.invoke(internalBuilder, endPose, endHeading)
     }
 
     fun splineToSplineHeading(endPose: Pose2d, endHeading: Double) = returnThisAndRethrow {
-        getMethod("splineToSplineHeading", Pose2d::class.java, Double::class.java)
-            .invoke(internalBuilder, endPose, endHeading)
+        methods.splineToSplineHeading.invoke(internalBuilder, endPose, endHeading)
     }
 
     fun setTangent(tangent: Double) = returnThisAndRethrow {
-        getMethod("setTangent", Double::class.java)
-            .invoke(internalBuilder, tangent)
+        methods.setTangent.invoke(internalBuilder, tangent)
     }
 
     fun setReversed(reversed: Boolean) = returnThisAndRethrow {
-        getMethod("setReversed", Boolean::class.java)
-            .invoke(internalBuilder, reversed)
+        methods.setReversed.invoke(internalBuilder, reversed)
     }
 
     fun resetConstraints() = returnThisAndRethrow {
-        getMethod("resetConstraints")
-            .invoke(internalBuilder)
+        methods.resetConstraints.invoke(internalBuilder)
     }
 
     fun setVelConstraint(velConstraint: TrajectoryVelocityConstraint) = returnThisAndRethrow {
-        getMethod("setVelConstraint", TrajectoryVelocityConstraint::class.java)
-            .invoke(internalBuilder, velConstraint)
+        methods.setVelConstraint.invoke(internalBuilder, velConstraint)
     }
 
     fun resetVelConstraint() = returnThisAndRethrow {
-        getMethod("resetVelConstraint")
-            .invoke(internalBuilder)
+        methods.resetVelConstraint.invoke(internalBuilder)
     }
 
     fun setAccelConstraint(accelConstraint: TrajectoryAccelerationConstraint) = returnThisAndRethrow {
-        getMethod("setAccelConstraint", TrajectoryAccelerationConstraint::class.java)
-            .invoke(internalBuilder, accelConstraint)
+        methods.setAccelConstraint.invoke(internalBuilder, accelConstraint)
     }
 
     fun resetAccelConstraint() = returnThisAndRethrow {
-        getMethod("resetAccelConstraint")
-            .invoke(internalBuilder)
+        methods.resetAccelConstraint.invoke(internalBuilder)
     }
 
     fun setTurnConstraint(maxAngVel: Double, maxAngAccel: Double) = returnThisAndRethrow {
-        getMethod("setTurnConstraint", Double::class.java, Double::class.java)
-            .invoke(internalBuilder, maxAngVel, maxAngAccel)
+        methods.setTurnConstraint.invoke(internalBuilder, maxAngVel, maxAngAccel)
     }
 
     fun resetTurnConstraint() = returnThisAndRethrow {
-        getMethod("resetTurnConstraint")
-            .invoke(internalBuilder)
+        methods.resetTurnConstraint.invoke(internalBuilder)
+    }
+
+    fun setResolution(resolution: Double) = returnThisAndRethrow {
+        methods.setResolution.invoke(internalBuilder, resolution)
+    }
+
+    fun setAdaptiveResolution(maxProfileError: Double) = returnThisAndRethrow {
+        methods.setAdaptiveResolution.invoke(internalBuilder, maxProfileError)
+    }
+
+    fun resetResolution() = returnThisAndRethrow {
+        methods.resetResolution.invoke(internalBuilder)
     }
 
     fun addTemporalMarker(callback: MarkerCallback) = returnThisAndRethrow {
-        getMethod("addTemporalMarker", MarkerCallback::class.java)
-            .invoke(internalBuilder, callback)
+        methods.addTemporalMarker.invoke(internalBuilder, callback)
     }
 
     fun UNSTABLE_addTemporalMarkerOffset(offset: Double, callback: MarkerCallback) = returnThisAndRethrow {
-        getMethod("UNSTABLE_addTemporalMarkerOffset", Double::class.java, MarkerCallback::class.java)
-            .invoke(internalBuilder, offset, callback)
+        methods.UNSTABLE_addTemporalMarkerOffset.invoke(internalBuilder, offset, callback)
     }
 
     fun addTemporalMarker(time: Double, callback: MarkerCallback) = returnThisAndRethrow {
-        getMethod("addTemporalMarker", Double::class.java, MarkerCallback::class.java)
-            .invoke(internalBuilder, time, callback)
+        methods.addTemporalMarkerAtTime.invoke(internalBuilder, time, callback)
     }
 
     fun addTemporalMarker(scale: Double, offset: Double, callback: MarkerCallback) = returnThisAndRethrow {
-        getMethod("addTemporalMarker", Double::class.java, Double::class.java, MarkerCallback::class.java)
-            .invoke(internalBuilder, scale, offset, callback)
+        methods.addTemporalMarkerScaled.invoke(internalBuilder, scale, offset, callback)
     }
 
     fun addTemporalMarker(time: TimeProducer, callback: MarkerCallback) = returnThisAndRethrow {
-        getMethod("addTemporalMarker", TimeProducer::class.java, MarkerCallback::class.java)
-            .invoke(internalBuilder, time, callback)
+        methods.addTemporalMarkerProduced.invoke(internalBuilder, time, callback)
     }
 
     fun addSpatialMarker(point: Vector2d, callback: MarkerCallback) = returnThisAndRethrow {
-        getMethod("addSpatialMarker", Vector2d::class.java, MarkerCallback::class.java)
-            .invoke(internalBuilder, point, callback)
+        methods.addSpatialMarker.invoke(internalBuilder, point, callback)
     }
 
     fun addDisplacementMarker(callback: MarkerCallback) = returnThisAndRethrow {
-        getMethod("addDisplacementMarker", MarkerCallback::class.java)
-            .invoke(internalBuilder, callback)
+        methods.addDisplacementMarker.invoke(internalBuilder, callback)
     }
 
     fun UNSTABLE_addDisplacementMarkerOffset(offset: Double, callback: MarkerCallback) = returnThisAndRethrow {
-        getMethod("UNSTABLE_addDisplacementMarkerOffset", Double::class.java, MarkerCallback::class.java)
-            .invoke(internalBuilder, offset, callback)
+        methods.UNSTABLE_addDisplacementMarkerOffset.invoke(internalBuilder, offset, callback)
     }
 
     fun addDisplacementMarker(displacement: Double, callback: MarkerCallback) = returnThisAndRethrow {
-        getMethod("addDisplacementMarker", Double::class.java, MarkerCallback::class.java)
-            .invoke(internalBuilder, displacement, callback)
+        methods.addDisplacementMarkerAtDisplacement.invoke(internalBuilder, displacement, callback)
     }
 
     fun addDisplacementMarker(scale: Double, offset: Double, callback: MarkerCallback) = returnThisAndRethrow {
-        getMethod("addDisplacementMarker", Double::class.java, Double::class.java, MarkerCallback::class.java)
-            .invoke(internalBuilder, scale, offset, callback)
+        methods.addDisplacementMarkerScaled.invoke(internalBuilder, scale, offset, callback)
     }
 
     fun addDisplacementMarker(displacement: DisplacementProducer, callback: MarkerCallback) = returnThisAndRethrow {
-        getMethod("addDisplacementMarker", DisplacementProducer::class.java, MarkerCallback::class.java)
-            .invoke(internalBuilder, displacement, callback)
+        methods.addDisplacementMarkerProduced.invoke(internalBuilder, displacement, callback)
     }
 
     fun turn(angle: Double) = returnThisAndRethrow {
-        getMethod("turn", Double::class.java)
-            .invoke(internalBuilder, angle)
+        methods.turn.invoke(internalBuilder, angle)
     }
 
     fun turn(angle: Double, maxAngVel: Double, maxAngAccel: Double) = returnThisAndRethrow {
-        getMethod("turn", Double::class.java, Double::class.java, Double::class.java)
-            .invoke(internalBuilder, angle, maxAngVel, maxAngAccel)
+        methods.turnConstrained.invoke(internalBuilder, angle, maxAngVel, maxAngAccel)
     }
 
     fun waitSeconds(seconds: Double) = returnThisAndRethrow {
-        getMethod("waitSeconds", Double::class.java)
-            .invoke(internalBuilder, seconds)
+        methods.waitSeconds.invoke(internalBuilder, seconds)
     }
 
     fun addTrajectory(trajectory: Trajectory) = returnThisAndRethrow {
-        getMethod("addTrajectory", Trajectory::class.java)
-            .invoke(internalBuilder, trajectory)
+        methods.addTrajectory.invoke(internalBuilder, trajectory)
     }
 
     // -- END MACHINE GENERATED CODE --
 
     fun build(): Any {
-        return internalBuilder.invokeMethodRethrowing("build")
+        try {
+            return methods.build.invoke(internalBuilder)!!
+        } catch (e: InvocationTargetException) {
+            throw e.targetException
+        }
     }
 
     @Suppress("UNCHECKED_CAST")
     fun getSequenceSegments(): List<Any> {
-        return internalBuilder::class.java.getDeclaredField("sequenceSegments")
-            .run {
-                isAccessible = true
-                get(internalBuilder)
-            } as List<Any>
+        return methods.sequenceSegments.get(internalBuilder) as List<Any>
     }
 
-    private fun getMethod(name: String, vararg args: Class<*>): Method {
-        return internalBuilder.getMethod(name, *args)
+    // -- Builder internals, for splicing in previously built segments (see SegmentMemo) --
+
+    /**
+     * Whether the builder has the (private) state needed to reuse previously built segments; it
+     * should, unless it's been heavily modified from the quickstart's.
+     */
+    val supportsSegmentReuse: Boolean
+        get() = methods.state != null
+
+    var lastPose: Pose2d
+        get() = methods.state!!.lastPose.get(internalBuilder) as Pose2d
+        set(value) = methods.state!!.lastPose.set(internalBuilder, value)
+
+    var currentDuration: Double
+        get() = methods.state!!.currentDuration.getDouble(internalBuilder)
+        set(value) = methods.state!!.currentDuration.setDouble(internalBuilder, value)
+
+    var currentDisplacement: Double
+        get() = methods.state!!.currentDisplacement.getDouble(internalBuilder)
+        set(value) = methods.state!!.currentDisplacement.setDouble(internalBuilder, value)
+
+    /**
+     * Finishes the path currently being built, adding it to the [sequence segments][getSequenceSegments].
+     */
+    fun pushPath() {
+        try {
+            methods.state!!.pushPath.invoke(internalBuilder)
+        } catch (e: InvocationTargetException) {
+            throw e.targetException
+        }
+    }
+
+    // -- Streaming builds (see AnvilInternal.`$buildStreaming`) --
+
+    /**
+     * Whether the builder can hand out a sequence before it's done being built, which takes RR+'s
+     * `startStreaming()`, `streamSegments()`, and `failStreaming()`.
+     */
+    val supportsStreaming: Boolean
+        get() = methods.streaming != null
+
+    fun startStreaming(): Any {
+        try {
+            return methods.streaming!!.startStreaming.invoke(internalBuilder)!!
+        } catch (e: InvocationTargetException) {
+            throw e.targetException
+        }
+    }
+
+    fun streamSegments() {
+        try {
+            methods.streaming!!.streamSegments.invoke(internalBuilder)
+        } catch (e: InvocationTargetException) {
+            throw e.targetException
+        }
+    }
+
+    fun failStreaming(failure: Throwable) {
+        try {
+            methods.streaming!!.failStreaming.invoke(internalBuilder, failure)
+        } catch (e: InvocationTargetException) {
+            throw e.targetException
+        }
+    }
+
+    // -- Baking (see the builder's bakeTrajectories) --
+
+    /**
+     * Whether the builder was told to bake its trajectories (RR+'s `bakeTrajectories`); always
+     * false if it doesn't support it.
+     */
+    val bakesTrajectories: Boolean
+        get() = methods.bakesTrajectories?.getBoolean(internalBuilder) ?: false
+
+    /**
+     * Starts baking the trajectories of a sequence this builder didn't build itself (i.e. one
+     * loaded from the TrajectoryCache), the same as it would've if it had.
+     */
+    fun bakeTrajectories(sequence: Any) {
+        val size = sequence.invokeMethod<Int>("size")
+
+        for (i in 0 until size) {
+            val segment = sequence.invokeMethod<Any>("get", i to Int::class.java)
+
+            segment.javaClass.methods
+                .find { it.name == "bakeAsync" && it.parameterCount == 0 }
+                ?.invoke(segment)
+        }
     }
 
     private inline fun returnThisAndRethrow(toDo: () -> Unit) = this.apply {
@@ -241,4 +306,103 @@ internal class _TrajectorySequenceBuilder(
             throw e.targetException
         }
     }
+
+    /**
+     * Every method the proxy calls on a given builder class, each looked up (by name & parameter
+     * types) the first time it's called and then reused by every builder of that class.
+     */
+    private class BuilderMethods(clazz: Class<*>) {
+        val lineTo by clazz.cachedMethod("lineTo", Vector2d::class.java)
+        val lineToConstantHeading by clazz.cachedMethod("lineToConstantHeading", Vector2d::class.java)
+        val lineToLinearHeading by clazz.cachedMethod("lineToLinearHeading", Pose2d::class.java)
+        val lineToSplineHeading by clazz.cachedMethod("lineToSplineHeading", Pose2d::class.java)
+        val strafeTo by clazz.cachedMethod("strafeTo", Vector2d::class.java)
+        val forward by clazz.cachedMethod("forward", Double::class.java)
+        val back by clazz.cachedMethod("back", Double::class.java)
+        val strafeLeft by clazz.cachedMethod("strafeLeft", Double::class.java)
+        val strafeRight by clazz.cachedMethod("strafeRight", Double::class.java)
+        val splineTo by clazz.cachedMethod("splineTo", Vector2d::class.java, Double::class.java)
+        val splineToConstantHeading by clazz.cachedMethod("splineToConstantHeading", Vector2d::class.java, Double::class.java)
+        val splineToLinearHeading by clazz.cachedMethod("splineToLinearHeading", Pose2d::class.java, Double::class.java)
+        val splineToSplineHeading by clazz.cachedMethod("splineToSplineHeading", Pose2d::class.java, Double::class.java)
+        val setTangent by clazz.cachedMethod("setTangent", Double::class.java)
+        val setReversed by clazz.cachedMethod("setReversed", Boolean::class.java)
+        val resetConstraints by clazz.cachedMethod("resetConstraints")
+        val setVelConstraint by clazz.cachedMethod("setVelConstraint", TrajectoryVelocityConstraint::class.java)
+        val resetVelConstraint by clazz.cachedMethod("resetVelConstraint")
+        val setAccelConstraint by clazz.cachedMethod("setAccelConstraint", TrajectoryAccelerationConstraint::class.java)
+        val resetAccelConstraint by clazz.cachedMethod("resetAccelConstraint")
+        val setTurnConstraint by clazz.cachedMethod("setTurnConstraint", Double::class.java, Double::class.java)
+        val resetTurnConstraint by clazz.cachedMethod("resetTurnConstraint")
+        val setResolution by clazz.cachedMethod("setResolution", Double::class.java)
+        val setAdaptiveResolution by clazz.cachedMethod("setAdaptiveResolution", Double::class.java)
+        val resetResolution by clazz.cachedMethod("resetResolution")
+        val addTemporalMarker by clazz.cachedMethod("addTemporalMarker", MarkerCallback::class.java)
+        val UNSTABLE_addTemporalMarkerOffset by clazz.cachedMethod("UNSTABLE_addTemporalMarkerOffset", Double::class.java, MarkerCallback::class.java)
+        val addTemporalMarkerAtTime by clazz.cachedMethod("addTemporalMarker", Double::class.java, MarkerCallback::class.java)
+        val addTemporalMarkerScaled by clazz.cachedMethod("addTemporalMarker", Double::class.java, Double::class.java, MarkerCallback::class.java)
+        val addTemporalMarkerProduced by clazz.cachedMethod("addTemporalMarker", TimeProducer::class.java, MarkerCallback::class.java)
+        val addSpatialMarker by clazz.cachedMethod("addSpatialMarker", Vector2d::class.java, MarkerCallback::class.java)
+        val addDisplacementMarker by clazz.cachedMethod("addDisplacementMarker", MarkerCallback::class.java)
+        val UNSTABLE_addDisplacementMarkerOffset by clazz.cachedMethod("UNSTABLE_addDisplacementMarkerOffset", Double::class.java, MarkerCallback::class.java)
+        val addDisplacementMarkerAtDisplacement by clazz.cachedMethod("addDisplacementMarker", Double::class.java, MarkerCallback::class.java)
+        val addDisplacementMarkerScaled by clazz.cachedMethod("addDisplacementMarker", Double::class.java, Double::class.java, MarkerCallback::class.java)
+        val addDisplacementMarkerProduced by clazz.cachedMethod("addDisplacementMarker", DisplacementProducer::class.java, MarkerCallback::class.java)
+        val turn by clazz.cachedMethod("turn", Double::class.java)
+        val turnConstrained by clazz.cachedMethod("turn", Double::class.java, Double::class.java, Double::class.java)
+        val waitSeconds by clazz.cachedMethod("waitSeconds", Double::class.java)
+        val addTrajectory by clazz.cachedMethod("addTrajectory", Trajectory::class.java)
+
+        val build by clazz.cachedMethod("build")
+
+        val sequenceSegments: Field by lazy(LazyThreadSafetyMode.PUBLICATION) {
+            clazz.getDeclaredField("sequenceSegments").apply { isAccessible = true }
+        }
+
+        val state: BuilderState? by lazy(LazyThreadSafetyMode.PUBLICATION) {
+            try {
+                BuilderState(clazz)
+            } catch (e: ReflectiveOperationException) {
+                null
+            }
+        }
+
+        val bakesTrajectories: Field? by lazy(LazyThreadSafetyMode.PUBLICATION) {
+            try {
+                clazz.getDeclaredField("bakesTrajectories").apply { isAccessible = true }
+            } catch (e: NoSuchFieldException) {
+                null
+            }
+        }
+
+        val streaming: StreamingMethods? by lazy(LazyThreadSafetyMode.PUBLICATION) {
+            try {
+                StreamingMethods(clazz)
+            } catch (e: ReflectiveOperationException) {
+                null
+            }
+        }
+
+        companion object {
+            private val cache = ConcurrentHashMap<Class<*>, BuilderMethods>()
+
+            fun of(clazz: Class<*>) = cache.getOrPut(clazz) { BuilderMethods(clazz) }
+        }
+    }
+
+    private class BuilderState(clazz: Class<*>) {
+        val lastPose = clazz.declaredField("lastPose")
+        val currentDuration = clazz.declaredField("currentDuration")
+        val currentDisplacement = clazz.declaredField("currentDisplacement")
+
+        val pushPath: Method = clazz.getDeclaredMethod("pushPath").apply { isAccessible = true }
+
+        private fun Class<*>.declaredField(name: String) = getDeclaredField(name).apply { isAccessible = true }
+    }
+
+    private class StreamingMethods(clazz: Class<*>) {
+        val startStreaming: Method = clazz.getMethod("startStreaming")
+        val streamSegments: Method = clazz.getMethod("streamSegments")
+        val failStreaming: Method = clazz.getMethod("failStreaming", Throwable::class.java)
+    }
 }
@@ -0,0 +1,231 @@
+package ftc.rogue.blacksmith.internal.scheduler
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicLongArray
+
+/**
+ * The bounded, multi-producer single-consumer queue behind
+ * [Scheduler.emitAsync][ftc.rogue.blacksmith.Scheduler.emitAsync].
+ *
+ * Any thread (e.g. an EasyOpenCV pipeline on the camera thread) can [offer] a message; the
+ * scheduler's thread [drains][drain] them once per tick, so the message callbacks themselves
+ * always run on the main loop. Plain messages are lock-free: producers only ever CAS a single
+ * counter to claim a slot, and if the queue's full, the message is dropped and counted instead.
+ *
+ * Coalesced messages keep only the latest value per message key. The value is parked in a
+ * [ConcurrentHashMap], and only the first one since the last drain takes up a slot in the queue,
+ * so a pipeline producing results faster than the loop runs can't flood the queue. That map isn't
+ * lock-free; a `put` or `remove` can briefly wait on a bin lock if another thread's touching the
+ * same bin (e.g. the scheduler taking the value out while the pipeline puts a new one in).
+ *
+ * (The ring is a Vyukov-style bounded queue; each slot has a sequence number saying whose turn it
+ * is to use it, so the keys & values themselves can be plain array writes.)
+ *
+ * @author KG
+ */
+@PublishedApi
+internal class AsyncMessageQueue(capacity: Int = 256) {
+    val capacity = Integer.highestOneBit(maxOf(capacity, 2) * 2 - 1)
+
+    private val mask = this.capacity - 1
+
+    private val sequences = AtomicLongArray(this.capacity).apply {
+        for (i in 0 until length()) set(i, i.toLong())
+    }
+
+    private val keys = arrayOfNulls<Any>(this.capacity)
+    private val values = arrayOfNulls<Any>(this.capacity)
+
+    private val enqueuePos = AtomicLong()
+
+    // Only ever touched by the consumer
+    private var dequeuePos = 0L
+
+    private val coalesced = ConcurrentHashMap<Any, Any>()
+
+    private val _numEmitted = AtomicLong()
+    private val _numDropped = AtomicLong()
+    private val _numCoalesced = AtomicLong()
+
+    /**
+     * The number of messages that've been accepted (including coalesced ones).
+     */
+    val numEmitted: Long
+        get() = _numEmitted.get()
+
+    /**
+     * The number of messages that've been dropped because the queue was full (including coalesced
+     * ones that were waiting on a slot that couldn't be claimed).
+     */
+    val numDropped: Long
+        get() = _numDropped.get()
+
+    /**
+     * The number of messages that replaced an older value that hadn't been delivered yet.
+     */
+    val numCoalesced: Long
+        get() = _numCoalesced.get()
+
+    /**
+     * The most messages that have been waiting at the start of a single drain.
+     */
+    var highWaterMark = 0
+        private set
+
+    /**
+     * The approximate number of messages waiting to be delivered.
+     */
+    val size: Int
+        get() = (enqueuePos.get() - dequeuePos).toInt().coerceIn(0, capacity)
+
+    /**
+     * Queues up a message; safe to call from any thread.
+     *
+     * @return `false` if the message was dropped because the queue was full
+     */
+    fun offer(message: Any, value: Any?, coalesce: Boolean): Boolean {
+        if (!coalesce) {
+            return countIfAccepted(enqueue(message, value))
+        }
+
+        val stored = value ?: NULL
+
+        // Someone else already has a slot waiting for this key, so just hand them the new value
+        if (coalesced.put(message, stored) != null) {
+            _numCoalesced.incrementAndGet()
+            _numEmitted.incrementAndGet()
+            return true
+        }
+
+        if (!enqueue(message, COALESCED)) {
+            // Another producer may have handed over a newer value in the meantime, thinking it'd
+            // ride along in this slot; it's got nowhere to go now either, so it's dropped too
+            if (!coalesced.remove(message, stored) && coalesced.remove(message) != null) {
+                _numDropped.incrementAndGet()
+            }
+            return countIfAccepted(false)
+        }
+
+        return countIfAccepted(true)
+    }
+
+    /**
+     * Delivers every message that was waiting when the drain started. Messages emitted by the
+     * callbacks themselves are left for the next drain, so this can't loop forever.
+     *
+     * Must only be called from the scheduler's thread.
+     */
+    fun drain(deliver: (message: Any, value: Any?) -> Unit) {
+        var remaining = size
+
+        if (remaining > highWaterMark) {
+            highWaterMark = remaining
+        }
+
+        while (remaining-- > 0) {
+            val message = poll() ?: return
+            val value = takeValue(message)
+
+            if (value !== COALESCED) {
+                deliver(message, value)
+            }
+        }
+    }
+
+    /**
+     * Drops everything that's waiting & resets the counters. Must only be called from the
+     * scheduler's thread.
+     */
+    fun clear() {
+        while (poll() != null) {
+            takeValue(null)
+        }
+        coalesced.clear()
+
+        _numEmitted.set(0)
+        _numDropped.set(0)
+        _numCoalesced.set(0)
+        highWaterMark = 0
+    }
+
+    // The value of the last polled slot, which is only valid until the next poll
+    private var polledValue: Any? = null
+
+    private fun poll(): Any? {
+        val pos = dequeuePos
+        val index = (pos and mask.toLong()).toInt()
+
+        if (sequences.get(index) != pos + 1) {
+            return null
+        }
+
+        val message = keys[index]
+        polledValue = values[index]
+
+        keys[index] = null
+        values[index] = null
+
+        dequeuePos = pos + 1
+        sequences.set(index, pos + capacity)
+
+        return message
+    }
+
+    /**
+     * Gets the value that goes with the last polled message, resolving coalesced messages to their
+     * latest value (or [COALESCED] if it was already taken by [clear]).
+     */
+    private fun takeValue(message: Any?): Any? {
+        val value = polledValue
+        polledValue = null
+
+        if (value !== COALESCED) {
+            return value
+        }
+
+        val latest = message?.let(coalesced::remove) ?: return COALESCED
+        return if (latest === NULL) null else latest
+    }
+
+    private fun enqueue(message: Any, value: Any?): Boolean {
+        var pos = enqueuePos.get()
+
+        while (true) {
+            val index = (pos and mask.toLong()).toInt()
+            val diff = sequences.get(index) - pos
+
+            when {
+                diff == 0L -> if (enqueuePos.compareAndSet(pos, pos + 1)) {
+                    keys[index] = message
+                    values[index] = value
+                    sequences.set(index, pos + 1)
+                    return true
+                } else {
+                    pos = enqueuePos.get()
+                }
+                // The consumer hasn't freed up this slot from the last lap yet
+                diff < 0L -> return false
+                // Another producer already claimed this slot
+                else -> pos = enqueuePos.get()
+            }
+        }
+    }
+
+    private fun countIfAccepted(accepted: Boolean): Boolean {
+        if (accepted) {
+            _numEmitted.incrementAndGet()
+        } else {
+            _numDropped.incrementAndGet()
+        }
+        return accepted
+    }
+
+    private companion object {
+        // Marks a slot whose value is parked in the coalesced map
+        val COALESCED = Any()
+
+        // Stands in for null values, which the coalesced map can't hold
+        val NULL = Any()
+    }
+}
@@ -0,0 +1,130 @@
+package ftc.rogue.blacksmith.internal.scheduler
+
+import ftc.rogue.blacksmith.Scheduler
+
+/**
+ * A node in the graph of conditions built up by the [Listener][ftc.rogue.blacksmith.listeners.Listener]
+ * combinators (`and`, `or`, `not`, etc.).
+ *
+ * Combining listeners links their nodes together instead of wrapping their conditions in new
+ * lambdas, so something like `gamepad.a` shared between a dozen combined listeners is still only
+ * read once per tick. Each node evaluates itself at most once per tick epoch (see
+ * [SchedulerInternal.currentEpoch]), caching the result, and tracks its own edges; every listener
+ * built on a node reads the same cached value & edges.
+ *
+ * Like the old per-listener [SignalEdgeDetector][ftc.rogue.blacksmith.util.SignalEdgeDetector],
+ * edges are relative to the last time the node was evaluated.
+ *
+ * @author KG
+ */
+internal abstract class ConditionNode {
+    private var epoch = NEVER
+
+    private var lastState = false
+    private var currState = false
+
+    /**
+     * Evaluates the node for the given epoch, if it hasn't been already.
+     */
+    fun update(epoch: Long) {
+        if (this.epoch == epoch) {
+            return
+        }
+
+        val state = compute(epoch)
+
+        // The first evaluation is never an edge
+        lastState = if (this.epoch == NEVER) state else currState
+        currState = state
+
+        this.epoch = epoch
+    }
+
+    fun valueAt(epoch: Long): Boolean {
+        update(epoch)
+        return currState
+    }
+
+    /**
+     * Gets the node's value for the current tick (or a fresh value, if not called during a tick).
+     */
+    fun get(): Boolean {
+        return valueAt(Scheduler.internal.currentEpoch())
+    }
+
+    /**
+     * Makes sure the node has been evaluated at least once, so that edges can be detected from
+     * the very first tick.
+     */
+    fun prime() {
+        if (epoch == NEVER) {
+            update(Scheduler.internal.currentEpoch())
+        }
+    }
+
+    fun isHigh() = currState
+
+    fun isLow() = !currState
+
+    open fun risingEdge() = !lastState && currState
+
+    open fun fallingEdge() = lastState && !currState
+
+    protected abstract fun compute(epoch: Long): Boolean
+
+    /**
+     * A readable description of the node, made from the classes of the conditions it's built
+     * from, e.g. `and(MyOpMode$1, not(MyOpMode$2))`. Used to name the node in the profiler.
+     */
+    open fun describe(): String = javaClass.simpleName
+
+    private class Leaf(private val condition: () -> Boolean) : ConditionNode() {
+        override fun compute(epoch: Long) = condition()
+
+        override fun describe(): String = condition.javaClass.name
+    }
+
+    private class Not(private val node: ConditionNode) : ConditionNode() {
+        override fun compute(epoch: Long) = !node.valueAt(epoch)
+
+        override fun describe() = "not(${node.describe()})"
+    }
+
+    private class And(private val a: ConditionNode, private val b: ConditionNode) : ConditionNode() {
+        override fun compute(epoch: Long) = a.valueAt(epoch) && b.valueAt(epoch)
+
+        override fun describe() = "and(${a.describe()}, ${b.describe()})"
+    }
+
+    private class Or(private val a: ConditionNode, private val b: ConditionNode) : ConditionNode() {
+        override fun compute(epoch: Long) = a.valueAt(epoch) || b.valueAt(epoch)
+
+        override fun describe() = "or(${a.describe()}, ${b.describe()})"
+    }
+
+    private class Xor(private val a: ConditionNode, private val b: ConditionNode) : ConditionNode() {
+        override fun compute(epoch: Long) = a.valueAt(epoch) xor b.valueAt(epoch)
+
+        override fun describe() = "xor(${a.describe()}, ${b.describe()})"
+    }
+
+    companion object {
+        private const val NEVER = Long.MIN_VALUE
+
+        fun of(condition: () -> Boolean): ConditionNode = Leaf(condition)
+
+        fun not(node: ConditionNode): ConditionNode = Not(node)
+
+        fun and(a: ConditionNode, b: ConditionNode): ConditionNode = And(a, b)
+
+        fun or(a: ConditionNode, b: ConditionNode): ConditionNode = Or(a, b)
+
+        fun xor(a: ConditionNode, b: ConditionNode): ConditionNode = Xor(a, b)
+
+        fun nand(a: ConditionNode, b: ConditionNode) = not(and(a, b))
+
+        fun nor(a: ConditionNode, b: ConditionNode) = not(or(a, b))
+
+        fun xnor(a: ConditionNode, b: ConditionNode) = not(xor(a, b))
+    }
+}
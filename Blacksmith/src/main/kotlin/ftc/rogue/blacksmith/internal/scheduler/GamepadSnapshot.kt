@@ -0,0 +1,148 @@
+package ftc.rogue.blacksmith.internal.scheduler
+
+import com.qualcomm.robotcore.hardware.Gamepad
+
+/**
+ * A once-per-tick copy of a [Gamepad]'s state, backing the
+ * [ReforgedGamepad][ftc.rogue.blacksmith.listeners.ReforgedGamepad]'s listeners.
+ *
+ * The first time any of the gamepad's listeners is evaluated in a tick, every button is packed
+ * into a single bitmask (and every analog input copied into a float array), and the rising &
+ * falling edges for *all* the buttons are found with a couple of bitwise ops. Every listener then
+ * just reads its bit, and they're all guaranteed to see the exact same input within a tick.
+ *
+ * @author KG
+ */
+internal class GamepadSnapshot(private val gamepad: Gamepad) {
+    private var epoch = NEVER
+
+    private var buttons = 0L
+    private var rising = 0L
+    private var falling = 0L
+
+    private val axes = FloatArray(NUM_AXES)
+
+    fun update(epoch: Long) {
+        if (this.epoch == epoch) {
+            return
+        }
+
+        val current = readButtons()
+
+        // The first snapshot is never an edge
+        val last = if (this.epoch == NEVER) current else buttons
+
+        buttons = current
+        rising = current and last.inv()
+        falling = last and current.inv()
+
+        readAxes()
+
+        this.epoch = epoch
+    }
+
+    fun isPressed(button: Int) = (buttons ushr button) and 1L != 0L
+
+    fun wasJustPressed(button: Int) = (rising ushr button) and 1L != 0L
+
+    fun wasJustReleased(button: Int) = (falling ushr button) and 1L != 0L
+
+    fun axis(axis: Int) = axes[axis]
+
+    private fun readButtons(): Long = with(gamepad) {
+        bit(a, A) or bit(b, B) or bit(x, X) or bit(y, Y) or
+        bit(dpad_up, DPAD_UP) or bit(dpad_down, DPAD_DOWN) or bit(dpad_left, DPAD_LEFT) or bit(dpad_right, DPAD_RIGHT) or
+        bit(left_bumper, LEFT_BUMPER) or bit(right_bumper, RIGHT_BUMPER) or
+        bit(left_stick_button, LEFT_STICK_BUTTON) or bit(right_stick_button, RIGHT_STICK_BUTTON) or
+        bit(circle, CIRCLE) or bit(cross, CROSS) or bit(triangle, TRIANGLE) or bit(square, SQUARE) or
+        bit(share, SHARE) or bit(options, OPTIONS) or bit(guide, GUIDE) or bit(start, START) or bit(back, BACK) or
+        bit(touchpad, TOUCHPAD) or bit(touchpad_finger_1, TOUCHPAD_FINGER_1) or bit(touchpad_finger_2, TOUCHPAD_FINGER_2) or
+        bit(ps, PS)
+    }
+
+    private fun readAxes() = with(gamepad) {
+        axes[LEFT_STICK_X] = left_stick_x
+        axes[LEFT_STICK_Y] = left_stick_y
+        axes[RIGHT_STICK_X] = right_stick_x
+        axes[RIGHT_STICK_Y] = right_stick_y
+        axes[LEFT_TRIGGER] = left_trigger
+        axes[RIGHT_TRIGGER] = right_trigger
+        axes[TOUCHPAD_FINGER_1_X] = touchpad_finger_1_x
+        axes[TOUCHPAD_FINGER_1_Y] = touchpad_finger_1_y
+        axes[TOUCHPAD_FINGER_2_X] = touchpad_finger_2_x
+        axes[TOUCHPAD_FINGER_2_Y] = touchpad_finger_2_y
+    }
+
+    /**
+     * A gamepad button, read from the snapshot. Edges come straight from the snapshot's edge masks.
+     */
+    class ButtonNode(private val snapshot: GamepadSnapshot, private val button: Int) : ConditionNode() {
+        override fun compute(epoch: Long): Boolean {
+            snapshot.update(epoch)
+            return snapshot.isPressed(button)
+        }
+
+        override fun risingEdge() = snapshot.wasJustPressed(button)
+
+        override fun fallingEdge() = snapshot.wasJustReleased(button)
+
+        override fun describe() = "button($button)"
+    }
+
+    /**
+     * A gamepad analog input past a deadzone, read from the snapshot.
+     */
+    class AxisNode(private val snapshot: GamepadSnapshot, private val axis: Int, private val deadzone: Double) : ConditionNode() {
+        override fun compute(epoch: Long): Boolean {
+            snapshot.update(epoch)
+            return Math.abs(snapshot.axis(axis)) > deadzone
+        }
+
+        override fun describe() = "axis($axis, $deadzone)"
+    }
+
+    companion object {
+        private const val NEVER = Long.MIN_VALUE
+
+        const val A = 0
+        const val B = 1
+        const val X = 2
+        const val Y = 3
+        const val DPAD_UP = 4
+        const val DPAD_DOWN = 5
+        const val DPAD_LEFT = 6
+        const val DPAD_RIGHT = 7
+        const val LEFT_BUMPER = 8
+        const val RIGHT_BUMPER = 9
+        const val LEFT_STICK_BUTTON = 10
+        const val RIGHT_STICK_BUTTON = 11
+        const val CIRCLE = 12
+        const val CROSS = 13
+        const val TRIANGLE = 14
+        const val SQUARE = 15
+        const val SHARE = 16
+        const val OPTIONS = 17
+        const val GUIDE = 18
+        const val START = 19
+        const val BACK = 20
+        const val TOUCHPAD = 21
+        const val TOUCHPAD_FINGER_1 = 22
+        const val TOUCHPAD_FINGER_2 = 23
+        const val PS = 24
+
+        const val LEFT_STICK_X = 0
+        const val LEFT_STICK_Y = 1
+        const val RIGHT_STICK_X = 2
+        const val RIGHT_STICK_Y = 3
+        const val LEFT_TRIGGER = 4
+        const val RIGHT_TRIGGER = 5
+        const val TOUCHPAD_FINGER_1_X = 6
+        const val TOUCHPAD_FINGER_1_Y = 7
+        const val TOUCHPAD_FINGER_2_X = 8
+        const val TOUCHPAD_FINGER_2_Y = 9
+
+        private const val NUM_AXES = 10
+
+        private fun bit(pressed: Boolean, button: Int) = if (pressed) 1L shl button else 0L
+    }
+}
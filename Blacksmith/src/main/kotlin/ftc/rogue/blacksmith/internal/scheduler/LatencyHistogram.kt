@@ -0,0 +1,107 @@
+package ftc.rogue.blacksmith.internal.scheduler
+
+/**
+ * A fixed-size histogram of durations (in nanoseconds), used for the [Scheduler][ftc.rogue.blacksmith.Scheduler]'s
+ * profiling.
+ *
+ * Buckets are log-scaled, with [SUB_BUCKETS] buckets per power of two, so the percentiles are
+ * accurate to within ~20% regardless of the magnitude. Everything's preallocated, so recording a
+ * duration never allocates.
+ *
+ * All the getters return milliseconds.
+ *
+ * @author KG
+ */
+class LatencyHistogram {
+    private val counts = LongArray(NUM_BUCKETS)
+
+    /**
+     * The total number of recorded durations.
+     */
+    var count = 0L
+        private set
+
+    private var maxNanos = 0L
+    private var totalNanos = 0L
+
+    val p50 get() = percentile(.50)
+    val p95 get() = percentile(.95)
+    val p99 get() = percentile(.99)
+
+    val max get() = maxNanos / 1e6
+
+    val mean get() = if (count == 0L) 0.0 else totalNanos / count / 1e6
+
+    /**
+     * Gets the (approximate) duration which [percentile]% of the recorded durations were
+     * less than or equal to.
+     * @param percentile The percentile, from 0 to 1.
+     * @return The duration in milliseconds.
+     */
+    fun percentile(percentile: Double): Double {
+        if (count == 0L) {
+            return 0.0
+        }
+
+        val threshold = maxOf(1L, Math.ceil(count * percentile).toLong())
+        var seen = 0L
+
+        for (i in counts.indices) {
+            seen += counts[i]
+
+            if (seen >= threshold) {
+                return minOf(upperBoundOf(i), maxNanos) / 1e6
+            }
+        }
+
+        return max
+    }
+
+    fun reset() {
+        counts.fill(0)
+        count = 0
+        maxNanos = 0
+        totalNanos = 0
+    }
+
+    @JvmSynthetic
+    internal fun record(nanos: Long) {
+        val duration = maxOf(nanos, 0L)
+
+        counts[indexOf(duration)]++
+        count++
+        totalNanos += duration
+        maxNanos = maxOf(maxNanos, duration)
+    }
+
+    private companion object {
+        const val SUB_BUCKET_BITS = 2
+        const val SUB_BUCKETS = 1 shl SUB_BUCKET_BITS
+
+        // Enough to cover durations of up to ~2^40ns (~18 minutes)
+        const val MAX_EXPONENT = 40
+        const val NUM_BUCKETS = (MAX_EXPONENT + 1) * SUB_BUCKETS
+
+        fun indexOf(nanos: Long): Int {
+            if (nanos < SUB_BUCKETS) {
+                return nanos.toInt()
+            }
+
+            val exponent = 63 - java.lang.Long.numberOfLeadingZeros(nanos)
+            val subBucket = (nanos ushr (exponent - SUB_BUCKET_BITS)).toInt() and (SUB_BUCKETS - 1)
+
+            return minOf(exponent * SUB_BUCKETS + subBucket, NUM_BUCKETS - 1)
+        }
+
+        fun upperBoundOf(index: Int): Long {
+            if (index < SUB_BUCKETS) {
+                return index.toLong()
+            }
+
+            val exponent = index / SUB_BUCKETS
+            val subBucket = index % SUB_BUCKETS
+
+            return (1L shl exponent) + ((subBucket + 1L) shl (exponent - SUB_BUCKET_BITS)) - 1
+        }
+    }
+}
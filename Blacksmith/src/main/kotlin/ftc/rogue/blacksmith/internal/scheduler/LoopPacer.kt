@@ -0,0 +1,87 @@
+package ftc.rogue.blacksmith.internal.scheduler
+
+import ftc.rogue.blacksmith.util.TimeSource
+
+/**
+ * Paces the [Scheduler][ftc.rogue.blacksmith.Scheduler]'s loop to a fixed rate by waiting out
+ * whatever's left of each tick's time slot, measured against a monotonic deadline (so a slow
+ * tick doesn't push every following tick back).
+ *
+ * When a tick runs past its deadline, it's counted as an overrun. By default, the following ticks
+ * then run back-to-back until the loop has caught up; if [skipsMissedTicks] is set, the missed
+ * slots are dropped instead and the loop is re-based on the current time.
+ *
+ * Does nothing while [periodNanos] is `0` (i.e. no rate was set).
+ *
+ * @author KG
+ */
+@PublishedApi
+internal class LoopPacer {
+    var periodNanos = 0L
+        private set
+
+    var skipsMissedTicks = false
+        private set
+
+    var timeSource = TimeSource.SYSTEM
+
+    private var deadline = 0L
+
+    var numOverruns = 0L
+        private set
+
+    var numSkippedTicks = 0L
+        private set
+
+    var lastOverrunNanos = 0L
+        private set
+
+    var worstOverrunNanos = 0L
+        private set
+
+    fun setRate(hz: Double, skipMissedTicks: Boolean) {
+        if (hz < 0 || hz.isNaN()) {
+            throw IllegalArgumentException("Loop rate must be positive, or 0 to disable pacing (got $hz)")
+        }
+
+        periodNanos = if (hz == 0.0) 0L else (1e9 / hz).toLong()
+        skipsMissedTicks = skipMissedTicks
+    }
+
+    fun start() {
+        numOverruns = 0
+        numSkippedTicks = 0
+        lastOverrunNanos = 0
+        worstOverrunNanos = 0
+
+        deadline = timeSource.nanoTime() + periodNanos
+    }
+
+    fun awaitNextTick() {
+        if (periodNanos == 0L) {
+            return
+        }
+
+        val now = timeSource.nanoTime()
+
+        if (now > deadline) {
+            val overrun = now - deadline
+
+            numOverruns++
+            lastOverrunNanos = overrun
+            worstOverrunNanos = maxOf(worstOverrunNanos, overrun)
+
+            if (skipsMissedTicks) {
+                numSkippedTicks += overrun / periodNanos
+                deadline = now + periodNanos
+            } else {
+                deadline += periodNanos
+            }
+            return
+        }
+
+        timeSource.sleepUntil(deadline)
+
+        deadline += periodNanos
+    }
+}
@@ -29,4 +29,7 @@ val Messages = NukeFlag(0x2)
 val BeforeEach = NukeFlag(0x4)
 
 @JvmField
-val All = Schedulables or Messages or BeforeEach
+val LoopRate = NukeFlag(0x8)
+
+@JvmField
+val All = Schedulables or Messages or BeforeEach or LoopRate
@@ -1,8 +1,9 @@
 package ftc.rogue.blacksmith.internal.scheduler
 
 import ftc.rogue.blacksmith.Scheduler
+import ftc.rogue.blacksmith.internal.util.OnExtendCondition
+import ftc.rogue.blacksmith.internal.util.OnUntilCondition
 import ftc.rogue.blacksmith.units.TimeUnit
-import ftc.rogue.blacksmith.util.SignalEdgeDetector
 
 class OnEvery(
     val condition: () -> Boolean,
@@ -29,39 +30,33 @@ class OnEveryNth(
     val n: Int,
 ) {
     fun timeBeingTrue(): OnEveryTimeBeingX {
-        return OnEveryTimeBeingX(condition, n)
+        return OnEveryTimeBeingX(OnSpec(condition, OnTrigger.BEING_TRUE, n))
     }
 
     fun timeBeingFalse(): OnEveryTimeBeingX {
-        return OnEveryTimeBeingX({ !condition() }, n)
+        return OnEveryTimeBeingX(OnSpec(condition, OnTrigger.BEING_FALSE, n))
     }
 
     fun timeBecomingTrue(): OnEveryTimeBeingX {
-        val sed = SignalEdgeDetector(condition)
-        return OnEveryTimeBeingX({ sed.update(); sed.risingEdge() }, n)
+        return OnEveryTimeBeingX(OnSpec(condition, OnTrigger.BECOMING_TRUE, n))
     }
 
     fun timeBecomingFalse(): OnEveryTimeBeingX {
-        val sed = SignalEdgeDetector(condition)
-        return OnEveryTimeBeingX({ sed.update(); sed.fallingEdge() }, n)
+        return OnEveryTimeBeingX(OnSpec(condition, OnTrigger.BECOMING_FALSE, n))
     }
 }
 
-class OnEveryTimeBeingX(
-    val condition: () -> Boolean,
-    val n: Int,
-    val offset: Int = 0,
-) {
+class OnEveryTimeBeingX internal constructor(private val spec: OnSpec) {
     fun extendFor(x: Int): OnEveryTimeBeingXDoYFor {
-        return OnEveryTimeBeingXDoYFor(condition, n, x, offset)
+        return OnEveryTimeBeingXDoYFor(spec, x)
     }
 
-    fun doUntil(extendCondition: (Boolean, Long) -> Boolean): OnEveryTimeBeingXDoExtraIterationsUntil {
-        return OnEveryTimeBeingXDoExtraIterationsUntil(condition, n, extendCondition, offset)
+    fun doUntil(extendCondition: OnExtendCondition): OnEveryTimeBeingXDoExtraIterationsUntil {
+        return OnEveryTimeBeingXDoExtraIterationsUntil(spec.copy(extension = OnExtension.Until(extendCondition)))
     }
 
-    fun until(untilCondition: (Long) -> Boolean): OnEveryImpl {
-        return OnEveryImpl(condition, n, offset, untilCondition = untilCondition)
+    fun until(untilCondition: OnUntilCondition): OnEveryImpl {
+        return OnEveryImpl(spec, untilCondition)
     }
 
     fun forever(): OnEveryImpl {
@@ -69,92 +64,42 @@ class OnEveryTimeBeingX(
     }
 
     fun withOffset(offset: Int): OnEveryTimeBeingX {
-        return OnEveryTimeBeingX(condition, n, offset)
+        return OnEveryTimeBeingX(spec.copy(offset = offset))
     }
 }
 
-class OnEveryTimeBeingXDoYFor(
-    val condition: () -> Boolean,
-    val n: Int,
-    val x: Int,
-    val offset: Int,
-) {
+class OnEveryTimeBeingXDoYFor internal constructor(private val spec: OnSpec, val x: Int) {
     fun iterations(): OnEveryTimeBeingXDoYForZExtraIterations {
-        if (n < 0) {
+        if (x < 0) {
             throw IllegalArgumentException("Can't extend for negative ($x) iterations")
         }
 
-        return OnEveryTimeBeingXDoYForZExtraIterations(condition, n, x, offset)
+        return OnEveryTimeBeingXDoYForZExtraIterations(spec.copy(extension = OnExtension.Iterations(x.toLong())))
     }
 
     fun milliseconds(): OnEveryTimeBeingXDoYForZTime {
-        if (n < 0) {
-            throw IllegalArgumentException("Can't extend for negative ($x) time")
-        }
-
         return time(TimeUnit.MILLISECONDS)
     }
 
     fun seconds(): OnEveryTimeBeingXDoYForZTime {
-        if (n < 0) {
-            throw IllegalArgumentException("Can't extend for negative ($x) time")
-        }
-
         return time(TimeUnit.SECONDS)
     }
 
     fun time(unit: TimeUnit): OnEveryTimeBeingXDoYForZTime {
-        return OnEveryTimeBeingXDoYForZTime(condition, n, unit.toMs(x), offset)
-    }
-}
-
-class OnEveryTimeBeingXDoYForZExtraIterations(
-    val condition: () -> Boolean,
-    val n: Int,
-    val iterations: Int,
-    val offset: Int,
-) {
-    fun until(untilCondition: (Long) -> Boolean): OnEveryImpl {
-        var iterOffset = 0L
-        var condWasTrue = true
-
-        val extendCondition = { condIsTrue: Boolean, curr: Long ->
-            if (!condIsTrue && condWasTrue) {
-                iterOffset = curr
-            }
-
-            condWasTrue = condIsTrue
-            curr - iterOffset < iterations
+        if (x < 0) {
+            throw IllegalArgumentException("Can't extend for negative ($x) time")
         }
 
-        return OnEveryImpl(condition, n, offset, extendCondition, untilCondition = untilCondition)
-    }
-
-    fun forever(): OnEveryImpl {
-        return until { false }
+        return OnEveryTimeBeingXDoYForZTime(spec.copy(extension = OnExtension.Time(unit.toMs(x).toLong())))
     }
 }
 
-class OnEveryTimeBeingXDoYForZTime(
-    val condition: () -> Boolean,
-    val n: Int,
-    val ms: Int,
-    val offset: Int,
-) {
-    fun until(untilCondition: (Long) -> Boolean): OnEveryImpl {
-        var timeOffset = 0L
-        var condWasTrue = true
-
-        val extendCondition = { condIsTrue: Boolean, _: Long ->
-            if (!condIsTrue && condWasTrue) {
-                timeOffset = System.currentTimeMillis()
-            }
-
-            condWasTrue = condIsTrue
-            System.currentTimeMillis() - timeOffset < ms
-        }
-
-        return OnEveryImpl(condition, n, offset, extendCondition, untilCondition = untilCondition)
+/**
+ * The last step of an `On` chain before it's compiled into an [OnEveryImpl].
+ */
+open class OnUntil internal constructor(private val spec: OnSpec) {
+    fun until(untilCondition: OnUntilCondition): OnEveryImpl {
+        return OnEveryImpl(spec, untilCondition)
     }
 
     fun forever(): OnEveryImpl {
@@ -162,53 +107,94 @@ class OnEveryTimeBeingXDoYForZTime(
     }
 }
 
-class OnEveryTimeBeingXDoExtraIterationsUntil(
-    val condition: () -> Boolean,
-    val n: Int,
-    val extendCondition: (Boolean, Long) -> Boolean,
-    val offset: Int,
-) {
-    fun until(untilCondition: (Long) -> Boolean): OnEveryImpl {
-        return OnEveryImpl(condition, n, offset, { b, l -> !extendCondition(b, l) }, untilCondition = untilCondition)
-    }
+class OnEveryTimeBeingXDoYForZExtraIterations internal constructor(spec: OnSpec) : OnUntil(spec)
 
-    fun forever(): OnEveryImpl {
-        return until { false }
-    }
-}
+class OnEveryTimeBeingXDoYForZTime internal constructor(spec: OnSpec) : OnUntil(spec)
 
-class OnEveryImpl(
-    val condition: () -> Boolean,
-    val requiredTrueStreak: Int,
-    val offset: Int,
-    val extendCondition: (Boolean, Long) -> Boolean = { _, _ -> false },
-    val untilCondition: (Long) -> Boolean = { false },
+class OnEveryTimeBeingXDoExtraIterationsUntil internal constructor(spec: OnSpec) : OnUntil(spec)
+
+/**
+ * The state machine that every `On` chain compiles down to.
+ *
+ * The builder chain only collects an [OnSpec]; everything about it (the trigger, the extension,
+ * whether it only fires once) is flattened into primitive fields here, so ticking it doesn't go
+ * through any layers of wrapped lambdas, and doesn't box or allocate anything.
+ *
+ * @author KG
+ */
+class OnEveryImpl internal constructor(
+    spec: OnSpec,
+    private val untilCondition: OnUntilCondition,
 ) : Schedulable {
+    private val condition = spec.condition
+    private val trigger = spec.trigger
+    private val requiredTrueStreak = spec.n
+    private val offset = spec.offset
+    private val isOneShot = spec.isOneShot
+
+    private val extensionMode: Int
+    private val extensionLength: Long
+    private val customExtension: OnExtendCondition?
+
     init {
-        hook()
+        when (val extension = spec.extension) {
+            is OnExtension.None -> {
+                extensionMode = EXTEND_NEVER
+                extensionLength = 0
+                customExtension = null
+            }
+            is OnExtension.Iterations -> {
+                extensionMode = EXTEND_ITERATIONS
+                extensionLength = extension.iterations
+                customExtension = null
+            }
+            is OnExtension.Time -> {
+                extensionMode = EXTEND_TIME
+                extensionLength = extension.ms
+                customExtension = null
+            }
+            is OnExtension.Until -> {
+                extensionMode = EXTEND_UNTIL
+                extensionLength = 0
+                customExtension = extension.condition
+            }
+        }
     }
 
+    // Only used by the edge triggers
+    private var lastState = trigger.isEdge && condition()
+
     private var totalCalls = 0L
     private var trueStreak = 0
     private var totalTrues = 0
 
     private var canBeExtended = false
+    private var hasFired = false
+
+    private var extensionStart = 0L
+    private var condWasTrue = true
+
+    private val actions = ArrayList<Runnable>()
 
-    private var actions = mutableSetOf<Runnable>()
+    init {
+        hook()
+    }
 
     fun execute(action: Runnable) = this.also {
-        actions += action
+        if (action !in actions) {
+            actions += action
+        }
     }
 
     override fun tick() {
-        if (untilCondition(totalCalls)) {
+        if (untilCondition.shouldStop(totalCalls)) {
             destroy()
             return
         }
 
         totalCalls++
 
-        val conditionIsTrue = condition()
+        val conditionIsTrue = evaluateTrigger()
 
         if (conditionIsTrue) {
             trueStreak++
@@ -219,9 +205,14 @@ class OnEveryImpl(
             return
         }
 
-        val canExtendAction = extendCondition(conditionIsTrue && trueStreak >= requiredTrueStreak, totalCalls)
+        val canExtendAction = canExtend(conditionIsTrue && trueStreak >= requiredTrueStreak, totalCalls)
         val shouldExtendAction = canBeExtended && canExtendAction
 
+        if (isOneShot && hasFired && !shouldExtendAction) {
+            destroy()
+            return
+        }
+
         if (trueStreak < requiredTrueStreak && !shouldExtendAction) {
             canBeExtended = false
             return
@@ -233,7 +224,11 @@ class OnEveryImpl(
 
         if (conditionIsTrue || shouldExtendAction) {
             canBeExtended = true
-            actions.forEach(Runnable::run)
+            hasFired = true
+
+            for (i in actions.indices) {
+                actions[i].run()
+            }
         }
     }
 
@@ -241,4 +236,76 @@ class OnEveryImpl(
         actions.clear()
         Scheduler.unhook(this)
     }
+
+    private fun evaluateTrigger(): Boolean {
+        val state = condition()
+
+        val result = when (trigger) {
+            OnTrigger.BEING_TRUE -> state
+            OnTrigger.BEING_FALSE -> !state
+            OnTrigger.BECOMING_TRUE -> !lastState && state
+            OnTrigger.BECOMING_FALSE -> lastState && !state
+        }
+
+        lastState = state
+        return result
+    }
+
+    private fun canExtend(conditionIsTrue: Boolean, iteration: Long): Boolean {
+        return when (extensionMode) {
+            EXTEND_ITERATIONS -> {
+                if (!conditionIsTrue && condWasTrue) {
+                    extensionStart = iteration
+                }
+
+                condWasTrue = conditionIsTrue
+                iteration - extensionStart < extensionLength
+            }
+            EXTEND_TIME -> {
+                val now = Scheduler.internal.timeSource.millis()
+
+                if (!conditionIsTrue && condWasTrue) {
+                    extensionStart = now
+                }
+
+                condWasTrue = conditionIsTrue
+                now - extensionStart < extensionLength
+            }
+            EXTEND_UNTIL -> !customExtension!!.test(conditionIsTrue, iteration)
+            else -> false
+        }
+    }
+
+    private companion object {
+        const val EXTEND_NEVER = 0
+        const val EXTEND_ITERATIONS = 1
+        const val EXTEND_TIME = 2
+        const val EXTEND_UNTIL = 3
+    }
 }
+
+internal enum class OnTrigger(val isEdge: Boolean) {
+    BEING_TRUE(false),
+    BEING_FALSE(false),
+    BECOMING_TRUE(true),
+    BECOMING_FALSE(true),
+}
+
+internal sealed class OnExtension {
+    object None : OnExtension()
+    class Iterations(val iterations: Long) : OnExtension()
+    class Time(val ms: Long) : OnExtension()
+    class Until(val condition: OnExtendCondition) : OnExtension()
+}
+
+/**
+ * Everything an `On` chain has been configured with so far.
+ */
+internal data class OnSpec(
+    val condition: () -> Boolean,
+    val trigger: OnTrigger,
+    val n: Int,
+    val offset: Int = 0,
+    val isOneShot: Boolean = false,
+    val extension: OnExtension = OnExtension.None,
+)
@@ -1,149 +1,76 @@
-//package ftc.rogue.blacksmith.internal.scheduler
-//
-//import ftc.rogue.blacksmith.listeners.OnEveryImpl
-//import ftc.rogue.blacksmith.units.TimeUnit
-//import ftc.rogue.blacksmith.util.SignalEdgeDetector
-//
-//class OnTheNth(
-//    val condition: () -> Boolean,
-//    val n: Int,
-//) {
-//    fun timeBeingTrue(): OnTheNthTimeBeingX {
-//        return OnTheNthTimeBeingX(condition, n)
-//    }
-//
-//    fun timeBeingFalse(): OnTheNthTimeBeingX {
-//        return OnTheNthTimeBeingX({ !condition() }, n)
-//    }
-//
-//    fun timeBecomingTrue(): OnTheNthTimeBeingX {
-//        val sed = SignalEdgeDetector(condition)
-//        return OnTheNthTimeBeingX({ sed.update(); sed.risingEdge() }, n)
-//    }
-//
-//    fun timeBecomingFalse(): OnTheNthTimeBeingX {
-//        val sed = SignalEdgeDetector(condition)
-//        return OnTheNthTimeBeingX({ sed.update(); sed.fallingEdge() }, n)
-//    }
-//}
-//
-//class OnTheNthTimeBeingX(
-//    val condition: () -> Boolean,
-//    val n: Int,
-//) {
-//    fun extendFor(x: Int): OnTheNthTimeBeingXDoYFor {
-//        return OnTheNthTimeBeingXDoYFor(condition, n, x)
-//    }
-//
-//    fun doUntil(extendCondition: (Boolean, Long) -> Boolean): OnTheNthTimeBeingXDoExtraIterationsUntil {
-//        return OnTheNthTimeBeingXDoExtraIterationsUntil(condition, n, extendCondition)
-//    }
-//
-//    fun until(untilCondition: (Long) -> Boolean): OnEveryImpl {
-//        return OnEveryImpl(condition, n, untilCondition = untilCondition, nthTime = 1)
-//    }
-//
-//    fun forever(): OnEveryImpl {
-//        return until { false }
-//    }
-//}
-//
-//class OnTheNthTimeBeingXDoYFor(
-//    val condition: () -> Boolean,
-//    val n: Int,
-//    val x: Int,
-//) {
-//    fun iterations(): OnTheNthTimeBeingXDoYForZExtraIterations {
-//        if (n < 0) {
-//            throw IllegalArgumentException("Can't extend for negative ($x) iterations")
-//        }
-//
-//        return OnTheNthTimeBeingXDoYForZExtraIterations(condition, n, x)
-//    }
-//
-//    fun milliseconds(): OnTheNthTimeBeingXDoYForZTime {
-//        if (n < 0) {
-//            throw IllegalArgumentException("Can't extend for negative ($x) time")
-//        }
-//
-//        return time(TimeUnit.MILLISECONDS)
-//    }
-//
-//    fun seconds(): OnTheNthTimeBeingXDoYForZTime {
-//        if (n < 0) {
-//            throw IllegalArgumentException("Can't extend for negative ($x) time")
-//        }
-//
-//        return time(TimeUnit.SECONDS)
-//    }
-//
-//    fun time(unit: TimeUnit): OnTheNthTimeBeingXDoYForZTime {
-//        return OnTheNthTimeBeingXDoYForZTime(condition, n, unit.toMs(x))
-//    }
-//}
-//
-//class OnTheNthTimeBeingXDoYForZExtraIterations(
-//    val condition: () -> Boolean,
-//    val n: Int,
-//    val iterations: Int,
-//) {
-//    fun until(untilCondition: (Long) -> Boolean): OnEveryImpl {
-//        var offset = 0L
-//        var condWasTrue = true
-//
-//        val extendCondition = { condIsTrue: Boolean, curr: Long ->
-//            if (!condIsTrue && condWasTrue) {
-//                offset = curr
-//            }
-//
-//            condWasTrue = condIsTrue
-//            curr - offset < iterations
-//        }
-//
-//        return OnEveryImpl(condition, n, extendCondition, nthTime = 1, untilCondition)
-//    }
-//
-//    fun forever(): OnEveryImpl {
-//        return until { false }
-//    }
-//}
-//
-//class OnTheNthTimeBeingXDoYForZTime(
-//    val condition: () -> Boolean,
-//    val n: Int,
-//    val ms: Int,
-//) {
-//    fun until(untilCondition: (Long) -> Boolean): OnEveryImpl {
-//        var offset = 0L
-//        var condWasTrue = true
-//
-//        val extendCondition = { condIsTrue: Boolean, _: Long ->
-//            if (!condIsTrue && condWasTrue) {
-//                offset = System.currentTimeMillis()
-//            }
-//
-//            condWasTrue = condIsTrue
-//            System.currentTimeMillis() - offset < ms
-//        }
-//
-//        return OnEveryImpl(condition, n, extendCondition, nthTime = 1, untilCondition)
-//    }
-//
-//    fun forever(): OnEveryImpl {
-//        return until { false }
-//    }
-//}
-//
-//class OnTheNthTimeBeingXDoExtraIterationsUntil(
-//    val condition: () -> Boolean,
-//    val n: Int,
-//    val extendCondition: (Boolean, Long) -> Boolean,
-//) {
-//    fun until(untilCondition: (Long) -> Boolean): OnEveryImpl {
-//        return OnEveryImpl(condition, n, { b, l -> !extendCondition(b, l) }, nthTime = 1, untilCondition)
-//    }
-//
-//    fun forever(): OnEveryImpl {
-//        return until { false }
-//    }
-//}
+package ftc.rogue.blacksmith.internal.scheduler
+
+import ftc.rogue.blacksmith.internal.util.OnExtendCondition
+import ftc.rogue.blacksmith.internal.util.OnUntilCondition
+import ftc.rogue.blacksmith.units.TimeUnit
+
+class OnTheNth(
+    val condition: () -> Boolean,
+    val n: Int,
+) {
+    fun timeBeingTrue(): OnTheNthTimeBeingX {
+        return OnTheNthTimeBeingX(OnSpec(condition, OnTrigger.BEING_TRUE, n, isOneShot = true))
+    }
+
+    fun timeBeingFalse(): OnTheNthTimeBeingX {
+        return OnTheNthTimeBeingX(OnSpec(condition, OnTrigger.BEING_FALSE, n, isOneShot = true))
+    }
+
+    fun timeBecomingTrue(): OnTheNthTimeBeingX {
+        return OnTheNthTimeBeingX(OnSpec(condition, OnTrigger.BECOMING_TRUE, n, isOneShot = true))
+    }
+
+    fun timeBecomingFalse(): OnTheNthTimeBeingX {
+        return OnTheNthTimeBeingX(OnSpec(condition, OnTrigger.BECOMING_FALSE, n, isOneShot = true))
+    }
+}
+
+class OnTheNthTimeBeingX internal constructor(private val spec: OnSpec) {
+    fun extendFor(x: Int): OnTheNthTimeBeingXDoYFor {
+        return OnTheNthTimeBeingXDoYFor(spec, x)
+    }
+
+    fun doUntil(extendCondition: OnExtendCondition): OnTheNthTimeBeingXDoExtraIterationsUntil {
+        return OnTheNthTimeBeingXDoExtraIterationsUntil(spec.copy(extension = OnExtension.Until(extendCondition)))
+    }
+
+    fun until(untilCondition: OnUntilCondition): OnEveryImpl {
+        return OnEveryImpl(spec, untilCondition)
+    }
+
+    fun forever(): OnEveryImpl {
+        return until { false }
+    }
+}
+
+class OnTheNthTimeBeingXDoYFor internal constructor(private val spec: OnSpec, val x: Int) {
+    fun iterations(): OnTheNthTimeBeingXDoYForZExtraIterations {
+        if (x < 0) {
+            throw IllegalArgumentException("Can't extend for negative ($x) iterations")
+        }
+
+        return OnTheNthTimeBeingXDoYForZExtraIterations(spec.copy(extension = OnExtension.Iterations(x.toLong())))
+    }
+
+    fun milliseconds(): OnTheNthTimeBeingXDoYForZTime {
+        return time(TimeUnit.MILLISECONDS)
+    }
+
+    fun seconds(): OnTheNthTimeBeingXDoYForZTime {
+        return time(TimeUnit.SECONDS)
+    }
+
+    fun time(unit: TimeUnit): OnTheNthTimeBeingXDoYForZTime {
+        if (x < 0) {
+            throw IllegalArgumentException("Can't extend for negative ($x) time")
+        }
+
+        return OnTheNthTimeBeingXDoYForZTime(spec.copy(extension = OnExtension.Time(unit.toMs(x).toLong())))
+    }
+}
+
+class OnTheNthTimeBeingXDoYForZExtraIterations internal constructor(spec: OnSpec) : OnUntil(spec)
+
+class OnTheNthTimeBeingXDoYForZTime internal constructor(spec: OnSpec) : OnUntil(spec)
+
+class OnTheNthTimeBeingXDoExtraIterationsUntil internal constructor(spec: OnSpec) : OnUntil(spec)
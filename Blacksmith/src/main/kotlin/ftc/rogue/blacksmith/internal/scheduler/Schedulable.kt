@@ -9,4 +9,11 @@ interface Schedulable {
     fun hook() {
         Scheduler.hook(this)
     }
+
+    /**
+     * Hooks this [Schedulable] to run in the given [TickPhase] of each tick.
+     */
+    fun hook(phase: TickPhase) {
+        Scheduler.hook(this, phase)
+    }
 }
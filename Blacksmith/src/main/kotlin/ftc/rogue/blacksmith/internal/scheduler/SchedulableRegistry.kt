@@ -0,0 +1,220 @@
+package ftc.rogue.blacksmith.internal.scheduler
+
+/**
+ * Array-backed store for the [Schedulables][Schedulable] hooked into the
+ * [Scheduler][ftc.rogue.blacksmith.Scheduler], bucketed by the [TickPhase] they run in.
+ *
+ * Hooking and unhooking only ever write into a pending queue. The queues are double-buffered, so
+ * the queue being drained by [flush] is never the one being written to; anything hooked/unhooked
+ * mid-flush simply waits in the other buffer for the next [flush].
+ *
+ * Removed slots are compacted in place, keeping the tick order (within a phase) equal to the hook
+ * order, and the freed slots are reused by the next hooks. Once the backing arrays have grown to
+ * fit the program's schedulables, neither [flush] nor [tick] allocate anything.
+ *
+ * @author KG
+ */
+@PublishedApi
+internal class SchedulableRegistry(initialCapacity: Int = 64) {
+    private val phases = Array(TickPhase.values().size) { Slots(initialCapacity) }
+
+    val size: Int
+        get() = phases.sumOf { it.size }
+
+    private var toAdd = PendingQueue(initialCapacity)
+    private var toAddBack = PendingQueue(initialCapacity)
+
+    private var toRemove = PendingQueue(initialCapacity)
+    private var toRemoveBack = PendingQueue(initialCapacity)
+
+    fun hook(schedulable: Schedulable, phase: TickPhase) {
+        toAdd.addUnique(schedulable, phase)
+    }
+
+    fun unhook(schedulable: Schedulable) {
+        toRemove.addUnique(schedulable)
+    }
+
+    /**
+     * Applies the pending hooks, then the pending unhooks (matching the old set semantics, where
+     * something both hooked and unhooked in the same tick ends up unhooked).
+     *
+     * Hooking something that's already hooked under a different phase moves it to the new phase.
+     */
+    fun flush() {
+        val adding = toAdd
+        toAdd = toAddBack
+        toAddBack = adding
+
+        val removing = toRemove
+        toRemove = toRemoveBack
+        toRemoveBack = removing
+
+        for (i in 0 until adding.size) {
+            val schedulable = adding[i]
+            val phase = adding.phaseAt(i)
+
+            for (p in phases.indices) {
+                if (p != phase) phases[p].remove(schedulable)
+            }
+
+            phases[phase].addUnique(schedulable)
+        }
+        adding.clear()
+
+        if (removing.size == 0) {
+            return
+        }
+
+        for (p in phases.indices) {
+            phases[p].removeAll(removing)
+        }
+        removing.clear()
+    }
+
+    fun tick(phase: TickPhase) {
+        phases[phase.ordinal].tick()
+    }
+
+    fun tick(phase: TickPhase, profiler: SchedulerProfiler) {
+        phases[phase.ordinal].tick(profiler)
+    }
+
+    /**
+     * Destroys & drops every hooked [Schedulable], as well as anything still pending.
+     */
+    fun destroyAll() {
+        flush()
+
+        for (p in phases.indices) {
+            phases[p].destroyAll()
+        }
+
+        // The destroy() calls most likely unhooked themselves; those are already gone
+        toAdd.clear()
+        toRemove.clear()
+    }
+
+    private class Slots(initialCapacity: Int) {
+        private var slots = arrayOfNulls<Schedulable>(initialCapacity)
+
+        var size = 0
+            private set
+
+        fun addUnique(schedulable: Schedulable) {
+            for (i in 0 until size) {
+                if (slots[i] === schedulable) {
+                    return
+                }
+            }
+
+            if (size == slots.size) {
+                slots = slots.copyOf(slots.size * 2)
+            }
+
+            slots[size++] = schedulable
+        }
+
+        fun remove(schedulable: Schedulable) {
+            for (i in 0 until size) {
+                if (slots[i] === schedulable) {
+                    System.arraycopy(slots, i + 1, slots, i, size - i - 1)
+                    slots[--size] = null
+                    return
+                }
+            }
+        }
+
+        fun removeAll(toRemove: PendingQueue) {
+            var writeIndex = 0
+
+            for (readIndex in 0 until size) {
+                val schedulable = slots[readIndex]!!
+
+                if (!toRemove.contains(schedulable)) {
+                    slots[writeIndex++] = schedulable
+                }
+            }
+
+            for (i in writeIndex until size) {
+                slots[i] = null
+            }
+
+            size = writeIndex
+        }
+
+        fun tick() {
+            for (i in 0 until size) {
+                slots[i]!!.tick()
+            }
+        }
+
+        fun tick(profiler: SchedulerProfiler) {
+            for (i in 0 until size) {
+                val schedulable = slots[i]!!
+
+                val start = System.nanoTime()
+                schedulable.tick()
+                profiler.record(schedulable, System.nanoTime() - start)
+            }
+        }
+
+        fun destroyAll() {
+            for (i in 0 until size) {
+                slots[i]!!.destroy()
+                slots[i] = null
+            }
+            size = 0
+        }
+    }
+
+    private class PendingQueue(initialCapacity: Int) {
+        private var items = arrayOfNulls<Schedulable>(initialCapacity)
+        private var itemPhases = IntArray(initialCapacity)
+
+        var size = 0
+            private set
+
+        operator fun get(index: Int): Schedulable {
+            return items[index]!!
+        }
+
+        fun phaseAt(index: Int): Int {
+            return itemPhases[index]
+        }
+
+        // The phase is meaningless for unhooks, so it's left as the default there
+        fun addUnique(schedulable: Schedulable, phase: TickPhase = TickPhase.LOGIC) {
+            for (i in 0 until size) {
+                if (items[i] === schedulable) {
+                    itemPhases[i] = phase.ordinal
+                    return
+                }
+            }
+
+            if (size == items.size) {
+                items = items.copyOf(items.size * 2)
+                itemPhases = itemPhases.copyOf(itemPhases.size * 2)
+            }
+
+            itemPhases[size] = phase.ordinal
+            items[size++] = schedulable
+        }
+
+        fun contains(schedulable: Schedulable): Boolean {
+            for (i in 0 until size) {
+                if (items[i] === schedulable) {
+                    return true
+                }
+            }
+            return false
+        }
+
+        fun clear() {
+            for (i in 0 until size) {
+                items[i] = null
+            }
+            size = 0
+        }
+    }
+}
@@ -4,4 +4,15 @@ class SchedulerDebugInfo(
     val loopTime: Double,
     val numHookedListeners: Int,
     val numUniqueMessageSubs: Int,
+    val targetLoopTime: Double = 0.0,
+    val numOverruns: Long = 0,
+    val numSkippedTicks: Long = 0,
+    val lastOverrunTime: Double = 0.0,
+    val worstOverrunTime: Double = 0.0,
+    val profiler: SchedulerProfiler? = null,
+    val numPendingTimers: Int = 0,
+    val numPendingAsyncMessages: Int = 0,
+    val numDroppedAsyncMessages: Long = 0,
+    val numCoalescedAsyncMessages: Long = 0,
+    val asyncMessagesHighWaterMark: Int = 0,
 )
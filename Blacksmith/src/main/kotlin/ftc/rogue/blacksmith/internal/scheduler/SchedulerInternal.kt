@@ -3,22 +3,41 @@
 package ftc.rogue.blacksmith.internal.scheduler
 
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode
-import com.qualcomm.robotcore.util.ElapsedTime
 import ftc.rogue.blacksmith.Scheduler
 import ftc.rogue.blacksmith.internal.util.Consumer
 import ftc.rogue.blacksmith.internal.util.consume
+import ftc.rogue.blacksmith.util.TimeSource
 
 @PublishedApi
 internal class SchedulerInternal {
     @PublishedApi
     @get:JvmSynthetic
-    internal val schedulables = mutableSetOf<Schedulable>()
+    internal val schedulables = SchedulableRegistry()
 
     @PublishedApi
     @get:JvmSynthetic
     @set:JvmSynthetic
     internal var beforeEach = Runnable {}
 
+    @PublishedApi
+    @get:JvmSynthetic
+    internal val pacer = LoopPacer()
+
+    @PublishedApi
+    @get:JvmSynthetic
+    internal val timers = TimerWheel()
+
+    @PublishedApi
+    @get:JvmSynthetic
+    internal var timeSource = TimeSource.SYSTEM
+        private set
+
+    fun setTimeSource(timeSource: TimeSource) {
+        this.timeSource = timeSource
+        pacer.timeSource = timeSource
+        timers.timeSource = timeSource
+    }
+
     fun launch(opmode: LinearOpMode, afterEach: Runnable) {
         launchManually({ opmode.opModeIsActive() && !opmode.isStopRequested }, afterEach)
     }
@@ -31,25 +50,30 @@ internal class SchedulerInternal {
     inline fun launchManually(condition: () -> Boolean, afterEach: Runnable) {
         emit(Scheduler.STARTING_MSG)
 
-        while (condition()) {
-            updateListenersSet()
+        pacer.start()
 
-            beforeEach.run()
-            tick()
-            afterEach.run()
+        while (condition()) {
+            runTick(afterEach)
+            pacer.awaitNextTick()
         }
     }
 
     inline fun debug(condition: () -> Boolean, afterEach: Consumer<SchedulerDebugInfo>) {
-        val elapsedTime = ElapsedTime()
+        var lastTime = timeSource.nanoTime()
 
         launchManually(condition) {
-            val time = elapsedTime.milliseconds()
+            val now = timeSource.nanoTime()
+            val time = (now - lastTime) / 1e6
 
-            elapsedTime.reset()
+            lastTime = now
 
             val debugInfo = SchedulerDebugInfo(
-                time, schedulables.size, messages.size
+                time, schedulables.size, messages.size,
+                pacer.periodNanos / 1e6, pacer.numOverruns, pacer.numSkippedTicks,
+                pacer.lastOverrunNanos / 1e6, pacer.worstOverrunNanos / 1e6,
+                profiler, timers.size,
+                asyncMessages.size, asyncMessages.numDropped, asyncMessages.numCoalesced,
+                asyncMessages.highWaterMark,
             )
 
             afterEach.consume(debugInfo)
@@ -59,63 +83,167 @@ internal class SchedulerInternal {
     fun nuke(toNuke: Array<out NukeFlag>) {
         updateListenersSet()
 
+        // In case the last launch was stopped by an exception mid-tick
+        isTicking = false
+
         val nukeFlag = toNuke.reduce(NukeFlag::or)
 
         if ((nukeFlag and !All).flag > 0) {
-            throw IllegalArgumentException("Bitflag uses number that isn't Listener, Messages, BeforeEach, nor All (1, 2, 4, or 7)")
+            throw IllegalArgumentException("Bitflag uses number that isn't Listener, Messages, BeforeEach, LoopRate, nor All (1, 2, 4, 8, or 15)")
         }
 
         if (nukeFlag and Schedulables == Schedulables) {
-            schedulables.forEach {
-                it.destroy()
-            }
-            schedulables.clear()
+            schedulables.destroyAll()
+            timers.clear()
         }
 
         if (nukeFlag and Messages == Messages) {
             messages.clear()
+            asyncMessages.clear()
         }
 
         if (nukeFlag and BeforeEach == BeforeEach) {
             beforeEach = Runnable {}
         }
+
+        if (nukeFlag and LoopRate == LoopRate) {
+            pacer.setRate(0.0, skipMissedTicks = false)
+        }
+    }
+
+    fun setLoopRate(hz: Double, skipMissedTicks: Boolean) {
+        pacer.setRate(hz, skipMissedTicks)
     }
 
     @PublishedApi
     @get:JvmSynthetic
-    internal val messages = mutableMapOf<Any, MutableList<Runnable>>()
+    internal val messages = mutableMapOf<Any, MutableList<Consumer<Any?>>>()
+
+    @PublishedApi
+    @get:JvmSynthetic
+    internal val asyncMessages = AsyncMessageQueue()
+
+    private val deliverAsyncMessage = ::emit
 
     fun on(message: Any, callback: Runnable) {
-        messages.getOrPut(message, ::ArrayList) += callback
+        messages.getOrPut(message, ::ArrayList) += Consumer { callback.run() }
     }
 
-    fun emit(message: Any) {
-        messages[message]?.forEach(Runnable::run)
+    @Suppress("UNCHECKED_CAST")
+    fun <T> onValue(message: Any, callback: Consumer<T>) {
+        // Values can't be delivered to messages that were emitted without one
+        messages.getOrPut(message, ::ArrayList) += Consumer { if (this != null) callback.consume(this as T) }
     }
 
-    private val schedulablesToAdd = mutableSetOf<Schedulable>()
-    private val schedulablesToRemove = mutableSetOf<Schedulable>()
+    fun emit(message: Any, value: Any? = null) {
+        val callbacks = messages[message] ?: return
+
+        for (i in callbacks.indices) {
+            callbacks[i].consume(value)
+        }
+    }
+
+    fun emitAsync(message: Any, value: Any?, coalesce: Boolean): Boolean {
+        return asyncMessages.offer(message, value, coalesce)
+    }
+
+    fun deliverAsyncMessages() {
+        asyncMessages.drain(deliverAsyncMessage)
+    }
 
-    fun hook(schedulable: Schedulable) {
-        schedulablesToAdd += schedulable
+    fun hook(schedulable: Schedulable, phase: TickPhase) {
+        schedulables.hook(schedulable, phase)
     }
 
     fun unhook(schedulable: Schedulable) {
-        schedulablesToRemove += schedulable
+        schedulables.unhook(schedulable)
     }
 
     @JvmSynthetic
     @PublishedApi
     internal fun updateListenersSet() {
-        schedulables += schedulablesToAdd
-        schedulablesToAdd.clear()
-        schedulables -= schedulablesToRemove
-        schedulablesToRemove.clear()
+        schedulables.flush()
+    }
+
+    @PublishedApi
+    @get:JvmSynthetic
+    internal var profiler: SchedulerProfiler? = null
+        private set
+
+    fun enableProfiling(topN: Int, publishIntervalMs: Long) {
+        profiler = SchedulerProfiler(topN, publishIntervalMs)
+    }
+
+    fun disableProfiling() {
+        profiler = null
+    }
+
+    private var epoch = 0L
+    private var isTicking = false
+
+    /**
+     * Gets the epoch of the current tick, which [ConditionNodes][ConditionNode] cache their values
+     * under. Outside of a tick (e.g. a listener being ticked manually), every call gets a new epoch
+     * so nothing's ever stale.
+     */
+    fun currentEpoch(): Long {
+        return if (isTicking) epoch else ++epoch
     }
 
     @JvmSynthetic
     @PublishedApi
-    internal fun tick() {
-        schedulables.forEach(Schedulable::tick)
+    internal fun runTick(afterEach: Runnable) {
+        epoch++
+        isTicking = true
+
+        val profiler = profiler
+
+        if (profiler != null) {
+            runProfiledTick(afterEach, profiler)
+            isTicking = false
+            return
+        }
+
+        updateListenersSet()
+        asyncMessages.drain(deliverAsyncMessage)
+
+        beforeEach.run()
+        schedulables.tick(TickPhase.SENSOR_READ)
+        timers.advance()
+        schedulables.tick(TickPhase.LOGIC)
+        afterEach.run()
+        schedulables.tick(TickPhase.ACTUATE)
+
+        isTicking = false
+    }
+
+    private fun runProfiledTick(afterEach: Runnable, profiler: SchedulerProfiler) {
+        val loopStart = System.nanoTime()
+
+        updateListenersSet()
+        asyncMessages.drain(deliverAsyncMessage)
+
+        beforeEach.run()
+        val beforeEachEnd = System.nanoTime()
+
+        schedulables.tick(TickPhase.SENSOR_READ, profiler)
+
+        val timersStart = System.nanoTime()
+        timers.advance()
+        profiler.timerTimes.record(System.nanoTime() - timersStart)
+
+        schedulables.tick(TickPhase.LOGIC, profiler)
+
+        val afterEachStart = System.nanoTime()
+        afterEach.run()
+        val afterEachEnd = System.nanoTime()
+
+        schedulables.tick(TickPhase.ACTUATE, profiler)
+
+        profiler.beforeEachTimes.record(beforeEachEnd - loopStart)
+        profiler.afterEachTimes.record(afterEachEnd - afterEachStart)
+        profiler.loopTimes.record(System.nanoTime() - loopStart)
+
+        profiler.publishIfDue()
     }
 }
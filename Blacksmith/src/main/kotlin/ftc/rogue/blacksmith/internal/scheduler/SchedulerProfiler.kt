@@ -0,0 +1,124 @@
+package ftc.rogue.blacksmith.internal.scheduler
+
+import com.acmerobotics.dashboard.FtcDashboard
+import com.acmerobotics.dashboard.telemetry.TelemetryPacket
+import ftc.rogue.blacksmith.Scheduler
+import ftc.rogue.blacksmith.listeners.Listener
+
+/**
+ * Opt-in instrumentation for the [Scheduler][ftc.rogue.blacksmith.Scheduler], enabled through
+ * [Scheduler.enableProfiling][ftc.rogue.blacksmith.Scheduler.enableProfiling].
+ *
+ * Records how long each part of every tick takes into [LatencyHistograms][LatencyHistogram]:
+ * the whole loop, `beforeEach`, `afterEach`, the timers, and every individual [Schedulable].
+ *
+ * Each [Listener] gets its own entry, named after the conditions it's built from (e.g.
+ * `and(MyOpMode$1, not(MyOpMode$2))`), so listeners made with the combinators don't all end up
+ * sharing one. Any other [Schedulable] is grouped by its class.
+ *
+ * The results are published to the dashboard every `publishIntervalMs` of the Scheduler's
+ * [time source][ftc.rogue.blacksmith.Scheduler.setTimeSource].
+ *
+ * When the profiler isn't enabled, none of this code runs at all.
+ *
+ * @author KG
+ */
+class SchedulerProfiler internal constructor(
+    private val topN: Int,
+    private val publishIntervalMs: Long,
+) {
+    val loopTimes = LatencyHistogram()
+    val beforeEachTimes = LatencyHistogram()
+    val afterEachTimes = LatencyHistogram()
+    val timerTimes = LatencyHistogram()
+
+    private val entriesByKey = HashMap<Any, Entry>()
+
+    private var lastPublishTime: Long? = null
+
+    /**
+     * A group of [Schedulables][Schedulable] that are profiled together.
+     */
+    class Entry internal constructor(val name: String) {
+        val times = LatencyHistogram()
+    }
+
+    /**
+     * Every profiled group of [Schedulables][Schedulable].
+     */
+    val entries: Collection<Entry>
+        get() = entriesByKey.values
+
+    /**
+     * Gets the [n] slowest groups of [Schedulables][Schedulable], ranked by their p99 tick time.
+     */
+    fun slowest(n: Int): List<Entry> {
+        return entriesByKey.values
+            .sortedByDescending { it.times.p99 }
+            .take(n)
+    }
+
+    fun reset() {
+        loopTimes.reset()
+        beforeEachTimes.reset()
+        afterEachTimes.reset()
+        timerTimes.reset()
+        entriesByKey.clear()
+    }
+
+    @JvmSynthetic
+    internal fun record(schedulable: Schedulable, nanos: Long) {
+        val key = keyOf(schedulable)
+
+        val entry = entriesByKey[key]
+            ?: Entry(nameOf(schedulable)).also { entriesByKey[key] = it }
+
+        entry.times.record(nanos)
+    }
+
+    @JvmSynthetic
+    internal fun publishIfDue() {
+        val now = Scheduler.internal.timeSource.millis()
+        val lastPublishTime = lastPublishTime
+
+        if (lastPublishTime != null && now - lastPublishTime < publishIntervalMs) {
+            return
+        }
+        this.lastPublishTime = now
+
+        val dashboard = FtcDashboard.getInstance() ?: return
+
+        val packet = TelemetryPacket()
+
+        packet.put("[Scheduler] loop (p50/p95/p99/max ms)", format(loopTimes))
+        packet.put("[Scheduler] beforeEach (p50/p95/p99/max ms)", format(beforeEachTimes))
+        packet.put("[Scheduler] afterEach (p50/p95/p99/max ms)", format(afterEachTimes))
+        packet.put("[Scheduler] timers (p50/p95/p99/max ms)", format(timerTimes))
+
+        slowest(topN).forEachIndexed { i, entry ->
+            packet.put("[Scheduler] slowest #${i + 1}", "${entry.name}: ${format(entry.times)}")
+        }
+
+        dashboard.sendTelemetryPacket(packet)
+    }
+
+    private fun keyOf(schedulable: Schedulable): Any {
+        return if (schedulable is Listener) {
+            schedulable.node
+        } else {
+            schedulable.javaClass
+        }
+    }
+
+    private fun nameOf(schedulable: Schedulable): String {
+        return if (schedulable is Listener) {
+            schedulable.node.describe()
+        } else {
+            schedulable.javaClass.name
+        }
+    }
+
+    private fun format(histogram: LatencyHistogram): String {
+        return "%.2f / %.2f / %.2f / %.2f".format(histogram.p50, histogram.p95, histogram.p99, histogram.max)
+    }
+}
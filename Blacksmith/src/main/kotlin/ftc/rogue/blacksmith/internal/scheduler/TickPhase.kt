@@ -0,0 +1,19 @@
+package ftc.rogue.blacksmith.internal.scheduler
+
+/**
+ * The part of each [Scheduler][ftc.rogue.blacksmith.Scheduler] tick that a [Schedulable] runs in.
+ *
+ * Every tick runs in the following order:
+ * `beforeEach` -> [SENSOR_READ] -> [LOGIC] -> `afterEach` -> [ACTUATE]
+ *
+ * Clearing the bulk cache in `beforeEach` means that all of the [SENSOR_READ] schedulables share
+ * the one bulk read, and so see the same snapshot of the hardware. [ACTUATE] schedulables run
+ * last so that all of the hardware writes for a tick are batched together after all the logic.
+ *
+ * @author KG
+ */
+enum class TickPhase {
+    SENSOR_READ,
+    LOGIC,
+    ACTUATE,
+}
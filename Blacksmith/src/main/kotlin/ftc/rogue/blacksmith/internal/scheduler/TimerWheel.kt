@@ -0,0 +1,237 @@
+package ftc.rogue.blacksmith.internal.scheduler
+
+import ftc.rogue.blacksmith.util.TimeSource
+
+/**
+ * Hashed timer wheel that backs the [Timer][ftc.rogue.blacksmith.listeners.Timer],
+ * [after][ftc.rogue.blacksmith.listeners.after], and [Pulsar][ftc.rogue.blacksmith.listeners.Pulsar]
+ * APIs.
+ *
+ * Each [Entry] is linked into the slot for its deadline (with a resolution of 1ms), so scheduling
+ * and cancelling are both O(1). Every tick, [advance] only visits the slots for the milliseconds
+ * that have passed since the last tick, so timers that aren't close to being due are never
+ * touched. (Entries due more than [numSlots]ms out share a slot with nearer ones and are just
+ * skipped over until their lap comes around.)
+ *
+ * The entries are intrusive, so nothing is allocated to schedule, cancel, or expire a timer, aside
+ * from the wheel growing its expiry buffer the first few times.
+ *
+ * @author KG
+ */
+@PublishedApi
+internal class TimerWheel(private val numSlots: Int = 512) {
+    // Each slot is a doubly linked list, appended to at the tail so entries expire in FIFO order
+    private val heads = arrayOfNulls<Entry>(numSlots)
+    private val tails = arrayOfNulls<Entry>(numSlots)
+
+    // The earliest millisecond which may still have unexpired entries in its slot
+    private var cursor = Long.MIN_VALUE
+
+    private var expiring = arrayOfNulls<Entry>(16)
+
+    var size = 0
+        private set
+
+    /**
+     * The clock the deadlines are measured against. Changing it carries over any scheduled
+     * entries with the same amount of time left on them.
+     */
+    var timeSource = TimeSource.SYSTEM
+        set(value) {
+            val oldNow = nowMs()
+            field = value
+            rebase(oldNow, nowMs())
+        }
+
+    /**
+     * A single scheduled callback. Extend it and override [onExpire] to use it.
+     */
+    abstract class Entry {
+        internal var deadline = 0L
+        internal var slot = -1
+
+        internal var prev: Entry? = null
+        internal var next: Entry? = null
+
+        internal var isExpiring = false
+
+        val isScheduled: Boolean
+            get() = slot >= 0
+
+        abstract fun onExpire()
+    }
+
+    fun nowMs(): Long {
+        return timeSource.millis()
+    }
+
+    /**
+     * Schedules the given entry to expire on the first [advance] at or after [deadline] (in the
+     * same timebase as [nowMs]). Reschedules it if it was already scheduled.
+     */
+    fun schedule(entry: Entry, deadline: Long) {
+        cancel(entry)
+
+        if (cursor == Long.MIN_VALUE) {
+            cursor = nowMs()
+        }
+
+        // Anything that's already overdue goes in the current slot, so it's picked up next advance
+        val slot = Math.floorMod(maxOf(deadline, cursor), numSlots.toLong()).toInt()
+
+        entry.deadline = deadline
+        entry.slot = slot
+        entry.prev = tails[slot]
+        entry.next = null
+
+        if (tails[slot] != null) {
+            tails[slot]!!.next = entry
+        } else {
+            heads[slot] = entry
+        }
+        tails[slot] = entry
+
+        size++
+    }
+
+    /**
+     * Cancels the given entry; does nothing if it isn't scheduled. Cancelling an entry that's due
+     * to expire in the current [advance] stops it from expiring.
+     */
+    fun cancel(entry: Entry) {
+        entry.isExpiring = false
+
+        if (!entry.isScheduled) {
+            return
+        }
+
+        unlink(entry)
+    }
+
+    /**
+     * Expires every entry whose deadline is at or before [now].
+     */
+    fun advance(now: Long = nowMs()) {
+        if (cursor == Long.MIN_VALUE || now < cursor) {
+            cursor = now
+        }
+
+        if (size == 0) {
+            cursor = now
+            return
+        }
+
+        var numExpiring = 0
+
+        // If a full lap (or more) has passed, every slot needs to be checked exactly once
+        val end = minOf(now, cursor + numSlots - 1)
+
+        var time = cursor
+        while (time <= end) {
+            var entry = heads[Math.floorMod(time, numSlots.toLong()).toInt()]
+
+            while (entry != null) {
+                val next = entry.next
+
+                if (entry.deadline <= now) {
+                    unlink(entry)
+
+                    if (numExpiring == expiring.size) {
+                        expiring = expiring.copyOf(expiring.size * 2)
+                    }
+
+                    entry.isExpiring = true
+                    expiring[numExpiring++] = entry
+                }
+
+                entry = next
+            }
+            time++
+        }
+
+        // Entries can be scheduled with a deadline of 'now' after this, so the slot is left open
+        cursor = now
+
+        // Callbacks are only ran once everything due has been collected, so that they're free to
+        // schedule or cancel any entry (including ones in this same batch)
+        for (i in 0 until numExpiring) {
+            val entry = expiring[i]!!
+            expiring[i] = null
+
+            if (entry.isExpiring) {
+                entry.isExpiring = false
+                entry.onExpire()
+            }
+        }
+    }
+
+    /**
+     * Drops every scheduled entry without expiring them.
+     */
+    fun clear() {
+        for (i in heads.indices) {
+            var entry = heads[i]
+
+            while (entry != null) {
+                val next = entry.next
+
+                entry.slot = -1
+                entry.prev = null
+                entry.next = null
+
+                entry = next
+            }
+            heads[i] = null
+            tails[i] = null
+        }
+        size = 0
+
+        // In case this is called from inside a callback mid-advance
+        for (i in expiring.indices) {
+            expiring[i]?.isExpiring = false
+        }
+    }
+
+    private fun rebase(oldNow: Long, newNow: Long) {
+        val entries = ArrayList<Entry>(size)
+
+        for (i in heads.indices) {
+            var entry = heads[i]
+
+            while (entry != null) {
+                entries += entry
+                entry = entry.next
+            }
+        }
+
+        clear()
+        cursor = newNow
+
+        for (entry in entries) {
+            schedule(entry, newNow + (entry.deadline - oldNow))
+        }
+    }
+
+    private fun unlink(entry: Entry) {
+        val prev = entry.prev
+        val next = entry.next
+
+        if (prev != null) {
+            prev.next = next
+        } else {
+            heads[entry.slot] = next
+        }
+
+        if (next != null) {
+            next.prev = prev
+        } else {
+            tails[entry.slot] = prev
+        }
+
+        entry.slot = -1
+        entry.prev = null
+        entry.next = null
+
+        size--
+    }
+}
@@ -29,3 +29,11 @@ fun interface AnvilCycle {
 fun AnvilCycle.consume(instance: Anvil, iteration: Int) {
     instance.doCycle(iteration)
 }
+
+fun interface OnUntilCondition {
+    fun shouldStop(iteration: Long): Boolean
+}
+
+fun interface OnExtendCondition {
+    fun test(conditionIsTrue: Boolean, iteration: Long): Boolean
+}
@@ -76,6 +76,32 @@ internal fun <T> Any.invokeMethodRethrowingI(name: String, vararg params: Any):
     }
 }
 
+/**
+ * Whether [cachedMethod]s are actually cached; turning it off makes them look the method up on
+ * every call, like the proxies used to. Only ever turned off by the proxy benchmark in the tests.
+ */
+@Volatile
+internal var isMethodCachingEnabled = true
+
+/**
+ * Looks up a public method the first time it's needed, and reuses it from then on. Meant for the
+ * proxies, which call the same handful of methods over & over.
+ */
+internal fun Class<*>.cachedMethod(name: String, vararg params: Class<*>): Lazy<Method> {
+    val cached = lazy(LazyThreadSafetyMode.PUBLICATION) { lookUpMethod(name, params) }
+
+    return object : Lazy<Method> {
+        override val value: Method
+            get() = if (isMethodCachingEnabled) cached.value else lookUpMethod(name, params)
+
+        override fun isInitialized() = cached.isInitialized()
+    }
+}
+
+private fun Class<*>.lookUpMethod(name: String, params: Array<out Class<*>>): Method {
+    return getMethod(name, *params).apply { isAccessible = true }
+}
+
 internal fun Class<*>.getFieldsAnnotatedWith(annotation: Class<out Annotation>): List<Field> {
     return this.fields
         .filter {
@@ -0,0 +1,14 @@
+package ftc.rogue.blacksmith.internal.util
+
+import com.qualcomm.robotcore.util.ElapsedTime
+import ftc.rogue.blacksmith.Scheduler
+
+/**
+ * An [ElapsedTime] that reads from the [Scheduler]'s [TimeSource][ftc.rogue.blacksmith.util.TimeSource]
+ * instead of straight from [System.nanoTime], for APIs that hand out an [ElapsedTime].
+ */
+internal class SchedulerElapsedTime : ElapsedTime() {
+    override fun nsNow(): Long {
+        return Scheduler.getTimeSource().nanoTime()
+    }
+}
@@ -3,8 +3,9 @@
 package ftc.rogue.blacksmith.listeners
 
 import ftc.rogue.blacksmith.Scheduler
+import ftc.rogue.blacksmith.internal.scheduler.ConditionNode
 import ftc.rogue.blacksmith.internal.scheduler.Schedulable
-import ftc.rogue.blacksmith.util.SignalEdgeDetector
+import ftc.rogue.blacksmith.internal.scheduler.TickPhase
 
 /**
  * [Docs link](https://blacksmithftc.vercel.app/scheduler-api/listeners)
@@ -19,6 +20,10 @@ import ftc.rogue.blacksmith.util.SignalEdgeDetector
  * This means that it is safe to create excess unused [Listeners][Listener] without worrying about
  * performance burdens.
  *
+ * Listeners built with the combinators (`and`, `or`, `not`, etc.) share their conditions with the
+ * listeners they're built from, and each condition is only evaluated once per tick no matter how
+ * many listeners it's a part of.
+ *
  * Java raw usage example:
  * ```java
  * @Override
@@ -50,19 +55,93 @@ import ftc.rogue.blacksmith.util.SignalEdgeDetector
  * @see ReforgedGamepad
  * @see Timer
  */
-open class Listener(val condition: () -> Boolean) : Schedulable {
+open class Listener internal constructor(
+    @get:JvmSynthetic
+    internal val node: ConditionNode,
+    val condition: () -> Boolean,
+) : Schedulable {
+    constructor(condition: () -> Boolean) : this(ConditionNode.of(condition), condition)
+
+    internal constructor(node: ConditionNode) : this(node, node::get)
+
     /**
      * The subscribed set of [actions][Runnable] that are performed when the given
      * condition's state matches the given [SignalTrigger][SignalTrigger].
      */
     private val actions = mutableMapOf<Runnable, () -> Boolean>()
 
+    init {
+        node.prime()
+    }
+
+    /**
+     * The [phase][TickPhase] of each tick that this listener runs in. Defaults to [TickPhase.LOGIC].
+     */
+    var phase = TickPhase.LOGIC
+        private set
+
+    /**
+     * Sets the [phase][TickPhase] of each tick that this listener's actions run in, e.g.
+     * [TickPhase.ACTUATE] for a listener that writes straight to the hardware.
+     *
+     * Unless [readIn] says otherwise, the condition's also checked in this phase.
+     * @param phase The phase to run in.
+     * @return This [Listener] instance.
+     */
+    fun inPhase(phase: TickPhase) = this.also {
+        requirePhases(readPhase ?: phase, phase)
+        this.phase = phase
+
+        if (actions.isNotEmpty()) {
+            hook()
+        }
+    }
+
+    /**
+     * The [phase][TickPhase] of each tick that this listener's condition is checked in, if it's
+     * checked earlier than its actions are ran (see [readIn]).
+     */
+    var readPhase: TickPhase? = null
+        private set
+
+    // Checks the condition (and finds its edges) ahead of time; the actions then see that snapshot,
+    // since the condition's only ever evaluated once per tick
+    private val reader = object : Schedulable {
+        override fun tick() {
+            node.update(Scheduler.internal.currentEpoch())
+        }
+
+        override fun destroy() {
+            Scheduler.unhook(this)
+        }
+    }
+
     /**
-     * A listener that evaluates the [condition][Condition] and checks whether the state of the
-     * signal is [high][SignalTrigger.IS_HIGH], [low][SignalTrigger.IS_LOW],
-     * [rising][SignalTrigger.RISING_EDGE], and/or [falling][SignalTrigger.FALLING_EDGE].
+     * Checks the condition in an earlier [phase][TickPhase] than the actions are ran in, e.g.
+     * [TickPhase.SENSOR_READ] for a condition that reads a sensor, so that it's read along with
+     * every other sensor, while its actions still run in the [phase] they write to the hardware in:
+     * ```kotlin
+     * Listener { colorSensor.getDistance(DistanceUnit.CM) < .8 }
+     *     .readIn(TickPhase.SENSOR_READ)
+     *     .onRise { claw.close() } // Still ran in LOGIC
+     * ```
+     * @param phase The phase to check the condition in.
+     * @return This [Listener] instance.
      */
-    private val conditionSED = SignalEdgeDetector(condition)
+    fun readIn(phase: TickPhase) = this.also {
+        requirePhases(phase, this.phase)
+        readPhase = phase
+
+        if (actions.isNotEmpty()) {
+            hook()
+        }
+    }
+
+    private fun requirePhases(readPhase: TickPhase, phase: TickPhase) {
+        if (readPhase > phase) {
+            throw IllegalArgumentException("A listener's condition can't be checked ($readPhase) after its actions are ran ($phase)")
+        }
+    }
 
     /**
      * Schedules the given action to run when the trigger [condition][Condition] changes from false to true.
@@ -71,7 +150,7 @@ open class Listener(val condition: () -> Boolean) : Schedulable {
      */
     fun onRise(callback: Runnable) = this.also {
         hook()
-        actions[callback] = conditionSED::risingEdge
+        actions[callback] = node::risingEdge
     }
 
     /**
@@ -81,7 +160,7 @@ open class Listener(val condition: () -> Boolean) : Schedulable {
      */
     fun onFall(callback: Runnable) = this.also {
         hook()
-        actions[callback] = conditionSED::fallingEdge
+        actions[callback] = node::fallingEdge
     }
 
     /**
@@ -91,7 +170,7 @@ open class Listener(val condition: () -> Boolean) : Schedulable {
      */
     fun whileHigh(callback: Runnable) = this.also {
         hook()
-        actions[callback] = conditionSED::isHigh
+        actions[callback] = node::isHigh
     }
 
     /**
@@ -101,7 +180,7 @@ open class Listener(val condition: () -> Boolean) : Schedulable {
      */
     fun whileLow(callback: Runnable) = this.also {
         hook()
-        actions[callback] = conditionSED::isLow
+        actions[callback] = node::isLow
     }
 
     fun onJustTrue(callback: Runnable) {
@@ -121,23 +200,30 @@ open class Listener(val condition: () -> Boolean) : Schedulable {
     }
 
     /**
-     * Runs every tick to update the [conditionSED] and perform the subscribed actions.
+     * Runs every tick to update the [condition's node][node] and perform the subscribed actions.
      */
     override fun tick() {
-        conditionSED.update()
+        node.update(Scheduler.internal.currentEpoch())
 
         actions.forEach { (action, condition) ->
             if (condition()) action.run()
         }
     }
 
+    override fun hook() {
+        hook(phase)
+
+        readPhase?.let(reader::hook)
+    }
+
     override fun destroy() {
         Scheduler.unhook(this)
+        Scheduler.unhook(reader)
         actions.clear()
     }
 
     companion object {
-        private val alwaysActiveListener = Listener { true }
+        private val alwaysActiveListeners = TickPhase.values().map { Listener { true }.inPhase(it) }
 
         /**
          * Subscribes the given action to run every tick.
@@ -146,7 +232,18 @@ open class Listener(val condition: () -> Boolean) : Schedulable {
          */
         @JvmStatic
         fun always(action: Runnable) {
-            alwaysActiveListener.whileHigh(action)
+            always(TickPhase.LOGIC, action)
+        }
+
+        /**
+         * Subscribes the given action to run every tick, in the given [phase][TickPhase], e.g.
+         * [TickPhase.ACTUATE] for the code that writes to the hardware every loop.
+         * @param phase The phase to run in.
+         * @param action The action to run.
+         */
+        @JvmStatic
+        fun always(phase: TickPhase, action: Runnable) {
+            alwaysActiveListeners[phase.ordinal].whileHigh(action)
         }
     }
 
@@ -154,39 +251,39 @@ open class Listener(val condition: () -> Boolean) : Schedulable {
     // Listener builders
     // ---------------------------------------------------------------
 
-    infix fun and(otherCondition: () -> Boolean) = Listener { condition() && otherCondition() }
+    infix fun and(otherCondition: () -> Boolean) = Listener(ConditionNode.and(node, ConditionNode.of(otherCondition)))
 
-    infix fun or(otherCondition: () -> Boolean) = Listener { condition() || otherCondition() }
+    infix fun or(otherCondition: () -> Boolean) = Listener(ConditionNode.or(node, ConditionNode.of(otherCondition)))
 
-    infix fun xor(otherCondition: () -> Boolean) = Listener { condition() xor otherCondition() }
+    infix fun xor(otherCondition: () -> Boolean) = Listener(ConditionNode.xor(node, ConditionNode.of(otherCondition)))
 
-    infix fun nand(otherCondition: () -> Boolean) = Listener { !(condition() && otherCondition()) }
+    infix fun nand(otherCondition: () -> Boolean) = Listener(ConditionNode.nand(node, ConditionNode.of(otherCondition)))
 
-    infix fun nor(otherCondition: () -> Boolean) = Listener { !(condition() || otherCondition()) }
+    infix fun nor(otherCondition: () -> Boolean) = Listener(ConditionNode.nor(node, ConditionNode.of(otherCondition)))
 
-    infix fun xnor(otherCondition: () -> Boolean) = Listener { condition() == otherCondition() }
+    infix fun xnor(otherCondition: () -> Boolean) = Listener(ConditionNode.xnor(node, ConditionNode.of(otherCondition)))
 
     operator fun plus(otherCondition: () -> Boolean) = and(otherCondition)
 
     operator fun div(otherCondition: () -> Boolean) = or(otherCondition)
 
 
-    infix fun and(other: Listener) = Listener { condition() && other.condition() }
+    infix fun and(other: Listener) = Listener(ConditionNode.and(node, other.node))
 
-    infix fun or(other: Listener) = Listener { condition() || other.condition() }
+    infix fun or(other: Listener) = Listener(ConditionNode.or(node, other.node))
 
-    infix fun xor(other: Listener) = Listener { condition() xor other.condition() }
+    infix fun xor(other: Listener) = Listener(ConditionNode.xor(node, other.node))
 
-    infix fun nand(other: Listener) = Listener { !(condition() && other.condition()) }
+    infix fun nand(other: Listener) = Listener(ConditionNode.nand(node, other.node))
 
-    infix fun nor(other: Listener) = Listener { !(condition() || other.condition()) }
+    infix fun nor(other: Listener) = Listener(ConditionNode.nor(node, other.node))
 
-    infix fun xnor(other: Listener) = Listener { condition() == other.condition() }
+    infix fun xnor(other: Listener) = Listener(ConditionNode.xnor(node, other.node))
 
     operator fun plus(other: Listener) = and(other)
 
     operator fun div(other: Listener) = or(other)
 
 
-    operator fun not() = Listener { !condition() }
+    operator fun not() = Listener(ConditionNode.not(node))
 }
@@ -3,6 +3,7 @@ package ftc.rogue.blacksmith.listeners
 import ftc.rogue.blacksmith.Scheduler
 import ftc.rogue.blacksmith.internal.scheduler.OnEvery
 import ftc.rogue.blacksmith.internal.scheduler.OnEveryTimeBeingX
+import ftc.rogue.blacksmith.internal.scheduler.OnTheNth
 
 // --------------------------------
 // | Hierarchy:
@@ -47,21 +48,21 @@ import ftc.rogue.blacksmith.internal.scheduler.OnEveryTimeBeingX
 // | - execute(λ)
 // --------------------------------
 class On(val condition: () -> Boolean) {
-//    fun theFirst(): OnTheNth {
-//        return OnTheNth(condition, n = 1)
-//    }
-//
-//    fun theSecond(): OnTheNth {
-//        return OnTheNth(condition, n = 2)
-//    }
-//
-//    fun theThird(): OnTheNth {
-//        return OnTheNth(condition, n = 3)
-//    }
-//
-//    fun theNth(n: Int): OnTheNth {
-//        return OnTheNth(condition, n)
-//    }
+    fun theFirst(): OnTheNth {
+        return OnTheNth(condition, n = 1)
+    }
+
+    fun theSecond(): OnTheNth {
+        return OnTheNth(condition, n = 2)
+    }
+
+    fun theThird(): OnTheNth {
+        return OnTheNth(condition, n = 3)
+    }
+
+    fun theNth(n: Int): OnTheNth {
+        return OnTheNth(condition, n)
+    }
 
     fun every(): OnEvery {
         return OnEvery(condition)
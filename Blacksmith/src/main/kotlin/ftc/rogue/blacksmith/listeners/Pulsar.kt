@@ -1,15 +1,33 @@
 package ftc.rogue.blacksmith.listeners
 
+import ftc.rogue.blacksmith.Scheduler
+import ftc.rogue.blacksmith.internal.scheduler.TimerWheel
+
 /**
  * [Docs link](https://blacksmithftc.vercel.app/scheduler-api/pulsar)
  */
-class Pulsar(interval: Int) {
-    private var startTime = System.currentTimeMillis()
+class Pulsar(private val interval: Int) {
+    private val timers = Scheduler.internal.timers
+
+    private val callbacks = ArrayList<Runnable>(1)
+
+    private val entry = object : TimerWheel.Entry() {
+        override fun onExpire() {
+            // Rescheduled relative to when it actually pulsed, same as it's always been
+            timers.schedule(this, timers.nowMs() + interval + 1)
 
-    private val listener = Listener { System.currentTimeMillis() > startTime + interval }
-        .onRise { startTime = System.currentTimeMillis() }
+            var i = 0
+            while (i < callbacks.size) {
+                callbacks[i++].run()
+            }
+        }
+    }
+
+    init {
+        timers.schedule(entry, timers.nowMs() + interval + 1)
+    }
 
     fun onPulse(callback: Runnable) = apply {
-        listener.onRise(callback)
+        callbacks += callback
     }
 }
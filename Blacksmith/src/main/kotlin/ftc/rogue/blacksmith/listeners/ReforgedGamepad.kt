@@ -4,6 +4,7 @@ package ftc.rogue.blacksmith.listeners
 
 import com.qualcomm.robotcore.hardware.Gamepad
 import ftc.rogue.blacksmith.Scheduler
+import ftc.rogue.blacksmith.internal.scheduler.GamepadSnapshot
 import kotlin.math.abs
 
 /**
@@ -12,6 +13,9 @@ import kotlin.math.abs
  * A wrapper around the base [Gamepad] class that can create [Listeners][Listener] for each button.
  * Listeners are only hooked when it's usage is required.
  *
+ * The gamepad's state is snapshotted once per tick, and all the listeners read from that same
+ * snapshot, so they always agree on what's pressed.
+ *
  * Java usage example:
  * ```java
  * @Override
@@ -52,6 +56,9 @@ import kotlin.math.abs
  * @see Listener
  */
 class ReforgedGamepad(val gamepad: Gamepad) {
+    // Must be initialized before any of the listeners
+    private val snapshot = GamepadSnapshot(gamepad)
+
     // -- START MACHINE GENERATED CODE --
 
     // -- Main gamepad buttons --
@@ -62,7 +69,7 @@ class ReforgedGamepad(val gamepad: Gamepad) {
      * gamepad_x1.a.whileLow(this::doSomething);
      */
     @JvmField
-    val a = GamepadBooleanListener(gamepad::a)
+    val a = GamepadBooleanListener(gamepad::a, snapshot, GamepadSnapshot.A)
 
     /**
      * Allows client to perform an action when the gamepad's 'b' button's state is mutated.
@@ -71,7 +78,7 @@ class ReforgedGamepad(val gamepad: Gamepad) {
      * gamepad_x1.b.onFall(this::doSomething);
      */
     @JvmField
-    val b = GamepadBooleanListener(gamepad::b)
+    val b = GamepadBooleanListener(gamepad::b, snapshot, GamepadSnapshot.B)
 
     /**
      * Allows client to perform an action when the gamepad's 'x' button's state is mutated.
@@ -80,7 +87,7 @@ class ReforgedGamepad(val gamepad: Gamepad) {
      * gamepad_x1.x.onFall(this::doSomething);
      */
     @JvmField
-    val x = GamepadBooleanListener(gamepad::x)
+    val x = GamepadBooleanListener(gamepad::x, snapshot, GamepadSnapshot.X)
 
     /**
      * Allows client to perform an action when the gamepad's 'y' button's state is mutated.
@@ -89,7 +96,7 @@ class ReforgedGamepad(val gamepad: Gamepad) {
      * gamepad_x1.y.onRise(this::doSomething);
      */
     @JvmField
-    val y = GamepadBooleanListener(gamepad::y)
+    val y = GamepadBooleanListener(gamepad::y, snapshot, GamepadSnapshot.Y)
 
     // -- Dpad --
     /**
@@ -99,7 +106,7 @@ class ReforgedGamepad(val gamepad: Gamepad) {
      * gamepad_x1.dpad_up.onFall(this::doSomething);
      */
     @JvmField
-    val dpad_up = GamepadBooleanListener(gamepad::dpad_up)
+    val dpad_up = GamepadBooleanListener(gamepad::dpad_up, snapshot, GamepadSnapshot.DPAD_UP)
 
     /**
      * Allows client to perform an action when the gamepad's 'dpad_down' button's state is mutated.
@@ -108,7 +115,7 @@ class ReforgedGamepad(val gamepad: Gamepad) {
      * gamepad_x1.dpad_down.whileHigh(this::doSomething);
      */
     @JvmField
-    val dpad_down = GamepadBooleanListener(gamepad::dpad_down)
+    val dpad_down = GamepadBooleanListener(gamepad::dpad_down, snapshot, GamepadSnapshot.DPAD_DOWN)
 
     /**
      * Allows client to perform an action when the gamepad's 'dpad_left' button's state is mutated.
@@ -117,7 +124,7 @@ class ReforgedGamepad(val gamepad: Gamepad) {
      * gamepad_x1.dpad_left.whileHigh(this::doSomething);
      */
     @JvmField
-    val dpad_left = GamepadBooleanListener(gamepad::dpad_left)
+    val dpad_left = GamepadBooleanListener(gamepad::dpad_left, snapshot, GamepadSnapshot.DPAD_LEFT)
 
     /**
      * Allows client to perform an action when the gamepad's 'dpad_right' button's state is mutated.
@@ -126,7 +133,7 @@ class ReforgedGamepad(val gamepad: Gamepad) {
      * gamepad_x1.dpad_right.whileLow(this::doSomething);
      */
     @JvmField
-    val dpad_right = GamepadBooleanListener(gamepad::dpad_right)
+    val dpad_right = GamepadBooleanListener(gamepad::dpad_right, snapshot, GamepadSnapshot.DPAD_RIGHT)
 
     // -- Bumpers --
     /**
@@ -136,7 +143,7 @@ class ReforgedGamepad(val gamepad: Gamepad) {
      * gamepad_x1.left_bumper.whileLow(this::doSomething);
      */
     @JvmField
-    val left_bumper = GamepadBooleanListener(gamepad::left_bumper)
+    val left_bumper = GamepadBooleanListener(gamepad::left_bumper, snapshot, GamepadSnapshot.LEFT_BUMPER)
 
     /**
      * Allows client to perform an action when the gamepad's 'right_bumper' button's state is mutated.
@@ -145,7 +152,7 @@ class ReforgedGamepad(val gamepad: Gamepad) {
      * gamepad_x1.right_bumper.onFall(this::doSomething);
      */
     @JvmField
-    val right_bumper = GamepadBooleanListener(gamepad::right_bumper)
+    val right_bumper = GamepadBooleanListener(gamepad::right_bumper, snapshot, GamepadSnapshot.RIGHT_BUMPER)
 
     // -- Joysticks --
     /**
@@ -166,7 +173,7 @@ class ReforgedGamepad(val gamepad: Gamepad) {
      * @param deadzone The minimum value that the left_stick_x must be above to trigger the event.
      */
     fun left_stick_x(deadzone: Double): GamepadAnalogListener {
-        return GamepadAnalogListener(deadzone, gamepad::left_stick_x)
+        return GamepadAnalogListener(deadzone, gamepad::left_stick_x, snapshot, GamepadSnapshot.LEFT_STICK_X)
     }
 
     /**
@@ -187,7 +194,7 @@ class ReforgedGamepad(val gamepad: Gamepad) {
      * @param deadzone The minimum value that the left_stick_y must be above to trigger the event.
      */
     fun left_stick_y(deadzone: Double): GamepadAnalogListener {
-        return GamepadAnalogListener(deadzone, gamepad::left_stick_y)
+        return GamepadAnalogListener(deadzone, gamepad::left_stick_y, snapshot, GamepadSnapshot.LEFT_STICK_Y)
     }
 
     /**
@@ -208,7 +215,7 @@ class ReforgedGamepad(val gamepad: Gamepad) {
      * @param deadzone The minimum value that the right_stick_x must be above to trigger the event.
      */
     fun right_stick_x(deadzone: Double): GamepadAnalogListener {
-        return GamepadAnalogListener(deadzone, gamepad::right_stick_x)
+        return GamepadAnalogListener(deadzone, gamepad::right_stick_x, snapshot, GamepadSnapshot.RIGHT_STICK_X)
     }
 
     /**
@@ -229,7 +236,7 @@ class ReforgedGamepad(val gamepad: Gamepad) {
      * @param deadzone The minimum value that the right_stick_y must be above to trigger the event.
      */
     fun right_stick_y(deadzone: Double): GamepadAnalogListener {
-        return GamepadAnalogListener(deadzone, gamepad::right_stick_y)
+        return GamepadAnalogListener(deadzone, gamepad::right_stick_y, snapshot, GamepadSnapshot.RIGHT_STICK_Y)
     }
 
     // -- Triggers --
@@ -251,7 +258,7 @@ class ReforgedGamepad(val gamepad: Gamepad) {
      * @param deadzone The minimum value that the left_trigger must be above to trigger the event.
      */
     fun left_trigger(deadzone: Double): GamepadAnalogListener {
-        return GamepadAnalogListener(deadzone, gamepad::left_trigger)
+        return GamepadAnalogListener(deadzone, gamepad::left_trigger, snapshot, GamepadSnapshot.LEFT_TRIGGER)
     }
 
     /**
@@ -272,7 +279,7 @@ class ReforgedGamepad(val gamepad: Gamepad) {
      * @param deadzone The minimum value that the right_trigger must be above to trigger the event.
      */
     fun right_trigger(deadzone: Double): GamepadAnalogListener {
-        return GamepadAnalogListener(deadzone, gamepad::right_trigger)
+        return GamepadAnalogListener(deadzone, gamepad::right_trigger, snapshot, GamepadSnapshot.RIGHT_TRIGGER)
     }
 
     // -- Joystick buttons --
@@ -283,7 +290,7 @@ class ReforgedGamepad(val gamepad: Gamepad) {
      * gamepad_x1.left_stick_button.onFall(this::doSomething);
      */
     @JvmField
-    val left_stick_button = GamepadBooleanListener(gamepad::left_stick_button)
+    val left_stick_button = GamepadBooleanListener(gamepad::left_stick_button, snapshot, GamepadSnapshot.LEFT_STICK_BUTTON)
 
     /**
      * Allows client to perform an action when the gamepad's 'right_stick_button' button's state is mutated.
@@ -292,7 +299,7 @@ class ReforgedGamepad(val gamepad: Gamepad) {
      * gamepad_x1.right_stick_button.onRise(this::doSomething);
      */
     @JvmField
-    val right_stick_button = GamepadBooleanListener(gamepad::right_stick_button)
+    val right_stick_button = GamepadBooleanListener(gamepad::right_stick_button, snapshot, GamepadSnapshot.RIGHT_STICK_BUTTON)
 
     // -- PS4 controller buttons --
     /**
@@ -302,7 +309,7 @@ class ReforgedGamepad(val gamepad: Gamepad) {
      * gamepad_x1.circle.whileLow(this::doSomething);
      */
     @JvmField
-    val circle = GamepadBooleanListener(gamepad::circle)
+    val circle = GamepadBooleanListener(gamepad::circle, snapshot, GamepadSnapshot.CIRCLE)
 
     /**
      * Allows client to perform an action when the gamepad's 'cross' button's state is mutated.
@@ -311,7 +318,7 @@ class ReforgedGamepad(val gamepad: Gamepad) {
      * gamepad_x1.cross.onRise(this::doSomething);
      */
     @JvmField
-    val cross = GamepadBooleanListener(gamepad::cross)
+    val cross = GamepadBooleanListener(gamepad::cross, snapshot, GamepadSnapshot.CROSS)
 
     /**
      * Allows client to perform an action when the gamepad's 'triangle' button's state is mutated.
@@ -320,7 +327,7 @@ class ReforgedGamepad(val gamepad: Gamepad) {
      * gamepad_x1.triangle.whileLow(this::doSomething);
      */
     @JvmField
-    val triangle = GamepadBooleanListener(gamepad::triangle)
+    val triangle = GamepadBooleanListener(gamepad::triangle, snapshot, GamepadSnapshot.TRIANGLE)
 
     /**
      * Allows client to perform an action when the gamepad's 'square' button's state is mutated.
@@ -329,7 +336,7 @@ class ReforgedGamepad(val gamepad: Gamepad) {
      * gamepad_x1.square.onRise(this::doSomething);
      */
     @JvmField
-    val square = GamepadBooleanListener(gamepad::square)
+    val square = GamepadBooleanListener(gamepad::square, snapshot, GamepadSnapshot.SQUARE)
 
     // -- Random buttons --
     /**
@@ -339,7 +346,7 @@ class ReforgedGamepad(val gamepad: Gamepad) {
      * gamepad_x1.share.onFall(this::doSomething);
      */
     @JvmField
-    val share = GamepadBooleanListener(gamepad::share)
+    val share = GamepadBooleanListener(gamepad::share, snapshot, GamepadSnapshot.SHARE)
 
     /**
      * Allows client to perform an action when the gamepad's 'options' button's state is mutated.
@@ -348,7 +355,7 @@ class ReforgedGamepad(val gamepad: Gamepad) {
      * gamepad_x1.options.onRise(this::doSomething);
      */
     @JvmField
-    val options = GamepadBooleanListener(gamepad::options)
+    val options = GamepadBooleanListener(gamepad::options, snapshot, GamepadSnapshot.OPTIONS)
 
     /**
      * Allows client to perform an action when the gamepad's 'guide' button's state is mutated.
@@ -357,7 +364,7 @@ class ReforgedGamepad(val gamepad: Gamepad) {
      * gamepad_x1.guide.onFall(this::doSomething);
      */
     @JvmField
-    val guide = GamepadBooleanListener(gamepad::guide)
+    val guide = GamepadBooleanListener(gamepad::guide, snapshot, GamepadSnapshot.GUIDE)
 
     /**
      * Allows client to perform an action when the gamepad's 'start' button's state is mutated.
@@ -366,7 +373,7 @@ class ReforgedGamepad(val gamepad: Gamepad) {
      * gamepad_x1.start.onFall(this::doSomething);
      */
     @JvmField
-    val start = GamepadBooleanListener(gamepad::start)
+    val start = GamepadBooleanListener(gamepad::start, snapshot, GamepadSnapshot.START)
 
     /**
      * Allows client to perform an action when the gamepad's 'back' button's state is mutated.
@@ -375,7 +382,7 @@ class ReforgedGamepad(val gamepad: Gamepad) {
      * gamepad_x1.back.onRise(this::doSomething);
      */
     @JvmField
-    val back = GamepadBooleanListener(gamepad::back)
+    val back = GamepadBooleanListener(gamepad::back, snapshot, GamepadSnapshot.BACK)
 
     // -- Touchpad buttons & triggers --
     /**
@@ -385,7 +392,7 @@ class ReforgedGamepad(val gamepad: Gamepad) {
      * gamepad_x1.touchpad.onRise(this::doSomething);
      */
     @JvmField
-    val touchpad = GamepadBooleanListener(gamepad::touchpad)
+    val touchpad = GamepadBooleanListener(gamepad::touchpad, snapshot, GamepadSnapshot.TOUCHPAD)
 
     /**
      * Allows client to perform an action when the gamepad's 'touchpad_finger_1' button's state is mutated.
@@ -394,7 +401,7 @@ class ReforgedGamepad(val gamepad: Gamepad) {
      * gamepad_x1.touchpad_finger_1.whileLow(this::doSomething);
      */
     @JvmField
-    val touchpad_finger_1 = GamepadBooleanListener(gamepad::touchpad_finger_1)
+    val touchpad_finger_1 = GamepadBooleanListener(gamepad::touchpad_finger_1, snapshot, GamepadSnapshot.TOUCHPAD_FINGER_1)
 
     /**
      * Allows client to perform an action when the gamepad's 'touchpad_finger_2' button's state is mutated.
@@ -403,7 +410,7 @@ class ReforgedGamepad(val gamepad: Gamepad) {
      * gamepad_x1.touchpad_finger_2.onRise(this::doSomething);
      */
     @JvmField
-    val touchpad_finger_2 = GamepadBooleanListener(gamepad::touchpad_finger_2)
+    val touchpad_finger_2 = GamepadBooleanListener(gamepad::touchpad_finger_2, snapshot, GamepadSnapshot.TOUCHPAD_FINGER_2)
 
     /**
      * Allows client to perform an action when the gamepad's 'touchpad_finger_1_x' button's state is mutated.
@@ -423,7 +430,7 @@ class ReforgedGamepad(val gamepad: Gamepad) {
      * @param deadzone The minimum value that the touchpad_finger_1_x must be above to trigger the event.
      */
     fun touchpad_finger_1_x(deadzone: Double): GamepadAnalogListener {
-        return GamepadAnalogListener(deadzone, gamepad::touchpad_finger_1_x)
+        return GamepadAnalogListener(deadzone, gamepad::touchpad_finger_1_x, snapshot, GamepadSnapshot.TOUCHPAD_FINGER_1_X)
     }
 
     /**
@@ -444,7 +451,7 @@ class ReforgedGamepad(val gamepad: Gamepad) {
      * @param deadzone The minimum value that the touchpad_finger_1_y must be above to trigger the event.
      */
     fun touchpad_finger_1_y(deadzone: Double): GamepadAnalogListener {
-        return GamepadAnalogListener(deadzone, gamepad::touchpad_finger_1_y)
+        return GamepadAnalogListener(deadzone, gamepad::touchpad_finger_1_y, snapshot, GamepadSnapshot.TOUCHPAD_FINGER_1_Y)
     }
 
     /**
@@ -465,7 +472,7 @@ class ReforgedGamepad(val gamepad: Gamepad) {
      * @param deadzone The minimum value that the touchpad_finger_2_x must be above to trigger the event.
      */
     fun touchpad_finger_2_x(deadzone: Double): GamepadAnalogListener {
-        return GamepadAnalogListener(deadzone, gamepad::touchpad_finger_2_x)
+        return GamepadAnalogListener(deadzone, gamepad::touchpad_finger_2_x, snapshot, GamepadSnapshot.TOUCHPAD_FINGER_2_X)
     }
 
     /**
@@ -486,7 +493,7 @@ class ReforgedGamepad(val gamepad: Gamepad) {
      * @param deadzone The minimum value that the touchpad_finger_2_y must be above to trigger the event.
      */
     fun touchpad_finger_2_y(deadzone: Double): GamepadAnalogListener {
-        return GamepadAnalogListener(deadzone, gamepad::touchpad_finger_2_y)
+        return GamepadAnalogListener(deadzone, gamepad::touchpad_finger_2_y, snapshot, GamepadSnapshot.TOUCHPAD_FINGER_2_Y)
     }
 
     // -- Whatever this is --
@@ -497,14 +504,16 @@ class ReforgedGamepad(val gamepad: Gamepad) {
      * gamepad_x1.ps.onRise(this::doSomething);
      */
     @JvmField
-    val ps = GamepadBooleanListener(gamepad::ps)
+    val ps = GamepadBooleanListener(gamepad::ps, snapshot, GamepadSnapshot.PS)
 
     // -- END MACHINE GENERATED CODE --
 
     class GamepadBooleanListener
         private constructor(
-            val input: () -> Boolean
-        ) : Listener(input) {
+            val input: () -> Boolean,
+            snapshot: GamepadSnapshot,
+            button: Int,
+        ) : Listener(GamepadSnapshot.ButtonNode(snapshot, button), input) {
 
         fun get() = input()
 
@@ -513,8 +522,8 @@ class ReforgedGamepad(val gamepad: Gamepad) {
 
         companion object {
             @JvmSynthetic
-            internal operator fun invoke(input: () -> Boolean): GamepadBooleanListener {
-                return GamepadBooleanListener(input)
+            internal operator fun invoke(input: () -> Boolean, snapshot: GamepadSnapshot, button: Int): GamepadBooleanListener {
+                return GamepadBooleanListener(input, snapshot, button)
             }
         }
     }
@@ -522,8 +531,10 @@ class ReforgedGamepad(val gamepad: Gamepad) {
     class GamepadAnalogListener
         private constructor(
             deadzone: Double,
-            val input: () -> Float
-        ) : Listener({ abs(input()) > deadzone }) {
+            val input: () -> Float,
+            snapshot: GamepadSnapshot,
+            axis: Int,
+        ) : Listener(GamepadSnapshot.AxisNode(snapshot, axis, deadzone), { abs(input()) > deadzone }) {
 
         fun get() = input()
 
@@ -532,8 +543,8 @@ class ReforgedGamepad(val gamepad: Gamepad) {
 
         companion object {
             @JvmSynthetic
-            internal operator fun invoke(deadzone: Double, input: () -> Float): GamepadAnalogListener {
-                return GamepadAnalogListener(deadzone, input)
+            internal operator fun invoke(deadzone: Double, input: () -> Float, snapshot: GamepadSnapshot, axis: Int): GamepadAnalogListener {
+                return GamepadAnalogListener(deadzone, input, snapshot, axis)
             }
         }
     }
@@ -4,6 +4,7 @@ package ftc.rogue.blacksmith.listeners
 
 import ftc.rogue.blacksmith.units.TimeUnit
 import ftc.rogue.blacksmith.Scheduler
+import ftc.rogue.blacksmith.internal.scheduler.TimerWheel
 
 // -----------------------------------------------------------------------------------------------
 // Dear reader-
@@ -24,6 +25,10 @@ import ftc.rogue.blacksmith.Scheduler
  *
  * A timer that can be used to schedule actions to be performed at a specific time.
  *
+ * The timer itself is just a handle to an entry in the [Scheduler]'s timer wheel, so it costs
+ * nothing per tick until it's actually due (unless [whileWaiting]/[whileRunning] are used, which
+ * need to run every tick anyways).
+ *
  * @author KG
  *
  * @see Scheduler
@@ -35,50 +40,84 @@ class Timer @JvmOverloads constructor(
     startPending: Boolean = false,
     unit: TimeUnit = TimeUnit.MILLISECONDS
 ) {
-    private val listener0 = Listener { !isPending && System.currentTimeMillis() - startTime >= unit.toMs(length) }
-
-    private val listener1 = Listener { System.currentTimeMillis() - startTime >= unit.toMs(length) }
+    private val timers = Scheduler.internal.timers
 
-    private val length = unit.toMs(length)
+    private val length = unit.toMs(length).toLong()
 
-    private var startTime = System.currentTimeMillis()
+    private var startTime = timers.nowMs()
 
     private var isPending = startPending
 
+    private val onDoneCallbacks = ArrayList<Runnable>(1)
+
+    private var waitingListener: Listener? = null
+
+    private var runningListener: Listener? = null
+
+    private val entry = object : TimerWheel.Entry() {
+        override fun onExpire() {
+            // Callbacks may restart/destroy the timer, so they're iterated by index
+            var i = 0
+            while (i < onDoneCallbacks.size) {
+                onDoneCallbacks[i++].run()
+            }
+        }
+    }
+
+    init {
+        reschedule()
+    }
+
     /**
      * Schedules the given action to run while the timer is running or pending.
      * @param action The action to run.
      * @return The timer instance.
      */
-    fun whileWaiting(callback: Runnable) = this.also { listener0.whileLow(callback) }
+    fun whileWaiting(callback: Runnable) = this.also {
+        val listener = waitingListener
+            ?: Listener(::isDone).also { waitingListener = it }
+
+        listener.whileLow(callback)
+    }
 
     /**
      * Schedules the given action to run while the timer is running and not yet finsihed.
      * @param action The action to run.
      * @return The timer instance.
      */
-    fun whileRunning(callback: Runnable) = this.also { listener1.whileLow(callback) }
+    fun whileRunning(callback: Runnable) = this.also {
+        val listener = runningListener
+            ?: Listener(::hasElapsed).also { runningListener = it }
+
+        listener.whileLow(callback)
+    }
 
     /**
      * Schedules the given action to run once when the timer is finished.
      * @param action The action to run.
      * @return The timer instance.
      */
-    fun onDone(callback: Runnable) = this.also { listener0.onRise(callback) }
+    fun onDone(callback: Runnable) = this.also { onDoneCallbacks += callback }
 
     /**
      * Starts the timer if not already running, resets the timer if already running.
      */
     fun start() {
         isPending = false
-        startTime = System.currentTimeMillis()
+        startTime = timers.nowMs()
+        reschedule()
     }
 
     /**
      * Finishes the timer if running, does nothing if not running.
      */
     fun finishPrematurely() {
-        startTime = System.currentTimeMillis() + length
+        if (hasElapsed()) {
+            return
+        }
+
+        startTime = timers.nowMs() - length
+        reschedule()
     }
 
     /**
@@ -87,27 +126,47 @@ class Timer @JvmOverloads constructor(
      */
     @JvmOverloads
     fun setPending(newState: Boolean = true) {
+        if (isPending == newState) {
+            return
+        }
+
         isPending = newState
+        reschedule()
     }
 
     /**
-     * Destroys the timer and sets it pending. `onDone` will be called.
+     * Destroys the timer and sets it pending, removing all of its callbacks.
      */
     fun destroy() {
         isPending = true
-        listener0.destroy()
+        timers.cancel(entry)
+
+        onDoneCallbacks.clear()
+
+        waitingListener?.destroy()
+        runningListener?.destroy()
     }
 
     /**
      * Figure it out for yourself given the method name.
      */
-    fun isDone() = listener0.condition()
+    fun isDone() = !isPending && hasElapsed()
 
     /**
      * Used for using `after` in Java, read the docs please for more info about this very
      * useful tool.
      */
     fun after(time: Long) = ftc.rogue.blacksmith.listeners.after(time)
+
+    private fun hasElapsed() = timers.nowMs() - startTime >= length
+
+    private fun reschedule() {
+        if (isPending) {
+            timers.cancel(entry)
+        } else {
+            timers.schedule(entry, startTime + length)
+        }
+    }
 }
 
 // -------------------------- Made you look --------------------------
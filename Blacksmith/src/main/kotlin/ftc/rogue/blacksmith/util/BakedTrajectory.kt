@@ -0,0 +1,182 @@
+package ftc.rogue.blacksmith.util
+
+import com.acmerobotics.roadrunner.trajectory.Trajectory
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import kotlin.math.PI
+import kotlin.math.ceil
+
+/**
+ * A [Trajectory]'s pose, velocity, & acceleration, sampled every few milliseconds into primitive
+ * arrays, so that following it is just a lookup & a linear interpolation, instead of a search
+ * through the motion profile and a re-parameterization of the path every loop (and without
+ * allocating anything).
+ *
+ * The position error from interpolating is at most `dt² / 8` times the trajectory's max
+ * acceleration (e.g. ~0.0002in for the default 5ms at 60in/s²), which is far below anything the
+ * robot could tell apart. Headings are unwrapped while baking, so interpolating across 0/2π is
+ * fine too.
+ *
+ * Baking a whole auto's worth takes a bit, so it's usually done in the background with
+ * [bakeAsync], falling back to the [Trajectory] itself until it's done.
+ *
+ * Java usage example:
+ * ```java
+ * Future<BakedTrajectory> baking = BakedTrajectory.bakeAsync(trajectory);
+ *
+ * // Later, e.g. in the follower
+ * BakedTrajectory.Sample target = new BakedTrajectory.Sample(); // Reused every loop
+ * baking.get().sample(elapsedTime, target);
+ *
+ * target.x; target.velX; target.accelHeading; // etc.
+ * ```
+ *
+ * @author KG
+ */
+class BakedTrajectory private constructor(
+    val duration: Double,
+    private val step: Double,
+    private val poses: Array<DoubleArray>,
+) {
+    /**
+     * The number of samples the trajectory was baked into.
+     */
+    val numSamples: Int
+        get() = poses[0].size
+
+    /**
+     * The target pose, velocity, & acceleration at some time, all relative to the field (same as
+     * [Trajectory.get], [Trajectory.velocity], & [Trajectory.acceleration]).
+     */
+    class Sample {
+        @JvmField var x = 0.0
+        @JvmField var y = 0.0
+        @JvmField var heading = 0.0
+
+        @JvmField var velX = 0.0
+        @JvmField var velY = 0.0
+        @JvmField var velHeading = 0.0
+
+        @JvmField var accelX = 0.0
+        @JvmField var accelY = 0.0
+        @JvmField var accelHeading = 0.0
+    }
+
+    /**
+     * Writes the target at the given time (in seconds, clamped to the trajectory) into [into],
+     * and returns it. Doesn't allocate anything.
+     */
+    fun sample(time: Double, into: Sample): Sample {
+        val position = if (step == 0.0) 0.0 else time.coerceIn(0.0, duration) / step
+
+        val i = minOf(position.toInt(), numSamples - 2)
+        val f = position - i
+
+        into.x = lerp(X, i, f)
+        into.y = lerp(Y, i, f)
+        into.heading = normalize(lerp(HEADING, i, f))
+
+        into.velX = lerp(VEL_X, i, f)
+        into.velY = lerp(VEL_Y, i, f)
+        into.velHeading = lerp(VEL_HEADING, i, f)
+
+        into.accelX = lerp(ACCEL_X, i, f)
+        into.accelY = lerp(ACCEL_Y, i, f)
+        into.accelHeading = lerp(ACCEL_HEADING, i, f)
+
+        return into
+    }
+
+    private fun lerp(column: Int, i: Int, f: Double): Double {
+        val values = poses[column]
+        return values[i] + (values[i + 1] - values[i]) * f
+    }
+
+    companion object {
+        /**
+         * How far apart the samples are by default, in seconds.
+         */
+        const val DEFAULT_DT = 0.005
+
+        private const val X = 0
+        private const val Y = 1
+        private const val HEADING = 2
+        private const val VEL_X = 3
+        private const val VEL_Y = 4
+        private const val VEL_HEADING = 5
+        private const val ACCEL_X = 6
+        private const val ACCEL_Y = 7
+        private const val ACCEL_HEADING = 8
+
+        private const val NUM_COLUMNS = 9
+
+        private val bakingExecutor: ExecutorService = Executors.newSingleThreadExecutor { runnable ->
+            Thread(runnable, "BakedTrajectory").apply { isDaemon = true }
+        }
+
+        /**
+         * Samples the trajectory every [dt] seconds (or slightly less, so that the last sample
+         * lands right on its end).
+         */
+        @JvmStatic
+        @JvmOverloads
+        fun bake(trajectory: Trajectory, dt: Double = DEFAULT_DT): BakedTrajectory {
+            if (dt <= 0) {
+                throw IllegalArgumentException("dt must be positive (got $dt)")
+            }
+
+            val duration = trajectory.duration()
+
+            val numSamples = maxOf(2, ceil(duration / dt).toInt() + 1)
+            val step = duration / (numSamples - 1)
+
+            val poses = Array(NUM_COLUMNS) { DoubleArray(numSamples) }
+
+            for (i in 0 until numSamples) {
+                val time = if (i == numSamples - 1) duration else i * step
+
+                val pose = trajectory[time]
+                val vel = trajectory.velocity(time)
+                val accel = trajectory.acceleration(time)
+
+                poses[X][i] = pose.x
+                poses[Y][i] = pose.y
+                poses[HEADING][i] = if (i == 0) pose.heading else {
+                    val last = poses[HEADING][i - 1]
+                    last + normalizeDelta(pose.heading - last)
+                }
+
+                poses[VEL_X][i] = vel.x
+                poses[VEL_Y][i] = vel.y
+                poses[VEL_HEADING][i] = vel.heading
+
+                poses[ACCEL_X][i] = accel.x
+                poses[ACCEL_Y][i] = accel.y
+                poses[ACCEL_HEADING][i] = accel.heading
+            }
+
+            return BakedTrajectory(duration, step, poses)
+        }
+
+        /**
+         * [Bakes][bake] the trajectory on a background thread. Trajectories are baked one at a
+         * time, in the order they're given.
+         */
+        @JvmStatic
+        @JvmOverloads
+        fun bakeAsync(trajectory: Trajectory, dt: Double = DEFAULT_DT): Future<BakedTrajectory> {
+            return bakingExecutor.submit<BakedTrajectory> { bake(trajectory, dt) }
+        }
+
+        private fun normalize(angle: Double): Double {
+            val normalized = angle % (2 * PI)
+            return if (normalized < 0) normalized + 2 * PI else normalized
+        }
+
+        private fun normalizeDelta(angle: Double): Double {
+            val normalized = normalize(angle)
+            return if (normalized > PI) normalized - 2 * PI else normalized
+        }
+    }
+}
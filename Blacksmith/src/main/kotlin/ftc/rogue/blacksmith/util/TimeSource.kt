@@ -0,0 +1,51 @@
+package ftc.rogue.blacksmith.util
+
+import java.util.concurrent.locks.LockSupport
+
+/**
+ * A monotonic clock, measured in nanoseconds from some arbitrary origin (so only the differences
+ * between readings mean anything).
+ *
+ * Every time-based part of Blacksmith (the loop pacing, timers, pulsars, `On` time extensions,
+ * Kalman filters, etc.) reads the time through the [Scheduler][ftc.rogue.blacksmith.Scheduler]'s
+ * time source, which is [SYSTEM] by default. Swap in a [VirtualClock] to run things faster than
+ * real time, e.g. for tests or simulation.
+ *
+ * @author KG
+ *
+ * @see VirtualClock
+ */
+fun interface TimeSource {
+    /**
+     * The current time, in nanoseconds.
+     */
+    fun nanoTime(): Long
+
+    /**
+     * The current time, in milliseconds.
+     */
+    fun millis(): Long {
+        return nanoTime() / 1_000_000
+    }
+
+    /**
+     * Blocks until the time reaches the given [deadline] (in nanoseconds), or the thread is
+     * interrupted.
+     */
+    fun sleepUntil(deadline: Long) {
+        var now = nanoTime()
+
+        while (now < deadline && !Thread.currentThread().isInterrupted) {
+            LockSupport.parkNanos(deadline - now)
+            now = nanoTime()
+        }
+    }
+
+    companion object {
+        /**
+         * The real, monotonic system clock ([System.nanoTime]).
+         */
+        @JvmField
+        val SYSTEM = TimeSource { System.nanoTime() }
+    }
+}
@@ -0,0 +1,61 @@
+package ftc.rogue.blacksmith.util
+
+import ftc.rogue.blacksmith.units.TimeUnit
+
+/**
+ * A [TimeSource] that only moves when it's told to, so that time-based code can be ran
+ * deterministically, and as fast as the CPU allows.
+ *
+ * Sleeping on a virtual clock (e.g. the [Scheduler][ftc.rogue.blacksmith.Scheduler] waiting out
+ * the rest of a tick when a loop rate is set) just jumps the clock forward to the deadline, so a
+ * 30 second autonomous running at a fixed loop rate finishes in however long the code itself takes.
+ *
+ * Java usage example:
+ * ```java
+ * VirtualClock clock = new VirtualClock();
+ * Scheduler.setTimeSource(clock);
+ *
+ * Timer timer = new Timer(500);
+ *
+ * clock.advance(499);
+ * timer.isDone(); // false
+ *
+ * clock.advance(1);
+ * timer.isDone(); // true
+ * ```
+ *
+ * @param startNanos The time the clock starts at, in nanoseconds.
+ *
+ * @author KG
+ */
+class VirtualClock @JvmOverloads constructor(startNanos: Long = 0L) : TimeSource {
+    @Volatile
+    private var nanos = startNanos
+
+    override fun nanoTime() = nanos
+
+    override fun sleepUntil(deadline: Long) {
+        nanos = maxOf(nanos, deadline)
+    }
+
+    /**
+     * Moves the clock forward by the given amount of time.
+     * @param time The amount of time to move forward by (must not be negative).
+     * @param unit The unit of [time]. Defaults to milliseconds.
+     */
+    @JvmOverloads
+    fun advance(time: Number, unit: TimeUnit = TimeUnit.MILLISECONDS) {
+        advanceNanos((time.toDouble() * unit.millisecConversionFactor * 1e6).toLong())
+    }
+
+    /**
+     * Moves the clock forward by the given number of nanoseconds.
+     */
+    fun advanceNanos(nanos: Long) {
+        if (nanos < 0) {
+            throw IllegalArgumentException("A VirtualClock can't go backwards in time (got $nanos ns)")
+        }
+
+        this.nanos += nanos
+    }
+}
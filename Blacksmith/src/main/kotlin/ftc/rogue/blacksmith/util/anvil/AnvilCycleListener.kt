@@ -0,0 +1,20 @@
+package ftc.rogue.blacksmith.util.anvil
+
+/**
+ * Can be implemented by the drive (or [DriveProxy]) that's passed into `Anvil.forgeTrajectory` to
+ * be told when each iteration of a `doTimes` starts & ends while the trajectory's being followed,
+ * e.g. to time each cycle.
+ *
+ * Both are called from a temporal marker at the iteration's start/end, so they come in the same
+ * order as the iterations, with [onCycleEnd] always called before the next [onCycleStart]. They
+ * don't change what's built; though, since they aren't part of Anvil's commands, trajectories with
+ * `doTimes`s in them aren't [cached][ftc.rogue.blacksmith.Anvil.enableTrajectoryCache] or
+ * [rebuilt incrementally][ftc.rogue.blacksmith.Anvil.setIncrementalBuilds] for drives that implement this.
+ *
+ * @author KG
+ */
+interface AnvilCycleListener {
+    fun onCycleStart(iteration: Int)
+
+    fun onCycleEnd(iteration: Int)
+}
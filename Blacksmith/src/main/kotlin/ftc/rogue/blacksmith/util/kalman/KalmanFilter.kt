@@ -4,6 +4,7 @@ package ftc.rogue.blacksmith.util.kalman
 
 import com.qualcomm.robotcore.util.ElapsedTime
 import ftc.rogue.blacksmith.internal.util.MotionModel
+import ftc.rogue.blacksmith.internal.util.SchedulerElapsedTime
 
 /**
  * [Docs link](https://blacksmithftc.vercel.app/util/kalmanfilters/kalmanfilter-object)
@@ -101,7 +102,7 @@ class KalmanFilter {
     fun filter(measurement: Double, u: Double = 0.0): Double {
         if (x.isNaN()) {
             if (!::timer.isInitialized) {
-                timer = ElapsedTime()
+                timer = SchedulerElapsedTime()
             }
 
             x = measurement / C
@@ -0,0 +1,125 @@
+package ftc.rogue.blacksmith.util.sim
+
+import ftc.rogue.blacksmith.Anvil
+import java.io.Closeable
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+
+/**
+ * Runs Anvil autos on a [SimDrive], one at a time or a bunch at once.
+ *
+ * An auto's started the same way it is on the robot, and the [Scheduler][ftc.rogue.blacksmith.Scheduler]
+ * is ran on the drive's clock the whole time, so anything the auto does in Scheduler listeners,
+ * timers, or non-blocking `thenRun` handoffs happens in the simulation too.
+ *
+ * Since the Scheduler's global, autos can only be simulated in parallel through [runAll], which
+ * gives each thread its own copy of everything (see [SimVariant]).
+ *
+ * Java usage example:
+ * ```java
+ * Map<String, Integer> variants = new LinkedHashMap<>();
+ *
+ * for (int numCycles = 3; numCycles <= 6; numCycles++) {
+ *     variants.put(numCycles + " cycles", numCycles);
+ * }
+ *
+ * AutoSimulation.runAll(CycleCountVariant.class, variants).forEach((name, report) -> {
+ *     System.out.println(name + "\n" + report);
+ * });
+ * ```
+ *
+ * @author KG
+ */
+object AutoSimulation {
+    /**
+     * Starts [auto] the same way `Anvil.startAutoWith(auto).onSchedulerLaunch()` would, and
+     * simulates it until it's done (see [SimDrive.runUntilDone]).
+     */
+    @JvmStatic
+    fun run(drive: SimDrive, auto: Anvil): SimReport {
+        Anvil.startAutoWith(auto).onSchedulerLaunch()
+        return drive.runUntilDone()
+    }
+
+    /**
+     * Simulates [variant] once with each of the [params], in parallel, and returns each one's
+     * report under the same key.
+     *
+     * Each thread loads its own copy of the variant & everything it uses, so a single call with
+     * every variant is a lot cheaper than a bunch of calls with one each.
+     *
+     * @param numThreads How many variants to run at once. Defaults to the number of cores.
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun <K, P> runAll(
+        variant: Class<out SimVariant<P>>,
+        params: Map<K, P>,
+        numThreads: Int = Runtime.getRuntime().availableProcessors(),
+    ): Map<K, SimReport> {
+        return IsolatedSimulations(variant, numThreads.coerceAtMost(params.size)).use {
+            it.runAll(params)
+        }
+    }
+}
+
+/**
+ * A pool of threads that each simulate [variant] in their own [IsolatingClassLoader], which they
+ * keep between simulations.
+ */
+internal class IsolatedSimulations<P>(
+    private val variant: Class<out SimVariant<P>>,
+    numThreads: Int,
+) : Closeable {
+    private val executor = Executors.newFixedThreadPool(numThreads.coerceAtLeast(1)) {
+        Thread(it, "auto-simulation").apply { isDaemon = true }
+    }
+
+    private val isolatedVariant = ThreadLocal.withInitial {
+        IsolatingClassLoader(variant.classLoader).loadClass(variant.name)
+    }
+
+    fun <K> runAll(params: Map<K, P>): Map<K, SimReport> {
+        val results = params.mapValues { (_, param) ->
+            executor.submit(Callable { simulate(param) })
+        }
+
+        return results.mapValues { (_, result) ->
+            try {
+                result.get()
+            } catch (e: ExecutionException) {
+                throw e.cause ?: e
+            }
+        }
+    }
+
+    fun run(param: P): SimReport {
+        return runAll(mapOf(Unit to param)).getValue(Unit)
+    }
+
+    private fun simulate(param: P): SimReport {
+        val isolated = isolatedVariant.get()
+
+        val thread = Thread.currentThread()
+        val contextClassLoader = thread.contextClassLoader
+
+        thread.contextClassLoader = isolated.classLoader
+
+        try {
+            @Suppress("UNCHECKED_CAST")
+            val instance = isolated
+                .getDeclaredConstructor()
+                .apply { isAccessible = true }
+                .newInstance() as SimVariant<P>
+
+            return instance.simulate(param)
+        } finally {
+            thread.contextClassLoader = contextClassLoader
+        }
+    }
+
+    override fun close() {
+        executor.shutdownNow()
+    }
+}
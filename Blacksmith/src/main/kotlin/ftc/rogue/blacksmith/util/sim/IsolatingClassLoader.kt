@@ -0,0 +1,37 @@
+package ftc.rogue.blacksmith.util.sim
+
+/**
+ * Loads its own copy of every class it can find the bytecode of through [parent] (Blacksmith,
+ * Road Runner, and the user's code alike), so that anything global, like the
+ * [Scheduler][ftc.rogue.blacksmith.Scheduler], is separate from every other copy's.
+ *
+ * The JDK & Kotlin are shared, along with the classes that are passed between copies (the
+ * [SimVariant] interface, its results, and their parameters).
+ */
+internal class IsolatingClassLoader(parent: ClassLoader) : ClassLoader(parent) {
+    override fun loadClass(name: String, resolve: Boolean): Class<*> = synchronized(getClassLoadingLock(name)) {
+        findLoadedClass(name)?.let { return it }
+
+        if (SHARED.any { name.startsWith(it) }) {
+            return super.loadClass(name, resolve)
+        }
+
+        val bytes = parent.getResourceAsStream(name.replace('.', '/') + ".class")?.use { it.readBytes() }
+            ?: return super.loadClass(name, resolve)
+
+        return defineClass(name, bytes, 0, bytes.size).also {
+            if (resolve) resolveClass(it)
+        }
+    }
+
+    private companion object {
+        val SHARED = listOf(
+            "java.", "javax.", "jdk.", "sun.", "com.sun.", "kotlin.", "kotlinx.",
+            "com.acmerobotics.roadrunner.geometry.",
+            SimVariant::class.java.name,
+            SimReport::class.java.name,
+            SimActuator::class.java.name,
+            MarkerTimings::class.java.name,
+        )
+    }
+}
@@ -0,0 +1,245 @@
+package ftc.rogue.blacksmith.util.sim
+
+import kotlin.math.roundToLong
+import kotlin.random.Random
+
+/**
+ * Searches for the marker offsets & wait times that make an auto finish the fastest, without
+ * failing any of its [checks][SimDrive.check], by simulating it over & over with different values.
+ *
+ * Each value to tune is given a name and a range; the auto then reads them back out of the
+ * [MarkerTimings] it's built with instead of hardcoding them. The search first goes through the
+ * values one at a time, trying every step in its range (in parallel) while keeping the others
+ * fixed, until nothing gets any faster; then tries random tweaks to a few values at once. So, even
+ * with a few dozen values, it's only a few thousand simulations, which don't take long at all.
+ *
+ * The auto's simulated by a [SimVariant] that takes the timings, same as [AutoSimulation.runAll].
+ *
+ * Kotlin usage example:
+ * ```kotlin
+ * class TimingsVariant : SimVariant<MarkerTimings> {
+ *     override fun simulate(param: MarkerTimings): SimReport {
+ *         val drive = newSimDrive()
+ *         val lift = drive.addActuator("lift", maxSpeed = 1500.0)
+ *
+ *         return AutoSimulation.run(drive, mainTraj(drive, lift, param))
+ *     }
+ * }
+ *
+ * val result = MarkerTimingOptimizer()
+ *     .tune("liftUpOffset", initial = -75.0, min = -300.0, max = 0.0)
+ *     .tune("intakeWait", initial = 80.0, min = 0.0, max = 200.0)
+ *     .optimize(TimingsVariant::class.java)
+ *
+ * println(result)
+ *
+ * // In mainTraj
+ * .addTemporalMarker(timings["liftUpOffset"]) { lift.target = LIFT_HIGH }
+ * // ...
+ * .addTemporalMarker {
+ *     drive.check("lift is up before depositing", lift.position >= LIFT_HIGH)
+ * }
+ * ```
+ *
+ * @param numThreads How many simulations to run at once. Defaults to the number of cores.
+ * @param maxRounds The most times to go through every value one at a time.
+ * @param numGenerations How many rounds of random mutations to try after that.
+ * @param seed The seed for the random mutations, so that the same auto always ends up with the
+ * same timings.
+ *
+ * @author KG
+ */
+class MarkerTimingOptimizer @JvmOverloads constructor(
+    private val numThreads: Int = Runtime.getRuntime().availableProcessors(),
+    private val maxRounds: Int = 10,
+    private val numGenerations: Int = 50,
+    private val seed: Long = 0,
+) {
+    private class Tunable(val initial: Double, val min: Double, val max: Double, val step: Double) {
+        fun candidates(): List<Double> {
+            val numSteps = ((max - min) / step).roundToLong()
+            return (0..numSteps).map { min + it * step }
+        }
+    }
+
+    private val tunables = LinkedHashMap<String, Tunable>()
+
+    /**
+     * Adds a value to tune.
+     *
+     * @param name The name to get it from the [MarkerTimings] with.
+     * @param initial The value it's currently set to.
+     * @param min The lowest it can go.
+     * @param max The highest it can go.
+     * @param step How finely to search between [min] & [max].
+     */
+    @JvmOverloads
+    fun tune(name: String, initial: Double, min: Double, max: Double, step: Double = 5.0) = this.also {
+        if (min > max || step <= 0) {
+            throw IllegalArgumentException("Invalid range for '$name' ($min to $max, step $step)")
+        }
+
+        tunables[name] = Tunable(initial, min, max, step)
+    }
+
+    /**
+     * Runs the search.
+     *
+     * @param variant Simulates the auto with the given timings.
+     */
+    fun optimize(variant: Class<out SimVariant<MarkerTimings>>): OptimizedTimings {
+        // Reuses the same threads (and the copies of the auto they've loaded) for the whole search
+        return IsolatedSimulations(variant, numThreads).use { optimize(it) }
+    }
+
+    private fun optimize(simulations: IsolatedSimulations<MarkerTimings>): OptimizedTimings {
+        val initial = MarkerTimings(tunables.mapValues { it.value.initial })
+        val baseline = simulations.run(initial)
+
+        var numSimulations = 1
+        var best = initial
+        var bestReport = baseline
+
+        fun simulateAll(candidates: List<MarkerTimings>): Pair<MarkerTimings, SimReport>? {
+            val results = simulations.runAll(candidates.indices.associateWith { candidates[it] })
+            numSimulations += results.size
+
+            return results.entries
+                .minWithOrNull { a, b -> COMPARING_REPORTS.compare(a.value, b.value) }
+                ?.let { candidates[it.key] to it.value }
+        }
+
+        if (tunables.isEmpty()) {
+            return OptimizedTimings(initial, best, baseline, bestReport, numSimulations)
+        }
+
+        for (round in 0 until maxRounds) {
+            var improved = false
+
+            for ((name, tunable) in tunables) {
+                val candidates = tunable.candidates()
+                    .filter { it != best[name] }
+                    .map { best.with(name, it) }
+
+                val (timings, report) = simulateAll(candidates) ?: continue
+
+                if (COMPARING_REPORTS.compare(report, bestReport) < 0) {
+                    best = timings
+                    bestReport = report
+                    improved = true
+                }
+            }
+
+            if (!improved) break
+        }
+
+        // Most offsets don't change the total time on their own, only once a wait can be shortened
+        // because of them, which one value at a time can't find. Random mutations can, as long as
+        // ones that are just as good are kept, so that the search can wander along those plateaus.
+        val random = Random(seed)
+
+        repeat(numGenerations) {
+            val (timings, report) = simulateAll(List(MUTANTS_PER_GENERATION) { mutate(best, random) }) ?: return@repeat
+
+            if (COMPARING_REPORTS.compare(report, bestReport) <= 0) {
+                best = timings
+                bestReport = report
+            }
+        }
+
+        // Puts back any values that wandered off without it mattering
+        for ((name, tunable) in tunables) {
+            if (best[name] == tunable.initial) continue
+
+            val timings = best.with(name, tunable.initial)
+            val report = simulations.run(timings)
+            numSimulations++
+
+            if (COMPARING_REPORTS.compare(report, bestReport) <= 0) {
+                best = timings
+                bestReport = report
+            }
+        }
+
+        return OptimizedTimings(initial, best, baseline, bestReport, numSimulations)
+    }
+
+    private fun mutate(timings: MarkerTimings, random: Random): MarkerTimings {
+        val names = tunables.keys.toList()
+        val values = timings.asMap().toMutableMap()
+
+        repeat(1 + random.nextInt(minOf(3, names.size))) {
+            val name = names[random.nextInt(names.size)]
+            val tunable = tunables.getValue(name)
+
+            val delta = (1 + random.nextInt(3)) * tunable.step * if (random.nextBoolean()) 1 else -1
+            values[name] = (values.getValue(name) + delta).coerceIn(tunable.min, tunable.max)
+        }
+
+        return MarkerTimings(values)
+    }
+
+    private companion object {
+        const val MUTANTS_PER_GENERATION = 32
+
+        // Fixes whatever checks are failing first, then goes for time
+        val COMPARING_REPORTS: Comparator<SimReport> = compareBy<SimReport>(
+            { it.violations.size + if (it.timedOut) 1 else 0 },
+            { it.totalTime },
+        )
+    }
+}
+
+/**
+ * A set of values for the [MarkerTimingOptimizer] to simulate an auto with.
+ */
+class MarkerTimings internal constructor(private val values: Map<String, Double>) {
+    operator fun get(name: String): Double {
+        return values[name] ?: throw IllegalArgumentException("No value named '$name' is being tuned")
+    }
+
+    fun asMap() = values
+
+    @JvmSynthetic
+    internal fun with(name: String, value: Double) = MarkerTimings(values + (name to value))
+
+    override fun toString() = values.toString()
+}
+
+/**
+ * The best timings the [MarkerTimingOptimizer] found, and how much faster they are.
+ */
+class OptimizedTimings internal constructor(
+    val initial: MarkerTimings,
+    val best: MarkerTimings,
+    val baselineReport: SimReport,
+    val bestReport: SimReport,
+    val numSimulations: Int,
+) {
+    /**
+     * How many seconds the best timings save over the initial ones (only meaningful if both
+     * are [feasible][SimReport.isFeasible]).
+     */
+    val timeSaved: Double
+        get() = baselineReport.totalTime - bestReport.totalTime
+
+    override fun toString() = buildString {
+        appendLine("Best timings (after $numSimulations simulations):")
+
+        best.asMap().forEach { (name, value) ->
+            val was = initial[name]
+            appendLine("  $name: $value" + if (value != was) " (was $was)" else "")
+        }
+
+        appendLine("Total time: %.3fs -> %.3fs (%.3fs saved)".format(baselineReport.totalTime, bestReport.totalTime, timeSaved))
+
+        if (!baselineReport.isFeasible) {
+            appendLine("The initial timings weren't feasible!")
+        }
+
+        if (!bestReport.isFeasible) {
+            appendLine("No feasible timings were found; the best attempt:")
+            append(bestReport)
+        }
+    }
+}
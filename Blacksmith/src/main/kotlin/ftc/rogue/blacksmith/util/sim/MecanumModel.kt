@@ -0,0 +1,90 @@
+package ftc.rogue.blacksmith.util.sim
+
+import com.acmerobotics.roadrunner.geometry.Pose2d
+import kotlin.math.abs
+import kotlin.math.cos
+import kotlin.math.sin
+
+/**
+ * A purely kinematic model of a mecanum drive, for the [SimDrive]. No motors, no friction, no
+ * voltage; the wheels just do what they're told, as long as it's within their speed (and
+ * optionally acceleration) limits.
+ *
+ * Commanded velocities are turned into wheel velocities, scaled down together if any of them
+ * is too fast (so the robot still moves in the right direction, just slower, like the real
+ * drive normalizing its powers), then turned back into the velocity the robot actually moves at.
+ *
+ * Everything's in Road Runner's units (inches, radians, seconds).
+ *
+ * @param trackWidth The distance between the left & right wheels.
+ * @param wheelBase The distance between the front & back wheels.
+ * @param maxWheelVel The fastest any wheel can spin, as a linear velocity.
+ * @param maxWheelAccel The fastest any wheel can speed up or slow down. Unlimited by default.
+ *
+ * @author KG
+ */
+class MecanumModel @JvmOverloads constructor(
+    val trackWidth: Double = 12.0,
+    val wheelBase: Double = 12.0,
+    val maxWheelVel: Double = 60.0,
+    val maxWheelAccel: Double = Double.POSITIVE_INFINITY,
+) {
+    /**
+     * Where the robot is on the field.
+     */
+    var pose = Pose2d()
+
+    /**
+     * How fast the robot is actually moving, relative to itself.
+     */
+    var velocity = Pose2d()
+        private set
+
+    private val k = (trackWidth + wheelBase) / 2
+
+    // front left, back left, back right, front right
+    private val wheelVels = DoubleArray(4)
+    private val targetVels = DoubleArray(4)
+
+    /**
+     * Moves the robot forward [dt] seconds while trying to go at the given velocity.
+     *
+     * @param commanded The velocity to try to go at, relative to the robot.
+     */
+    fun step(commanded: Pose2d, dt: Double) {
+        val (vx, vy, omega) = commanded
+
+        targetVels[0] = vx - vy - k * omega
+        targetVels[1] = vx + vy - k * omega
+        targetVels[2] = vx - vy + k * omega
+        targetVels[3] = vx + vy + k * omega
+
+        val fastest = targetVels.maxOf { abs(it) }
+        val scale = if (fastest > maxWheelVel) maxWheelVel / fastest else 1.0
+
+        val maxDelta = maxWheelAccel * dt
+
+        for (i in wheelVels.indices) {
+            wheelVels[i] += (targetVels[i] * scale - wheelVels[i]).coerceIn(-maxDelta, maxDelta)
+        }
+
+        val (fl, bl, br, fr) = wheelVels
+
+        velocity = Pose2d(
+            (fl + bl + br + fr) / 4,
+            (-fl + bl - br + fr) / 4,
+            (-fl - bl + br + fr) / (4 * k),
+        )
+
+        // Integrates at the average heading over the step, which is plenty at a few ms per step
+        val heading = pose.heading + velocity.heading * dt / 2
+        val cos = cos(heading)
+        val sin = sin(heading)
+
+        pose = Pose2d(
+            pose.x + (velocity.x * cos - velocity.y * sin) * dt,
+            pose.y + (velocity.x * sin + velocity.y * cos) * dt,
+            pose.heading + velocity.heading * dt,
+        )
+    }
+}
@@ -0,0 +1,77 @@
+package ftc.rogue.blacksmith.util.sim
+
+import kotlin.math.abs
+
+/**
+ * A stand-in for a lift, arm, claw, or any other mechanism that moves to a target at some
+ * maximum speed, so that a simulated auto can tell whether its markers give each mechanism
+ * enough time to get where it's going.
+ *
+ * Set its [target] from the same markers that would move the real mechanism; the [SimDrive] it
+ * was added to moves it every step.
+ *
+ * Kotlin usage example:
+ * ```kotlin
+ * val lift = drive.addActuator("lift", maxSpeed = 1500.0) // ticks per second
+ *
+ * Anvil.forgeTrajectory(drive, startPose)
+ *     .addTemporalMarker { lift.target = 1200.0 }
+ *     // ...
+ * ```
+ *
+ * @param name What to call it in the [SimReport].
+ * @param maxSpeed How fast it moves, in whatever units its position is in, per second.
+ * @param startPosition Where it starts.
+ *
+ * @author KG
+ */
+class SimActuator @JvmOverloads constructor(
+    val name: String,
+    val maxSpeed: Double,
+    startPosition: Double = 0.0,
+) {
+    var position = startPosition
+        private set
+
+    /**
+     * Where it's moving to. Setting it while it's still moving to the last target counts as an
+     * [interrupted move][numInterruptedMoves].
+     */
+    var target = startPosition
+        set(value) {
+            if (!isAtTarget && value != field) {
+                numInterruptedMoves++
+            }
+            field = value
+        }
+
+    val isAtTarget: Boolean
+        get() = position == target
+
+    /**
+     * How long it's spent moving in total, in seconds.
+     */
+    var timeMoving = 0.0
+        private set
+
+    /**
+     * How many times it was sent somewhere else before it reached its last target; usually a
+     * sign that the markers moving it are too close together.
+     */
+    var numInterruptedMoves = 0
+        private set
+
+    @JvmSynthetic
+    internal fun step(dt: Double) {
+        if (isAtTarget) return
+
+        val maxStep = maxSpeed * dt
+        val remaining = target - position
+
+        position = if (abs(remaining) <= maxStep) target else position + maxStep * Math.signum(remaining)
+        timeMoving += dt
+    }
+
+    override fun toString() =
+        "$name: at %.2f (target %.2f), moving for %.3fs, %d interrupted moves".format(position, target, timeMoving, numInterruptedMoves)
+}
@@ -0,0 +1,318 @@
+package ftc.rogue.blacksmith.util.sim
+
+import com.acmerobotics.roadrunner.drive.DriveSignal
+import com.acmerobotics.roadrunner.geometry.Pose2d
+import com.acmerobotics.roadrunner.trajectory.constraints.TrajectoryAccelerationConstraint
+import com.acmerobotics.roadrunner.trajectory.constraints.TrajectoryVelocityConstraint
+import com.acmerobotics.roadrunner.util.NanoClock
+import ftc.rogue.blacksmith.Anvil
+import ftc.rogue.blacksmith.Scheduler
+import ftc.rogue.blacksmith.internal.util.cachedMethod
+import ftc.rogue.blacksmith.util.TimeSource
+import ftc.rogue.blacksmith.util.VirtualClock
+import ftc.rogue.blacksmith.util.anvil.AnvilCycleListener
+import ftc.rogue.blacksmith.util.anvil.DriveProxy
+import java.io.Closeable
+import java.lang.reflect.Method
+import kotlin.math.hypot
+
+/**
+ * A simulated drive to pass into `Anvil.forgeTrajectory` instead of the real one, so an auto can
+ * be ran headless (e.g. in a unit test or a desktop `main`), in virtual time, as fast as the CPU
+ * allows; a 30 second auto usually takes well under a second.
+ *
+ * Trajectories are still built by your own `TrajectorySequenceBuilder` (through [builderFactory]),
+ * and followed by your own `TrajectorySequenceRunner` & follower (through [runnerFactory]), so
+ * they're the exact same paths, profiles, markers, and corrections as on the robot. Only the
+ * drivetrain itself is simulated, by a [MecanumModel] that goes at whatever velocity the runner
+ * asks for. Anything the markers would do to the hardware can be done to [SimActuator]s instead.
+ *
+ * Every drive has its own [clock], which the runner's given as its `NanoClock`, and which the
+ * [Scheduler] runs on while the drive's [running][runUntilDone]. To have anything else read it
+ * (e.g. an `ElapsedTime` or `Scheduler` timer created while setting up the auto), [install] the
+ * drive first, and [close] it once you're done, which puts back whatever the Scheduler had before.
+ *
+ * To see how much the robot's latency hurts, set [actuationDelay] to how many loops it takes for a
+ * command to reach the wheels (usually 1), then compare the [SimReport]'s tracking error with and
+ * without it (or with and without your follower's latency compensation).
+ *
+ * Kotlin usage example:
+ * ```kotlin
+ * val drive = SimDrive(
+ *     builderFactory = { TrajectorySequenceBuilder(it, VEL_CONSTRAINT, ACCEL_CONSTRAINT, MAX_ANG_VEL, MAX_ANG_ACCEL) },
+ *     velConstraintFactory = SampleMecanumDrive::getVelocityConstraint,
+ *     accelConstraintFactory = SampleMecanumDrive::getAccelerationConstraint,
+ *     runnerFactory = { SampleMecanumDrive.createTrajectorySequenceRunner(it, null) },
+ *     model = MecanumModel(trackWidth = TRACK_WIDTH, maxWheelVel = MAX_VEL),
+ * )
+ *
+ * drive.install().use {
+ *     val lift = drive.addActuator("lift", maxSpeed = 1500.0)
+ *
+ *     val auto = Anvil.forgeTrajectory(drive, startPose)
+ *         .addTemporalMarker { lift.target = 1200.0 }
+ *         .doTimes(5) { /* ... */ }
+ *
+ *     println( AutoSimulation.run(drive, auto) )
+ * }
+ * ```
+ *
+ * @param builderFactory Creates a `TrajectorySequenceBuilder` starting at the given pose.
+ * @param velConstraintFactory Same as `SampleMecanumDrive.getVelocityConstraint`.
+ * @param accelConstraintFactory Same as `SampleMecanumDrive.getAccelerationConstraint`.
+ * @param runnerFactory Creates a `TrajectorySequenceRunner` (and its follower) timed by the given
+ * clock, without a dashboard.
+ * @param model The drivetrain being simulated.
+ * @param dt How long each simulated loop is, in seconds.
+ *
+ * @author KG
+ */
+class SimDrive @JvmOverloads constructor(
+    private val builderFactory: (Pose2d) -> Any,
+    private val velConstraintFactory: (Double, Double, Double) -> TrajectoryVelocityConstraint,
+    private val accelConstraintFactory: (Double) -> TrajectoryAccelerationConstraint,
+    runnerFactory: (NanoClock) -> Any,
+    val model: MecanumModel = MecanumModel(),
+    val dt: Double = .005,
+) : DriveProxy, AnvilCycleListener, Closeable {
+    val clock = VirtualClock()
+
+    /**
+     * How long the simulated auto can run for, in seconds, before it's cut off.
+     */
+    var timeLimit = 30.0
+
+    /**
+     * How many loops it takes for a command to actually reach the wheels; 0 means it's applied
+     * right away.
+     */
+    var actuationDelay = 0
+        set(value) {
+            require(value >= 0) { "actuationDelay must be at least 0 (got $value)" }
+            field = value
+        }
+
+    private val runner = runnerFactory(object : NanoClock() {
+        override fun seconds() = clock.nanoTime() / 1e9
+    })
+
+    private val runnerMethods = RunnerMethods(runner.javaClass)
+
+    private val pendingCommands = ArrayDeque<Pose2d>()
+    private var lastCommand = Pose2d()
+    private var appliedCommand = Pose2d()
+
+    private val actuators = mutableListOf<SimActuator>()
+
+    private val onEachStep = mutableListOf<Runnable>()
+
+    private val cycleTimes = mutableListOf<Double>()
+    private val cycleStarts = ArrayDeque<Double>() // One per doTimes it's in the middle of
+    private var firstCycleStart = Double.NaN
+    private var lastCycleEnd = Double.NaN
+
+    private var maxTrackingError = 0.0
+    private var trackingErrorSum = 0.0
+    private var numTrackingErrors = 0
+
+    private val violations = mutableListOf<String>()
+
+    private var previousTimeSource: TimeSource? = null
+
+    /**
+     * The current time on the [clock], in seconds.
+     */
+    val time: Double
+        get() = clock.nanoTime() / 1e9
+
+    val poseEstimate: Pose2d
+        get() = model.pose
+
+    /**
+     * Whether it's still following a trajectory.
+     */
+    val isBusy: Boolean
+        get() = runnerMethods.isBusy(runner)
+
+    /**
+     * Points the [Scheduler] at the [clock] until the drive's [closed][close]. Does nothing if it's
+     * already installed.
+     */
+    fun install() = this.also {
+        if (previousTimeSource == null) {
+            previousTimeSource = Scheduler.getTimeSource()
+            Scheduler.setTimeSource(clock)
+        }
+    }
+
+    /**
+     * Points the [Scheduler] back at the time source it had before the drive was [installed][install].
+     */
+    override fun close() {
+        previousTimeSource?.let { Scheduler.setTimeSource(it) }
+        previousTimeSource = null
+    }
+
+    /**
+     * Adds a mechanism to simulate alongside the drive.
+     */
+    @JvmOverloads
+    fun addActuator(name: String, maxSpeed: Double, startPosition: Double = 0.0): SimActuator {
+        return SimActuator(name, maxSpeed, startPosition).also { actuators += it }
+    }
+
+    /**
+     * Runs [action] after every step, e.g. to update something that's only simulated.
+     */
+    fun onEachStep(action: Runnable) {
+        onEachStep += action
+    }
+
+    /**
+     * Records a safety constraint that has to hold at this point in the auto, e.g. from the
+     * marker that opens the claw to deposit:
+     * ```kotlin
+     * drive.check("lift is up before depositing", lift.position >= LIFT_HIGH)
+     * ```
+     * Failed checks show up in the [SimReport], and make it [infeasible][SimReport.isFeasible].
+     */
+    fun check(description: String, condition: Boolean) {
+        if (!condition) {
+            violations += "at %.3fs: %s".format(time, description)
+        }
+    }
+
+    /**
+     * Simulates a single loop; updates the runner, moves the robot & the actuators for [dt]
+     * seconds, then advances the clock.
+     */
+    fun step() {
+        val signal = runnerMethods.update(runner, model.pose, model.velocity)
+
+        if (isBusy) {
+            val error = runnerMethods.lastPoseError(runner)
+            val translationalError = hypot(error.x, error.y)
+
+            maxTrackingError = maxOf(maxTrackingError, translationalError)
+            trackingErrorSum += translationalError
+            numTrackingErrors++
+        }
+
+        // Same as SampleMecanumDrive, the wheels keep going if the runner doesn't say otherwise
+        if (signal != null) {
+            lastCommand = signal.vel
+        }
+
+        pendingCommands.addLast(lastCommand)
+
+        while (pendingCommands.size > actuationDelay) {
+            appliedCommand = pendingCommands.removeFirst()
+        }
+
+        model.step(appliedCommand, dt)
+
+        actuators.forEach { it.step(dt) }
+        onEachStep.forEach { it.run() }
+
+        clock.advanceNanos((dt * 1e9).toLong())
+    }
+
+    /**
+     * Runs the [Scheduler] on the [clock], [stepping][step] once every tick (as its `afterEach`),
+     * until the robot's done following every trajectory it's been given (including any it was
+     * handed off to along the way), or the [timeLimit] is up.
+     *
+     * Trajectories that Anvil's building in the background are waited on before every tick, so
+     * they take no time at all to build. The Scheduler's nuked once it's done, same as at the end
+     * of an OpMode, and put back on whatever time source it was on before.
+     */
+    fun runUntilDone(): SimReport {
+        var finishTime = time
+        var numIdleTicks = 0
+
+        val previousTimeSource = Scheduler.getTimeSource()
+        Scheduler.setTimeSource(clock)
+
+        // Every step moves the clock forward itself
+        Scheduler.setLoopRate(0.0)
+
+        try {
+            // Anything that's handed off to (e.g. without blocking) starts on the tick after the
+            // last trajectory ends, so it's only done once a whole tick goes by without one
+            Scheduler.launchManually({ Anvil.awaitBackgroundBuilds(); numIdleTicks < 2 && time < timeLimit }) {
+                val wasBusy = isBusy
+
+                step()
+
+                if (wasBusy) finishTime = time
+                numIdleTicks = if (isBusy) 0 else numIdleTicks + 1
+            }
+        } finally {
+            Scheduler.nuke()
+            Scheduler.setTimeSource(previousTimeSource)
+        }
+
+        val averageTrackingError = if (numTrackingErrors == 0) 0.0 else trackingErrorSum / numTrackingErrors
+
+        return SimReport(finishTime, cycleTimes.toList(), firstCycleStart, lastCycleEnd, numIdleTicks < 2, maxTrackingError, averageTrackingError, model.pose, actuators.toList(), violations.toList())
+    }
+
+    override fun followTrajectorySequenceAsync(seq: Any) {
+        runnerMethods.followTrajectorySequenceAsync(runner, seq)
+    }
+
+    // Same as SampleMecanumDrive.waitForIdle, which doesn't let the Scheduler tick in the meantime
+    override fun followTrajectorySequence(seq: Any) {
+        followTrajectorySequenceAsync(seq)
+
+        while (isBusy && time < timeLimit) {
+            step()
+        }
+    }
+
+    override fun setPoseEstimate(pose: Pose2d) {
+        model.pose = pose
+    }
+
+    override fun trajectorySequenceBuilder(startPose: Pose2d) = builderFactory(startPose)
+
+    override fun getVelocityConstraint(maxVel: Double, maxAngularVel: Double, trackWidth: Double) =
+        velConstraintFactory(maxVel, maxAngularVel, trackWidth)
+
+    override fun getAccelerationConstraint(maxAccel: Double) =
+        accelConstraintFactory(maxAccel)
+
+    override fun onCycleStart(iteration: Int) {
+        cycleStarts.addLast(time)
+
+        if (firstCycleStart.isNaN()) {
+            firstCycleStart = time
+        }
+    }
+
+    override fun onCycleEnd(iteration: Int) {
+        cycleTimes += time - cycleStarts.removeLast()
+        lastCycleEnd = time
+    }
+
+    // The runner's class lives in the user's TeamCode, so it's used through reflection
+    private class RunnerMethods(clazz: Class<*>) {
+        private val followTrajectorySequenceAsync: Method = clazz.methods.single {
+            it.name == "followTrajectorySequenceAsync" && it.parameterCount == 1
+        }
+
+        private val update by clazz.cachedMethod("update", Pose2d::class.java, Pose2d::class.java)
+        private val isBusy by clazz.cachedMethod("isBusy")
+        private val getLastPoseError by clazz.cachedMethod("getLastPoseError")
+
+        fun followTrajectorySequenceAsync(runner: Any, sequence: Any) {
+            followTrajectorySequenceAsync.invoke(runner, sequence)
+        }
+
+        fun update(runner: Any, pose: Pose2d, velocity: Pose2d) = update.invoke(runner, pose, velocity) as DriveSignal?
+
+        fun isBusy(runner: Any) = isBusy.invoke(runner) as Boolean
+
+        fun lastPoseError(runner: Any) = getLastPoseError.invoke(runner) as Pose2d
+    }
+}
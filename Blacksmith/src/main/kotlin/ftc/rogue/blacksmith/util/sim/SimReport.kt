@@ -0,0 +1,82 @@
+package ftc.rogue.blacksmith.util.sim
+
+import com.acmerobotics.roadrunner.geometry.Pose2d
+
+/**
+ * What happened during a simulated auto; see [SimDrive.runUntilDone].
+ *
+ * @author KG
+ */
+class SimReport internal constructor(
+    /**
+     * How long the auto took to finish, in (simulated) seconds.
+     */
+    val totalTime: Double,
+
+    /**
+     * How long each iteration of each `doTimes` took, in seconds, in the order they finished.
+     */
+    val cycleTimes: List<Double>,
+
+    /**
+     * When the first cycle started, in seconds; `NaN` if there weren't any.
+     */
+    val firstCycleStart: Double,
+
+    /**
+     * When the last cycle finished, in seconds; `NaN` if there weren't any.
+     */
+    val lastCycleEnd: Double,
+
+    /**
+     * Whether the auto was still running when it hit the time limit.
+     */
+    val timedOut: Boolean,
+
+    /**
+     * The furthest the robot ever got from where it should've been while following a path, in inches.
+     */
+    val maxTrackingError: Double,
+
+    /**
+     * How far the robot was from where it should've been while following a path, on average, in inches.
+     */
+    val averageTrackingError: Double,
+
+    val finalPose: Pose2d,
+
+    val actuators: List<SimActuator>,
+
+    /**
+     * Every [SimDrive.check] that failed, with the time it failed at.
+     */
+    val violations: List<String>,
+) {
+    /**
+     * Whether the auto finished in time without failing any checks.
+     */
+    val isFeasible: Boolean
+        get() = !timedOut && violations.isEmpty()
+
+    override fun toString() = buildString {
+        appendLine("Total time: %.3fs%s".format(totalTime, if (timedOut) " (TIMED OUT)" else ""))
+
+        cycleTimes.forEachIndexed { i, time ->
+            appendLine("  Cycle %2d: %.3fs".format(i, time))
+        }
+
+        if (cycleTimes.isNotEmpty()) {
+            appendLine("  Cycles ran from %.3fs to %.3fs".format(firstCycleStart, lastCycleEnd))
+        }
+
+        appendLine("Tracking error: %.3fin max, %.3fin average".format(maxTrackingError, averageTrackingError))
+        appendLine("Final pose: (%.2f, %.2f, %.1f°)".format(finalPose.x, finalPose.y, Math.toDegrees(finalPose.heading)))
+
+        actuators.forEach { appendLine("  $it") }
+
+        if (violations.isNotEmpty()) {
+            appendLine("Failed checks:")
+            violations.forEach { appendLine("  $it") }
+        }
+    }
+}
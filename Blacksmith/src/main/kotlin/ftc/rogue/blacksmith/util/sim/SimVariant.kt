@@ -0,0 +1,31 @@
+package ftc.rogue.blacksmith.util.sim
+
+/**
+ * One way of running an auto, for [AutoSimulation.runAll] & the [MarkerTimingOptimizer] to
+ * simulate with different parameters, in parallel.
+ *
+ * Since the [Scheduler][ftc.rogue.blacksmith.Scheduler] (and anything else global) can't be shared
+ * by autos running at the same time, every thread loads its own copy of the variant, and of
+ * everything it uses (Blacksmith, Road Runner, your TeamCode, ...). So it has to be a class with a
+ * no-arg constructor (not a lambda), and the parameters passed to it should be plain values (like
+ * numbers, strings, or [MarkerTimings]), not instances of your own classes.
+ *
+ * Java usage example:
+ * ```java
+ * public class CycleCountVariant implements SimVariant<Integer> {
+ *     @Override
+ *     public SimReport simulate(Integer numCycles) {
+ *         SimDrive drive = newSimDrive();
+ *         return AutoSimulation.run(drive, mainTraj(drive, numCycles));
+ *     }
+ * }
+ * ```
+ *
+ * @author KG
+ */
+interface SimVariant<P> {
+    /**
+     * Creates its own [SimDrive] & Anvil instance, and simulates the auto with them.
+     */
+    fun simulate(param: P): SimReport
+}
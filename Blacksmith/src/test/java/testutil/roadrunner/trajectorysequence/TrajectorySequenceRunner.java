@@ -54,19 +54,31 @@ public class TrajectorySequenceRunner {
 
     List<TrajectoryMarker> remainingMarkers = new ArrayList<>();
 
-    private final FtcDashboard dashboard;
+    private final @Nullable FtcDashboard dashboard;
     private final LinkedList<Pose2d> poseHistory = new LinkedList<>();
 
     public TrajectorySequenceRunner(TrajectoryFollower follower, PIDCoefficients headingPIDCoefficients) {
+        this(follower, headingPIDCoefficients, NanoClock.system(), FtcDashboard.getInstance());
+    }
+
+    // Same as TeamCode's: the clock & dashboard can be swapped out, e.g. to run it in a simulation,
+    // where the follower should be given the same clock; without a dashboard, nothing's sent
+    public TrajectorySequenceRunner(
+            TrajectoryFollower follower, PIDCoefficients headingPIDCoefficients,
+            NanoClock clock, @Nullable FtcDashboard dashboard
+    ) {
         this.follower = follower;
 
         turnController = new PIDFController(headingPIDCoefficients);
         turnController.setInputBounds(0, 2 * Math.PI);
 
-        clock = NanoClock.system();
+        this.clock = clock;
+
+        this.dashboard = dashboard;
 
-        dashboard = FtcDashboard.getInstance();
-        dashboard.setTelemetryTransmissionInterval(25);
+        if (dashboard != null) {
+            dashboard.setTelemetryTransmissionInterval(25);
+        }
     }
 
     public void followTrajectorySequenceAsync(TrajectorySequence trajectorySequence) {
@@ -178,6 +190,10 @@ public class TrajectorySequenceRunner {
             }
         }
 
+        if (dashboard == null) {
+            return driveSignal;
+        }
+
         poseHistory.add(poseEstimate);
 
         if (POSE_HISTORY_LIMIT > -1 && poseHistory.size() > POSE_HISTORY_LIMIT) {
@@ -4,11 +4,18 @@ import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode
 import ftc.rogue.blacksmith.internal.scheduler.Schedulables
 import ftc.rogue.blacksmith.internal.scheduler.Messages
 import ftc.rogue.blacksmith.internal.scheduler.NukeFlag
+import ftc.rogue.blacksmith.internal.scheduler.Schedulable
+import ftc.rogue.blacksmith.internal.scheduler.TickPhase
 import ftc.rogue.blacksmith.listeners.Listener
+import ftc.rogue.blacksmith.listeners.Pulsar
+import ftc.rogue.blacksmith.listeners.after
+import ftc.rogue.blacksmith.util.TimeSource
+import ftc.rogue.blacksmith.util.VirtualClock
 import io.mockk.every
 import io.mockk.mockk
 import org.junit.jupiter.api.*
 import org.junit.jupiter.api.Assertions.assertEquals
+import java.lang.management.ManagementFactory
 import kotlin.test.assertTrue
 
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
@@ -29,7 +36,7 @@ internal class SchedulerTest {
 
     @Test
     fun `scheduler properly runs everything and in the right order`() {
-        val listeners = Array(3) { mockk<Listener>() }
+        val listeners = Array(3) { mockk<Listener>(relaxUnitFun = true) }
         var output = ""
 
         listeners.forEachIndexed { index, listener ->
@@ -50,6 +57,49 @@ internal class SchedulerTest {
         assertEquals("01234", output)
     }
 
+    @Test
+    fun `scheduler runs schedulables in order of their phases`() {
+        var output = ""
+
+        Listener { true }.inPhase(TickPhase.ACTUATE).whileHigh { output += "5" }
+        Listener { true }.whileHigh { output += "2" }
+        Listener { true }.inPhase(TickPhase.SENSOR_READ).whileHigh { output += "1" }
+        Listener { true }.whileHigh { output += "3" }
+
+        Scheduler.beforeEach {
+            output += "0"
+        }
+
+        Scheduler.launch(linearOpMode) {
+            output += "4"
+            isStopped = true
+        }
+
+        assertEquals("012345", output)
+    }
+
+    @Test
+    fun `listener can check its condition in an earlier phase than its actions`() {
+        var output = ""
+
+        Listener { output += "c"; true }.readIn(TickPhase.SENSOR_READ).whileHigh { output += "a" }
+        Listener { true }.inPhase(TickPhase.SENSOR_READ).whileHigh { output += "s" }
+
+        // Listeners check their condition once when they're created
+        output = ""
+
+        Scheduler.launch(linearOpMode) {
+            isStopped = true
+        }
+
+        // The condition isn't checked again when the action runs
+        assertEquals("csa", output)
+
+        assertThrows<IllegalArgumentException> {
+            Listener { true }.inPhase(TickPhase.SENSOR_READ).readIn(TickPhase.ACTUATE)
+        }
+    }
+
     @Test
     fun `scheduler handles adding and deleting listeners from listener`() {
         val listeners = Array(4) { mockk<Listener>(relaxed = true) }
@@ -91,6 +141,69 @@ internal class SchedulerTest {
         assertEquals(expected, actual)
     }
 
+    @Test
+    fun `scheduler delivers async messages on its own thread`() {
+        val msg = 9823475L
+        val mainThread = Thread.currentThread()
+
+        val received = mutableListOf<Int>()
+
+        Scheduler.onValue<Int>(msg) {
+            assertTrue("delivered on the scheduler's thread") { Thread.currentThread() == mainThread }
+            received += this
+        }
+
+        val producers = List(4) { p ->
+            Thread { for (i in 0 until 50) Scheduler.emitAsync(msg, p * 50 + i) }
+        }
+        producers.forEach(Thread::start)
+        producers.forEach(Thread::join)
+
+        assertTrue("nothing delivered before a tick") { received.isEmpty() }
+
+        Scheduler.launchManually({ received.size < 200 })
+
+        assertEquals((0 until 200).toList(), received.sorted())
+
+        // Each producer's own messages stay in order
+        for (p in 0 until 4) {
+            assertEquals((p * 50 until p * 50 + 50).toList(), received.filter { it / 50 == p })
+        }
+    }
+
+    @Test
+    fun `scheduler coalesces async messages and counts dropped ones`() {
+        val coalesced = mutableListOf<Int>()
+        var numReceived = 0
+
+        Scheduler.onValue<Int>("latest") { coalesced += this }
+        Scheduler.on("spam") { numReceived++ }
+
+        for (i in 0 until 100) {
+            Scheduler.emitAsync("latest", i, coalesce = true)
+        }
+
+        val capacity = Scheduler.internal.asyncMessages.capacity
+        val accepted = (0 until capacity + 44).count { Scheduler.emitAsync("spam") }
+
+        Scheduler.debug({ !isStopped }) {
+            assertEquals(0, numPendingAsyncMessages)
+            assertEquals(45, numDroppedAsyncMessages)
+            assertEquals(99, numCoalescedAsyncMessages)
+            isStopped = true
+        }
+
+        // The coalesced message only took up a single slot
+        assertEquals(listOf(99), coalesced)
+        assertEquals(capacity - 1, accepted)
+        assertEquals(capacity - 1, numReceived)
+
+        val queue = Scheduler.internal.asyncMessages
+        assertEquals(99, queue.numCoalesced)
+        assertEquals(45, queue.numDropped)
+        assertEquals(capacity, queue.highWaterMark)
+    }
+
     @Test
     fun `scheduler debug works (enough)`() {
         for (i in 0 until 3) {
@@ -109,6 +222,70 @@ internal class SchedulerTest {
         }
     }
 
+    @Test
+    fun `scheduler profiler records each schedulable`() {
+        Listener { Thread.sleep(2); true }.whileHigh {}
+        Listener { true }.whileHigh {}
+
+        Scheduler.enableProfiling()
+
+        var ticks = 0
+
+        try {
+            Scheduler.debug({ !isStopped }) {
+                if (++ticks < 3) return@debug
+
+                // The current tick's loop & afterEach times are only recorded once it's done
+                val profiler = profiler!!
+
+                assertEquals(2, profiler.entries.size)
+                assertEquals(2, profiler.loopTimes.count)
+                assertEquals(2, profiler.afterEachTimes.count)
+                assertTrue("slowest listener is the sleeping one") { profiler.slowest(1)[0].times.p50 >= 2 }
+                isStopped = true
+            }
+        } finally {
+            Scheduler.disableProfiling()
+        }
+    }
+
+    @Test
+    fun `scheduler profiler keeps combined listeners apart`() {
+        val a = Listener { true }
+        val b = Listener { false }
+
+        (a and b).whileHigh {}
+        (a or b).whileHigh {}
+
+        Scheduler.enableProfiling()
+
+        try {
+            Scheduler.debug({ !isStopped }) {
+                val names = profiler!!.entries.map { it.name }
+
+                assertEquals(2, names.size)
+                assertTrue("entries are named after their conditions") { names.any { it.startsWith("and(") } && names.any { it.startsWith("or(") } }
+                isStopped = true
+            }
+        } finally {
+            Scheduler.disableProfiling()
+        }
+    }
+
+    @Test
+    fun `async messages can be delivered before the scheduler is launched`() {
+        var received = 0
+
+        Scheduler.onValue<Int>("latest") { received = this }
+
+        Scheduler.emitAsync("latest", 1, coalesce = true)
+        Scheduler.emitAsync("latest", 2, coalesce = true)
+        assertEquals(0, received)
+
+        Scheduler.deliverAsyncMessages()
+        assertEquals(2, received)
+    }
+
     @Test
     fun `scheduler nuke works (enough) #1`() {
         for (i in 0 until 3) {
@@ -149,4 +326,114 @@ internal class SchedulerTest {
            Scheduler.nuke(NukeFlag(29))
        }
     }
+
+    @Test
+    fun `scheduler paces loop to the given rate`() {
+        var ticks = 0
+        val startTime = System.nanoTime()
+
+        Scheduler.launchAtRate(linearOpMode, 200.0) {
+            if (++ticks == 20) isStopped = true
+        }
+
+        val elapsedMs = (System.nanoTime() - startTime) / 1e6
+        assertTrue("elapsed ($elapsedMs) >= 95ms") { elapsedMs >= 95 }
+    }
+
+    @Test
+    fun `scheduler runs in virtual time`() {
+        val clock = VirtualClock()
+        Scheduler.setTimeSource(clock)
+
+        var ticks = 0
+        var pulses = 0
+        var timerDoneAt = -1L
+
+        after(500).milliseconds { timerDoneAt = clock.millis() }
+        Pulsar(100).onPulse { pulses++ }
+        after(30).seconds { isStopped = true }
+
+        val startTime = System.nanoTime()
+
+        try {
+            Scheduler.launchAtRate(linearOpMode, 50.0) { ticks++ }
+        } finally {
+            Scheduler.setTimeSource(TimeSource.SYSTEM)
+        }
+
+        val elapsedMs = (System.nanoTime() - startTime) / 1e6
+
+        assertEquals(500, timerDoneAt)
+        // The pulsar can only fire on a tick, so it pulses every 120ms at a 20ms loop time
+        assertEquals(30_000 / 120, pulses)
+        assertEquals(30_000 / 20 + 1, ticks)
+        assertTrue("30s of virtual time ran in $elapsedMs ms") { elapsedMs < 5_000 }
+    }
+
+    @Test
+    fun `scheduler debug reports loop overruns`() {
+        val clock = VirtualClock()
+        Scheduler.setTimeSource(clock)
+
+        var ticks = 0
+
+        Scheduler.setLoopRate(200.0, skipMissedTicks = true)
+
+        try {
+            Scheduler.debug({ !isStopped }) {
+                // Each of the first 3 ticks takes 10ms of a 5ms slot
+                if (++ticks <= 3) clock.advance(10)
+
+                if (ticks == 5) {
+                    assertEquals(5.0, targetLoopTime)
+                    assertEquals(3, numOverruns)
+                    assertEquals(3, numSkippedTicks)
+                    assertEquals(5.0, worstOverrunTime)
+                    isStopped = true
+                }
+            }
+        } finally {
+            Scheduler.setTimeSource(TimeSource.SYSTEM)
+        }
+
+        assertEquals(5, ticks)
+    }
+
+    @Test
+    fun `scheduler does not allocate while ticking`() {
+        val counters = Array(64) { TickCounter() }
+        counters.forEach(Scheduler::hook)
+
+        val threadBean = ManagementFactory.getThreadMXBean() as com.sun.management.ThreadMXBean
+        val threadId = Thread.currentThread().id
+
+        fun allocatedBytesOver(ticks: Int): Long {
+            val target = counters[0].ticks + ticks
+            val before = threadBean.getThreadAllocatedBytes(threadId)
+            Scheduler.launchManually({ counters[0].ticks < target })
+            return threadBean.getThreadAllocatedBytes(threadId) - before
+        }
+
+        // Warm up so that any one-time allocations (class loading, array growth) are out of the way
+        allocatedBytesOver(10_000)
+
+        // The fixed cost of launching the scheduler is subtracted out, leaving only per-tick costs
+        val launchCost = allocatedBytesOver(1)
+        val tickCost = allocatedBytesOver(10_000) - launchCost
+
+        assertEquals(20_001, counters[63].ticks)
+        assertTrue("allocated $tickCost bytes over 10k ticks") { tickCost < 1_024 }
+    }
+
+    private class TickCounter : Schedulable {
+        var ticks = 0
+
+        override fun tick() {
+            ticks++
+        }
+
+        override fun destroy() {
+            Scheduler.unhook(this)
+        }
+    }
 }
@@ -0,0 +1,134 @@
+package ftc.rogue.blacksmith.internal.anvil
+
+import com.acmerobotics.roadrunner.geometry.Pose2d
+import com.acmerobotics.roadrunner.trajectory.MarkerCallback
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.TestInstance
+import org.junit.jupiter.api.io.TempDir
+import java.io.File
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.Future
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+internal class TrajectoryCacheTest {
+    // Stand-ins for the shape of a built sequence (segments sharing curves, markers, profiles)
+    private enum class Kind { PATH, TURN }
+
+    private object Tangent
+
+    private class Curve(val coefficients: DoubleArray, val length: Double)
+
+    private class Segment(
+        val kind: Kind,
+        val curve: Curve?,
+        val heading: Any,
+        val profile: List<Double>,
+        val markers: List<Marker>,
+    )
+
+    private data class Marker(val time: Double, val callback: MarkerCallback)
+
+    private class Sequence(val segments: List<Segment>, val end: Pose2d)
+
+    private class HasLambda(val lambda: () -> Unit)
+
+    private class HasTransient(val length: Double) {
+        @Transient
+        var baking: Future<*>? = CompletableFuture.completedFuture(length)
+    }
+
+    private val drive = Any()
+
+    @AfterEach
+    fun tearDown() {
+        TrajectoryCache.directory = null
+    }
+
+    @Test
+    fun `cached sequences are loaded back with the new callbacks`(@TempDir dir: File) {
+        TrajectoryCache.directory = dir
+
+        val oldCallbacks = listOf(MarkerCallback {}, MarkerCallback {})
+        val newCallbacks = listOf(MarkerCallback {}, MarkerCallback {})
+
+        val curve = Curve(doubleArrayOf(1.0, 2.0, 3.0), 4.5)
+
+        val sequence = Sequence(
+            listOf(
+                Segment(Kind.PATH, curve, Tangent, listOf(0.0, 0.5, 1.0), listOf(Marker(0.5, oldCallbacks[1]))),
+                Segment(Kind.TURN, null, curve, emptyList(), listOf(Marker(1.0, oldCallbacks[0]))),
+            ),
+            Pose2d(1.0, 2.0, 3.0),
+        )
+
+        TrajectoryCache.save("key", sequence, oldCallbacks)
+
+        val loaded = TrajectoryCache.load("key", newCallbacks) as Sequence
+        val (path, turn) = loaded.segments
+
+        assertEquals(Pose2d(1.0, 2.0, 3.0), loaded.end)
+        assertEquals(Kind.PATH, path.kind)
+        assertSame(Tangent, path.heading)
+        assertArrayEquals(doubleArrayOf(1.0, 2.0, 3.0), path.curve!!.coefficients)
+        assertEquals(listOf(0.0, 0.5, 1.0), path.profile)
+
+        // Shared objects stay shared
+        assertSame(path.curve, turn.heading)
+
+        assertEquals(Marker(0.5, newCallbacks[1]), path.markers.single())
+        assertEquals(Marker(1.0, newCallbacks[0]), turn.markers.single())
+    }
+
+    @Test
+    fun `sequences that aren't plain data aren't cached`(@TempDir dir: File) {
+        TrajectoryCache.directory = dir
+
+        TrajectoryCache.save("lambda", HasLambda {}, emptyList())
+        TrajectoryCache.save("callback", Marker(0.0) {}, emptyList())
+
+        assertNull(TrajectoryCache.load("lambda", emptyList()))
+        assertNull(TrajectoryCache.load("callback", emptyList()))
+        assertTrue(dir.listFiles()!!.isEmpty())
+    }
+
+    @Test
+    fun `transient fields are skipped`(@TempDir dir: File) {
+        TrajectoryCache.directory = dir
+
+        TrajectoryCache.save("key", HasTransient(4.5), emptyList())
+
+        val loaded = TrajectoryCache.load("key", emptyList()) as HasTransient
+
+        assertEquals(4.5, loaded.length)
+        assertNull(loaded.baking)
+    }
+
+    @Test
+    fun `cache keys only match identical commands`(@TempDir dir: File) {
+        fun keyOf(vararg commands: AnvilCommand, startPose: Pose2d = Pose2d()) =
+            TrajectoryCache.keyFor(drive, this, startPose, commands.toList())
+
+        assertNull(keyOf(AnvilCommand("forward", doubleArrayOf(10.0))))
+
+        TrajectoryCache.directory = dir
+
+        val key = keyOf(AnvilCommand("forward", doubleArrayOf(10.0)), AnvilCommand("turn", doubleArrayOf(1.0)))
+
+        assertNotNull(key)
+        assertEquals(key, keyOf(AnvilCommand("forward", doubleArrayOf(10.0)), AnvilCommand("turn", doubleArrayOf(1.0))))
+
+        // Marker callbacks aren't part of the key, just whether there is one
+        assertEquals(
+            keyOf(AnvilCommand("addTemporalMarker", doubleArrayOf(0.0), MarkerCallback {})),
+            keyOf(AnvilCommand("addTemporalMarker", doubleArrayOf(0.0), MarkerCallback {})),
+        )
+
+        assertNotEquals(key, keyOf(AnvilCommand("forward", doubleArrayOf(10.0)), AnvilCommand("turn", doubleArrayOf(1.5))))
+        assertNotEquals(key, keyOf(AnvilCommand("turn", doubleArrayOf(1.0)), AnvilCommand("forward", doubleArrayOf(10.0))))
+        assertNotEquals(key, keyOf(AnvilCommand("forward", doubleArrayOf(10.0)), AnvilCommand("turn", doubleArrayOf(1.0)), startPose = Pose2d(1.0)))
+
+        assertNull(keyOf(AnvilCommand("forward", doubleArrayOf(10.0)), AnvilCommand("withRawBuilder", doubleArrayOf(), isCacheable = false)))
+    }
+}
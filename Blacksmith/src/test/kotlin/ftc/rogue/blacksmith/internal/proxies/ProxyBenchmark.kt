@@ -0,0 +1,76 @@
+package ftc.rogue.blacksmith.internal.proxies
+
+import com.acmerobotics.roadrunner.geometry.Pose2d
+import ftc.rogue.blacksmith.Anvil
+import ftc.rogue.blacksmith.internal.util.isMethodCachingEnabled
+import ftc.rogue.blacksmith.units.AngleUnit
+import ftc.rogue.blacksmith.units.DistanceUnit
+import ftc.rogue.blacksmith.units.GlobalUnits
+import ftc.rogue.blacksmith.units.TimeUnit
+import testutil.roadrunner.drive.SampleMecanumDrive
+import testutil.roadrunner.trajectorysequence.TrajectorySequence
+import kotlin.math.PI
+
+// Builds a cycling auto through Anvil with the proxies' methods cached (the default), and with
+// them looked up on every call (like before they were cached), and prints how long each took.
+// Not a test, since the timings are too noisy to assert on; run it by hand.
+fun main() {
+    GlobalUnits.setUnits(DistanceUnit.INCHES, AngleUnit.RADIANS, TimeUnit.SECONDS)
+    Anvil.setIncrementalBuilds(false)
+
+    val drive = SampleMecanumDrive(null)
+
+    val modes = linkedMapOf(
+        "Uncached (lookup/call)" to false,
+        "Cached (default)" to true,
+    )
+
+    println("%-24s %12s".format("Mode", "Build (ms)"))
+
+    val medians = try {
+        modes.mapValues { (name, caching) ->
+            isMethodCachingEnabled = caching
+
+            repeat(WARMUP_RUNS) { buildOnce(drive) }
+
+            val medianMs = List(TIMED_RUNS) { buildOnce(drive) }.sorted()[TIMED_RUNS / 2] / 1e6
+            println("%-24s %12.2f".format(name, medianMs))
+
+            medianMs
+        }
+    } finally {
+        isMethodCachingEnabled = true
+        Anvil.setIncrementalBuilds(true)
+    }
+
+    val (uncached, cached) = medians.values.toList()
+    println("Caching saves %.2fms (%.1f%%) per build".format(uncached - cached, 100 * (uncached - cached) / uncached))
+}
+
+private const val WARMUP_RUNS = 10
+private const val TIMED_RUNS = 25
+
+private fun buildOnce(drive: SampleMecanumDrive): Long {
+    val anvil = Anvil.forgeTrajectory(drive, Pose2d(-36.0, -63.0, PI / 2)) {
+        splineTo(-30.0, -6.0, PI / 4)
+        addTemporalMarker { }
+
+        doTimes(5) {
+            setReversed(true)
+            splineTo(-58.0, -12.0, PI)
+            addTemporalMarker(-.2) { }
+            setReversed(false)
+
+            waitTime(.1)
+
+            splineTo(-30.0, -6.0, PI / 4)
+            addTemporalMarker(-.15) { }
+        }
+
+        lineToLinearHeading(-12.0, -12.0, PI / 2)
+    }
+
+    val start = System.nanoTime()
+    anvil.build<TrajectorySequence>()
+    return System.nanoTime() - start
+}
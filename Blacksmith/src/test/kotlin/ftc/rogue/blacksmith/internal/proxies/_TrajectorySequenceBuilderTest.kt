@@ -2,8 +2,49 @@
 
 package ftc.rogue.blacksmith.internal.proxies
 
+import com.acmerobotics.roadrunner.geometry.Pose2d
+import com.acmerobotics.roadrunner.geometry.Vector2d
+import io.mockk.every
+import io.mockk.mockk
 import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.TestInstance
+import testutil.roadrunner.drive.SampleMecanumDrive
+import testutil.roadrunner.trajectorysequence.EmptySequenceException
+import testutil.roadrunner.trajectorysequence.TrajectorySequenceBuilder
 
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
 internal class _TrajectorySequenceBuilderTest {
-    // TODO ~~totally going to write tests for this I swear 100%~~
+    private val drive = mockk<SampleMecanumDrive>()
+
+    init {
+        every { drive.trajectorySequenceBuilder(any()) } answers { newBuilder() }
+    }
+
+    @Test
+    fun `proxy correctly forwards calls to the builder`() {
+        val builder = _TrajectorySequenceBuilder(_SampleMecanumDrive(drive), Pose2d())
+            .forward(10.0)
+            .turn(Math.PI / 2)
+            .waitSeconds(1.0)
+            .splineTo(Vector2d(20.0, 20.0), 0.0)
+
+        assertDoesNotThrow {
+            builder.build()
+        }
+        assertEquals(4, builder.getSequenceSegments().size)
+    }
+
+    @Test
+    fun `proxy rethrows the builder's own exceptions`() {
+        val builder = _TrajectorySequenceBuilder(_SampleMecanumDrive(drive), Pose2d())
+
+        assertThrows(EmptySequenceException::class.java) {
+            builder.build()
+        }
+    }
+
+    private fun newBuilder() = TrajectorySequenceBuilder(
+        Pose2d(), SampleMecanumDrive.VEL_CONSTRAINT, SampleMecanumDrive.ACCEL_CONSTRAINT, Math.PI, Math.PI,
+    )
 }
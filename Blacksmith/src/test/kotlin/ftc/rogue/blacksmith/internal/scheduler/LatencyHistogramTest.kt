@@ -0,0 +1,38 @@
+package ftc.rogue.blacksmith.internal.scheduler
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.TestInstance
+import kotlin.test.assertTrue
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+internal class LatencyHistogramTest {
+    @Test
+    fun `histogram percentiles are within bucket precision`() {
+        val histogram = LatencyHistogram()
+
+        // 1ms, 2ms, ..., 100ms
+        for (i in 1..100) {
+            histogram.record(i * 1_000_000L)
+        }
+
+        assertEquals(100, histogram.count)
+        assertEquals(100.0, histogram.max)
+
+        assertTrue("p50 (${histogram.p50}) ~= 50") { histogram.p50 in 50.0..62.5 }
+        assertTrue("p95 (${histogram.p95}) ~= 95") { histogram.p95 in 95.0..100.0 }
+        assertTrue("p99 (${histogram.p99}) ~= 99") { histogram.p99 in 99.0..100.0 }
+    }
+
+    @Test
+    fun `histogram resets properly`() {
+        val histogram = LatencyHistogram()
+
+        histogram.record(5_000_000L)
+        histogram.reset()
+
+        assertEquals(0, histogram.count)
+        assertEquals(0.0, histogram.p99)
+        assertEquals(0.0, histogram.max)
+    }
+}
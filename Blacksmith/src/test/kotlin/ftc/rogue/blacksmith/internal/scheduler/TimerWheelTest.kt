@@ -0,0 +1,85 @@
+package ftc.rogue.blacksmith.internal.scheduler
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.TestInstance
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+internal class TimerWheelTest {
+    private class CountingEntry(val onExpire: () -> Unit = {}) : TimerWheel.Entry() {
+        var fired = 0
+
+        override fun onExpire() {
+            fired++
+            onExpire.invoke()
+        }
+    }
+
+    @Test
+    fun `timer wheel only expires due entries`() {
+        val wheel = TimerWheel(numSlots = 16)
+        wheel.advance(0)
+
+        val soon = CountingEntry()
+        val later = CountingEntry()
+        val muchLater = CountingEntry() // Shares a slot with 'soon', but a few laps out
+
+        wheel.schedule(soon, 5)
+        wheel.schedule(later, 10)
+        wheel.schedule(muchLater, 5 + 16 * 3)
+
+        wheel.advance(4)
+        assertEquals(0, soon.fired)
+
+        wheel.advance(7)
+        assertEquals(1, soon.fired)
+        assertEquals(0, later.fired)
+
+        wheel.advance(40)
+        assertEquals(1, later.fired)
+        assertEquals(0, muchLater.fired)
+
+        wheel.advance(1000)
+        assertEquals(1, soon.fired)
+        assertEquals(1, later.fired)
+        assertEquals(1, muchLater.fired)
+        assertEquals(0, wheel.size)
+    }
+
+    @Test
+    fun `timer wheel handles cancelling & rescheduling`() {
+        val wheel = TimerWheel(numSlots = 16)
+        wheel.advance(0)
+
+        val cancelled = CountingEntry()
+        val rescheduled = CountingEntry()
+
+        // Cancels the other entry that's due in the same advance
+        val canceller = CountingEntry { wheel.cancel(cancelled) }
+
+        wheel.schedule(canceller, 3)
+        wheel.schedule(cancelled, 3)
+        wheel.schedule(rescheduled, 3)
+        wheel.schedule(rescheduled, 20)
+
+        wheel.advance(5)
+        assertEquals(1, canceller.fired)
+        assertEquals(0, cancelled.fired)
+        assertEquals(0, rescheduled.fired)
+
+        wheel.advance(20)
+        assertEquals(1, rescheduled.fired)
+    }
+
+    @Test
+    fun `timer wheel fires overdue entries on the next advance`() {
+        val wheel = TimerWheel(numSlots = 16)
+        wheel.advance(100)
+
+        val entry = CountingEntry()
+        wheel.schedule(entry, 50)
+
+        wheel.advance(100)
+        assertEquals(1, entry.fired)
+    }
+}
@@ -1,5 +1,6 @@
 package ftc.rogue.blacksmith.listeners
 
+import ftc.rogue.blacksmith.Scheduler
 import org.junit.jupiter.api.Assertions.assertAll
 import org.junit.jupiter.api.Assertions.assertEquals
 import org.junit.jupiter.api.Test
@@ -64,4 +65,34 @@ internal class ListenerTest {
             { assertEquals(0, clearedSize) }
         )
     }
+
+    @Test
+    fun `combined listeners only evaluate shared conditions once per tick`() {
+        var evaluations = 0
+        var pressed = false
+
+        val button = Listener { evaluations++; pressed }
+        val other = Listener { true }
+
+        var output = ""
+
+        val listeners = listOf(
+            button.onRise { output += 'a' },
+            (button and other).onRise { output += 'b' },
+            (button or { false }).onRise { output += 'c' },
+            (!button).onFall { output += 'd' },
+        )
+
+        evaluations = 0
+        var ticks = 0
+
+        Scheduler.launchManually({ ticks < 3 }) {
+            pressed = ++ticks >= 2
+        }
+
+        assertEquals(3, evaluations)
+        assertEquals("abcd", output)
+
+        listeners.forEach(Listener::destroy)
+    }
 }
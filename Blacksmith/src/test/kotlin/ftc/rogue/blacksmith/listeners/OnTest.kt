@@ -1,6 +1,8 @@
 package ftc.rogue.blacksmith.listeners
 
 import ftc.rogue.blacksmith.Scheduler
+import ftc.rogue.blacksmith.util.TimeSource
+import ftc.rogue.blacksmith.util.VirtualClock
 import org.junit.jupiter.api.Test
 import org.junit.jupiter.api.TestInstance
 import kotlin.test.assertTrue
@@ -72,4 +74,66 @@ internal class OnTest {
 
         assertTrue { nums == listOf(13, 14) }
     }
+
+    @Test
+    fun `on-every() test #5`() {
+        val clock = VirtualClock()
+        Scheduler.setTimeSource(clock)
+
+        var calls = 0
+        val nums = mutableListOf<Int>()
+
+        On { calls == 2 }
+            .every()
+            .single()
+            .timeBeingTrue()
+            .extendFor(30)
+            .milliseconds()
+            .forever()
+            .execute { nums += calls }
+
+        try {
+            Scheduler.launchManually({ calls++ < 8 }) {
+                clock.advance(10)
+            }
+        } finally {
+            Scheduler.setTimeSource(TimeSource.SYSTEM)
+        }
+
+        assertTrue { nums == listOf(2, 3, 4, 5) }
+    }
+
+    @Test
+    fun `on-the-nth() test #1`() {
+        var calls = 0
+        val nums = mutableListOf<Int>()
+
+        On { calls in 1..3 || calls in 10..12 }
+            .theSecond()
+            .timeBeingTrue()
+            .forever()
+            .execute { nums += calls }
+
+        Scheduler.launchManually({ calls++ < 16 })
+
+        assertTrue { nums == listOf(2) }
+    }
+
+    @Test
+    fun `on-the-nth() test #2`() {
+        var calls = 0
+        val nums = mutableListOf<Int>()
+
+        On { calls in 1..3 || calls in 10..12 }
+            .theFirst()
+            .timeBecomingTrue()
+            .extendFor(2)
+            .iterations()
+            .forever()
+            .execute { nums += calls }
+
+        Scheduler.launchManually({ calls++ < 16 })
+
+        assertTrue { nums == listOf(1, 2, 3) }
+    }
 }
@@ -0,0 +1,63 @@
+package ftc.rogue.blacksmith.listeners
+
+import com.qualcomm.robotcore.hardware.Gamepad
+import ftc.rogue.blacksmith.Scheduler
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.TestInstance
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+internal class ReforgedGamepadTest {
+    @Test
+    fun `gamepad listeners detect edges from the snapshot`() {
+        val gamepad = Gamepad()
+        val gamepadx1 = ReforgedGamepad(gamepad)
+
+        var output = ""
+
+        val listeners = listOf(
+            gamepadx1.a.onRise { output += 'a' }.onFall { output += 'A' },
+            gamepadx1.b.onRise { output += 'b' },
+            gamepadx1.left_trigger.whileHigh { output += 't' },
+        )
+
+        var ticks = 0
+
+        Scheduler.launchManually({ ticks < 4 }) {
+            ticks++
+            gamepad.a = ticks == 1 || ticks == 2
+            gamepad.b = ticks == 2
+            gamepad.left_trigger = if (ticks == 3) .75f else 0f
+        }
+
+        assertEquals("abAt", output)
+
+        listeners.forEach(Listener::destroy)
+    }
+
+    @Test
+    fun `gamepad listeners all see the same snapshot within a tick`() {
+        val gamepad = Gamepad()
+        val gamepadx1 = ReforgedGamepad(gamepad)
+
+        var output = ""
+
+        // Pressing 'b' mid-tick shouldn't be seen until the next tick
+        val listeners = listOf(
+            gamepadx1.a.onRise { output += 'a'; gamepad.b = true },
+            gamepadx1.b.whileHigh { output += 'b' },
+        )
+
+        var ticks = 0
+
+        Scheduler.launchManually({ ticks < 3 }) {
+            ticks++
+            gamepad.a = true // Pressed after the first tick
+        }
+
+        // (Reading the gamepad directly would've given "abb")
+        assertEquals("ab", output)
+
+        listeners.forEach(Listener::destroy)
+    }
+}
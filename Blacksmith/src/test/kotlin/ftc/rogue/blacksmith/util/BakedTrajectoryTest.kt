@@ -0,0 +1,120 @@
+package ftc.rogue.blacksmith.util
+
+import com.acmerobotics.roadrunner.geometry.Pose2d
+import com.acmerobotics.roadrunner.geometry.Vector2d
+import com.acmerobotics.roadrunner.trajectory.Trajectory
+import com.acmerobotics.roadrunner.trajectory.TrajectoryBuilder
+import com.acmerobotics.roadrunner.trajectory.constraints.ProfileAccelerationConstraint
+import com.acmerobotics.roadrunner.trajectory.constraints.TranslationalVelocityConstraint
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.TestInstance
+import kotlin.math.PI
+import kotlin.math.abs
+import kotlin.random.Random
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+internal class BakedTrajectoryTest {
+    private fun spline(startHeading: Double) = TrajectoryBuilder(
+        Pose2d(0.0, 0.0, startHeading),
+        baseVelConstraint = TranslationalVelocityConstraint(50.0),
+        baseAccelConstraint = ProfileAccelerationConstraint(40.0),
+    ).splineTo(Vector2d(48.0, 24.0), Math.toRadians(90.0)).build()
+
+    private fun angleDiff(a: Double, b: Double): Double {
+        val diff = (a - b) % (2 * PI)
+        return abs(if (diff > PI) diff - 2 * PI else if (diff < -PI) diff + 2 * PI else diff)
+    }
+
+    // The most each of the trajectory's acceleration's components gets to, checked finely
+    private fun maxAccels(trajectory: Trajectory): DoubleArray {
+        val max = DoubleArray(3)
+        var t = 0.0
+
+        while (t <= trajectory.duration()) {
+            val accel = trajectory.acceleration(t)
+
+            max[0] = maxOf(max[0], abs(accel.x))
+            max[1] = maxOf(max[1], abs(accel.y))
+            max[2] = maxOf(max[2], abs(accel.heading))
+
+            t += 0.0001
+        }
+
+        return max
+    }
+
+    private fun assertErrorBounded(trajectory: Trajectory, dt: Double) {
+        val baked = BakedTrajectory.bake(trajectory, dt)
+        val sample = BakedTrajectory.Sample()
+
+        val maxAccels = maxAccels(trajectory)
+
+        // Linear interpolation is off by at most dt²/8 times the max second derivative, and a
+        // bit of slack covers the max acceleration being found on a grid
+        val poseBounds = maxAccels.map { 1.5 * it * dt * dt / 8 + 1e-9 }
+        val velBounds = maxAccels.map { 1.5 * it * dt / 2 + 1e-9 }
+
+        val random = Random(0)
+
+        repeat(10_000) {
+            val t = random.nextDouble() * trajectory.duration()
+
+            baked.sample(t, sample)
+
+            val pose = trajectory[t]
+            val vel = trajectory.velocity(t)
+
+            assertTrue(abs(sample.x - pose.x) <= poseBounds[0], "x off by ${abs(sample.x - pose.x)} at t=$t")
+            assertTrue(abs(sample.y - pose.y) <= poseBounds[1], "y off by ${abs(sample.y - pose.y)} at t=$t")
+            assertTrue(angleDiff(sample.heading, pose.heading) <= poseBounds[2], "heading off by ${angleDiff(sample.heading, pose.heading)} at t=$t")
+
+            assertTrue(abs(sample.velX - vel.x) <= velBounds[0], "velX off by ${abs(sample.velX - vel.x)} at t=$t")
+            assertTrue(abs(sample.velY - vel.y) <= velBounds[1], "velY off by ${abs(sample.velY - vel.y)} at t=$t")
+            assertTrue(abs(sample.velHeading - vel.heading) <= velBounds[2], "velHeading off by ${abs(sample.velHeading - vel.heading)} at t=$t")
+        }
+    }
+
+    @Test
+    fun `interpolation error is bounded by dt squared times max acceleration`() {
+        assertErrorBounded(spline(0.0), BakedTrajectory.DEFAULT_DT)
+        assertErrorBounded(spline(0.0), 0.02)
+    }
+
+    @Test
+    fun `headings that wrap around 0 are interpolated the short way`() {
+        assertErrorBounded(spline(Math.toRadians(-30.0)), BakedTrajectory.DEFAULT_DT)
+    }
+
+    @Test
+    fun `times outside the trajectory are clamped to its ends`() {
+        val trajectory = spline(0.0)
+        val baked = BakedTrajectory.bake(trajectory)
+        val sample = BakedTrajectory.Sample()
+
+        baked.sample(-1.0, sample)
+        assertEquals(trajectory.start().x, sample.x, 1e-9)
+        assertEquals(trajectory.start().y, sample.y, 1e-9)
+
+        baked.sample(trajectory.duration() + 1.0, sample)
+        assertEquals(trajectory.end().x, sample.x, 1e-9)
+        assertEquals(trajectory.end().y, sample.y, 1e-9)
+        assertEquals(0.0, angleDiff(trajectory.end().heading, sample.heading), 1e-9)
+    }
+
+    @Test
+    fun `samples land exactly on the trajectory's start & end`() {
+        val trajectory = spline(0.0)
+        val baked = BakedTrajectory.bake(trajectory, 0.007)
+
+        assertEquals(trajectory.duration(), baked.duration)
+        assertTrue(baked.numSamples >= trajectory.duration() / 0.007)
+    }
+
+    @Test
+    fun `dt must be positive`() {
+        assertThrows(IllegalArgumentException::class.java) {
+            BakedTrajectory.bake(spline(0.0), 0.0)
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package ftc.rogue.blacksmith.util.sim
+
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.TestInstance
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+internal class MarkerTimingOptimizerTest {
+    // Drives for 2s while the lift (which takes 1s to go up) is raised, waits a bit, then deposits
+    private class LiftVariant : SimVariant<MarkerTimings> {
+        override fun simulate(param: MarkerTimings): SimReport {
+            val drive = newSimDrive()
+            val lift = drive.addActuator("lift", maxSpeed = 100.0)
+
+            // The deposit's just after the wait, so that it's in its own segment even if there's no wait
+            drive.followTrajectorySequenceAsync(drive.sequence {
+                addTemporalMarker(param["liftOffset"]) { lift.target = 100.0 }
+                    .waitSeconds(2.0)
+                    .waitSeconds(param["wait"])
+                    .UNSTABLE_addTemporalMarkerOffset(.05) {
+                        drive.check("lift is up before depositing", lift.isAtTarget && lift.position == 100.0)
+                    }
+                    .waitSeconds(.1)
+            })
+            return drive.runUntilDone()
+        }
+    }
+
+    @Test
+    fun `optimizer finds the fastest timings that pass every check`() {
+        val result = MarkerTimingOptimizer(numThreads = 2)
+            .tune("liftOffset", initial = 1.5, min = 0.0, max = 2.0, step = .1)
+            .tune("wait", initial = 1.0, min = 0.0, max = 2.0, step = .1)
+            .optimize(LiftVariant::class.java)
+
+        assertTrue(result.baselineReport.isFeasible)
+        assertTrue(result.bestReport.isFeasible)
+
+        // Only possible by raising the lift earlier, which doesn't save any time on its own
+        assertEquals(0.0, result.best["wait"], 1e-9)
+        assertTrue(result.best["liftOffset"] <= 1.0)
+        assertEquals(1.0, result.timeSaved, .02)
+    }
+
+    @Test
+    fun `optimizer fixes failing checks before going for time`() {
+        val result = MarkerTimingOptimizer(numThreads = 2, numGenerations = 0)
+            .tune("liftOffset", initial = 1.5, min = 0.0, max = 2.0, step = .1)
+            .tune("wait", initial = 0.0, min = 0.0, max = 2.0, step = .1)
+            .optimize(LiftVariant::class.java)
+
+        assertFalse(result.baselineReport.isFeasible)
+        assertTrue(result.bestReport.isFeasible)
+    }
+}
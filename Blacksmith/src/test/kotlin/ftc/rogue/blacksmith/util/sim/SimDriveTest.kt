@@ -0,0 +1,215 @@
+package ftc.rogue.blacksmith.util.sim
+
+import com.acmerobotics.roadrunner.geometry.Pose2d
+import ftc.rogue.blacksmith.Anvil
+import ftc.rogue.blacksmith.Scheduler
+import ftc.rogue.blacksmith.units.AngleUnit
+import ftc.rogue.blacksmith.units.DistanceUnit
+import ftc.rogue.blacksmith.units.GlobalUnits
+import ftc.rogue.blacksmith.units.TimeUnit
+import ftc.rogue.blacksmith.util.TimeSource
+import ftc.rogue.blacksmith.util.VirtualClock
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.TestInstance
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+internal class SimDriveTest {
+    init {
+        GlobalUnits.setUnits(DistanceUnit.INCHES, AngleUnit.RADIANS, TimeUnit.SECONDS)
+    }
+
+    @Test
+    fun `sim drive follows a trajectory to its end`() {
+        val drive = newSimDrive()
+        val sequence = drive.sequence { forward(24.0) }
+
+        drive.followTrajectorySequenceAsync(sequence)
+        val report = drive.runUntilDone()
+
+        assertFalse(report.timedOut)
+        assertEquals(24.0, report.finalPose.x, .5)
+        assertEquals(0.0, report.finalPose.y, .5)
+        assertTrue(report.totalTime >= sequence.duration())
+    }
+
+    @Test
+    fun `delayed commands add tracking error`() {
+        fun averageTrackingError(actuationDelay: Int): Double {
+            // A 20ms loop
+            val drive = newSimDrive(dt = .02)
+
+            drive.actuationDelay = actuationDelay
+
+            drive.followTrajectorySequenceAsync(drive.sequence { forward(48.0) })
+            val report = drive.runUntilDone()
+
+            assertFalse(report.timedOut)
+
+            return report.averageTrackingError
+        }
+
+        val immediate = averageTrackingError(0)
+        val delayed = averageTrackingError(1)
+
+        assertTrue(delayed > immediate, "$delayed isn't more than $immediate")
+    }
+
+    @Test
+    fun `markers fire when the runner reaches them`() {
+        val drive = newSimDrive()
+        val firedAt = mutableMapOf<String, Double>()
+
+        drive.followTrajectorySequenceAsync(drive.sequence {
+            addTemporalMarker(.5) { firedAt["early"] = drive.time }
+                .addTemporalMarker(1.5) { firedAt["late"] = drive.time }
+                .addTemporalMarker(5.0) { firedAt["past the end"] = drive.time }
+                .waitSeconds(1.0)
+                .waitSeconds(1.0)
+                .waitSeconds(1.0)
+        })
+        drive.runUntilDone()
+
+        // Each segment starts a loop after the last one ends, same as on the robot
+        assertEquals(.5, firedAt["early"]!!, .01)
+        assertEquals(1.5, firedAt["late"]!!, .02)
+
+        // Markers past the end fire once the sequence is over
+        assertEquals(3.0, firedAt["past the end"]!!, .03)
+    }
+
+    @Test
+    fun `cycle times are measured between anvil's cycle hooks`() {
+        val drive = newSimDrive()
+        val moveTime = drive.sequence { forward(24.0) }.duration()
+
+        val auto = Anvil.forgeTrajectory(drive, Pose2d())
+            .waitTime(.5)
+            .doTimes(2) {
+                waitTime(.5)
+
+                if (it == 0) forward(24) else back(24)
+            }
+
+        val report = AutoSimulation.run(drive, auto)
+
+        // Off by a loop or two per segment, same as on the robot
+        assertEquals(2, report.cycleTimes.size)
+        report.cycleTimes.forEach { assertEquals(.5 + moveTime, it, .05) }
+        assertEquals(.5, report.firstCycleStart, .03)
+        assertEquals(report.totalTime, report.lastCycleEnd, .03)
+    }
+
+    @Test
+    fun `a marker can start the next trajectory`() {
+        val drive = newSimDrive()
+        val next = drive.sequence { waitSeconds(1.0) }
+
+        drive.followTrajectorySequenceAsync(drive.sequence {
+            addTemporalMarker(.5) { drive.followTrajectorySequenceAsync(next) }
+                .waitSeconds(1.0)
+        })
+        val report = drive.runUntilDone()
+
+        assertEquals(1.5, report.totalTime, .03)
+    }
+
+    @Test
+    fun `the scheduler runs on the drive's clock`() {
+        val drive = newSimDrive()
+        val tickTimes = mutableListOf<Double>()
+
+        Scheduler.beforeEach {
+            assertSame(drive.clock, Scheduler.getTimeSource())
+            tickTimes += drive.time
+        }
+
+        drive.followTrajectorySequenceAsync(drive.sequence { waitSeconds(1.0) })
+        drive.runUntilDone()
+
+        // A tick per step, plus the idle ones it takes to tell that nothing else is coming
+        assertEquals(1.0 / drive.dt, tickTimes.size.toDouble(), 5.0)
+        assertEquals(drive.dt, tickTimes[1] - tickTimes[0], 1e-9)
+
+        // Back to normal once it's done
+        assertSame(TimeSource.SYSTEM, Scheduler.getTimeSource())
+    }
+
+    @Test
+    fun `closing the drive puts back the previous time source`() {
+        val previous = VirtualClock()
+        Scheduler.setTimeSource(previous)
+
+        try {
+            newSimDrive().install().use { drive ->
+                assertSame(drive.clock, Scheduler.getTimeSource())
+
+                drive.followTrajectorySequenceAsync(drive.sequence { waitSeconds(.1) })
+                drive.runUntilDone()
+
+                // Still installed until it's closed
+                assertSame(drive.clock, Scheduler.getTimeSource())
+            }
+
+            assertSame(previous, Scheduler.getTimeSource())
+        } finally {
+            Scheduler.setTimeSource(TimeSource.SYSTEM)
+        }
+    }
+
+    private class WaitVariant : SimVariant<Double> {
+        override fun simulate(param: Double): SimReport {
+            val drive = newSimDrive()
+
+            Scheduler.beforeEach {
+                drive.check("the scheduler is this drive's own", Scheduler.getTimeSource() === drive.clock)
+            }
+
+            drive.followTrajectorySequenceAsync(drive.sequence { waitSeconds(param) })
+            return drive.runUntilDone()
+        }
+    }
+
+    @Test
+    fun `variants each get their own scheduler`() {
+        val waits = (1..8).associateWith { it * .25 }
+
+        val reports = AutoSimulation.runAll(WaitVariant::class.java, waits, numThreads = 4)
+
+        reports.forEach { (i, report) ->
+            assertTrue(report.isFeasible, report.toString())
+            assertEquals(waits.getValue(i), report.totalTime, .03)
+        }
+    }
+
+    @Test
+    fun `actuators move at their max speed`() {
+        val drive = newSimDrive()
+        val lift = drive.addActuator("lift", maxSpeed = 100.0)
+
+        lift.target = 50.0
+        repeat(50) { drive.step() }
+
+        assertEquals(25.0, lift.position, 1e-6)
+
+        lift.target = 0.0
+        repeat(100) { drive.step() }
+
+        assertTrue(lift.isAtTarget)
+        assertEquals(.5, lift.timeMoving, .01)
+        assertEquals(1, lift.numInterruptedMoves)
+    }
+
+    @Test
+    fun `mecanum model scales down wheel speeds that are too fast`() {
+        val model = MecanumModel(maxWheelVel = 60.0)
+
+        model.step(Pose2d(100.0, 0.0, 0.0), .01)
+        assertEquals(60.0, model.velocity.x, 1e-6)
+
+        // Going diagonally maxes out two wheels at once
+        model.step(Pose2d(60.0, 60.0, 0.0), .01)
+        assertEquals(30.0, model.velocity.x, 1e-6)
+        assertEquals(30.0, model.velocity.y, 1e-6)
+    }
+}
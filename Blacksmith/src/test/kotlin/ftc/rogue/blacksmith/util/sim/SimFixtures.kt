@@ -0,0 +1,22 @@
+package ftc.rogue.blacksmith.util.sim
+
+import testutil.roadrunner.drive.DriveConstants.*
+import testutil.roadrunner.drive.SampleMecanumDrive
+import testutil.roadrunner.trajectorysequence.TrajectorySequence
+import testutil.roadrunner.trajectorysequence.TrajectorySequenceBuilder
+
+// Builds & follows everything with the quickstart's actual builder, runner & follower
+internal fun newSimDrive(model: MecanumModel = MecanumModel(), dt: Double = .005) = SimDrive(
+    builderFactory = { TrajectorySequenceBuilder(it, SampleMecanumDrive.VEL_CONSTRAINT, SampleMecanumDrive.ACCEL_CONSTRAINT, MAX_ANG_VEL, MAX_ANG_ACCEL) },
+    velConstraintFactory = SampleMecanumDrive::getVelocityConstraint,
+    accelConstraintFactory = SampleMecanumDrive::getAccelerationConstraint,
+    runnerFactory = { SampleMecanumDrive.createTrajectorySequenceRunner(it, null) },
+    model = model,
+    dt = dt,
+)
+
+// Note that the quickstart's builder duplicates a wait/turn segment's markers whenever another
+// one's added to it, so each one should have at most one marker
+internal fun SimDrive.sequence(path: TrajectorySequenceBuilder.() -> TrajectorySequenceBuilder): TrajectorySequence {
+    return (trajectorySequenceBuilder(poseEstimate) as TrajectorySequenceBuilder).path().build()
+}
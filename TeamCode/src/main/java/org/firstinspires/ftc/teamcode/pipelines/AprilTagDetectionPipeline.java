@@ -17,16 +17,20 @@ import org.openftc.easyopencv.OpenCvPipeline;
 import java.util.ArrayList;
 
 import ftc.rogue.blacksmith.BlackOp;
+import ftc.rogue.blacksmith.Scheduler;
 
 public class AprilTagDetectionPipeline extends OpenCvPipeline
 {
+    /**
+     * Every frame's detections are sent to the main loop under this message (coalesced, so only
+     * the latest frame's are kept); receive them with Scheduler.onValue.
+     */
+    public static final String DETECTIONS_MSG = "apriltag-detections";
+
     private long nativeApriltagPtr;
     private final Mat grey = new Mat();
     private ArrayList<AprilTagDetection> detections = new ArrayList<>();
 
-    private ArrayList<AprilTagDetection> detectionsUpdate = new ArrayList<>();
-    private final Object detectionsUpdateSync = new Object();
-
     private Mat cameraMatrix;
 
     private final Scalar blue = new Scalar(7,197,235,255);
@@ -97,10 +101,8 @@ public class AprilTagDetectionPipeline extends OpenCvPipeline
         // Run AprilTag detection
         detections = AprilTagDetectorJNI.runAprilTagDetectorSimple(nativeApriltagPtr, grey, tagsize, fx, fy, cx, cy);
 
-        synchronized (detectionsUpdateSync)
-        {
-            detectionsUpdate = detections;
-        }
+        // Changed for RR+: handed to the main loop as a message instead of a synchronized field
+        Scheduler.emitAsync(DETECTIONS_MSG, detections, true);
 
         // Draw the pose of the AprilTags
         for(AprilTagDetection detection : detections)
@@ -127,15 +129,6 @@ public class AprilTagDetectionPipeline extends OpenCvPipeline
         return detections;
     }
 
-    public ArrayList<AprilTagDetection> getDetectionsUpdate()
-    {
-        synchronized (detectionsUpdateSync)
-        {
-            ArrayList<AprilTagDetection> ret = detectionsUpdate; // do not change!
-            return ret;
-        }
-    }
-
     void constructMatrix()
     {
         //     Construct the camera matrix.
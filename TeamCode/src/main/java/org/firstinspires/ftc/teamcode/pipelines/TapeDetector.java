@@ -15,6 +15,7 @@ import org.openftc.easyopencv.OpenCvPipeline;
 import java.util.ArrayList;
 
 import ftc.rogue.blacksmith.BlackOp;
+import ftc.rogue.blacksmith.Scheduler;
 
 /**
  * Class to apply a canny edge detector in an EasyOpenCV pipeline.
@@ -22,6 +23,12 @@ import ftc.rogue.blacksmith.BlackOp;
 
 @Config
 public class TapeDetector extends OpenCvPipeline {
+    /**
+     * Every frame's {@link Reading} is sent to the main loop under this message (coalesced, so only
+     * the latest frame's is kept); receive it with Scheduler.onValue.
+     */
+    public static final String READING_MSG = "tape-reading";
+
     public static int cannyThresh1 = 100;
     public static int cannyThresh2 = 190;
     public static int houghThresh = 50;
@@ -34,9 +41,6 @@ public class TapeDetector extends OpenCvPipeline {
     public static double adj_b = 0.0016927;
     public static double adj_c = 0.5;
 
-    public double tapeAngle = -1;
-    public double correction = -1;
-
     /**
      * Telemetry object to display data to the console
      */
@@ -123,11 +127,14 @@ public class TapeDetector extends OpenCvPipeline {
             else
                 Imgproc.line(src, new Point(l[0], l[1]), new Point(l[2], l[3]), new Scalar(0, 255, 0), 3, Imgproc.LINE_AA, 0);
 
-        tapeAngle = 60 * (pixels / width) - 30;
-        correction = adjustment(tapeAngle) + 1;
+        double tapeAngle = 60 * (pixels / width) - 30;
+        double correction = adjustment(tapeAngle) + 1;
         if (Double.isNaN(correction))
             correction = 0;
 
+        // Changed for RR+: handed to the main loop as a message instead of public fields
+        Scheduler.emitAsync(READING_MSG, new Reading(tapeAngle, correction), true);
+
 //        telemetry.addData("Estimated pixel position", avg);
 //        src.release();
         cdstP.release();
@@ -148,4 +155,17 @@ public class TapeDetector extends OpenCvPipeline {
 //        if (Math.abs(angle) > 20) return adj_a * angle * angle * angle + adj_b * angle * angle;
         return adj_c * angle;
     }
+
+    /**
+     * The tape's angle & the resulting correction, from a single frame.
+     */
+    public static final class Reading {
+        public final double tapeAngle;
+        public final double correction;
+
+        public Reading(double tapeAngle, double correction) {
+            this.tapeAngle = tapeAngle;
+            this.correction = correction;
+        }
+    }
 }
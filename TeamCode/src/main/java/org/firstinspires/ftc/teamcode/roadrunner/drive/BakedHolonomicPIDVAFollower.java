@@ -0,0 +1,282 @@
+package org.firstinspires.ftc.teamcode.roadrunner.drive;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.acmerobotics.roadrunner.control.PIDCoefficients;
+import com.acmerobotics.roadrunner.control.PIDFController;
+import com.acmerobotics.roadrunner.drive.DriveSignal;
+import com.acmerobotics.roadrunner.followers.TrajectoryFollower;
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+import com.acmerobotics.roadrunner.trajectory.Trajectory;
+import com.acmerobotics.roadrunner.util.Angle;
+import com.acmerobotics.roadrunner.util.NanoClock;
+
+import ftc.rogue.blacksmith.util.BakedTrajectory;
+
+/**
+ * Changed for RR+: the exact same controller as Road Runner's HolonomicPIDVAFollower, but it reads
+ * the target out of a {@link BakedTrajectory} when there is one, instead of evaluating the
+ * trajectory's profile & path every loop. The math's done on primitives, so the only things
+ * allocated each loop are the error & drive signal it has to return.
+ * <p>
+ * Without a baked trajectory (e.g. it hasn't finished baking yet), it just samples the trajectory
+ * itself, same as HolonomicPIDVAFollower.
+ * <p>
+ * With latency compensation on, it also accounts for a command only reaching the wheels a loop
+ * after the pose it was computed from was read; it measures how long that is from the time between
+ * updates, predicts where the robot will be by then from its current velocity, and aims for where
+ * it should be by then. {@link #getLastError()} is still how far the robot actually is from where
+ * it should be right now, so the two modes can be compared directly.
+ */
+public class BakedHolonomicPIDVAFollower extends TrajectoryFollower {
+    private final PIDFController axialController;
+    private final PIDFController lateralController;
+    private final PIDFController headingController;
+
+    // Latency's measured as a running average of the time between updates, ignoring the gaps
+    // between trajectories, and capped so a hiccup doesn't send it chasing far ahead
+    private static final double LATENCY_SMOOTHING = 0.1;
+    private static final double MAX_LATENCY = 0.1;
+
+    private final NanoClock loopClock;
+
+    private boolean compensatesLatency = false;
+    private double measuredLatency = 0.0;
+    private double lastUpdateTime = Double.NaN;
+
+    private Pose2d lastError = new Pose2d();
+    private Pose2d lastCompensatedError = new Pose2d();
+
+    private Trajectory currentTrajectory;
+    private BakedTrajectory bakedTrajectory;
+
+    private final BakedTrajectory.Sample target = new BakedTrajectory.Sample();
+
+    public BakedHolonomicPIDVAFollower(
+            PIDCoefficients axialCoeffs,
+            PIDCoefficients lateralCoeffs,
+            PIDCoefficients headingCoeffs,
+            Pose2d admissibleError,
+            double timeout
+    ) {
+        this(axialCoeffs, lateralCoeffs, headingCoeffs, admissibleError, timeout, NanoClock.system());
+    }
+
+    /**
+     * Times everything (following & measuring latency) with the given clock instead of the
+     * system's, e.g. a simulation's.
+     */
+    public BakedHolonomicPIDVAFollower(
+            PIDCoefficients axialCoeffs,
+            PIDCoefficients lateralCoeffs,
+            PIDCoefficients headingCoeffs,
+            Pose2d admissibleError,
+            double timeout,
+            NanoClock clock
+    ) {
+        super(admissibleError, timeout, clock);
+
+        loopClock = clock;
+
+        axialController = new PIDFController(axialCoeffs);
+        lateralController = new PIDFController(lateralCoeffs);
+        headingController = new PIDFController(headingCoeffs);
+
+        headingController.setInputBounds(-Math.PI, Math.PI);
+    }
+
+    @Override
+    public void followTrajectory(@NonNull Trajectory trajectory) {
+        followTrajectory(trajectory, null);
+    }
+
+    /**
+     * Turns latency compensation on or off (it's off by default).
+     */
+    public void setLatencyCompensation(boolean compensatesLatency) {
+        this.compensatesLatency = compensatesLatency;
+    }
+
+    public boolean isCompensatingLatency() {
+        return compensatesLatency;
+    }
+
+    /**
+     * How long it takes for a command to reach the wheels, going by the time between updates, in
+     * seconds. It's measured whether or not latency compensation is on.
+     */
+    public double getMeasuredLatency() {
+        return measuredLatency;
+    }
+
+    /**
+     * How far the robot's predicted to be from where it should be once the last command reaches
+     * the wheels, which is what was actually corrected for; the same as {@link #getLastError()}
+     * if latency compensation is off.
+     */
+    public Pose2d getLastCompensatedError() {
+        return lastCompensatedError;
+    }
+
+    /**
+     * Follows the trajectory, using the baked version of it if it's given.
+     */
+    public void followTrajectory(@NonNull Trajectory trajectory, @Nullable BakedTrajectory bakedTrajectory) {
+        axialController.reset();
+        lateralController.reset();
+        headingController.reset();
+
+        this.currentTrajectory = trajectory;
+        this.bakedTrajectory = bakedTrajectory;
+
+        lastUpdateTime = Double.NaN;
+
+        super.followTrajectory(trajectory);
+    }
+
+    @NonNull
+    @Override
+    protected DriveSignal internalUpdate(@NonNull Pose2d currentPose, @Nullable Pose2d currentRobotVel) {
+        double t = elapsedTime();
+
+        measureLatency();
+
+        double latency = compensatesLatency && currentRobotVel != null ? measuredLatency : 0.0;
+
+        sampleTarget(t);
+
+        // How far the robot actually is from where it should be right now
+        Pose2d trackingError = robotPoseError(currentPose.getX(), currentPose.getY(), currentPose.getHeading());
+
+        // Where the robot'll be, and where it should be, once this command reaches the wheels
+        double predictedX = currentPose.getX(), predictedY = currentPose.getY(), predictedHeading = currentPose.getHeading();
+
+        if (latency > 0.0) {
+            double midHeading = predictedHeading + currentRobotVel.getHeading() * latency / 2;
+
+            predictedX += (currentRobotVel.getX() * Math.cos(midHeading) - currentRobotVel.getY() * Math.sin(midHeading)) * latency;
+            predictedY += (currentRobotVel.getX() * Math.sin(midHeading) + currentRobotVel.getY() * Math.cos(midHeading)) * latency;
+            predictedHeading += currentRobotVel.getHeading() * latency;
+
+            sampleTarget(t + latency);
+        }
+
+        double cos = Math.cos(target.heading);
+        double sin = Math.sin(target.heading);
+
+        // Kinematics.fieldToRobotVelocity
+        double robotVelX = target.velX * cos + target.velY * sin;
+        double robotVelY = -target.velX * sin + target.velY * cos;
+
+        // Kinematics.fieldToRobotAcceleration
+        double robotAccelX = target.accelX * cos + target.accelY * sin
+                + (-target.velX * sin + target.velY * cos) * target.velHeading;
+        double robotAccelY = -target.accelX * sin + target.accelY * cos
+                + (-target.velX * cos - target.velY * sin) * target.velHeading;
+
+        Pose2d poseError = latency > 0.0
+                ? robotPoseError(predictedX, predictedY, predictedHeading)
+                : trackingError;
+
+        double errorX = poseError.getX();
+        double errorY = poseError.getY();
+        double errorHeading = poseError.getHeading();
+
+        // The error's passed to the controllers as the setpoint, with a measurement of 0
+        axialController.setTargetPosition(errorX);
+        lateralController.setTargetPosition(errorY);
+        headingController.setTargetPosition(errorHeading);
+
+        axialController.setTargetVelocity(robotVelX);
+        lateralController.setTargetVelocity(robotVelY);
+        headingController.setTargetVelocity(target.velHeading);
+
+        // Feedforward is processed at the wheel level
+        double axialCorrection, lateralCorrection, headingCorrection;
+
+        if (currentRobotVel != null) {
+            axialCorrection = axialController.update(0.0, currentRobotVel.getX());
+            lateralCorrection = lateralController.update(0.0, currentRobotVel.getY());
+            headingCorrection = headingController.update(0.0, currentRobotVel.getHeading());
+        } else {
+            axialCorrection = axialController.update(0.0);
+            lateralCorrection = lateralController.update(0.0);
+            headingCorrection = headingController.update(0.0);
+        }
+
+        lastError = trackingError;
+        lastCompensatedError = poseError;
+
+        return new DriveSignal(
+                new Pose2d(robotVelX + axialCorrection, robotVelY + lateralCorrection, target.velHeading + headingCorrection),
+                new Pose2d(robotAccelX, robotAccelY, target.accelHeading)
+        );
+    }
+
+    // Kinematics.calculateRobotPoseError, against the current target
+    private Pose2d robotPoseError(double x, double y, double heading) {
+        double fieldErrorX = target.x - x;
+        double fieldErrorY = target.y - y;
+
+        double cos = Math.cos(heading);
+        double sin = Math.sin(heading);
+
+        return new Pose2d(
+                fieldErrorX * cos + fieldErrorY * sin,
+                -fieldErrorX * sin + fieldErrorY * cos,
+                Angle.normDelta(target.heading - heading)
+        );
+    }
+
+    private void measureLatency() {
+        double now = loopClock.seconds();
+
+        if (!Double.isNaN(lastUpdateTime)) {
+            double loopTime = Math.min(now - lastUpdateTime, MAX_LATENCY);
+
+            measuredLatency = measuredLatency == 0.0
+                    ? loopTime
+                    : measuredLatency + LATENCY_SMOOTHING * (loopTime - measuredLatency);
+        }
+
+        lastUpdateTime = now;
+    }
+
+    private void sampleTarget(double t) {
+        if (bakedTrajectory != null) {
+            bakedTrajectory.sample(t, target);
+        } else {
+            sampleTrajectory(t);
+        }
+    }
+
+    private void sampleTrajectory(double t) {
+        Pose2d pose = currentTrajectory.get(t);
+        Pose2d vel = currentTrajectory.velocity(t);
+        Pose2d accel = currentTrajectory.acceleration(t);
+
+        target.x = pose.getX();
+        target.y = pose.getY();
+        target.heading = pose.getHeading();
+
+        target.velX = vel.getX();
+        target.velY = vel.getY();
+        target.velHeading = vel.getHeading();
+
+        target.accelX = accel.getX();
+        target.accelY = accel.getY();
+        target.accelHeading = accel.getHeading();
+    }
+
+    @NonNull
+    @Override
+    public Pose2d getLastError() {
+        return lastError;
+    }
+
+    @Override
+    public void setLastError(@NonNull Pose2d lastError) {
+        this.lastError = lastError;
+    }
+}
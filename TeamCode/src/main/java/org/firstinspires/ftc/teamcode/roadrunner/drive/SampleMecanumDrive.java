@@ -13,7 +13,9 @@ import static org.firstinspires.ftc.teamcode.roadrunner.drive.DriveConstants.kSt
 import static org.firstinspires.ftc.teamcode.roadrunner.drive.DriveConstants.kV;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
+import com.acmerobotics.dashboard.FtcDashboard;
 import com.acmerobotics.dashboard.config.Config;
 import com.acmerobotics.roadrunner.control.PIDCoefficients;
 import com.acmerobotics.roadrunner.drive.DriveSignal;
@@ -29,6 +31,7 @@ import com.acmerobotics.roadrunner.trajectory.constraints.MinVelocityConstraint;
 import com.acmerobotics.roadrunner.trajectory.constraints.ProfileAccelerationConstraint;
 import com.acmerobotics.roadrunner.trajectory.constraints.TrajectoryAccelerationConstraint;
 import com.acmerobotics.roadrunner.trajectory.constraints.TrajectoryVelocityConstraint;
+import com.acmerobotics.roadrunner.util.NanoClock;
 import com.qualcomm.hardware.bosch.BNO055IMU;
 import com.qualcomm.hardware.lynx.LynxModule;
 import com.qualcomm.robotcore.hardware.DcMotor;
@@ -42,6 +45,7 @@ import org.firstinspires.ftc.teamcode.roadrunner.trajectorysequence.TrajectorySe
 import org.firstinspires.ftc.teamcode.roadrunner.trajectorysequence.TrajectorySequenceBuilder;
 import org.firstinspires.ftc.teamcode.roadrunner.trajectorysequence.TrajectorySequenceRunner;
 import org.firstinspires.ftc.teamcode.roadrunner.util.LynxModuleUtil;
+import org.firstinspires.ftc.teamcode.roadrunner.util.PoseHistory;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -59,6 +63,15 @@ public class SampleMecanumDrive extends MecanumDrive {
 
     public static double LATERAL_MULTIPLIER = 1.75;
 
+    // Changed for RR+: bakes trajectories into lookup tables after they're built, so the follower
+    // doesn't have to evaluate them every loop (only read when the drive's created)
+    public static boolean BAKE_TRAJECTORIES = false;
+
+    // Changed for RR+: aims for where the robot will be once each command actually reaches the
+    // wheels (about a loop later), instead of where it was when the pose was read (only read when
+    // the drive's created)
+    public static boolean COMPENSATE_LATENCY = false;
+
     public static double VX_WEIGHT = 1;
     public static double VY_WEIGHT = 1;
     public static double OMEGA_WEIGHT = 1;
@@ -68,8 +81,6 @@ public class SampleMecanumDrive extends MecanumDrive {
     public static final TrajectoryVelocityConstraint VEL_CONSTRAINT = getVelocityConstraint(MAX_VEL, MAX_ANG_VEL, TRACK_WIDTH * .97);
     public static final TrajectoryAccelerationConstraint ACCEL_CONSTRAINT = getAccelerationConstraint(MAX_ACCEL);
 
-    private TrajectoryFollower follower;
-
     private DcMotorEx leftFront, leftRear, rightRear, rightFront;
     private List<DcMotorEx> motors;
 
@@ -80,9 +91,6 @@ public class SampleMecanumDrive extends MecanumDrive {
     public SampleMecanumDrive(HardwareMap hardwareMap) {
         super(kV, kA, kStatic, TRACK_WIDTH, TRACK_WIDTH, LATERAL_MULTIPLIER);
 
-        follower = new HolonomicPIDVAFollower(TRANSLATIONAL_PID, TRANSLATIONAL_PID, HEADING_PID,
-            new Pose2d(0.3, 0.3, Math.toRadians(3.00)), 0.25);
-
         LynxModuleUtil.ensureMinimumFirmwareVersion(hardwareMap);
 
         batteryVoltageSensor = hardwareMap.voltageSensor.iterator().next();
@@ -147,7 +155,7 @@ public class SampleMecanumDrive extends MecanumDrive {
 //        setLocalizer(new TwoWheelTrackingLocalizer(hardwareMap, this));
 //        setLocalizer(new KalmanTwoWheelLocalizer(hardwareMap, this));
         setLocalizer(new TwoWheelTrackingLocalizer(hardwareMap, this));
-        trajectorySequenceRunner = new TrajectorySequenceRunner(follower, HEADING_PID);
+        trajectorySequenceRunner = createTrajectorySequenceRunner(NanoClock.system(), FtcDashboard.getInstance());
 
         imu = hardwareMap.get( BNO055IMU.class, "imu");
 
@@ -156,6 +164,27 @@ public class SampleMecanumDrive extends MecanumDrive {
         imu.initialize(parameters);
     }
 
+    /**
+     * Changed for RR+: creates the same follower & runner the drive uses, timed by the given clock,
+     * so that they can also be ran without any hardware (e.g. by Blacksmith's SimDrive).
+     */
+    public static TrajectorySequenceRunner createTrajectorySequenceRunner(NanoClock clock, @Nullable FtcDashboard dashboard) {
+        TrajectoryFollower follower;
+
+        if (BAKE_TRAJECTORIES || COMPENSATE_LATENCY) {
+            BakedHolonomicPIDVAFollower bakedFollower = new BakedHolonomicPIDVAFollower(TRANSLATIONAL_PID, TRANSLATIONAL_PID, HEADING_PID,
+                new Pose2d(0.3, 0.3, Math.toRadians(3.00)), 0.25, clock);
+
+            bakedFollower.setLatencyCompensation(COMPENSATE_LATENCY);
+            follower = bakedFollower;
+        } else {
+            follower = new HolonomicPIDVAFollower(TRANSLATIONAL_PID, TRANSLATIONAL_PID, HEADING_PID,
+                new Pose2d(0.3, 0.3, Math.toRadians(3.00)), 0.25, clock);
+        }
+
+        return new TrajectorySequenceRunner(follower, HEADING_PID, clock, dashboard);
+    }
+
     public TrajectoryBuilder trajectoryBuilder(Pose2d startPose) {
         return new TrajectoryBuilder(startPose, VEL_CONSTRAINT, ACCEL_CONSTRAINT);
     }
@@ -173,7 +202,7 @@ public class SampleMecanumDrive extends MecanumDrive {
             startPose,
             VEL_CONSTRAINT, ACCEL_CONSTRAINT,
             MAX_ANG_VEL, MAX_ANG_ACCEL
-        );
+        ).bakeTrajectories(BAKE_TRAJECTORIES);
     }
 
     public void turnAsync(double angle) {
@@ -215,6 +244,11 @@ public class SampleMecanumDrive extends MecanumDrive {
         return trajectorySequenceRunner.getLastPoseError();
     }
 
+    // Changed for RR+
+    public PoseHistory getPoseHistory() {
+        return trajectorySequenceRunner.getPoseHistory();
+    }
+
     public void update() {
         updatePoseEstimate();
         DriveSignal signal = trajectorySequenceRunner.update(getPoseEstimate(), getPoseVelocity());
@@ -0,0 +1,218 @@
+package org.firstinspires.ftc.teamcode.roadrunner.trajectorysequence;
+
+import com.acmerobotics.roadrunner.geometry.Vector2d;
+import com.acmerobotics.roadrunner.path.Path;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A bounding box tree over the paths of a sequence, so that a spatial marker is only
+ * projected onto the few paths that could possibly end up the closest to it, instead of onto every
+ * path in the sequence.
+ * <p>
+ * Each path is sampled every {@link #SAMPLE_SPACING} inches, and every few samples are boxed up
+ * into a leaf. Leaves are searched closest-box-first, and a path is only projected onto once its
+ * first leaf comes up, so the search stops as soon as the next box is further away than the
+ * closest projection found so far. A box is always at least as close as anything on the path
+ * inside it, so nothing that could've been closer is ever skipped.
+ */
+class PathSpatialIndex {
+    private static final double SAMPLE_SPACING = 2.0;
+    private static final int SAMPLES_PER_LEAF = 4;
+
+    // Any point on the path between two samples is within half the spacing of one of them; this
+    // is doubled since a path's displacement is only approximately its arc length
+    private static final double BOX_PADDING = SAMPLE_SPACING;
+
+    // Same guess the builder's always projected with, so the results are the exact same
+    private static final double PROJECT_GUESS = 0.25;
+
+    private final List<Path> paths;
+    private final Node root;
+
+    PathSpatialIndex(List<Path> paths) {
+        this.paths = paths;
+
+        List<Node> leaves = new ArrayList<>();
+
+        for (int i = 0; i < paths.size(); i++) {
+            addLeaves(leaves, paths.get(i), i);
+        }
+
+        root = leaves.isEmpty() ? null : buildTree(leaves, 0, leaves.size());
+    }
+
+    /**
+     * The path {@code point} is closest to, going by where the builder's projection lands on each
+     * path (ties go to the earliest path), and the displacement along it; or null if there aren't
+     * any paths.
+     */
+    Projection project(Vector2d point) {
+        if (root == null) return null;
+
+        PriorityQueue<QueuedNode> queue = new PriorityQueue<>(Comparator.comparingDouble((QueuedNode it) -> it.distance));
+        queue.add(new QueuedNode(root, root.distanceTo(point)));
+
+        boolean[] isProjected = new boolean[paths.size()];
+
+        Projection closest = null;
+
+        while (!queue.isEmpty()) {
+            QueuedNode next = queue.poll();
+
+            if (closest != null && next.distance > closest.distanceToPoint) break;
+
+            Node node = next.node;
+
+            if (node.pathIndex < 0) {
+                queue.add(new QueuedNode(node.left, node.left.distanceTo(point)));
+                queue.add(new QueuedNode(node.right, node.right.distanceTo(point)));
+                continue;
+            }
+
+            if (isProjected[node.pathIndex]) continue;
+            isProjected[node.pathIndex] = true;
+
+            Path path = paths.get(node.pathIndex);
+
+            double displacement = path.project(point, PROJECT_GUESS);
+            double distanceToPoint = point.minus(path.get(displacement).vec()).norm();
+
+            if (closest == null
+                    || distanceToPoint < closest.distanceToPoint
+                    || distanceToPoint == closest.distanceToPoint && node.pathIndex < closest.pathIndex) {
+                closest = new Projection(node.pathIndex, displacement, distanceToPoint);
+            }
+        }
+
+        return closest;
+    }
+
+    static class Projection {
+        final int pathIndex;
+        final double displacement;
+        final double distanceToPoint;
+
+        Projection(int pathIndex, double displacement, double distanceToPoint) {
+            this.pathIndex = pathIndex;
+            this.displacement = displacement;
+            this.distanceToPoint = distanceToPoint;
+        }
+    }
+
+    private static void addLeaves(List<Node> leaves, Path path, int pathIndex) {
+        double length = path.length();
+        int numSamples = Math.max(2, (int) Math.ceil(length / SAMPLE_SPACING) + 1);
+
+        Node leaf = new Node(pathIndex);
+
+        for (int i = 0; i < numSamples; i++) {
+            Vector2d sample = path.get(length * i / (numSamples - 1)).vec();
+
+            leaf.include(sample.getX(), sample.getY());
+
+            // The last sample of a leaf is also the first of the next one, so the piece in between is covered
+            if ((i % SAMPLES_PER_LEAF == 0 && i != 0) || i == numSamples - 1) {
+                leaf.pad(BOX_PADDING);
+                leaves.add(leaf);
+
+                leaf = new Node(pathIndex);
+                leaf.include(sample.getX(), sample.getY());
+            }
+        }
+    }
+
+    // Splits the leaves in half along whichever axis they're more spread out on, recursively
+    private static Node buildTree(List<Node> leaves, int from, int to) {
+        if (to - from == 1) return leaves.get(from);
+
+        double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+
+        for (int i = from; i < to; i++) {
+            Node leaf = leaves.get(i);
+
+            minX = Math.min(minX, leaf.centerX());
+            maxX = Math.max(maxX, leaf.centerX());
+            minY = Math.min(minY, leaf.centerY());
+            maxY = Math.max(maxY, leaf.centerY());
+        }
+
+        Comparator<Node> byCenter = (maxX - minX >= maxY - minY)
+                ? Comparator.comparingDouble(Node::centerX)
+                : Comparator.comparingDouble(Node::centerY);
+
+        leaves.subList(from, to).sort(byCenter);
+
+        int mid = (from + to) >>> 1;
+
+        Node node = new Node(-1);
+        node.left = buildTree(leaves, from, mid);
+        node.right = buildTree(leaves, mid, to);
+
+        node.include(node.left);
+        node.include(node.right);
+
+        return node;
+    }
+
+    private static class Node {
+        private final int pathIndex;
+
+        private double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+        private double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+
+        private Node left, right;
+
+        Node(int pathIndex) {
+            this.pathIndex = pathIndex;
+        }
+
+        void include(double x, double y) {
+            minX = Math.min(minX, x);
+            maxX = Math.max(maxX, x);
+            minY = Math.min(minY, y);
+            maxY = Math.max(maxY, y);
+        }
+
+        void include(Node other) {
+            include(other.minX, other.minY);
+            include(other.maxX, other.maxY);
+        }
+
+        void pad(double padding) {
+            minX -= padding;
+            maxX += padding;
+            minY -= padding;
+            maxY += padding;
+        }
+
+        double centerX() {
+            return (minX + maxX) / 2;
+        }
+
+        double centerY() {
+            return (minY + maxY) / 2;
+        }
+
+        double distanceTo(Vector2d point) {
+            double dx = Math.max(0.0, Math.max(minX - point.getX(), point.getX() - maxX));
+            double dy = Math.max(0.0, Math.max(minY - point.getY(), point.getY() - maxY));
+
+            return Math.hypot(dx, dy);
+        }
+    }
+
+    private static class QueuedNode {
+        private final Node node;
+        private final double distance;
+
+        QueuedNode(Node node, double distance) {
+            this.node = node;
+            this.distance = distance;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.firstinspires.ftc.teamcode.roadrunner.trajectorysequence;
+
+import com.acmerobotics.roadrunner.trajectory.TrajectoryMarker;
+
+import org.firstinspires.ftc.teamcode.roadrunner.trajectorysequence.sequencesegment.SequenceSegment;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Changed for RR+: a sequence that can be followed while the rest of it is still being built (see
+ * {@link TrajectorySequenceBuilder#startStreaming()}). Segments are added to the end as they're
+ * built, and the runner holds its pose if it gets to one that isn't built yet.
+ * <p>
+ * Its markers are kept in sequence time instead of on each segment, since a marker (e.g. one with
+ * a negative offset) can be added after the segment it lands in has already started.
+ */
+public class StreamingTrajectorySequence extends TrajectorySequence {
+    private final List<SequenceSegment> segments;
+    private final List<TrajectoryMarker> markers = new CopyOnWriteArrayList<>();
+
+    private volatile boolean isComplete = false;
+    private volatile Throwable buildFailure = null;
+
+    static StreamingTrajectorySequence startingWith(List<SequenceSegment> firstSegments) {
+        return new StreamingTrajectorySequence(new CopyOnWriteArrayList<>(firstSegments));
+    }
+
+    // The base class only ever reads through the list, so it sees segments as they're added
+    private StreamingTrajectorySequence(CopyOnWriteArrayList<SequenceSegment> segments) {
+        super(segments);
+        this.segments = segments;
+    }
+
+    /**
+     * Whether every segment & marker has been added.
+     */
+    public boolean isComplete() {
+        return isComplete;
+    }
+
+    /**
+     * Every marker added so far, with times relative to the start of the sequence. Markers are
+     * only ever added to the end, but not necessarily in order of time.
+     */
+    public List<TrajectoryMarker> getMarkers() {
+        return Collections.unmodifiableList(markers);
+    }
+
+    /**
+     * Throws whatever the rest of the sequence failed to build with, if it did.
+     */
+    public void rethrowIfFailed() {
+        Throwable failure = buildFailure;
+
+        if (failure != null) {
+            throw new RuntimeException("Failed to build the rest of the trajectory sequence", failure);
+        }
+    }
+
+    void addSegments(List<SequenceSegment> newSegments) {
+        segments.addAll(newSegments);
+    }
+
+    void addMarker(TrajectoryMarker marker) {
+        markers.add(marker);
+    }
+
+    void complete() {
+        isComplete = true;
+    }
+
+    void fail(Throwable failure) {
+        buildFailure = failure;
+    }
+}
@@ -2,6 +2,7 @@ package org.firstinspires.ftc.teamcode.roadrunner.trajectorysequence;
 
 import com.acmerobotics.roadrunner.geometry.Pose2d;
 import com.acmerobotics.roadrunner.geometry.Vector2d;
+import com.acmerobotics.roadrunner.path.Path;
 import com.acmerobotics.roadrunner.path.PathContinuityViolationException;
 import com.acmerobotics.roadrunner.profile.MotionProfile;
 import com.acmerobotics.roadrunner.profile.MotionProfileGenerator;
@@ -25,11 +26,30 @@ import org.firstinspires.ftc.teamcode.roadrunner.trajectorysequence.sequencesegm
 import org.firstinspires.ftc.teamcode.roadrunner.trajectorysequence.sequencesegment.WaitSegment;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 public class TrajectorySequenceBuilder {
-    private final double resolution = 0.25;
+    public static final double DEFAULT_RESOLUTION = 0.25;
+
+    // Changed for RR+: the coarsest resolution adaptive resolution picks, which is also what paths
+    // are sampled at while they're still being added to
+    public static final double MAX_ADAPTIVE_RESOLUTION = 2.0;
+
+    // How far apart the velocity constraint is sampled to see how quickly it changes along a path
+    private static final double CONSTRAINT_SAMPLE_SPACING = 1.0;
+
+    // Changed for RR+: every segment's markers are kept in this order
+    private static final Comparator<TrajectoryMarker> MARKERS_BY_TIME = Comparator.comparingDouble(TrajectoryMarker::getTime);
+
+    private double resolution = DEFAULT_RESOLUTION;
+
+    // NaN unless adaptive resolution is on
+    private double maxProfileError = Double.NaN;
 
     private final TrajectoryVelocityConstraint baseVelConstraint;
     private final TrajectoryAccelerationConstraint baseAccelConstraint;
@@ -58,6 +78,29 @@ public class TrajectorySequenceBuilder {
 
     private TrajectoryBuilder currentTrajectoryBuilder;
 
+    // Changed for RR+: everything needed to rebuild the current path at a different resolution
+    private final List<AddPathCallback> currentPathCallbacks = new ArrayList<>();
+    private Pose2d currentPathStartPose;
+    private double currentPathStartTangent;
+    private TrajectoryVelocityConstraint currentPathVelConstraint;
+    private TrajectoryAccelerationConstraint currentPathAccelConstraint;
+    private double currentPathResolution;
+    private Trajectory currentPathTrajectory;
+
+    // Changed for RR+: the times of the temporal markers placed partway through the current path,
+    // which are only final once its resolution is
+    private final List<PathMarkerTime> currentPathMarkerTimes = new ArrayList<>();
+
+    private long numProfileSamples;
+
+    // Changed for RR+: for following the sequence while it's still being built
+    private StreamingTrajectorySequence streamingSequence;
+    private int numStreamedSegments;
+    private final Set<Object> streamedMarkers = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    // Changed for RR+: whether finished trajectories get baked into lookup tables in the background
+    private boolean bakesTrajectories = false;
+
     // Changed for RR+
     public double currentDuration;
     private double currentDisplacement;
@@ -291,7 +334,9 @@ public class TrajectorySequenceBuilder {
             callback.run();
         }
 
-        Trajectory builtTraj = currentTrajectoryBuilder.build();
+        currentPathCallbacks.add(callback);
+
+        Trajectory builtTraj = buildCurrentPath();
 
         double durationDifference = builtTraj.duration() - lastDurationTraj;
         double displacementDifference = builtTraj.getPath().length() - lastDisplacementTraj;
@@ -383,11 +428,82 @@ public class TrajectorySequenceBuilder {
         return this;
     }
 
+    /**
+     * Samples every path from here on every {@code resolution} inches when generating its motion profile,
+     * instead of the default 0.25in. A coarser resolution builds faster, but the profile can break
+     * the velocity constraint by a bit more in between samples.
+     */
+    public TrajectorySequenceBuilder setResolution(double resolution) {
+        if (resolution <= 0.0) {
+            throw new IllegalArgumentException("Resolution must be positive (got " + resolution + ")");
+        }
+
+        this.resolution = resolution;
+        this.maxProfileError = Double.NaN;
+
+        return this;
+    }
+
+    /**
+     * Picks the resolution of every path from here on by how quickly its velocity constraint
+     * changes, so that straight, unconstrained paths are sampled coarsely (down to
+     * {@link #MAX_ADAPTIVE_RESOLUTION}), and curvy ones finely (up to {@link #DEFAULT_RESOLUTION}), while keeping
+     * how far the profile can go over the constraint in between samples under {@code maxProfileError} (in/s).
+     */
+    public TrajectorySequenceBuilder setAdaptiveResolution(double maxProfileError) {
+        if (maxProfileError <= 0.0) {
+            throw new IllegalArgumentException("Max profile error must be positive (got " + maxProfileError + ")");
+        }
+
+        this.maxProfileError = maxProfileError;
+
+        return this;
+    }
+
+    /**
+     * Changed for RR+: once the sequence (or a streamed part of it) is built, bakes each of its
+     * trajectories into lookup tables in the background (see {@link TrajectorySegment#getBakedTrajectory()}),
+     * which the BakedHolonomicPIDVAFollower can follow without evaluating the trajectory every loop.
+     */
+    public TrajectorySequenceBuilder bakeTrajectories(boolean bakesTrajectories) {
+        this.bakesTrajectories = bakesTrajectories;
+
+        return this;
+    }
+
+    public TrajectorySequenceBuilder resetResolution() {
+        this.resolution = DEFAULT_RESOLUTION;
+        this.maxProfileError = Double.NaN;
+
+        return this;
+    }
+
+    private boolean isAdaptiveResolution() {
+        return !Double.isNaN(maxProfileError);
+    }
+
+    /**
+     * How many samples the motion profiles have been generated from so far, including the
+     * intermediate builds done every time a path is added.
+     */
+    public long getNumProfileSamples() {
+        return numProfileSamples;
+    }
+
     public TrajectorySequenceBuilder addTemporalMarker(MarkerCallback callback) {
-        return this.addTemporalMarker(currentDuration, callback);
+        return this.UNSTABLE_addTemporalMarkerOffset(0.0, callback);
     }
 
     public TrajectorySequenceBuilder UNSTABLE_addTemporalMarkerOffset(double offset, MarkerCallback callback) {
+        // Changed for RR+: the path so far might still be rebuilt at a different resolution (which
+        // changes how long it takes), so the marker's time is fixed up once it's pushed
+        if (currentTrajectoryBuilder != null) {
+            PathMarkerTime time = new PathMarkerTime(currentDuration + offset, currentPathCallbacks.size(), lastDurationTraj);
+
+            currentPathMarkerTimes.add(time);
+            return this.addTemporalMarker(time, callback);
+        }
+
         return this.addTemporalMarker(currentDuration + offset, callback);
     }
 
@@ -474,11 +590,52 @@ public class TrajectorySequenceBuilder {
 
     private void pushPath() {
         if (currentTrajectoryBuilder != null) {
-            Trajectory builtTraj = currentTrajectoryBuilder.build();
+            Trajectory builtTraj = currentPathTrajectory != null ? currentPathTrajectory : buildCurrentPath();
+
+            double finalResolution = isAdaptiveResolution()
+                    ? adaptiveResolutionFor(builtTraj.getPath())
+                    : resolution;
+
+            // The path's the same no matter the resolution, only the profile (and so the duration) changes
+            if (finalResolution != currentPathResolution) {
+                double coarseDuration = builtTraj.duration();
+
+                builtTraj = rebuildCurrentPath(finalResolution, currentPathCallbacks.size());
+                settleCurrentPathMarkerTimes(builtTraj);
+
+                currentDuration += builtTraj.duration() - coarseDuration;
+            }
+
             sequenceSegments.add(new TrajectorySegment(builtTraj));
         }
 
         currentTrajectoryBuilder = null;
+        currentPathTrajectory = null;
+        currentPathCallbacks.clear();
+        currentPathMarkerTimes.clear();
+    }
+
+    /**
+     * Changed for RR+: once the current path's been rebuilt at its final resolution, moves each
+     * marker placed partway through it by however much the path up to that point sped up or slowed
+     * down, so it ends up where it would've been had the path been built at that resolution all along.
+     */
+    private void settleCurrentPathMarkerTimes(Trajectory rebuiltPath) {
+        double[] durationsByNumCallbacks = new double[currentPathCallbacks.size() + 1];
+        Arrays.fill(durationsByNumCallbacks, Double.NaN);
+
+        // Most markers are placed after the last part of the path, so they don't need another build
+        durationsByNumCallbacks[currentPathCallbacks.size()] = rebuiltPath.duration();
+
+        for (PathMarkerTime markerTime : currentPathMarkerTimes) {
+            int numCallbacks = markerTime.numPathCallbacks;
+
+            if (Double.isNaN(durationsByNumCallbacks[numCallbacks])) {
+                durationsByNumCallbacks[numCallbacks] = rebuildCurrentPath(currentPathResolution, numCallbacks).duration();
+            }
+
+            markerTime.time += durationsByNumCallbacks[numCallbacks] - markerTime.coarsePathDuration;
+        }
     }
 
     private void newPath() {
@@ -490,18 +647,218 @@ public class TrajectorySequenceBuilder {
 
         double tangent = setAbsoluteTangent ? absoluteTangent : Angle.norm(lastPose.getHeading() + tangentOffset);
 
-        currentTrajectoryBuilder = new TrajectoryBuilder(lastPose, tangent, currentVelConstraint, currentAccelConstraint, resolution);
+        currentPathStartPose = lastPose;
+        currentPathStartTangent = tangent;
+        currentPathVelConstraint = currentVelConstraint;
+        currentPathAccelConstraint = currentAccelConstraint;
+
+        // Adaptive resolution can't be picked until the whole path is known, so until then it's
+        // sampled as coarsely as it could possibly end up
+        currentPathResolution = isAdaptiveResolution() ? MAX_ADAPTIVE_RESOLUTION : resolution;
+
+        currentTrajectoryBuilder = new TrajectoryBuilder(
+                lastPose, tangent, currentVelConstraint, currentAccelConstraint, currentPathResolution
+        );
+    }
+
+    private Trajectory buildCurrentPath() {
+        currentPathTrajectory = currentTrajectoryBuilder.build();
+        numProfileSamples += (long) Math.ceil(currentPathTrajectory.getPath().length() / currentPathResolution);
+
+        return currentPathTrajectory;
+    }
+
+    // Only the first numCallbacks parts of the path are added, e.g. to see how long part of it takes
+    private Trajectory rebuildCurrentPath(double resolution, int numCallbacks) {
+        currentPathResolution = resolution;
+
+        currentTrajectoryBuilder = new TrajectoryBuilder(
+                currentPathStartPose, currentPathStartTangent,
+                currentPathVelConstraint, currentPathAccelConstraint,
+                resolution
+        );
+
+        for (int i = 0; i < numCallbacks; i++) {
+            currentPathCallbacks.get(i).run();
+        }
+
+        return buildCurrentPath();
+    }
+
+    /**
+     * The profile generator only checks the velocity constraint every {@code resolution} inches, so the
+     * profile can overshoot it by up to (how fast the constraint changes) * (resolution) in between.
+     * This picks the coarsest resolution that keeps that under {@code maxProfileError}, by sampling the
+     * constraint along the path to see how quickly it changes.
+     */
+    private double adaptiveResolutionFor(Path path) {
+        double length = path.length();
+        int numSamples = Math.max(2, (int) Math.ceil(length / CONSTRAINT_SAMPLE_SPACING) + 1);
+
+        double maxSlope = 0.0;
+        double lastVel = Double.NaN;
+        double lastS = 0.0;
+
+        for (int i = 0; i < numSamples; i++) {
+            double s = length * i / (numSamples - 1);
+            double vel = currentPathVelConstraint.get(s, path.get(s), path.deriv(s), new Pose2d());
+
+            // An infinite constraint (e.g. the angular one on a straight line) isn't constraining anything
+            if (!Double.isInfinite(vel) && !Double.isNaN(lastVel) && s > lastS) {
+                maxSlope = Math.max(maxSlope, Math.abs(vel - lastVel) / (s - lastS));
+            }
+
+            lastVel = Double.isInfinite(vel) ? Double.NaN : vel;
+            lastS = s;
+        }
+
+        if (maxSlope == 0.0) {
+            return MAX_ADAPTIVE_RESOLUTION;
+        }
+
+        return Math.max(DEFAULT_RESOLUTION, Math.min(MAX_ADAPTIVE_RESOLUTION, maxProfileError / maxSlope));
     }
 
     public TrajectorySequence build() {
         pushPath();
 
+        if (streamingSequence != null) {
+            return finishStreaming();
+        }
+
         List<TrajectoryMarker> globalMarkers = convertMarkersToGlobal(
                 sequenceSegments,
                 temporalMarkers, displacementMarkers, spatialMarkers
         );
 
-        return new TrajectorySequence(projectGlobalMarkersToLocalSegments(globalMarkers, sequenceSegments));
+        List<SequenceSegment> segments = projectGlobalMarkersToLocalSegments(globalMarkers, sequenceSegments);
+        bakeTrajectories(segments);
+
+        return new TrajectorySequence(segments);
+    }
+
+    private void bakeTrajectories(List<SequenceSegment> segments) {
+        if (!bakesTrajectories) return;
+
+        for (SequenceSegment segment : segments) {
+            if (segment instanceof TrajectorySegment) {
+                ((TrajectorySegment) segment).bakeAsync();
+            }
+        }
+    }
+
+    /**
+     * Changed for RR+: starts a sequence out of the segments finished so far, which can be followed
+     * while the rest of it's still being built. Anything added afterwards is added to it with
+     * {@link #streamSegments()} (as it's built) and {@link #build()} (once it's all been added).
+     * <p>
+     * Its markers are added as soon as their times are known; so most markers are added right
+     * away, but spatial markers, and ones relative to the length of the whole sequence, are only
+     * added once the whole sequence has been built.
+     */
+    public StreamingTrajectorySequence startStreaming() {
+        if (streamingSequence != null) {
+            throw new IllegalStateException("This sequence is already being streamed");
+        }
+
+        if (sequenceSegments.isEmpty()) {
+            throw new EmptySequenceException();
+        }
+
+        streamingSequence = StreamingTrajectorySequence.startingWith(sequenceSegments);
+        numStreamedSegments = sequenceSegments.size();
+
+        bakeTrajectories(sequenceSegments);
+
+        streamMarkers(false);
+
+        return streamingSequence;
+    }
+
+    /**
+     * Changed for RR+: adds every segment finished since the last call to the streaming sequence,
+     * along with any markers whose times are now known.
+     */
+    public void streamSegments() {
+        if (streamingSequence == null) {
+            throw new IllegalStateException("startStreaming() hasn't been called");
+        }
+
+        if (numStreamedSegments < sequenceSegments.size()) {
+            List<SequenceSegment> newSegments = new ArrayList<>(sequenceSegments.subList(numStreamedSegments, sequenceSegments.size()));
+
+            bakeTrajectories(newSegments);
+            streamingSequence.addSegments(newSegments);
+            numStreamedSegments = sequenceSegments.size();
+        }
+
+        streamMarkers(false);
+    }
+
+    /**
+     * Changed for RR+: lets the runner know the rest of the streaming sequence won't be coming, so
+     * it can throw instead of waiting for it forever.
+     */
+    public void failStreaming(Throwable failure) {
+        if (streamingSequence != null) {
+            streamingSequence.fail(failure);
+        }
+    }
+
+    private TrajectorySequence finishStreaming() {
+        streamSegments();
+        streamMarkers(true);
+
+        streamingSequence.complete();
+
+        return streamingSequence;
+    }
+
+    private void streamMarkers(boolean isFinished) {
+        double streamedDisplacement = 0.0;
+
+        for (SequenceSegment segment : sequenceSegments) {
+            if (segment instanceof TrajectorySegment) {
+                streamedDisplacement += ((TrajectorySegment) segment).getTrajectory().getPath().length();
+            }
+        }
+
+        // A marker that doesn't depend on the sequence's total duration/displacement can be placed
+        // now; the producers the builder makes for those are all constant
+        for (TemporalMarker marker : temporalMarkers) {
+            if (streamedMarkers.contains(marker)) continue;
+
+            // Its time can still change until its path is pushed
+            if (!isFinished && currentPathMarkerTimes.contains(marker.getProducer())) continue;
+
+            double time = marker.getProducer().produce(currentDuration);
+
+            if (isFinished || time == marker.getProducer().produce(currentDuration + 1.0)) {
+                streamedMarkers.add(marker);
+                streamingSequence.addMarker(new TrajectoryMarker(time, marker.getCallback()));
+            }
+        }
+
+        for (DisplacementMarker marker : displacementMarkers) {
+            if (streamedMarkers.contains(marker)) continue;
+
+            double displacement = marker.getProducer().produce(currentDisplacement);
+            boolean isConstant = displacement == marker.getProducer().produce(currentDisplacement + 1.0);
+
+            if (isFinished || isConstant && displacement <= streamedDisplacement) {
+                streamedMarkers.add(marker);
+                streamingSequence.addMarker(new TrajectoryMarker(displacementToTime(sequenceSegments, displacement), marker.getCallback()));
+            }
+        }
+
+        // The closest path to a spatial marker could always be one that hasn't been built yet
+        if (isFinished && !spatialMarkers.isEmpty()) {
+            PathSpatialIndex spatialIndex = spatialIndexFor(sequenceSegments);
+
+            for (SpatialMarker marker : spatialMarkers) {
+                streamingSequence.addMarker(new TrajectoryMarker(pointToTime(sequenceSegments, spatialIndex, marker.getPoint()), marker.getCallback()));
+            }
+        }
     }
 
     private List<TrajectoryMarker> convertMarkersToGlobal(
@@ -535,10 +892,12 @@ public class TrajectorySequenceBuilder {
         }
 
         // Convert spatial markers
+        PathSpatialIndex spatialIndex = spatialMarkers.isEmpty() ? null : spatialIndexFor(sequenceSegments);
+
         for (SpatialMarker marker : spatialMarkers) {
             trajectoryMarkers.add(
                     new TrajectoryMarker(
-                            pointToTime(sequenceSegments, marker.getPoint()),
+                            pointToTime(sequenceSegments, spatialIndex, marker.getPoint()),
                             marker.getCallback()
                     )
             );
@@ -547,6 +906,8 @@ public class TrajectorySequenceBuilder {
         return trajectoryMarkers;
     }
 
+    // Changed for RR+: markers are put into their segments all at once, sorted by time, so that the
+    // runner can just step through them instead of sorting them every time a segment starts
     private List<SequenceSegment> projectGlobalMarkersToLocalSegments(List<TrajectoryMarker> markers, List<SequenceSegment> sequenceSegments) {
         if (sequenceSegments.isEmpty()) return Collections.emptyList();
 
@@ -555,59 +916,66 @@ public class TrajectorySequenceBuilder {
             totalSequenceDuration += segment.getDuration();
         }
 
-        for (TrajectoryMarker marker : markers) {
-            SequenceSegment segment = null;
-            int segmentIndex = 0;
-            double segmentOffsetTime = 0;
+        List<TrajectoryMarker> sortedMarkers = new ArrayList<>(markers);
+        Collections.sort(sortedMarkers, MARKERS_BY_TIME);
 
-            double currentTime = 0;
-            for (int i = 0; i < sequenceSegments.size(); i++) {
-                SequenceSegment seg = sequenceSegments.get(i);
+        List<List<TrajectoryMarker>> newMarkersBySegment = new ArrayList<>(sequenceSegments.size());
+        for (int i = 0; i < sequenceSegments.size(); i++) {
+            newMarkersBySegment.add(new ArrayList<>());
+        }
 
-                double markerTime = Math.min(marker.getTime(), totalSequenceDuration);
+        // Since the markers are sorted, the segment each one's in never comes before the last one's
+        int segmentIndex = 0;
+        double currentTime = 0;
 
-                if (currentTime + seg.getDuration() >= markerTime) {
-                    segment = seg;
-                    segmentIndex = i;
-                    segmentOffsetTime = markerTime - currentTime;
+        for (TrajectoryMarker marker : sortedMarkers) {
+            double markerTime = Math.min(marker.getTime(), totalSequenceDuration);
 
-                    break;
-                } else {
-                    currentTime += seg.getDuration();
-                }
+            while (segmentIndex < sequenceSegments.size() - 1 && currentTime + sequenceSegments.get(segmentIndex).getDuration() < markerTime) {
+                currentTime += sequenceSegments.get(segmentIndex).getDuration();
+                segmentIndex++;
             }
 
-            SequenceSegment newSegment = null;
-
-            if (segment instanceof WaitSegment) {
-                List<TrajectoryMarker> newMarkers = new ArrayList<>(segment.getMarkers());
+            newMarkersBySegment.get(segmentIndex).add(new TrajectoryMarker(markerTime - currentTime, marker.getCallback()));
+        }
 
-                newMarkers.addAll(sequenceSegments.get(segmentIndex).getMarkers());
-                newMarkers.add(new TrajectoryMarker(segmentOffsetTime, marker.getCallback()));
+        for (int i = 0; i < sequenceSegments.size(); i++) {
+            List<TrajectoryMarker> newMarkers = newMarkersBySegment.get(i);
 
-                WaitSegment thisSegment = (WaitSegment) segment;
-                newSegment = new WaitSegment(thisSegment.getStartPose(), thisSegment.getDuration(), newMarkers);
-            } else if (segment instanceof TurnSegment) {
-                List<TrajectoryMarker> newMarkers = new ArrayList<>(segment.getMarkers());
+            if (!newMarkers.isEmpty()) {
+                sequenceSegments.set(i, withMarkers(sequenceSegments.get(i), newMarkers));
+            }
+        }
 
-                newMarkers.addAll(sequenceSegments.get(segmentIndex).getMarkers());
-                newMarkers.add(new TrajectoryMarker(segmentOffsetTime, marker.getCallback()));
+        return sequenceSegments;
+    }
 
-                TurnSegment thisSegment = (TurnSegment) segment;
-                newSegment = new TurnSegment(thisSegment.getStartPose(), thisSegment.getTotalRotation(), thisSegment.getMotionProfile(), newMarkers);
-            } else if (segment instanceof TrajectorySegment) {
-                TrajectorySegment thisSegment = (TrajectorySegment) segment;
+    private static SequenceSegment withMarkers(SequenceSegment segment, List<TrajectoryMarker> newMarkers) {
+        if (segment instanceof TrajectorySegment) {
+            Trajectory trajectory = ((TrajectorySegment) segment).getTrajectory();
 
-                List<TrajectoryMarker> newMarkers = new ArrayList<>(thisSegment.getTrajectory().getMarkers());
-                newMarkers.add(new TrajectoryMarker(segmentOffsetTime, marker.getCallback()));
+            List<TrajectoryMarker> markers = sortedMarkers(trajectory.getMarkers(), newMarkers);
+            return new TrajectorySegment(new Trajectory(trajectory.getPath(), trajectory.getProfile(), markers));
+        }
 
-                newSegment = new TrajectorySegment(new Trajectory(thisSegment.getTrajectory().getPath(), thisSegment.getTrajectory().getProfile(), newMarkers));
-            }
+        List<TrajectoryMarker> markers = sortedMarkers(segment.getMarkers(), newMarkers);
 
-            sequenceSegments.set(segmentIndex, newSegment);
+        if (segment instanceof TurnSegment) {
+            TurnSegment turnSegment = (TurnSegment) segment;
+            return new TurnSegment(turnSegment.getStartPose(), turnSegment.getTotalRotation(), turnSegment.getMotionProfile(), markers);
+        } else {
+            return new WaitSegment(segment.getStartPose(), segment.getDuration(), markers);
         }
+    }
 
-        return sequenceSegments;
+    private static List<TrajectoryMarker> sortedMarkers(List<TrajectoryMarker> existingMarkers, List<TrajectoryMarker> newMarkers) {
+        List<TrajectoryMarker> markers = new ArrayList<>(existingMarkers.size() + newMarkers.size());
+
+        markers.addAll(existingMarkers);
+        markers.addAll(newMarkers);
+        Collections.sort(markers, MARKERS_BY_TIME);
+
+        return Collections.unmodifiableList(markers);
     }
 
     // Taken from Road Runner's TrajectoryGenerator.displacementToTime() since it's private
@@ -656,57 +1024,62 @@ public class TrajectorySequenceBuilder {
         return 0.0;
     }
 
-    private Double pointToTime(List<SequenceSegment> sequenceSegments, Vector2d point) {
-        class ComparingPoints {
-            private final double distanceToPoint;
-            private final double totalDisplacement;
-            private final double thisPathDisplacement;
+    // Changed for RR+: finds the closest path through a spatial index instead of projecting onto every one
+    private Double pointToTime(List<SequenceSegment> sequenceSegments, PathSpatialIndex spatialIndex, Vector2d point) {
+        PathSpatialIndex.Projection closest = spatialIndex.project(point);
 
-            public ComparingPoints(double distanceToPoint, double totalDisplacement, double thisPathDisplacement) {
-                this.distanceToPoint = distanceToPoint;
-                this.totalDisplacement = totalDisplacement;
-                this.thisPathDisplacement = thisPathDisplacement;
-            }
+        if (closest == null) {
+            return 0.0;
         }
 
-        List<ComparingPoints> projectedPoints = new ArrayList<>();
+        double displacement = closest.displacement;
+
+        int pathIndex = 0;
 
         for (SequenceSegment segment : sequenceSegments) {
             if (segment instanceof TrajectorySegment) {
-                TrajectorySegment thisSegment = (TrajectorySegment) segment;
-
-                double displacement = thisSegment.getTrajectory().getPath().project(point, 0.25);
-                Vector2d projectedPoint = thisSegment.getTrajectory().getPath().get(displacement).vec();
-                double distanceToPoint = point.minus(projectedPoint).norm();
-
-                double totalDisplacement = 0.0;
+                if (pathIndex++ == closest.pathIndex) break;
 
-                for (ComparingPoints comparingPoint : projectedPoints) {
-                    totalDisplacement += comparingPoint.totalDisplacement;
-                }
-
-                totalDisplacement += displacement;
-
-                projectedPoints.add(new ComparingPoints(distanceToPoint, displacement, totalDisplacement));
+                displacement += ((TrajectorySegment) segment).getTrajectory().getPath().length();
             }
         }
 
-        ComparingPoints closestPoint = null;
+        return displacementToTime(sequenceSegments, displacement);
+    }
 
-        for (ComparingPoints comparingPoint : projectedPoints) {
-            if (closestPoint == null) {
-                closestPoint = comparingPoint;
-                continue;
-            }
+    private static PathSpatialIndex spatialIndexFor(List<SequenceSegment> sequenceSegments) {
+        List<Path> paths = new ArrayList<>();
 
-            if (comparingPoint.distanceToPoint < closestPoint.distanceToPoint)
-                closestPoint = comparingPoint;
+        for (SequenceSegment segment : sequenceSegments) {
+            if (segment instanceof TrajectorySegment) {
+                paths.add(((TrajectorySegment) segment).getTrajectory().getPath());
+            }
         }
 
-        return displacementToTime(sequenceSegments, closestPoint.thisPathDisplacement);
+        return new PathSpatialIndex(paths);
     }
 
     private interface AddPathCallback {
         void run();
     }
+
+    // Changed for RR+: a marker time that's kept up to date as its path is rebuilt
+    private static class PathMarkerTime implements TimeProducer {
+        // How much of the path had been added, and how long that took, when the marker was placed
+        private final int numPathCallbacks;
+        private final double coarsePathDuration;
+
+        private double time;
+
+        private PathMarkerTime(double time, int numPathCallbacks, double coarsePathDuration) {
+            this.time = time;
+            this.numPathCallbacks = numPathCallbacks;
+            this.coarsePathDuration = coarsePathDuration;
+        }
+
+        @Override
+        public double produce(double duration) {
+            return time;
+        }
+    }
 }
@@ -16,16 +16,20 @@ import com.acmerobotics.roadrunner.trajectory.Trajectory;
 import com.acmerobotics.roadrunner.trajectory.TrajectoryMarker;
 import com.acmerobotics.roadrunner.util.NanoClock;
 
+import org.firstinspires.ftc.teamcode.roadrunner.drive.BakedHolonomicPIDVAFollower;
 import org.firstinspires.ftc.teamcode.roadrunner.trajectorysequence.sequencesegment.SequenceSegment;
 import org.firstinspires.ftc.teamcode.roadrunner.trajectorysequence.sequencesegment.TrajectorySegment;
 import org.firstinspires.ftc.teamcode.roadrunner.trajectorysequence.sequencesegment.TurnSegment;
 import org.firstinspires.ftc.teamcode.roadrunner.trajectorysequence.sequencesegment.WaitSegment;
 import org.firstinspires.ftc.teamcode.roadrunner.util.DashboardUtil;
+import org.firstinspires.ftc.teamcode.roadrunner.util.PoseHistory;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 @Config
 public class TrajectorySequenceRunner {
@@ -39,6 +43,33 @@ public class TrajectorySequenceRunner {
 
     public static int POSE_HISTORY_LIMIT = 100;
 
+    // Changed for RR+: how many poses are kept for getPoseHistory() (only the latest
+    // POSE_HISTORY_LIMIT are drawn); e.g. a whole auto's worth at ~100 loops/sec is 3000
+    public static int POSE_HISTORY_CAPACITY = 100;
+
+    // Changed for RR+: the dashboard's only sent a packet this often, instead of every loop
+    public static int DASHBOARD_UPDATE_INTERVAL_MS = 50;
+
+    private static final Pose2d NO_POSE_ERROR = new Pose2d();
+    private static final DriveSignal NO_DRIVE_SIGNAL = new DriveSignal();
+
+    // Changed for RR+: sends packets off of the control thread; if it falls behind, only the
+    // latest packet's kept, and the thread goes away when the runner's not being used
+    private static final ThreadPoolExecutor DASHBOARD_SENDER = new ThreadPoolExecutor(
+            1, 1, 1, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(1),
+            runnable -> {
+                Thread thread = new Thread(runnable, "TrajectorySequenceRunner dashboard");
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.DiscardOldestPolicy()
+    );
+
+    static {
+        DASHBOARD_SENDER.allowCoreThreadTimeOut(true);
+    }
+
     private final TrajectoryFollower follower;
 
     private final PIDFController turnController;
@@ -50,23 +81,69 @@ public class TrajectorySequenceRunner {
     private int currentSegmentIndex;
     private int lastSegmentIndex;
 
-    private Pose2d lastPoseError = new Pose2d();
-
-    List<TrajectoryMarker> remainingMarkers = new ArrayList<>();
-
-    private final FtcDashboard dashboard;
-    private final LinkedList<Pose2d> poseHistory = new LinkedList<>();
+    private Pose2d lastPoseError = NO_POSE_ERROR;
+
+    // Changed for RR+: the builder sorts each segment's markers by time, so instead of copying &
+    // sorting them whenever a segment starts, the runner just keeps its place in them
+    private List<TrajectoryMarker> segmentMarkers = Collections.emptyList();
+    private int segmentMarkerCursor;
+
+    // Changed for RR+: markers left over from a sequence that was replaced before they were reached,
+    // which get fired as soon as the next segment starts
+    private final List<TrajectoryMarker> leftoverMarkers = new ArrayList<>();
+
+    // Changed for RR+: the markers of a StreamingTrajectorySequence seen so far, in order of
+    // sequence time, how many of them have been fired, and how far into the sequence the current
+    // segment started
+    private final List<TrajectoryMarker> streamedMarkers = new ArrayList<>();
+    private int streamedMarkerCursor;
+    private int numStreamedMarkersSeen;
+    private double currentSegmentSequenceTime;
+
+    private final @Nullable FtcDashboard dashboard;
+    private final PoseHistory poseHistory = new PoseHistory(Math.max(1, POSE_HISTORY_CAPACITY));
+    private double lastDashboardUpdateTime = Double.NEGATIVE_INFINITY;
+
+    // Changed for RR+: the drawn pose history's copied into these instead of new arrays every
+    // packet. A packet holds onto its pair until the dashboard gets around to sending it, so the
+    // pairs are taken in turn, and each one's only written to again POSE_HISTORY_BUFFERS packets
+    // (i.e. a few hundred ms) later, which is well after it's been sent
+    private static final int POSE_HISTORY_BUFFERS = 4;
+    private final double[][] poseHistoryXs = new double[POSE_HISTORY_BUFFERS][];
+    private final double[][] poseHistoryYs = new double[POSE_HISTORY_BUFFERS][];
+    private int poseHistoryBuffer;
+
+    // Changed for RR+: the sequence & current segment only need to be sampled & drawn once, so
+    // they're drawn into these, which every packet then reuses the operations of
+    private TrajectorySequence overlaySequence;
+    private int overlaySequenceSize;
+    private Canvas sequenceOverlay;
+
+    private SequenceSegment overlaySegment;
+    private Canvas segmentOverlay;
 
     public TrajectorySequenceRunner(TrajectoryFollower follower, PIDCoefficients headingPIDCoefficients) {
+        this(follower, headingPIDCoefficients, NanoClock.system(), FtcDashboard.getInstance());
+    }
+
+    // Changed for RR+: the clock & dashboard can be swapped out, e.g. to run it in a simulation,
+    // where the follower should be given the same clock; without a dashboard, nothing's sent
+    public TrajectorySequenceRunner(
+            TrajectoryFollower follower, PIDCoefficients headingPIDCoefficients,
+            NanoClock clock, @Nullable FtcDashboard dashboard
+    ) {
         this.follower = follower;
 
         turnController = new PIDFController(headingPIDCoefficients);
         turnController.setInputBounds(0, 2 * Math.PI);
 
-        clock = NanoClock.system();
+        this.clock = clock;
+
+        this.dashboard = dashboard;
 
-        dashboard = FtcDashboard.getInstance();
-        dashboard.setTelemetryTransmissionInterval(25);
+        if (dashboard != null) {
+            dashboard.setTelemetryTransmissionInterval(25);
+        }
     }
 
     public void followTrajectorySequenceAsync(TrajectorySequence trajectorySequence) {
@@ -74,6 +151,13 @@ public class TrajectorySequenceRunner {
         currentSegmentStartTime = clock.seconds();
         currentSegmentIndex = 0;
         lastSegmentIndex = -1;
+
+        // Same as any other leftover markers, these get fired as soon as the next segment starts
+        leftoverMarkers.addAll(streamedMarkers.subList(streamedMarkerCursor, streamedMarkers.size()));
+        streamedMarkers.clear();
+        streamedMarkerCursor = 0;
+        numStreamedMarkersSeen = 0;
+        currentSegmentSequenceTime = 0.0;
     }
 
     public @Nullable
@@ -81,26 +165,42 @@ public class TrajectorySequenceRunner {
         Pose2d targetPose = null;
         DriveSignal driveSignal = null;
 
-        TelemetryPacket packet = new TelemetryPacket();
-        Canvas fieldOverlay = packet.fieldOverlay();
+        // Changed for RR+: the target pose is only used for drawing, so it's only found when a packet's being sent
+        double now = clock.seconds();
+        boolean updatesDashboard = dashboard != null && now - lastDashboardUpdateTime >= DASHBOARD_UPDATE_INTERVAL_MS / 1000.0;
 
         SequenceSegment currentSegment = null;
 
-        if (currentTrajectorySequence != null) {
+        StreamingTrajectorySequence streamingSequence = currentTrajectorySequence instanceof StreamingTrajectorySequence
+                ? (StreamingTrajectorySequence) currentTrajectorySequence
+                : null;
+
+        if (streamingSequence != null) {
+            streamingSequence.rethrowIfFailed();
+        }
+
+        // Changed for RR+: holds still (like a wait segment) until the next segment's been built
+        if (streamingSequence != null && currentSegmentIndex >= streamingSequence.size() && !streamingSequence.isComplete()) {
+            lastPoseError = NO_POSE_ERROR;
+
+            targetPose = streamingSequence.end();
+            driveSignal = NO_DRIVE_SIGNAL;
+
+            fireStreamedMarkers(streamingSequence, Double.POSITIVE_INFINITY, streamingSequence.duration());
+        } else if (currentTrajectorySequence != null) {
             if (currentSegmentIndex >= currentTrajectorySequence.size()) {
-                for (TrajectoryMarker marker : remainingMarkers) {
-                    marker.getCallback().onMarkerReached();
+                if (streamingSequence != null) {
+                    fireStreamedMarkers(streamingSequence, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
                 }
 
-                remainingMarkers.clear();
+                fireRemainingMarkers();
 
                 currentTrajectorySequence = null;
             }
 
             if (currentTrajectorySequence == null)
-                return new DriveSignal();
+                return NO_DRIVE_SIGNAL;
 
-            double now = clock.seconds();
             boolean isNewTransition = currentSegmentIndex != lastSegmentIndex;
 
             currentSegment = currentTrajectorySequence.get(currentSegmentIndex);
@@ -109,14 +209,15 @@ public class TrajectorySequenceRunner {
                 currentSegmentStartTime = now;
                 lastSegmentIndex = currentSegmentIndex;
 
-                for (TrajectoryMarker marker : remainingMarkers) {
-                    marker.getCallback().onMarkerReached();
-                }
+                fireRemainingMarkers();
 
-                remainingMarkers.clear();
+                segmentMarkers = currentSegment.getMarkers();
+                segmentMarkerCursor = 0;
 
-                remainingMarkers.addAll(currentSegment.getMarkers());
-                Collections.sort(remainingMarkers, (t1, t2) -> Double.compare(t1.getTime(), t2.getTime()));
+                if (streamingSequence != null) {
+                    currentSegmentSequenceTime = sequenceTimeAt(streamingSequence, currentSegmentIndex);
+                    fireStreamedMarkers(streamingSequence, Double.POSITIVE_INFINITY, currentSegmentSequenceTime);
+                }
             }
 
             double deltaTime = now - currentSegmentStartTime;
@@ -124,19 +225,26 @@ public class TrajectorySequenceRunner {
             if (currentSegment instanceof TrajectorySegment) {
                 Trajectory currentTrajectory = ((TrajectorySegment) currentSegment).getTrajectory();
 
-                if (isNewTransition)
-                    follower.followTrajectory(currentTrajectory);
+                // Changed for RR+: follows the baked trajectory if it's done baking
+                if (isNewTransition) {
+                    if (follower instanceof BakedHolonomicPIDVAFollower) {
+                        ((BakedHolonomicPIDVAFollower) follower).followTrajectory(currentTrajectory, ((TrajectorySegment) currentSegment).getBakedTrajectory());
+                    } else {
+                        follower.followTrajectory(currentTrajectory);
+                    }
+                }
 
                 if (!follower.isFollowing()) {
                     currentSegmentIndex++;
 
-                    driveSignal = new DriveSignal();
+                    driveSignal = NO_DRIVE_SIGNAL;
                 } else {
                     driveSignal = follower.update(poseEstimate, poseVelocity);
                     lastPoseError = follower.getLastError();
                 }
 
-                targetPose = currentTrajectory.get(deltaTime);
+                if (updatesDashboard)
+                    targetPose = currentTrajectory.get(deltaTime);
             } else if (currentSegment instanceof TurnSegment) {
                 MotionState targetState = ((TurnSegment) currentSegment).getMotionProfile().get(deltaTime);
 
@@ -149,8 +257,10 @@ public class TrajectorySequenceRunner {
 
                 lastPoseError = new Pose2d(0, 0, turnController.getLastError());
 
-                Pose2d startPose = currentSegment.getStartPose();
-                targetPose = startPose.copy(startPose.getX(), startPose.getY(), targetState.getX());
+                if (updatesDashboard) {
+                    Pose2d startPose = currentSegment.getStartPose();
+                    targetPose = startPose.copy(startPose.getX(), startPose.getY(), targetState.getX());
+                }
 
                 driveSignal = new DriveSignal(
                         new Pose2d(0, 0, targetOmega + correction),
@@ -159,95 +269,144 @@ public class TrajectorySequenceRunner {
 
                 if (deltaTime >= currentSegment.getDuration()) {
                     currentSegmentIndex++;
-                    driveSignal = new DriveSignal();
+                    driveSignal = NO_DRIVE_SIGNAL;
                 }
             } else if (currentSegment instanceof WaitSegment) {
-                lastPoseError = new Pose2d();
+                lastPoseError = NO_POSE_ERROR;
 
                 targetPose = currentSegment.getStartPose();
-                driveSignal = new DriveSignal();
+                driveSignal = NO_DRIVE_SIGNAL;
 
                 if (deltaTime >= currentSegment.getDuration()) {
                     currentSegmentIndex++;
                 }
             }
 
-            while (remainingMarkers.size() > 0 && deltaTime > remainingMarkers.get(0).getTime()) {
-                remainingMarkers.get(0).getCallback().onMarkerReached();
-                remainingMarkers.remove(0);
+            while (segmentMarkerCursor < segmentMarkers.size() && deltaTime > segmentMarkers.get(segmentMarkerCursor).getTime()) {
+                segmentMarkers.get(segmentMarkerCursor++).getCallback().onMarkerReached();
             }
-        }
 
-        poseHistory.add(poseEstimate);
+            // Same as the builder projecting them onto segments, markers past the end of this one
+            // are left for the next one, and ones past the end of the whole sequence go in the last
+            if (streamingSequence != null) {
+                double sequenceTime = currentSegmentSequenceTime + deltaTime;
+                double segmentEndTime = currentSegmentSequenceTime + currentSegment.getDuration();
+
+                boolean isLastSegment = streamingSequence.isComplete() && lastSegmentIndex == streamingSequence.size() - 1;
+
+                if (isLastSegment) {
+                    fireStreamedMarkers(streamingSequence, sequenceTime > segmentEndTime ? Double.POSITIVE_INFINITY : sequenceTime, Double.POSITIVE_INFINITY);
+                } else {
+                    fireStreamedMarkers(streamingSequence, sequenceTime, segmentEndTime);
+                }
+            }
+        }
 
-        if (POSE_HISTORY_LIMIT > -1 && poseHistory.size() > POSE_HISTORY_LIMIT) {
-            poseHistory.removeFirst();
+        if (POSE_HISTORY_CAPACITY != poseHistory.capacity()) {
+            poseHistory.setCapacity(Math.max(1, POSE_HISTORY_CAPACITY));
         }
 
-        packet.put("x", poseEstimate.getX());
-        packet.put("y", poseEstimate.getY());
-        packet.put("heading (deg)", Math.toDegrees(poseEstimate.getHeading()));
+        poseHistory.add(now, poseEstimate, lastPoseError);
+
+        if (updatesDashboard) {
+            lastDashboardUpdateTime = now;
+
+            TelemetryPacket packet = new TelemetryPacket();
+
+            packet.put("x", poseEstimate.getX());
+            packet.put("y", poseEstimate.getY());
+            packet.put("heading (deg)", Math.toDegrees(poseEstimate.getHeading()));
 
-        packet.put("xError", getLastPoseError().getX());
-        packet.put("yError", getLastPoseError().getY());
-        packet.put("headingError (deg)", Math.toDegrees(getLastPoseError().getHeading()));
+            packet.put("xError", getLastPoseError().getX());
+            packet.put("yError", getLastPoseError().getY());
+            packet.put("headingError (deg)", Math.toDegrees(getLastPoseError().getHeading()));
 
-        draw(fieldOverlay, currentTrajectorySequence, currentSegment, targetPose, poseEstimate);
+            if (follower instanceof BakedHolonomicPIDVAFollower) {
+                BakedHolonomicPIDVAFollower bakedFollower = (BakedHolonomicPIDVAFollower) follower;
 
-        dashboard.sendTelemetryPacket(packet);
+                packet.put("latency (ms)", bakedFollower.getMeasuredLatency() * 1000);
+                packet.put("compensating latency", bakedFollower.isCompensatingLatency());
+            }
+
+            draw(packet.fieldOverlay(), currentTrajectorySequence, currentSegment, targetPose, poseEstimate);
+
+            DASHBOARD_SENDER.execute(() -> dashboard.sendTelemetryPacket(packet));
+        }
 
         return driveSignal;
     }
 
+    // Changed for RR+: fires the rest of the current segment's markers, and any leftover ones. The
+    // cursor's moved before each callback, since one could start another sequence.
+    private void fireRemainingMarkers() {
+        while (segmentMarkerCursor < segmentMarkers.size()) {
+            segmentMarkers.get(segmentMarkerCursor++).getCallback().onMarkerReached();
+        }
+
+        for (int i = 0; i < leftoverMarkers.size(); i++) {
+            leftoverMarkers.get(i).getCallback().onMarkerReached();
+        }
+
+        leftoverMarkers.clear();
+    }
+
+    // Changed for RR+: fires the streamed markers before exclusiveLimit and up to inclusiveLimit
+    private void fireStreamedMarkers(StreamingTrajectorySequence sequence, double exclusiveLimit, double inclusiveLimit) {
+        List<TrajectoryMarker> markers = sequence.getMarkers();
+
+        // Markers can be streamed in out of order (e.g. ones with negative offsets); one that's
+        // earlier than ones that were already fired just goes next
+        for (; numStreamedMarkersSeen < markers.size(); numStreamedMarkersSeen++) {
+            TrajectoryMarker marker = markers.get(numStreamedMarkersSeen);
+
+            int i = streamedMarkers.size();
+            while (i > streamedMarkerCursor && streamedMarkers.get(i - 1).getTime() > marker.getTime()) i--;
+
+            streamedMarkers.add(i, marker);
+        }
+
+        while (streamedMarkerCursor < streamedMarkers.size()) {
+            double time = streamedMarkers.get(streamedMarkerCursor).getTime();
+
+            if (time >= exclusiveLimit || time > inclusiveLimit) break;
+
+            streamedMarkers.get(streamedMarkerCursor++).getCallback().onMarkerReached();
+        }
+    }
+
+    private static double sequenceTimeAt(TrajectorySequence sequence, int segmentIndex) {
+        double time = 0.0;
+
+        for (int i = 0; i < segmentIndex; i++) {
+            time += sequence.get(i).getDuration();
+        }
+
+        return time;
+    }
+
     private void draw(
             Canvas fieldOverlay,
             TrajectorySequence sequence, SequenceSegment currentSegment,
             Pose2d targetPose, Pose2d poseEstimate
     ) {
-        if (sequence != null) {
-            for (int i = 0; i < sequence.size(); i++) {
-                SequenceSegment segment = sequence.get(i);
-
-                if (segment instanceof TrajectorySegment) {
-                    fieldOverlay.setStrokeWidth(1);
-                    fieldOverlay.setStroke(COLOR_INACTIVE_TRAJECTORY);
-
-                    DashboardUtil.drawSampledPath(fieldOverlay, ((TrajectorySegment) segment).getTrajectory().getPath());
-                } else if (segment instanceof TurnSegment) {
-                    Pose2d pose = segment.getStartPose();
-
-                    fieldOverlay.setFill(COLOR_INACTIVE_TURN);
-                    fieldOverlay.fillCircle(pose.getX(), pose.getY(), 2);
-                } else if (segment instanceof WaitSegment) {
-                    Pose2d pose = segment.getStartPose();
-
-                    fieldOverlay.setStrokeWidth(1);
-                    fieldOverlay.setStroke(COLOR_INACTIVE_WAIT);
-                    fieldOverlay.strokeCircle(pose.getX(), pose.getY(), 3);
-                }
-            }
+        // Changed for RR+: a streaming sequence is redrawn whenever more of it's been built
+        if (sequence != overlaySequence || (sequence != null && sequence.size() != overlaySequenceSize)) {
+            overlaySequence = sequence;
+            overlaySequenceSize = sequence != null ? sequence.size() : 0;
+            sequenceOverlay = sequence != null ? drawSequence(sequence) : null;
         }
 
-        if (currentSegment != null) {
-            if (currentSegment instanceof TrajectorySegment) {
-                Trajectory currentTrajectory = ((TrajectorySegment) currentSegment).getTrajectory();
-
-                fieldOverlay.setStrokeWidth(1);
-                fieldOverlay.setStroke(COLOR_ACTIVE_TRAJECTORY);
-
-                DashboardUtil.drawSampledPath(fieldOverlay, currentTrajectory.getPath());
-            } else if (currentSegment instanceof TurnSegment) {
-                Pose2d pose = currentSegment.getStartPose();
+        if (currentSegment != overlaySegment) {
+            overlaySegment = currentSegment;
+            segmentOverlay = currentSegment != null ? drawCurrentSegment(currentSegment) : null;
+        }
 
-                fieldOverlay.setFill(COLOR_ACTIVE_TURN);
-                fieldOverlay.fillCircle(pose.getX(), pose.getY(), 3);
-            } else if (currentSegment instanceof WaitSegment) {
-                Pose2d pose = currentSegment.getStartPose();
+        if (sequenceOverlay != null) {
+            fieldOverlay.getOperations().addAll(sequenceOverlay.getOperations());
+        }
 
-                fieldOverlay.setStrokeWidth(1);
-                fieldOverlay.setStroke(COLOR_ACTIVE_WAIT);
-                fieldOverlay.strokeCircle(pose.getX(), pose.getY(), 3);
-            }
+        if (segmentOverlay != null) {
+            fieldOverlay.getOperations().addAll(segmentOverlay.getOperations());
         }
 
         if (targetPose != null) {
@@ -256,17 +415,94 @@ public class TrajectorySequenceRunner {
             DashboardUtil.drawRobot(fieldOverlay, targetPose);
         }
 
-        fieldOverlay.setStroke("#3F51B5");
-        DashboardUtil.drawPoseHistory(fieldOverlay, poseHistory);
+        int numDrawnPoses = POSE_HISTORY_LIMIT < 0
+                ? poseHistory.capacity()
+                : Math.min(POSE_HISTORY_LIMIT, poseHistory.capacity());
+
+        if (numDrawnPoses > 0) {
+            poseHistoryBuffer = (poseHistoryBuffer + 1) % POSE_HISTORY_BUFFERS;
+
+            // Only reallocated if the limit or capacity's been changed
+            if (poseHistoryXs[poseHistoryBuffer] == null || poseHistoryXs[poseHistoryBuffer].length != numDrawnPoses) {
+                poseHistoryXs[poseHistoryBuffer] = new double[numDrawnPoses];
+                poseHistoryYs[poseHistoryBuffer] = new double[numDrawnPoses];
+            }
+
+            fieldOverlay.setStroke("#3F51B5");
+            DashboardUtil.drawPoseHistory(fieldOverlay, poseHistory, poseHistoryXs[poseHistoryBuffer], poseHistoryYs[poseHistoryBuffer]);
+        }
 
         fieldOverlay.setStroke("#3F51B5");
         DashboardUtil.drawRobot(fieldOverlay, poseEstimate);
     }
 
+    private static Canvas drawSequence(TrajectorySequence sequence) {
+        Canvas overlay = new Canvas();
+
+        for (int i = 0; i < sequence.size(); i++) {
+            SequenceSegment segment = sequence.get(i);
+
+            if (segment instanceof TrajectorySegment) {
+                overlay.setStrokeWidth(1);
+                overlay.setStroke(COLOR_INACTIVE_TRAJECTORY);
+
+                DashboardUtil.drawSampledPath(overlay, ((TrajectorySegment) segment).getTrajectory().getPath());
+            } else if (segment instanceof TurnSegment) {
+                Pose2d pose = segment.getStartPose();
+
+                overlay.setFill(COLOR_INACTIVE_TURN);
+                overlay.fillCircle(pose.getX(), pose.getY(), 2);
+            } else if (segment instanceof WaitSegment) {
+                Pose2d pose = segment.getStartPose();
+
+                overlay.setStrokeWidth(1);
+                overlay.setStroke(COLOR_INACTIVE_WAIT);
+                overlay.strokeCircle(pose.getX(), pose.getY(), 3);
+            }
+        }
+
+        return overlay;
+    }
+
+    private static Canvas drawCurrentSegment(SequenceSegment currentSegment) {
+        Canvas overlay = new Canvas();
+
+        if (currentSegment instanceof TrajectorySegment) {
+            Trajectory currentTrajectory = ((TrajectorySegment) currentSegment).getTrajectory();
+
+            overlay.setStrokeWidth(1);
+            overlay.setStroke(COLOR_ACTIVE_TRAJECTORY);
+
+            DashboardUtil.drawSampledPath(overlay, currentTrajectory.getPath());
+        } else if (currentSegment instanceof TurnSegment) {
+            Pose2d pose = currentSegment.getStartPose();
+
+            overlay.setFill(COLOR_ACTIVE_TURN);
+            overlay.fillCircle(pose.getX(), pose.getY(), 3);
+        } else if (currentSegment instanceof WaitSegment) {
+            Pose2d pose = currentSegment.getStartPose();
+
+            overlay.setStrokeWidth(1);
+            overlay.setStroke(COLOR_ACTIVE_WAIT);
+            overlay.strokeCircle(pose.getX(), pose.getY(), 3);
+        }
+
+        return overlay;
+    }
+
     public Pose2d getLastPoseError() {
         return lastPoseError;
     }
 
+    /**
+     * Changed for RR+: the latest poses the runner was updated with (up to POSE_HISTORY_CAPACITY of
+     * them), along with the pose error at each, e.g. for looking at how well an auto was followed
+     * after it's done.
+     */
+    public PoseHistory getPoseHistory() {
+        return poseHistory;
+    }
+
     public boolean isBusy() {
         return currentTrajectorySequence != null;
     }
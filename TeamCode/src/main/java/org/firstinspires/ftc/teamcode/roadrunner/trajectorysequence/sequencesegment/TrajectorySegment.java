@@ -1,12 +1,22 @@
 package org.firstinspires.ftc.teamcode.roadrunner.trajectorysequence.sequencesegment;
 
+import androidx.annotation.Nullable;
+
 import com.acmerobotics.roadrunner.trajectory.Trajectory;
 
 import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import ftc.rogue.blacksmith.util.BakedTrajectory;
 
 public final class TrajectorySegment extends SequenceSegment {
     private final Trajectory trajectory;
 
+    // Changed for RR+: null unless the builder was told to bake trajectories. Transient so that the
+    // TrajectoryCache skips it; a loaded sequence is baked again instead
+    private transient volatile Future<BakedTrajectory> baking;
+
     public TrajectorySegment(Trajectory trajectory) {
         // Note: Markers are already stored in the `Trajectory` itself.
         // This class should not hold any markers
@@ -17,4 +27,29 @@ public final class TrajectorySegment extends SequenceSegment {
     public Trajectory getTrajectory() {
         return this.trajectory;
     }
+
+    /**
+     * Changed for RR+: starts baking the trajectory in the background, if it isn't already.
+     */
+    public void bakeAsync() {
+        if (baking == null) {
+            baking = BakedTrajectory.bakeAsync(trajectory);
+        }
+    }
+
+    /**
+     * Changed for RR+: the baked trajectory, or null if it isn't done baking yet (or wasn't ever
+     * baked), in which case the trajectory itself should be followed instead.
+     */
+    public @Nullable BakedTrajectory getBakedTrajectory() {
+        Future<BakedTrajectory> baking = this.baking;
+
+        if (baking == null || !baking.isDone()) return null;
+
+        try {
+            return baking.get();
+        } catch (ExecutionException | InterruptedException e) {
+            return null;
+        }
+    }
 }
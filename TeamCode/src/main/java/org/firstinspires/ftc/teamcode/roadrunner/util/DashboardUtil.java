@@ -5,6 +5,7 @@ import com.acmerobotics.roadrunner.geometry.Pose2d;
 import com.acmerobotics.roadrunner.geometry.Vector2d;
 import com.acmerobotics.roadrunner.path.Path;
 
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -26,6 +27,22 @@ public class DashboardUtil {
         canvas.strokePolyline(xPoints, yPoints);
     }
 
+    // Changed for RR+: draws the latest (up to) xPoints.length poses, copied into the given arrays
+    // instead of new ones, so the caller can reuse them. The canvas holds onto the arrays until the
+    // packet's sent, so they can't be written to again before then. If fewer poses have been kept,
+    // the rest of the arrays are filled with the latest one, which doesn't change what's drawn.
+    public static void drawPoseHistory(Canvas canvas, PoseHistory poseHistory, double[] xPoints, double[] yPoints) {
+        int count = Math.min(xPoints.length, poseHistory.size());
+        if (count == 0) return;
+
+        poseHistory.copyLatestPositions(count, xPoints, yPoints);
+
+        Arrays.fill(xPoints, count, xPoints.length, xPoints[count - 1]);
+        Arrays.fill(yPoints, count, yPoints.length, yPoints[count - 1]);
+
+        canvas.strokePolyline(xPoints, yPoints);
+    }
+
     public static void drawSampledPath(Canvas canvas, Path path, double resolution) {
         int samples = (int) Math.ceil(path.length() / resolution);
         double[] xPoints = new double[samples];
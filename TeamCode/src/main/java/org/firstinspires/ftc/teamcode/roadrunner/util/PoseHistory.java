@@ -0,0 +1,166 @@
+package org.firstinspires.ftc.teamcode.roadrunner.util;
+
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+
+/**
+ * Changed for RR+: a fixed-size ring buffer of the robot's poses (and how far off they were from
+ * the target), kept in primitive arrays so that recording one doesn't allocate anything. Once it's
+ * full, each new pose overwrites the oldest one.
+ * <p>
+ * Indices go from 0 (the oldest pose still kept) to {@link #size()} - 1 (the latest one).
+ */
+public class PoseHistory {
+    private double[] times;
+    private double[] xs, ys, headings;
+    private double[] xErrors, yErrors, headingErrors;
+
+    private int start;
+    private int size;
+
+    public PoseHistory(int capacity) {
+        allocate(capacity);
+    }
+
+    /**
+     * Records a pose & its error, at the given time (in seconds).
+     */
+    public void add(double time, Pose2d pose, Pose2d error) {
+        int i;
+
+        if (size < capacity()) {
+            i = index(size++);
+        } else {
+            i = start;
+            start = (start + 1) % capacity();
+        }
+
+        times[i] = time;
+
+        xs[i] = pose.getX();
+        ys[i] = pose.getY();
+        headings[i] = pose.getHeading();
+
+        xErrors[i] = error.getX();
+        yErrors[i] = error.getY();
+        headingErrors[i] = error.getHeading();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return xs.length;
+    }
+
+    /**
+     * Changes how many poses are kept, keeping the latest ones if it's shrunk. This allocates, so
+     * don't call it every loop.
+     */
+    public void setCapacity(int capacity) {
+        if (capacity == capacity()) return;
+
+        double[][] old = { times, xs, ys, headings, xErrors, yErrors, headingErrors };
+        int oldStart = start, oldCapacity = capacity(), kept = Math.min(size, capacity);
+        int skipped = size - kept;
+
+        allocate(capacity);
+
+        double[][] copies = { times, xs, ys, headings, xErrors, yErrors, headingErrors };
+
+        for (int column = 0; column < old.length; column++) {
+            for (int i = 0; i < kept; i++) {
+                copies[column][i] = old[column][(oldStart + skipped + i) % oldCapacity];
+            }
+        }
+
+        size = kept;
+    }
+
+    public void clear() {
+        start = 0;
+        size = 0;
+    }
+
+    public double getTime(int i) {
+        return times[checkedIndex(i)];
+    }
+
+    public double getX(int i) {
+        return xs[checkedIndex(i)];
+    }
+
+    public double getY(int i) {
+        return ys[checkedIndex(i)];
+    }
+
+    public double getHeading(int i) {
+        return headings[checkedIndex(i)];
+    }
+
+    public double getXError(int i) {
+        return xErrors[checkedIndex(i)];
+    }
+
+    public double getYError(int i) {
+        return yErrors[checkedIndex(i)];
+    }
+
+    public double getHeadingError(int i) {
+        return headingErrors[checkedIndex(i)];
+    }
+
+    public Pose2d getPose(int i) {
+        int index = checkedIndex(i);
+        return new Pose2d(xs[index], ys[index], headings[index]);
+    }
+
+    public Pose2d getError(int i) {
+        int index = checkedIndex(i);
+        return new Pose2d(xErrors[index], yErrors[index], headingErrors[index]);
+    }
+
+    /**
+     * Copies the x & y coordinates of the latest {@code count} poses, oldest first, into the given
+     * arrays, which must be at least {@code count} long.
+     */
+    public void copyLatestPositions(int count, double[] xPoints, double[] yPoints) {
+        int from = size - count;
+
+        for (int i = 0; i < count; i++) {
+            int index = index(from + i);
+
+            xPoints[i] = xs[index];
+            yPoints[i] = ys[index];
+        }
+    }
+
+    private void allocate(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Pose history capacity must be at least 1, not " + capacity);
+        }
+
+        times = new double[capacity];
+        xs = new double[capacity];
+        ys = new double[capacity];
+        headings = new double[capacity];
+        xErrors = new double[capacity];
+        yErrors = new double[capacity];
+        headingErrors = new double[capacity];
+
+        start = 0;
+        size = 0;
+    }
+
+    private int index(int i) {
+        return (start + i) % capacity();
+    }
+
+    private int checkedIndex(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index " + i + " out of bounds for pose history of size " + size);
+        }
+
+        return index(i);
+    }
+}
@@ -8,11 +8,13 @@ import com.arcrobotics.ftclib.hardware.SimpleServo
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode
 import ftc.rogue.blacksmith.BlackOp
 import ftc.rogue.blacksmith.BlackOp.Companion.mTelemetry
+import ftc.rogue.blacksmith.Scheduler
 import ftc.rogue.blacksmith.util.kt.invoke
 import org.firstinspires.ftc.teamcode.R
 import org.firstinspires.ftc.teamcode.pipelines.AprilTagDetectionPipeline
 import org.firstinspires.ftc.teamcode.pipelines.TapeDetector
 import org.firstinspires.ftc.teamcodekt.components.meta.DeviceNames
+import org.openftc.apriltag.AprilTagDetection
 import org.openftc.easyopencv.OpenCvCamera
 import org.openftc.easyopencv.OpenCvCameraFactory
 import org.openftc.easyopencv.OpenCvCameraRotation
@@ -41,6 +43,15 @@ class Camera {
     val aprilTagDetectionPipeline = AprilTagDetectionPipeline(tagsize, fx, fy, cx, cy)
     val tapeDetectorPipeline = TapeDetector(mTelemetry)
 
+    // Both only ever written on the main loop, by the pipelines' messages
+    private var latestDetections: List<AprilTagDetection> = emptyList()
+
+    var tapeAngle = -1.0
+        private set
+
+    var tapeCorrection = -1.0
+        private set
+
     fun lookForwards() {
         targetAngle = CAM_FORWARDS
         update()
@@ -60,6 +71,15 @@ class Camera {
     }
 
     init {
+        Scheduler.onValue<ArrayList<AprilTagDetection>>(AprilTagDetectionPipeline.DETECTIONS_MSG) {
+            latestDetections = this
+        }
+
+        Scheduler.onValue<TapeDetector.Reading>(TapeDetector.READING_MSG) {
+            this@Camera.tapeAngle = this.tapeAngle
+            tapeCorrection = correction
+        }
+
         camera = OpenCvCameraFactory.getInstance().createWebcam(
             BlackOp.hwMap(DeviceNames.WEBCAM1),
             R.id.cameraMonitorViewId,
@@ -103,7 +123,10 @@ class Camera {
         var numFramesWithoutDetection = 0
         var lastIntID: Int? = null
 
-        val detections = aprilTagDetectionPipeline.detectionsUpdate
+        // Called from the init loop, before the Scheduler's ticking
+        Scheduler.deliverAsyncMessages()
+
+        val detections = latestDetections
 
         if (detections.size == 0) {
             numFramesWithoutDetection++
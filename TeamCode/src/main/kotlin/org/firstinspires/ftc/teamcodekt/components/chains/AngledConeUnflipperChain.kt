@@ -4,6 +4,7 @@ package org.firstinspires.ftc.teamcodekt.components.chains
 
 import com.acmerobotics.dashboard.config.Config
 import ftc.rogue.blacksmith.chains.Chain
+import ftc.rogue.blacksmith.internal.scheduler.TickPhase
 import ftc.rogue.blacksmith.listeners.Listener
 import ftc.rogue.blacksmith.listeners.after
 import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit
@@ -49,23 +50,25 @@ class AngledConeUnflipperChain(val bot: TeleOpBotComponents) : Chain {
             bot.lift.goToZero()
         }
 
-        Listener { isRunning && bot.rcs.getDistance(DistanceUnit.CM) < .675 }.onRise {
-            bot.intake.disable()
-            isRunning = false
-
-            after(30).milliseconds {
-                bot.claw.close()
-            }
-
-            after(35).milliseconds {
-                bot.claw.close()
-            }
-
-            after(250).milliseconds {
-                bot.wrist.setToRestingPos()
-                bot.arm.goToRest()
-                bot.lift.goToZero()
+        Listener { isRunning && bot.rcs.getDistance(DistanceUnit.CM) < .675 }
+            .readIn(TickPhase.SENSOR_READ)
+            .onRise {
+                bot.intake.disable()
+                isRunning = false
+
+                after(30).milliseconds {
+                    bot.claw.close()
+                }
+
+                after(35).milliseconds {
+                    bot.claw.close()
+                }
+
+                after(250).milliseconds {
+                    bot.wrist.setToRestingPos()
+                    bot.arm.goToRest()
+                    bot.lift.goToZero()
+                }
             }
-        }
     }
 }
@@ -3,6 +3,7 @@
 package org.firstinspires.ftc.teamcodekt.components.chains
 
 import ftc.rogue.blacksmith.chains.CancellableChain
+import ftc.rogue.blacksmith.internal.scheduler.TickPhase
 import ftc.rogue.blacksmith.listeners.Listener
 import ftc.rogue.blacksmith.listeners.after
 import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit
@@ -30,19 +31,21 @@ class FlatConeUnflipperChain(val bot: TeleOpBotComponents) : CancellableChain {
             intakeTime = true
         }
 
-        Listener { intakeTime && bot.rcs.getDistance(DistanceUnit.CM) < .8 }.onRise {
-            bot.intake.disable()
-            intakeTime = false
+        Listener { intakeTime && bot.rcs.getDistance(DistanceUnit.CM) < .8 }
+            .readIn(TickPhase.SENSOR_READ)
+            .onRise {
+                bot.intake.disable()
+                intakeTime = false
 
-            after(75).milliseconds {
-                bot.claw.close()
-            }
+                after(75).milliseconds {
+                    bot.claw.close()
+                }
 
-            after(250).milliseconds {
-                bot.wrist.setToRestingPos()
-                bot.arm.goToRest()
+                after(250).milliseconds {
+                    bot.wrist.setToRestingPos()
+                    bot.arm.goToRest()
+                }
             }
-        }
     }
 
     override fun cancelOn(button: Listener) = (button + { !isCancelled })
@@ -3,6 +3,7 @@
 package org.firstinspires.ftc.teamcodekt.components.chains
 
 import ftc.rogue.blacksmith.chains.Chain
+import ftc.rogue.blacksmith.internal.scheduler.TickPhase
 import ftc.rogue.blacksmith.listeners.Listener
 import ftc.rogue.blacksmith.listeners.after
 import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit
@@ -37,18 +38,20 @@ class IntakeChain(val bot: TeleOpBotComponents) : Chain {
             bot.arm.goToRest()
         }
 
-        Listener { isRunning && bot.rcs.getDistance(DistanceUnit.CM) < .8 }.onRise {
-            bot.intake.disable()
-            isRunning = false
+        Listener { isRunning && bot.rcs.getDistance(DistanceUnit.CM) < .8 }
+            .readIn(TickPhase.SENSOR_READ)
+            .onRise {
+                bot.intake.disable()
+                isRunning = false
 
-            after(75).milliseconds {
-                bot.claw.close()
-            }
+                after(75).milliseconds {
+                    bot.claw.close()
+                }
 
-            after(250).milliseconds {
-                bot.wrist.setToRestingPos()
-                bot.arm.goToRest()
+                after(250).milliseconds {
+                    bot.wrist.setToRestingPos()
+                    bot.arm.goToRest()
+                }
             }
-        }
     }
 }
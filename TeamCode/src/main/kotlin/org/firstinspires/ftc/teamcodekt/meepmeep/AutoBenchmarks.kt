@@ -0,0 +1,84 @@
+package org.firstinspires.ftc.teamcodekt.meepmeep
+
+import ftc.rogue.blacksmith.Anvil
+import ftc.rogue.blacksmith.util.sim.SimDrive
+import org.firstinspires.ftc.teamcode.roadrunner.drive.DriveConstants.*
+import org.firstinspires.ftc.teamcode.roadrunner.drive.SampleMecanumDrive
+import org.firstinspires.ftc.teamcode.roadrunner.trajectorysequence.TrajectorySequence
+import org.firstinspires.ftc.teamcode.roadrunner.trajectorysequence.TrajectorySequenceBuilder
+import org.firstinspires.ftc.teamcodekt.opmodes.auto.RogueBaseAuto
+import org.firstinspires.ftc.teamcodekt.opmodes.auto.combined.RogueCombinedLeftAuto
+import org.firstinspires.ftc.teamcodekt.opmodes.auto.high.*
+import org.firstinspires.ftc.teamcodekt.opmodes.auto.mid.*
+
+// What the desktop benchmarks share: every auto is built on a SimDrive (since there's no hardware
+// to create the bot from), and each measurement is the median of a bunch of builds
+
+internal const val WARMUP_RUNS = 10
+internal const val TIMED_RUNS = 25
+
+// Every auto, except for the one that says not to use it
+internal val BENCHMARKED_AUTOS = listOf<() -> RogueBaseAuto>(
+    ::RogueCombinedLeftAuto,
+    ::AnActuallyGoodAutoOnSouthHighPole,
+    ::HighAuto14VSouthPole,
+    ::NewHighLeftAuto,
+    ::RogueHighLeftAuto,
+    ::RogueHighRightAuto,
+    ::ShinyNewHighLeft,
+    ::NewMidLeftAuto,
+    ::NewMidRightAuto,
+    ::RogueMidLeftAuto,
+    ::RogueMidRightAuto,
+    ::ShinyNewMidRight,
+)
+
+/**
+ * A drive to build the autos with, which runs [configureBuilder] on every builder it creates before
+ * anything's added to it (e.g. to set its resolution).
+ */
+internal fun newBenchmarkDrive(configureBuilder: TrajectorySequenceBuilder.() -> Unit = {}) = SimDrive(
+    { startPose ->
+        TrajectorySequenceBuilder(
+            startPose,
+            SampleMecanumDrive.getVelocityConstraint(MAX_VEL, MAX_ANG_VEL, TRACK_WIDTH),
+            SampleMecanumDrive.getAccelerationConstraint(MAX_ACCEL),
+            MAX_ANG_VEL, MAX_ANG_ACCEL,
+        ).apply(configureBuilder)
+    },
+    SampleMecanumDrive::getVelocityConstraint,
+    SampleMecanumDrive::getAccelerationConstraint,
+    { SampleMecanumDrive.createTrajectorySequenceRunner(it, null) },
+)
+
+internal class TimedBuild(val nanos: Long, val anvil: Anvil, val sequence: TrajectorySequence)
+
+/**
+ * Forges the auto's main trajectory on the drive, and times how long it takes to build. Whatever
+ * it started building in the background (e.g. its parking trajectories) is finished afterwards, so
+ * that it doesn't slow down the next build.
+ */
+internal fun buildOnce(auto: RogueBaseAuto, drive: SimDrive): TimedBuild {
+    val anvil = auto.forgeMainTrajWith(drive)
+
+    val start = System.nanoTime()
+    val sequence = anvil.build<TrajectorySequence>()
+    val nanos = System.nanoTime() - start
+
+    Anvil.awaitBackgroundBuilds()
+
+    return TimedBuild(nanos, anvil, sequence)
+}
+
+/**
+ * Runs [build] [WARMUP_RUNS] times, then returns the median time (in ms) of [TIMED_RUNS] more,
+ * along with the last of them.
+ */
+internal fun medianBuild(build: () -> TimedBuild): Pair<Double, TimedBuild> {
+    repeat(WARMUP_RUNS) { build() }
+
+    val builds = List(TIMED_RUNS) { build() }
+    val medianMs = builds.map { it.nanos }.sorted()[TIMED_RUNS / 2] / 1e6
+
+    return medianMs to builds.last()
+}
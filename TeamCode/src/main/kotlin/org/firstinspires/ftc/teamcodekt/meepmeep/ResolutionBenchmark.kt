@@ -0,0 +1,40 @@
+package org.firstinspires.ftc.teamcodekt.meepmeep
+
+import ftc.rogue.blacksmith.Anvil
+import org.firstinspires.ftc.teamcode.roadrunner.trajectorysequence.TrajectorySequenceBuilder
+
+// Builds every auto's paths with each resolution mode, and prints how long each took to build, how
+// many samples went into the profiles, and how much the auto's total time changed
+fun main() {
+    Anvil.setIncrementalBuilds(false)
+
+    val modes = linkedMapOf<String, TrajectorySequenceBuilder.() -> Unit>(
+        "Fixed 0.25in (default)" to { },
+        "Fixed 1in" to { setResolution(1.0) },
+        "Adaptive (1 in/s)" to { setAdaptiveResolution(1.0) },
+        "Adaptive (5 in/s)" to { setAdaptiveResolution(5.0) },
+    )
+
+    println("%-36s %-24s %12s %12s %12s".format("Auto", "Mode", "Build (ms)", "Samples", "Duration (s)"))
+
+    try {
+        BENCHMARKED_AUTOS.forEach { newAuto ->
+            val auto = newAuto()
+            val baseline = buildOnce(auto, newBenchmarkDrive(modes.values.first())).sequence.duration()
+
+            modes.forEach { (name, mode) ->
+                val drive = newBenchmarkDrive(mode)
+                val (medianMs, build) = medianBuild { buildOnce(auto, drive) }
+
+                val numSamples = build.anvil.getRawBuilder<TrajectorySequenceBuilder>().numProfileSamples
+                val duration = build.sequence.duration()
+
+                println("%-36s %-24s %12.2f %12d %12.3f (%+.3f)".format(
+                    auto.javaClass.simpleName, name, medianMs, numSamples, duration, duration - baseline,
+                ))
+            }
+        }
+    } finally {
+        Anvil.setIncrementalBuilds(true)
+    }
+}
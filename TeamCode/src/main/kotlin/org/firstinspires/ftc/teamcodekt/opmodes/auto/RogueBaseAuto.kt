@@ -10,6 +10,8 @@ import ftc.rogue.blacksmith.Anvil
 import ftc.rogue.blacksmith.BlackOp
 import ftc.rogue.blacksmith.Scheduler
 import ftc.rogue.blacksmith.internal.scheduler.Schedulables
+import ftc.rogue.blacksmith.internal.scheduler.TickPhase
+import ftc.rogue.blacksmith.listeners.Listener
 import ftc.rogue.blacksmith.listeners.ReforgedGamepad
 import ftc.rogue.blacksmith.units.DistanceUnit
 import ftc.rogue.blacksmith.util.toCm
@@ -25,6 +27,21 @@ abstract class RogueBaseAuto : BlackOp() {
     protected abstract val startPose: Pose2d
     protected abstract fun mainTraj(startPose: Pose2d): Anvil
 
+    // What every trajectory's forged with; the bot's drive, unless it's being built off the robot
+    protected val drive: Any
+        get() = offRobotDrive ?: bot.drive
+
+    private var offRobotDrive: Any? = null
+
+    /**
+     * Forges the main trajectory (and anything it hands off to) with the given drive instead of the
+     * bot's, e.g. a SimDrive on a desktop, where there's no hardware to create the bot from.
+     */
+    fun forgeMainTrajWith(drive: Any): Anvil {
+        offRobotDrive = drive
+        return mainTraj(startPose)
+    }
+
     protected var poleOffset = Vector2d()
         private set
 
@@ -49,20 +66,25 @@ abstract class RogueBaseAuto : BlackOp() {
         bot.camera.setTapeDetectionPipeline()
         bot.camera.lookDown()
 
-        Scheduler.debug({ opModeIsActive() && !isStopRequested }) {
+        Scheduler.beforeEach {
+            PhotonCore.CONTROL_HUB.clearBulkCache()
+        }
+
+        // Every hardware write goes out together, once the markers & listeners have ran
+        Listener.always(TickPhase.ACTUATE) {
             bot.updateComponents(useLiftDeadzone = false)
+        }
 
+        Scheduler.debug({ opModeIsActive() && !isStopRequested }) {
             bot.lift.printLiftTelem()
             mTelemetry.addLine("Pole offset: x->${poleOffset.x}, y->${poleOffset.y}")
             mTelemetry.addData("Loop time", loopTime)
             mTelemetry.addData("FPS", bot.camera.camera.fps)
             mTelemetry.addData("Overhead ms", bot.camera.camera.overheadTimeMs)
             mTelemetry.addData("Pipeline ms", bot.camera.camera.pipelineTimeMs)
-            mTelemetry.addData("Angle: ", bot.camera.tapeDetectorPipeline.tapeAngle)
-            mTelemetry.addData("Correction: ", bot.camera.tapeDetectorPipeline.correction)
+            mTelemetry.addData("Angle: ", bot.camera.tapeAngle)
+            mTelemetry.addData("Correction: ", bot.camera.tapeCorrection)
             mTelemetry.update()
-
-            PhotonCore.CONTROL_HUB.clearBulkCache()
         }
     }
 
@@ -103,5 +125,7 @@ abstract class RogueBaseAuto : BlackOp() {
     companion object {
         const val NUM_CYCLES = 5
         const val LAST_CYCLE = NUM_CYCLES - 1
+
+        val SIGNAL_IDS = listOf(1, 2, 3)
     }
 }
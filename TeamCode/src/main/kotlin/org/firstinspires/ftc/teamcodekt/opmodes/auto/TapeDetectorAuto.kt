@@ -6,6 +6,7 @@ import com.qualcomm.robotcore.eventloop.opmode.Autonomous
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode
 import ftc.rogue.blacksmith.Anvil
 import ftc.rogue.blacksmith.BlackOp
+import ftc.rogue.blacksmith.Scheduler
 import ftc.rogue.blacksmith.units.GlobalUnits
 import ftc.rogue.blacksmith.util.kt.invoke
 import ftc.rogue.blacksmith.util.toIn
@@ -24,7 +25,13 @@ class TapeDetectorAuto : LinearOpMode() {
 
     val camera: OpenCvCamera
 
+    var tapeAngle = -1.0
+
     init {
+        Scheduler.onValue<TapeDetector.Reading>(TapeDetector.READING_MSG) {
+            this@TapeDetectorAuto.tapeAngle = this.tapeAngle
+        }
+
         camera = OpenCvCameraFactory.getInstance().createWebcam(
             BlackOp.hwMap(DeviceNames.WEBCAM1),
             R.id.cameraMonitorViewId,
@@ -44,8 +51,12 @@ class TapeDetectorAuto : LinearOpMode() {
 
     override fun runOpMode() {
         while(!opModeIsActive()){
-            telemetry.addData("Angle", tapeDetectorPipeline.tapeAngle)
+            Scheduler.deliverAsyncMessages()
+            telemetry.addData("Angle", tapeAngle)
             telemetry.update()
         }
+
+        // Not a BlackOp, so nothing else cleans up the subscription
+        Scheduler.nuke()
     }
 }
@@ -14,7 +14,7 @@ abstract class RogueCombinedAuto : RogueBaseAuto() {
     }
 
     override fun mainTraj(startPose: Pose2d) =
-        Anvil.forgeTrajectory(bot.drive, startPose)
+        Anvil.forgeTrajectory(drive, startPose)
 //            .initialSetup()
             .initialGoToDeposit()
             .initialDeposit()
@@ -36,7 +36,7 @@ abstract class RogueCombinedAuto : RogueBaseAuto() {
 //                deposit()
             }
 
-            .thenRun(::parkTraj)
+            .thenRunOneOf(SIGNAL_IDS, { signalID }, ::parkTraj)
 
     abstract fun Anvil.initialGoToDeposit(): Anvil
 
@@ -44,7 +44,7 @@ abstract class RogueCombinedAuto : RogueBaseAuto() {
 
     abstract fun Anvil.goToIntake(it: Int): Anvil
 
-    abstract fun parkTraj(startPose: Pose2d): Anvil
+    abstract fun parkTraj(signalID: Int, startPose: Pose2d): Anvil
 
     private fun Anvil.initialSetup() = this
         .addTemporalMarker {
@@ -52,8 +52,8 @@ class RogueCombinedLeftAuto : RogueCombinedAuto() {
         .addTemporalMarker() {}
         .doInReverse()
 
-    override fun parkTraj(startPose: Pose2d) =
-        Anvil.forgeTrajectory(bot.drive, startPose) {
+    override fun parkTraj(signalID: Int, startPose: Pose2d) =
+        Anvil.forgeTrajectory(drive, startPose) {
             resetBot()
 
             when (signalID) {
@@ -19,7 +19,7 @@ class DoNotUseLol : RogueBaseAuto() {
     override val startPose = GlobalUnits.pos(91, -163, 90)
 
     override fun mainTraj(startPose: Pose2d) =
-        Anvil.forgeTrajectory(bot.drive, startPose)
+        Anvil.forgeTrajectory(drive, startPose)
             .addTemporalMarker {
                 bot.lift.targetHeight = LIFT_LOW - 95
                 bot.claw.close()
@@ -45,7 +45,7 @@ class DoNotUseLol : RogueBaseAuto() {
 
 //                setPoseEstimateInTemporalMarker(-250) {
 //                    mTelemetry.addData("Correcting amont", "")
-//                    val correction = bot.camera.tapeDetectorPipeline.correction.toIn()
+//                    val correction = bot.camera.tapeCorrection.toIn()
 //
 //                    val (x, _y, h) = bot.drive.localizer.poseEstimate
 //                    val y = _y + correction
@@ -62,7 +62,7 @@ class DoNotUseLol : RogueBaseAuto() {
                 deposit(it)
             }
 
-            .thenRun(::parkTraj)
+            .thenRunOneOf(SIGNAL_IDS, { signalID }, ::parkTraj)
 
     private fun Anvil.initialGoToDeposit() = this
         .splineTo(80.5, -45.5, 180 + 41)
@@ -183,8 +183,8 @@ class DoNotUseLol : RogueBaseAuto() {
             bot.intake.enable()
         }
 
-    private fun parkTraj(startPose: Pose2d) =
-        Anvil.forgeTrajectory(bot.drive, startPose) {
+    private fun parkTraj(signalID: Int, startPose: Pose2d) =
+        Anvil.forgeTrajectory(drive, startPose) {
             resetBot()
             when (signalID) {
                 1 -> {
@@ -20,7 +20,7 @@ class NewHighLeftAuto : RogueBaseAuto() {
     override val startPose = GlobalUnits.pos(-91, -163, 90)
 
     override fun mainTraj(startPose: Pose2d) =
-        Anvil.forgeTrajectory(bot.drive, startPose)
+        Anvil.forgeTrajectory(drive, startPose)
 
             .addTemporalMarker {
                 bot.lift.targetHeight = LIFT_MID
@@ -49,7 +49,7 @@ class NewHighLeftAuto : RogueBaseAuto() {
                 deposit(it)
             }
 
-            .thenRun(::parkTraj)
+            .thenRunOneOf(SIGNAL_IDS, { signalID }, ::parkTraj)
 
     private fun Anvil.initialGoToDeposit() = this
 //        .splineTo(-94, -8, -49-90)
@@ -183,8 +183,8 @@ class NewHighLeftAuto : RogueBaseAuto() {
         }
 
 
-    private fun parkTraj(startPose: Pose2d) =
-        Anvil.forgeTrajectory(bot.drive, startPose) {
+    private fun parkTraj(signalID: Int, startPose: Pose2d) =
+        Anvil.forgeTrajectory(drive, startPose) {
             resetBot()
 
             when (signalID) {
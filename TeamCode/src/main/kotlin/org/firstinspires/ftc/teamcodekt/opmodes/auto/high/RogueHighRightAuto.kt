@@ -18,7 +18,7 @@ class RogueHighRightAuto : RogueBaseAuto() {
     override val startPose = GlobalUnits.pos(91, -163, 90)
 
     override fun mainTraj(startPose: Pose2d) =
-        Anvil.forgeTrajectory(bot.drive, startPose)
+        Anvil.forgeTrajectory(drive, startPose)
             .setVelConstraint(40, 250.toRad(), DriveConstants.TRACK_WIDTH)
 
             .addTemporalMarker {
@@ -48,7 +48,7 @@ class RogueHighRightAuto : RogueBaseAuto() {
                 deposit(it)
             }
 
-            .thenRun(::parkTraj)
+            .thenRunOneOf(SIGNAL_IDS, { signalID }, ::parkTraj)
 
     private fun Anvil.initialGoToDeposit() = this
         .forward(132)
@@ -166,8 +166,8 @@ class RogueHighRightAuto : RogueBaseAuto() {
             bot.intake.enable()
         }
 
-    private fun parkTraj(startPose: Pose2d) =
-        Anvil.forgeTrajectory(bot.drive, startPose) {
+    private fun parkTraj(signalID: Int, startPose: Pose2d) =
+        Anvil.forgeTrajectory(drive, startPose) {
             resetBot()
 
             when (signalID) {
@@ -35,8 +35,8 @@ class RogueMidRightAuto : RogueMidAuto() {
         else -> throw CycleException()
     }.doInReverse()
 
-    override fun parkTraj(startPose: Pose2d) =
-        Anvil.forgeTrajectory(bot.drive, startPose) {
+    override fun parkTraj(signalID: Int, startPose: Pose2d) =
+        Anvil.forgeTrajectory(drive, startPose) {
             resetBot()
 
             when (signalID) {
@@ -19,7 +19,7 @@ class ShinyNewMidRight : RogueBaseAuto() {
     override val startPose = GlobalUnits.pos(91, -163, 90)
 
     override fun mainTraj(startPose: Pose2d) =
-        Anvil.forgeTrajectory(bot.drive, startPose)
+        Anvil.forgeTrajectory(drive, startPose)
             .addTemporalMarker {
                 bot.lift.targetHeight = LIFT_LOW - 95
                 bot.claw.close()
@@ -43,7 +43,7 @@ class ShinyNewMidRight : RogueBaseAuto() {
                 goToIntake(it)
 
 //                setPoseEstimateInTemporalMarker(-150) {
-//                    val correction = bot.camera.tapeDetectorPipeline.correction.toIn()
+//                    val correction = bot.camera.tapeCorrection.toIn()
 //
 //                    val (x, _y, h) = bot.drive.localizer.poseEstimate
 //                    val y = _y - correction
@@ -60,7 +60,7 @@ class ShinyNewMidRight : RogueBaseAuto() {
                 deposit(it)
             }
 
-            .thenRun(::parkTraj)
+            .thenRunOneOf(SIGNAL_IDS, { signalID }, ::parkTraj)
 
     private fun Anvil.initialGoToDeposit() = this
         .splineTo(82.25, -52, 215)
@@ -191,8 +191,8 @@ class ShinyNewMidRight : RogueBaseAuto() {
             bot.arm.targetAngle = 41.5
         }
 
-    private fun parkTraj(startPose: Pose2d) =
-        Anvil.forgeTrajectory(bot.drive, startPose) {
+    private fun parkTraj(signalID: Int, startPose: Pose2d) =
+        Anvil.forgeTrajectory(drive, startPose) {
             resetBot()
 
             when (signalID) {
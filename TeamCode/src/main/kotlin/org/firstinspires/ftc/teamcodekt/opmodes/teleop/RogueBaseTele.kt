@@ -6,6 +6,8 @@ import com.outoftheboxrobotics.photoncore.PhotonCore
 import com.qualcomm.hardware.lynx.LynxModule
 import ftc.rogue.blacksmith.BlackOp
 import ftc.rogue.blacksmith.Scheduler
+import ftc.rogue.blacksmith.internal.scheduler.TickPhase
+import ftc.rogue.blacksmith.listeners.Listener
 import ftc.rogue.blacksmith.listeners.ReforgedGamepad
 import org.firstinspires.ftc.teamcodekt.components.chains.*
 import org.firstinspires.ftc.teamcodekt.components.meta.createTeleOpBotComponents
@@ -39,12 +41,15 @@ abstract class RogueBaseTele : BlackOp() {
             PhotonCore.CONTROL_HUB.clearBulkCache()
         }
 
-        waitForStart()
-
-        Scheduler.debug({ opModeIsActive() && !isStopRequested }) {
+        // Every hardware write goes out together, once all of the chains' logic has ran
+        Listener.always(TickPhase.ACTUATE) {
             bot.drivetrain.drive(driver.gamepad, powerMulti)
             bot.updateComponents(useLiftDeadzone = true)
+        }
 
+        waitForStart()
+
+        Scheduler.debug({ opModeIsActive() && !isStopRequested }) {
             bot.lift.printLiftTelem()
             mTelemetry.addData("Loop time", loopTime)
             mTelemetry.update()